@@ -0,0 +1,282 @@
+package com.team34.controller;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.team34.model.Project;
+
+/**
+ * Saves the project in the background, without blocking the thread that owns the model.
+ * <p>
+ * The data is captured on the model thread with {@link Project#prepareSave()}, which only copies it,
+ * and is then written on a background thread. Once written, the model is updated on the model thread again.
+ * All methods of this class, except {@link AutosaveService#awaitWritten()}, and of the {@link Listener}, are
+ * called on the model thread.
+ * <p>
+ * An autosave is triggered once the project has unsaved changes, and either no change has been made for
+ * the idle time, or the interval has passed since the last save. Triggers that arrive while a save is in
+ * progress are coalesced into a single save, that starts once the current one has finished.
+ */
+public class AutosaveService {
+
+    /**
+     * Receives the progress of saves. Called on the model thread.
+     */
+    public interface Listener {
+        void saveStarted(boolean autosave);
+        void saveFinished(boolean autosave);
+        void saveFailed(boolean autosave, Exception e);
+    }
+
+    private static final long TICK_SECONDS = 1L;
+
+    private final Project model;
+    private final Executor modelExecutor;
+    private final Listener listener;
+    private final ScheduledExecutorService worker;
+
+    private ScheduledFuture<?> ticker;
+    private long intervalMillis;
+    private long idleMillis;
+
+    private volatile Future<?> currentSave;
+    private boolean saveQueued;
+    private boolean queuedIsAutosave;
+    private ArrayList<Runnable> currentCallbacks; // Run once the current save is done
+    private ArrayList<Runnable> queuedCallbacks; // Run once the next save to start is done
+
+    private long lastChangeCount;
+    private long lastChangeTime;
+    private long lastSaveTime;
+
+    /**
+     * Creates the service, without starting it.
+     * @param model the project to save
+     * @param modelExecutor runs tasks on the thread that owns the model, eg. Platform::runLater
+     * @param listener receives the progress of saves
+     */
+    public AutosaveService(Project model, Executor modelExecutor, Listener listener) {
+        this.model = model;
+        this.modelExecutor = modelExecutor;
+        this.listener = listener;
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        worker = executor;
+
+        ticker = null;
+        currentSave = null;
+        saveQueued = false;
+        currentCallbacks = new ArrayList<>();
+        queuedCallbacks = new ArrayList<>();
+        lastChangeCount = model.getChangeCount();
+        lastChangeTime = System.currentTimeMillis();
+        lastSaveTime = lastChangeTime;
+    }
+
+    /**
+     * Starts triggering autosaves. Restarts the service if it is already running.
+     * @param intervalSeconds the longest time between saves, while there are unsaved changes
+     * @param idleSeconds the time without changes after which to save
+     */
+    public void start(int intervalSeconds, int idleSeconds) {
+        stop();
+        intervalMillis = Math.max(1, intervalSeconds) * 1000L;
+        idleMillis = Math.max(1, idleSeconds) * 1000L;
+
+        ticker = worker.scheduleWithFixedDelay(
+                () -> modelExecutor.execute(this::tick),
+                TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS
+        );
+    }
+
+    /**
+     * Stops triggering autosaves. A save in progress is finished.
+     */
+    public void stop() {
+        if(ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    public boolean isRunning() {
+        return ticker != null;
+    }
+
+    /**
+     * Saves the project in the background right away. If a save is in progress, another
+     * save is started once it has finished.
+     */
+    public void saveNow() {
+        requestSave(false);
+    }
+
+    /**
+     * Saves the project in the background right away, like {@link AutosaveService#saveNow()}, and runs the
+     * given task on the model thread once the project has been saved. The task is not run if saving fails.
+     * @param onSaved the task to run once saved
+     */
+    public void saveNow(Runnable onSaved) {
+        queuedCallbacks.add(onSaved);
+        requestSave(false);
+    }
+
+    /**
+     * Returns whether a save is being written, or is queued.
+     * @return true if saving
+     */
+    public boolean isSaving() {
+        return currentSave != null || saveQueued;
+    }
+
+    /**
+     * Blocks until the save that is currently being written, if any, is on disk.
+     * Queued saves are discarded, along with the tasks waiting for them. This should be called before
+     * saving on the model thread, so that two saves never write to the same file at once.
+     */
+    public void awaitIdle() {
+        saveQueued = false;
+        queuedCallbacks.clear();
+        if(currentSave == null)
+            return;
+
+        try {
+            currentSave.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Reported to the listener by the save itself
+        }
+    }
+
+    /**
+     * Blocks until the save that is currently being written, if any, is on disk, like
+     * {@link AutosaveService#awaitIdle()}, but leaves queued saves as they are. Unlike the other methods,
+     * this may be called on any thread, eg. to write the project file by other means once the save is done.
+     */
+    public void awaitWritten() {
+        Future<?> save = currentSave;
+        if(save == null)
+            return;
+
+        try {
+            save.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Reported to the listener by the save itself
+        }
+    }
+
+    /**
+     * Stops the service, waits for a save in progress to finish, and shuts down the background thread.
+     */
+    public void shutdown() {
+        stop();
+        awaitIdle();
+        worker.shutdown();
+    }
+
+    /**
+     * Called on the model thread once per tick, and decides whether to autosave.
+     */
+    private void tick() {
+        if(ticker == null)
+            return;
+
+        long now = System.currentTimeMillis();
+        long changeCount = model.getChangeCount();
+        if(changeCount != lastChangeCount) {
+            lastChangeCount = changeCount;
+            lastChangeTime = now;
+        }
+
+        if(model.getProjectFile() == null || !model.hasUnsavedChanges())
+            return;
+        if(model.isLoading())
+            return; // Saved on a later tick, once the whole project is there
+
+        if(now - lastChangeTime >= idleMillis || now - lastSaveTime >= intervalMillis)
+            requestSave(true);
+    }
+
+    private void requestSave(boolean autosave) {
+        if(currentSave != null) {
+            // Coalesce with any save that is already queued
+            queuedIsAutosave = saveQueued ? queuedIsAutosave && autosave : autosave;
+            saveQueued = true;
+            return;
+        }
+
+        if(model.isLoading()) {
+            // The project is being loaded or replaced, and is not to be saved until then
+            queuedCallbacks.clear();
+            return;
+        }
+
+        Project.PendingSave save;
+        try {
+            save = model.prepareSave();
+        } catch (Exception e) {
+            queuedCallbacks.clear();
+            listener.saveFailed(autosave, e);
+            return;
+        }
+
+        currentCallbacks = queuedCallbacks;
+        queuedCallbacks = new ArrayList<>();
+
+        lastSaveTime = System.currentTimeMillis();
+        listener.saveStarted(autosave);
+
+        currentSave = worker.submit(() -> {
+            Exception failure = null;
+            try {
+                save.write();
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            Exception result = failure;
+            modelExecutor.execute(() -> saveDone(save, autosave, result));
+        });
+    }
+
+    private void saveDone(Project.PendingSave save, boolean autosave, Exception failure) {
+        currentSave = null;
+        ArrayList<Runnable> callbacks = currentCallbacks;
+        currentCallbacks = new ArrayList<>();
+
+        if(failure == null) {
+            try {
+                model.completeSave(save);
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        if(failure == null) {
+            listener.saveFinished(autosave);
+            for(Runnable callback : callbacks)
+                callback.run();
+        } else {
+            listener.saveFailed(autosave, failure);
+        }
+
+        if(saveQueued) {
+            saveQueued = false;
+            requestSave(queuedIsAutosave);
+        }
+    }
+
+}
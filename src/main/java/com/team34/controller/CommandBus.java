@@ -0,0 +1,132 @@
+package com.team34.controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs commands from the controller without blocking the model thread.
+ * <p>
+ * A command has two steps. Its work, eg. reading or merging project files, does not touch the live model, and
+ * runs on a single background thread, one command at a time in the order they were submitted. Its result is then
+ * applied to the model on the model thread. Since there is one worker, results are applied in submission order
+ * too, so later commands always see the effects of earlier ones. The model thread stays the only thread that
+ * changes the model, and keeps handling the user while the work runs.
+ * <p>
+ * The model may change while a command's work runs. Commands that depend on the state of the model when they
+ * were submitted should check it again when applying their result, eg. with Project.getChangeCount().
+ * <p>
+ * {@link CommandBus#submit(String, Work, Result, Failure)} and {@link CommandBus#isBusy()} must be called on
+ * the model thread.
+ */
+public class CommandBus {
+
+    /**
+     * The part of a command that runs on the background thread.
+     * @param <T> the type of the result
+     */
+    public interface Work<T> {
+        T run() throws Exception;
+    }
+
+    /**
+     * The part of a command that applies its result on the model thread.
+     * @param <T> the type of the result
+     */
+    public interface Result<T> {
+        void accept(T result) throws Exception;
+    }
+
+    /**
+     * Called on the model thread if either part of a command throws.
+     */
+    public interface Failure {
+        void failed(Exception e);
+    }
+
+    /**
+     * Told on the model thread when the bus starts or stops running commands.
+     */
+    public interface Listener {
+        void busyChanged(boolean busy, String description);
+    }
+
+    private final Executor modelExecutor;
+    private final ExecutorService worker;
+    private final Listener listener;
+    private int pending;
+
+    /**
+     * @param modelExecutor runs tasks on the model thread, eg. Platform::runLater
+     * @param listener told when the bus becomes busy or idle, may be null
+     */
+    public CommandBus(Executor modelExecutor, Listener listener) {
+        this.modelExecutor = modelExecutor;
+        this.listener = listener;
+        pending = 0;
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "model-commands");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a command. Its work runs after the work of every command submitted before it, and its result,
+     * or failure, is handled on the model thread after theirs.
+     * @param description what the command does, passed to the listener
+     * @param work runs on the background thread
+     * @param apply applies the result on the model thread
+     * @param failure handles an exception from either step, on the model thread
+     * @param <T> the type of the result
+     */
+    public <T> void submit(String description, Work<T> work, Result<T> apply, Failure failure) {
+        pending++;
+        if(pending == 1 && listener != null)
+            listener.busyChanged(true, description);
+
+        worker.execute(() -> {
+            T result;
+            try {
+                result = work.run();
+            } catch (Exception e) {
+                modelExecutor.execute(() -> finish(() -> failure.failed(e)));
+                return;
+            }
+
+            modelExecutor.execute(() -> finish(() -> {
+                try {
+                    apply.accept(result);
+                } catch (Exception e) {
+                    failure.failed(e);
+                }
+            }));
+        });
+    }
+
+    /**
+     * Returns whether any submitted command has not yet been applied.
+     * @return true if busy
+     */
+    public boolean isBusy() {
+        return pending > 0;
+    }
+
+    /**
+     * Stops the background thread. Commands whose work has not started are dropped.
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void finish(Runnable step) {
+        try {
+            step.run();
+        } finally {
+            pending--;
+            if(pending == 0 && listener != null)
+                listener.busyChanged(false, null);
+        }
+    }
+
+}
@@ -0,0 +1,345 @@
+package com.team34.controller;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.team34.model.Project;
+import com.team34.model.io.OutlineReader;
+
+/**
+ * Imports an outline from a CSV or JSON file into the project, without blocking the thread that owns the model.
+ * <p>
+ * The file is read on a background thread with an {@link OutlineReader}, and its records are gathered into
+ * batches, which are added to the model on the model thread. Only a couple of batches are ever waiting
+ * for the model thread, so that the reader never gets far ahead of the model, and memory use stays
+ * the same regardless of the size of the file.
+ * <p>
+ * Events without an order are placed after the existing events as they are imported. Events with an order
+ * are placed once the whole file has been read, after the others, sorted by their order.
+ * Characters without a chart position are laid out on a grid. Associations refer to characters by name,
+ * and are skipped if either character does not exist.
+ * <p>
+ * An import can be cancelled, in which case the records that have already been imported are kept.
+ * All methods of this class, and of the {@link Listener}, are called on the model thread.
+ */
+public class ImportService {
+
+    /**
+     * Receives the progress of imports. Called on the model thread.
+     */
+    public interface Listener {
+        void importProgress(int events, int characters, double progress);
+        void importFinished(int events, int characters, boolean cancelled);
+        void importFailed(Exception e);
+    }
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int BATCHES_IN_FLIGHT = 2;
+    private static final int GRID_COLUMNS = 10;
+    private static final double GRID_SPACING = 150.0;
+
+    private final Project model;
+    private final Executor modelExecutor;
+    private final Listener listener;
+    private final ExecutorService worker;
+
+    private Future<?> currentImport;
+    private volatile boolean cancelled;
+
+    /**
+     * @param model the project to import into
+     * @param modelExecutor runs tasks on the thread that owns the model, eg. Platform::runLater
+     * @param listener receives the progress of imports
+     */
+    public ImportService(Project model, Executor modelExecutor, Listener listener) {
+        this.model = model;
+        this.modelExecutor = modelExecutor;
+        this.listener = listener;
+
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "import");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        currentImport = null;
+        cancelled = false;
+    }
+
+    /**
+     * Starts importing the given file in the background. Does nothing if an import is in progress.
+     * @param file the CSV or JSON file to import
+     */
+    public void start(File file) {
+        if(currentImport != null)
+            return;
+
+        cancelled = false;
+        Import job = new Import(file);
+        currentImport = worker.submit(job::run);
+    }
+
+    /**
+     * Stops the import in progress, if any. Records that have already been imported are kept.
+     */
+    public void cancel() {
+        if(currentImport != null)
+            cancelled = true;
+    }
+
+    /**
+     * Returns whether an import is in progress.
+     * @return true if importing
+     */
+    public boolean isImporting() {
+        return currentImport != null;
+    }
+
+    /**
+     * Cancels the import in progress, if any, and shuts down the background thread.
+     */
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A single import. The records are gathered on the background thread, and the model-side state
+     * is only touched on the model thread, from {@link Import#apply(Batch)} and {@link Import#finish(Exception)}.
+     */
+    private class Import implements OutlineReader.Sink {
+        private final OutlineReader reader;
+        private final Semaphore inFlight;
+
+        // Background thread
+        private Batch batch;
+
+        // Model thread
+        private final HashMap<String, Placed> characters;
+        private long[] orderedUIDs;
+        private double[] orders;
+        private int orderedCount;
+        private int eventCount;
+        private int characterCount;
+        private int gridIndex;
+
+        Import(File file) {
+            reader = new OutlineReader(file);
+            inFlight = new Semaphore(BATCHES_IN_FLIGHT);
+            batch = new Batch();
+
+            characters = new HashMap<>();
+            for(Object[] character : model.characterManager.getCharacterList()) {
+                characters.put((String) character[0],
+                        new Placed((Long) character[1], (Double) character[2], (Double) character[3]));
+            }
+            orderedUIDs = new long[64];
+            orders = new double[64];
+            orderedCount = 0;
+            eventCount = 0;
+            characterCount = 0;
+            gridIndex = characters.size();
+        }
+
+        void run() {
+            Exception failure = null;
+            try {
+                reader.read(this);
+                submit();
+            } catch (CancellationException e) {
+                // Keep what has been imported so far
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            Exception result = failure;
+            modelExecutor.execute(() -> finish(result));
+        }
+
+        ////// Background thread ///////////////////////////////////////////
+
+        @Override
+        public void event(String name, String description, double order) {
+            checkCancelled();
+            if(Double.isNaN(order)) {
+                batch.events.add(new String[] {name, description});
+            } else {
+                batch.orderedEvents.add(new String[] {name, description});
+                batch.addOrder(order);
+            }
+            added();
+        }
+
+        @Override
+        public void character(String name, String description, double x, double y) {
+            checkCancelled();
+            batch.characters.add(new Object[] {name, description, x, y});
+            added();
+        }
+
+        @Override
+        public void association(String from, String to, String label) {
+            checkCancelled();
+            batch.associations.add(new String[] {from, to, label});
+            added();
+        }
+
+        private void checkCancelled() {
+            if(cancelled || Thread.currentThread().isInterrupted())
+                throw new CancellationException();
+        }
+
+        private void added() {
+            if(++batch.size < BATCH_SIZE)
+                return;
+
+            try {
+                submit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * Hands the current batch over to the model thread, waiting while too many batches are in flight.
+         */
+        private void submit() throws InterruptedException {
+            if(batch.size == 0)
+                return;
+
+            Batch full = batch;
+            batch = new Batch();
+
+            inFlight.acquire();
+            modelExecutor.execute(() -> {
+                try {
+                    apply(full);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        ////// Model thread ////////////////////////////////////////////////
+
+        private void apply(Batch batch) {
+            if(!batch.events.isEmpty()) {
+                model.eventManager.newEvents(batch.events.toArray(new String[0][]), true);
+                eventCount += batch.events.size();
+            }
+
+            if(!batch.orderedEvents.isEmpty()) {
+                long[] uids = model.eventManager.newEvents(batch.orderedEvents.toArray(new String[0][]), false);
+                for(int i = 0; i < uids.length; i++)
+                    addOrdered(uids[i], batch.orders[i]);
+                eventCount += uids.length;
+            }
+
+            if(!batch.characters.isEmpty()) {
+                Object[][] data = batch.characters.toArray(new Object[0][]);
+                for(Object[] character : data) {
+                    if(Double.isNaN((Double) character[2]) || Double.isNaN((Double) character[3])) {
+                        character[2] = (gridIndex % GRID_COLUMNS) * GRID_SPACING;
+                        character[3] = (gridIndex / GRID_COLUMNS) * GRID_SPACING;
+                    }
+                    gridIndex++;
+                }
+
+                long[] uids = model.characterManager.newCharacters(data);
+                for(int i = 0; i < uids.length; i++)
+                    characters.put((String) data[i][0], new Placed(uids[i], (Double) data[i][2], (Double) data[i][3]));
+                characterCount += uids.length;
+            }
+
+            for(String[] association : batch.associations) {
+                Placed start = characters.get(association[0]);
+                Placed end = characters.get(association[1]);
+                if(start == null || end == null)
+                    continue;
+
+                model.characterManager.newAssociation(start.uid, end.uid, start.x, start.y, end.x, end.y,
+                        association[2], (start.x + end.x) / 2.0, (start.y + end.y) / 2.0);
+            }
+
+            listener.importProgress(eventCount, characterCount, reader.getProgress());
+        }
+
+        private void addOrdered(long uid, double order) {
+            if(orderedCount == orderedUIDs.length) {
+                orderedUIDs = Arrays.copyOf(orderedUIDs, orderedCount * 2);
+                orders = Arrays.copyOf(orders, orderedCount * 2);
+            }
+            orderedUIDs[orderedCount] = uid;
+            orders[orderedCount] = order;
+            orderedCount++;
+        }
+
+        /**
+         * Places the events that had an order, sorted by it, and reports the result.
+         */
+        private void finish(Exception failure) {
+            Integer[] indices = new Integer[orderedCount];
+            for(int i = 0; i < orderedCount; i++)
+                indices[i] = i;
+            Arrays.sort(indices, (a, b) -> Double.compare(orders[a], orders[b]));
+            for(Integer index : indices)
+                model.eventManager.appendEvent(orderedUIDs[index]);
+
+            currentImport = null;
+
+            if(failure != null)
+                listener.importFailed(failure);
+            else
+                listener.importFinished(eventCount, characterCount, cancelled);
+        }
+    }
+
+    /**
+     * The records read since the last batch was handed over.
+     */
+    private static class Batch {
+        final ArrayList<String[]> events = new ArrayList<>();
+        final ArrayList<String[]> orderedEvents = new ArrayList<>();
+        final ArrayList<Object[]> characters = new ArrayList<>();
+        final ArrayList<String[]> associations = new ArrayList<>();
+        double[] orders = new double[16];
+        int size = 0;
+
+        void addOrder(double order) {
+            int index = orderedEvents.size() - 1;
+            if(index == orders.length)
+                orders = Arrays.copyOf(orders, orders.length * 2);
+            orders[index] = order;
+        }
+    }
+
+    /**
+     * A character that associations can refer to by name.
+     */
+    private static class Placed {
+        final long uid;
+        final double x;
+        final double y;
+
+        Placed(long uid, double x, double y) {
+            this.uid = uid;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+}
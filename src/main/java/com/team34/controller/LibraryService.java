@@ -0,0 +1,194 @@
+package com.team34.controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import com.team34.model.io.ProjectFiles;
+import com.team34.model.io.ProjectSnapshot;
+import com.team34.model.library.LibraryIndex;
+
+/**
+ * Keeps a {@link LibraryIndex} of the project files in the project directory up to date, on a background thread.
+ * <p>
+ * A scan lists the project files in the directory and its subdirectories, and only reads the files that are
+ * new or have changed since they were indexed; files that no longer exist are removed from the index.
+ * The index is stored in the given index file after every scan that changed it, so that it does not have
+ * to be rebuilt when the application starts. Scans requested while a scan is in progress are coalesced.
+ * <p>
+ * {@link LibraryService#search(String, int)} may be called on any thread, also while scanning.
+ * The {@link Listener} is called on the model thread.
+ */
+public class LibraryService {
+
+    /**
+     * Receives the result of scans. Called on the model thread.
+     */
+    public interface Listener {
+        void libraryUpdated(int projects);
+    }
+
+    private static final int MAX_DEPTH = 8;
+
+    private final File indexFile;
+    private final Executor modelExecutor;
+    private final Listener listener;
+    private final ExecutorService worker;
+
+    private volatile LibraryIndex index;
+    private File requestedDirectory;
+    private boolean scanning;
+    private boolean scanQueued;
+
+    /**
+     * @param indexFile the file to store the index in
+     * @param modelExecutor runs tasks on the thread that owns the model, eg. Platform::runLater
+     * @param listener receives the result of scans
+     */
+    public LibraryService(File indexFile, Executor modelExecutor, Listener listener) {
+        this.indexFile = indexFile;
+        this.modelExecutor = modelExecutor;
+        this.listener = listener;
+
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "library");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        index = null;
+        requestedDirectory = null;
+        scanning = false;
+        scanQueued = false;
+    }
+
+    /**
+     * Brings the index of the given directory up to date in the background. If another directory was
+     * indexed before, the index of that directory is discarded.
+     * @param directory the project directory
+     */
+    public synchronized void scan(File directory) {
+        if(directory == null || !directory.isDirectory())
+            return;
+
+        requestedDirectory = directory.getAbsoluteFile();
+        if(scanning) {
+            scanQueued = true;
+            return;
+        }
+
+        scanning = true;
+        worker.execute(this::runScans);
+    }
+
+    /**
+     * Finds the indexed projects that contain every word of the query, see {@link LibraryIndex#search(String, int)}.
+     * @param query the words to search for
+     * @param limit the maximum number of results
+     * @return the matching projects, best match first
+     */
+    public List<LibraryIndex.Result> search(String query, int limit) {
+        LibraryIndex current = index;
+        if(current == null)
+            return new ArrayList<>();
+        return current.search(query, limit);
+    }
+
+    /**
+     * Stops the background thread. A scan in progress is abandoned; the index is stored as of the last scan.
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void runScans() {
+        while(true) {
+            File directory;
+            synchronized(this) {
+                directory = requestedDirectory;
+                scanQueued = false;
+            }
+
+            try {
+                int projects = scanDirectory(directory);
+                modelExecutor.execute(() -> listener.libraryUpdated(projects));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            synchronized(this) {
+                if(!scanQueued || Thread.currentThread().isInterrupted()) {
+                    scanning = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    private int scanDirectory(File directory) throws IOException {
+        LibraryIndex current = index;
+        if(current == null || !current.getDirectory().equals(directory)) {
+            current = LibraryIndex.read(indexFile, directory);
+            index = current;
+        }
+
+        HashSet<File> found = new HashSet<>();
+        Files.walkFileTree(directory.toPath(), EnumSet.noneOf(FileVisitOption.class), MAX_DEPTH,
+                new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if(attributes.isRegularFile() && file.getFileName().toString().endsWith(".wsp"))
+                            found.add(file.toFile().getAbsoluteFile());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        return FileVisitResult.CONTINUE; // Unreadable files and directories are skipped
+                    }
+                });
+
+        boolean changed = false;
+        for(File file : current.getFiles()) {
+            if(!found.contains(file)) {
+                current.remove(file);
+                changed = true;
+            }
+        }
+
+        for(File file : found) {
+            if(Thread.currentThread().isInterrupted())
+                break;
+            if(current.isCurrent(file))
+                continue;
+
+            long lastModified = file.lastModified();
+            long length = file.length();
+            try {
+                ProjectSnapshot snapshot = ProjectFiles.read(file);
+                current.put(file, lastModified, length, snapshot);
+            } catch (Exception e) {
+                // Not a readable project file; it is tried again once it changes
+                current.put(file, lastModified, length, new ProjectSnapshot());
+            }
+            changed = true;
+        }
+
+        if(changed)
+            current.write(indexFile);
+        return current.size();
+    }
+
+}
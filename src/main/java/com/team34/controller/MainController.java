@@ -1,10 +1,14 @@
 package com.team34.controller;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
+import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.DragEvent;
@@ -16,11 +20,29 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import com.team34.view.dialogs.EditCharacterDialog;
 import com.team34.view.dialogs.EditEventDialog;
 import com.team34.view.dialogs.EditAssociationDialog;
+import com.team34.model.ModelChangeListener;
 import com.team34.model.Project;
+import com.team34.model.Workspace;
+import com.team34.model.diagnostics.LatencyRecorder;
+import com.team34.model.io.CorruptSectionException;
+import com.team34.model.io.ExportFormat;
+import com.team34.model.io.ProjectFormat;
+import com.team34.model.io.ProjectHistory;
+import com.team34.model.io.ProjectMerge;
+import com.team34.model.io.ProjectSection;
+import com.team34.model.io.ProjectSnapshot;
+import com.team34.model.library.LibraryIndex;
+import com.team34.model.library.RecentProjects;
+import com.team34.view.dialogs.SearchProjectsDialog;
 import com.team34.view.MainView;
 
 /**
@@ -35,6 +57,9 @@ import com.team34.view.MainView;
  */
 public class MainController {
 
+    /** How many times a project file is read again, if it changes while it is opened */
+    private static final int OPEN_ATTEMPTS = 3;
+
     private final MainView view;
     private final Project model;
     private final EventHandler<ActionEvent> evtButtonAction;
@@ -43,6 +68,13 @@ public class MainController {
     private final EventHandler<ActionEvent> evtMenuBarAction;
     private final EventHandler<DragEvent> evtDragDropped;
     private final EventHandler<MouseEvent> evtMouseCharacterList;
+    private final AutosaveService autosave;
+    private final ImportService importService;
+    private final Workspace workspace;
+    private final LibraryService library;
+    private final RefreshScheduler refreshes;
+    private final CommandBus commands;
+    private final LatencyRecorder latencies;
 
     /**
      * Constructs the controller. Initializes member variables
@@ -54,15 +86,93 @@ public class MainController {
     public MainController(MainView view, Project model) {
         this.view = view;
         this.model = model;
+        this.latencies = model.getLatencyRecorder();
+
+        // Every handler is timed, see the Help > Diagnostics dialog
+        this.evtButtonAction = timed("button", new EventButtonAction());
+        this.evtContextMenuAction = timed("context", new EventContextMenuAction());
+        this.evtCloseRequest = timed("window", new EventCloseRequest());
+        this.evtMenuBarAction = timed("menu", new EventMenuBarAction());
+        this.evtDragDropped = timed("timeline", new EventDragDropped());
+        this.evtMouseCharacterList = timed("characterlist", new CharacterListMouseEvent());
 
-        this.evtButtonAction = new EventButtonAction();
-        this.evtContextMenuAction = new EventContextMenuAction();
-        this.evtCloseRequest = new EventCloseRequest();
-        this.evtMenuBarAction = new EventMenuBarAction();
-        this.evtDragDropped = new EventDragDropped();
-        this.evtMouseCharacterList = new CharacterListMouseEvent();
+        this.refreshes = new RefreshScheduler(Platform::runLater);
+        refreshes.setRefresher(RefreshScheduler.View.EVENTS, timed("refresh:events", this::updateViewEvents));
+        refreshes.setRefresher(RefreshScheduler.View.CHARACTERS, timed("refresh:characters", this::updateCharacterList));
+        refreshes.setRefresher(RefreshScheduler.View.TITLE, timed("refresh:title", this::updateTitleBar));
 
         registerEventsOnView();
+        model.addChangeListener(new EventViewUpdater());
+        model.setModelExecutor(Platform::runLater); // Compacts the journal in between actions
+        view.setJournaledSaving(model.isJournalEnabled());
+
+        Project.UserPreferences userPrefs = model.getUserPreferences();
+        this.autosave = new AutosaveService(model, Platform::runLater, new SaveProgress());
+        if (userPrefs.autosaveEnabled)
+            autosave.start(userPrefs.autosaveInterval, userPrefs.autosaveIdle);
+        view.setAutosave(userPrefs.autosaveEnabled);
+        view.setKeepHistory(userPrefs.historyEnabled);
+
+        this.importService = new ImportService(model, Platform::runLater, new ImportProgress());
+        this.commands = new CommandBus(Platform::runLater, new CommandProgress());
+        this.workspace = new Workspace(model, userPrefs.workspaceMemory * (1L << 20));
+
+        this.library = new LibraryService(new File(System.getProperty("user.dir"), "library.index"),
+                Platform::runLater, projects -> {});
+        library.scan(Paths.get(userPrefs.projectDir).toFile());
+
+        // Read the most recent project ahead of time, as it is the one most likely to be opened
+        File recent = showRecentProjects();
+        if (recent != null)
+            workspace.preload(recent, Platform::runLater);
+    }
+
+    /**
+     * Wraps a handler, so that the time it takes to handle each event is recorded in the
+     * {@link LatencyRecorder}, as the given category followed by the ID of the source of the event,
+     * or by the type of the event if the source has no ID.
+     * @param category the kind of handler, eg. "menu"
+     * @param handler the handler to time
+     * @param <T> the type of the events
+     * @return the timed handler
+     */
+    private <T extends Event> EventHandler<T> timed(String category, EventHandler<T> handler) {
+        return e -> {
+            long start = latencies.start();
+            try {
+                handler.handle(e);
+            } finally {
+                latencies.record(category + ":" + actionOf(e), start);
+            }
+        };
+    }
+
+    /**
+     * Wraps a task, so that the time it takes is recorded in the {@link LatencyRecorder}.
+     * @param action the name of the task
+     * @param task the task to time
+     * @return the timed task
+     */
+    private Runnable timed(String action, Runnable task) {
+        return () -> {
+            long start = latencies.start();
+            try {
+                task.run();
+            } finally {
+                latencies.record(action, start);
+            }
+        };
+    }
+
+    private static String actionOf(Event e) {
+        Object source = e.getSource();
+        String id = null;
+        if (source instanceof MenuItem)
+            id = ((MenuItem) source).getId();
+        else if (source instanceof Node)
+            id = ((Node) source).getId();
+
+        return id != null ? id : e.getEventType().getName();
     }
 
     /**
@@ -76,10 +186,11 @@ public class MainController {
         view.registerMenuBarActionEvents(evtMenuBarAction);
         view.registerDragEvent(evtDragDropped);
         view.registerMouseEvents(evtMouseCharacterList);
+        view.registerRecentProjectsEvent(timed("recent", new RecentProjectsMouseEvent()));
         view.registerCharacterChartEvents(
-                new EventCharacterRectReleased(),
-                new EventChartClick(),
-                new EventAssociationLabelReleased()
+                timed("chart", new EventCharacterRectReleased()),
+                timed("chart", new EventChartClick()),
+                timed("chart", new EventAssociationLabelReleased())
         );
     }
 
@@ -95,6 +206,11 @@ public class MainController {
      * from different sources, eg. timeline context menu, event list.
      */
     private void createNewEvent() {
+        if (model.isLoading()) {
+            view.getStatusBar().setMessage("Wait for the events to finish loading first", false);
+            return;
+        }
+
         if (view.getEditEventDialog().showCreateEvent() == EditEventDialog.WindowResult.OK) {
             long newEventUID = model.eventManager.newEvent(
                     view.getEditEventDialog().getEventName(),
@@ -138,21 +254,37 @@ public class MainController {
     }
 
     /**
-     * Instructs the view to update the view of events with the current state of the model.
+     * Marks the view of events dirty, so that it is updated with the current state of the model
+     * once the current action has finished, see {@link RefreshScheduler}.
      */
     private void refreshViewEvents() {
+        refreshes.markDirty(RefreshScheduler.View.EVENTS);
+    }
+
+    /**
+     * Instructs the view to update the view of events with the current state of the model.
+     */
+    private void updateViewEvents() {
         view.updateEvents(
                 model.eventManager.getEvents(),
                 model.eventManager.getEventOrder(view.getEventOrderList())
         );
     }
 
+    /**
+     * Marks the title of the application window dirty, so that it is updated once the current action
+     * has finished, see {@link RefreshScheduler}.
+     */
+    private void refreshTitleBar() {
+        refreshes.markDirty(RefreshScheduler.View.TITLE);
+    }
+
     /**
      * Updates the title of the application window.
      * Displays the name of the project, followed by an asterisk, if
      * there are any unsaved changes.
      */
-    private void refreshTitleBar() {
+    private void updateTitleBar() {
         String title = "Writer's Studio - ";
 
         if (model.getProjectName().isEmpty())
@@ -166,24 +298,50 @@ public class MainController {
         view.getMainStage().setTitle(title);
     }
 
-    // Returns false if action should not continue
-
     /**
      * If there are any unsaved changes, the unsaved changes dialog will be shown.
-     * If there are no unsaved changes, nothing happens, and it returns true.
+     * If there are no unsaved changes, the action continues right away.
+     * <p>
+     * If the user chooses to save, the action continues once the project has been saved in the
+     * background, see {@link MainController#saveProject(Runnable)}. Any changes made while saving
+     * are asked about again.
      *
-     * @return false if the action should not continue (user canceled)
+     * @param next the action to continue with; not run if the user cancels, or saving fails
      */
-    private boolean saveBeforeContinue() {
+    private void saveBeforeContinue(Runnable next) {
+        if (model.isLoading()) {
+            view.getStatusBar().setMessage("Wait for the project to finish loading first", false);
+            return;
+        }
+
         if (model.hasUnsavedChanges()) {
             ButtonType result = view.showUnsavedChangesDialog();
             if (result == ButtonType.YES) {
-                saveProject();
+                saveProject(() -> saveBeforeContinue(next));
+                return;
             } else if (result == ButtonType.CANCEL || result == ButtonType.CLOSE) {
-                return false;
+                return;
             }
         }
 
+        next.run();
+    }
+
+    /**
+     * Tells the user to wait if an import, or a command such as opening or restoring a project, is in
+     * progress, as the action about to be taken would start over with another project meanwhile.
+     *
+     * @return true if the action may be taken
+     */
+    private boolean checkIdle() {
+        if (importService.isImporting()) {
+            view.getStatusBar().setMessage("Finish or cancel the import first", true);
+            return false;
+        }
+        if (commands.isBusy()) {
+            view.getStatusBar().setMessage("Wait for the current operation to finish first", true);
+            return false;
+        }
         return true;
     }
 
@@ -209,36 +367,484 @@ public class MainController {
 
         userPrefs.projectDir = file.getParent();
 
+        model.writeUserPrefs();
+        library.scan(file.getParentFile());
+
+        openProjectFile(file);
+    }
+
+    /**
+     * Makes the given file the current project through the {@link Workspace}, which keeps the
+     * project that was open until now in memory, then refreshes the view.
+     * The file is read, and its journals replayed, through the {@link CommandBus}, so the view stays
+     * responsive meanwhile; only the result is installed on this thread.
+     * @param file the project file to open
+     */
+    private void openProjectFile(File file) {
+        openProjectFile(file, 1, latencies.start());
+    }
+
+    /**
+     * Reads and opens the given file, reading it again if it has changed by the time it is to be opened.
+     */
+    private void openProjectFile(File file, int attempt, long start) {
+        long changeCount = model.getChangeCount();
+        commands.submit("Opening " + file.getName() + "...", () -> workspace.readAhead(file), read -> {
+            // The current project may have been changed while the file was read
+            if (model.getChangeCount() != changeCount)
+                saveBeforeContinue(() -> openReadProject(file, read, attempt, start));
+            else
+                openReadProject(file, read, attempt, start);
+        }, e -> {
+            e.printStackTrace();
+            view.getStatusBar().setMessage("The project could not be opened: " + e.getMessage(), true);
+        });
+    }
+
+    /**
+     * Opens a file that has been read, reading it again if it has changed since.
+     */
+    private void openReadProject(File file, Workspace.ReadAhead read, int attempt, long start) {
+        boolean opened;
         try {
-            model.writeUserPrefs();
-        } catch (IOException | XMLStreamException e) {
+            opened = workspace.open(file, read);
+        } catch (IOException e) {
             e.printStackTrace();
+            view.getStatusBar().setMessage("The project could not be opened: " + e.getMessage(), true);
+            return;
         }
 
+        if (!opened) {
+            // The file was written in the meantime, eg. by a sync client or another instance
+            if (attempt < OPEN_ATTEMPTS)
+                openProjectFile(file, attempt + 1, start);
+            else
+                view.getStatusBar().setMessage("The project could not be opened, as the file kept changing"
+                        + " while it was read", true);
+            return;
+        }
+
+        latencies.record("command:open", start);
+        view.hideRecentProjects();
+        refreshWorkspaceMenu();
+        refreshViewEvents();
+        refreshCharacterList();
+        refreshTitleBar();
+        model.recordRecentProject();
+
+        if (model.getRecoveredFrom() != null)
+            view.getStatusBar().setMessage(describeDamage(model.getDamage()) + ", and has been recovered from "
+                    + model.getRecoveredFrom().getName() + ". Save to repair it.", true);
+        else if (!model.getEditedSections().isEmpty())
+            view.getStatusBar().setMessage("The project file has been edited outside of Writer's Studio, so "
+                    + describeSections(model.getEditedSections()) + " could not be checked for damage", true);
+        else
+            view.getStatusBar().setMessage("", false);
+
+        loadRemainingSections();
+    }
+
+    /**
+     * Describes why a project file could not be read, eg. The "events" section of the project file was damaged.
+     * @param damage the error, from {@link Project#getDamage()}
+     * @return the description
+     */
+    private static String describeDamage(Exception damage) {
+        if (damage instanceof CorruptSectionException) {
+            ProjectSection section = ((CorruptSectionException) damage).getSection();
+            return "The \"" + section.getSectionName() + "\" section of the project file was damaged";
+        }
+        return "The project file was damaged";
+    }
+
+    /**
+     * Describes the given sections of a project file, eg. the "events" and "characters" sections.
+     * @param sections the sections, at least one
+     * @return the description
+     */
+    private static String describeSections(Set<ProjectSection> sections) {
+        List<String> names = new ArrayList<>();
+        for (ProjectSection section : sections)
+            names.add("\"" + section.getSectionName() + "\"");
+
+        if (names.size() == 1)
+            return "the " + names.get(0) + " section";
+        return "the " + String.join(", ", names.subList(0, names.size() - 1)) + " and "
+                + names.get(names.size() - 1) + " sections";
+    }
+
+    /**
+     * Parses the sections of the current project that were left out when it was opened, from what was
+     * read then, and installs them, see {@link Project#getPartialLoad()}. The characters are shown meanwhile.
+     * If the sections cannot be parsed, the project is closed, rather than being left incomplete.
+     */
+    private void loadRemainingSections() {
+        Project.PendingLoad load = model.getPartialLoad();
+        if (load == null)
+            return;
+
+        commands.submit("Loading events...", () -> {
+            load.readRemaining();
+            return load;
+        }, loaded -> {
+            model.completeRemaining(loaded);
+            refreshViewEvents();
+            refreshTitleBar();
+        }, e -> {
+            e.printStackTrace();
+            if (model.getPartialLoad() != load)
+                return; // Another project has been opened since
+
+            model.clearProject();
+            refreshWorkspaceMenu();
+            refreshViewEvents();
+            refreshCharacterList();
+            refreshTitleBar();
+            view.getStatusBar().setMessage("The events of the project could not be read: " + e.getMessage(), true);
+        });
+    }
+
+    /**
+     * Shows the {@link com.team34.view.dialogs.VersionHistoryDialog} with the revisions of the current
+     * project, and restores the revision the user picks.
+     */
+    private void showVersionHistory() {
+        if (model.getProjectFile() == null) {
+            view.getStatusBar().setMessage("Save the project to keep its version history", false);
+            return;
+        }
+
+        List<Object[]> revisions = new ArrayList<>();
         try {
-            model.loadProject(file);
+            for (ProjectHistory.Revision revision : model.getRevisions()) {
+                revisions.add(0, new Object[]{
+                        revision.getNumber(), revision.getTime(), revision.getName(),
+                        revision.getEventCount(), revision.getCharacterCount(), revision.getAssociationCount(),
+                        revision.getAddedBytes()
+                });
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            view.getStatusBar().setMessage("The version history could not be read: " + e.getMessage(), true);
+            return;
+        }
+
+        long number = view.getVersionHistoryDialog().showRevisions(revisions);
+        if (number < 0)
+            return;
+
+        saveBeforeContinue(() -> replaceProject(model.prepareRestore(number),
+                "Restoring revision " + number + "...", "Restored revision " + number, "Restoring failed: "));
+    }
+
+    /**
+     * Replaces the current project with a restored revision or a merge, through the {@link CommandBus}.
+     * The project file is written once any save in progress is done, and only the result is installed on
+     * this thread. If the file cannot be written, the project is kept as it is.
+     * @param replace the replacement, from the model
+     * @param description shown while the file is written
+     * @param done shown once the project has been replaced
+     * @param failed shown before the error, if the file cannot be written
+     */
+    private void replaceProject(Project.PendingReplace replace, String description, String done, String failed) {
+        commands.submit(description, () -> {
+            autosave.awaitWritten();
+            replace.write();
+            return replace;
+        }, written -> {
+            model.completeReplace(written);
+            workspace.forget(written.getFile());
             refreshViewEvents();
             refreshCharacterList();
             refreshTitleBar();
-        } catch (Exception e) {
+            model.recordRecentProject();
+            view.getStatusBar().setMessage(done, false);
+        }, e -> {
             e.printStackTrace();
-            // TODO popup error dialog, error reading file.
+            model.cancelReplace(replace);
+            refreshTitleBar();
+            view.getStatusBar().setMessage(failed + e.getMessage(), true);
+        });
+    }
+
+    /**
+     * Shows the {@link com.team34.view.dialogs.DiagnosticsDialog} with the latencies recorded so far,
+     * and saves them as JSON if the user asks to.
+     */
+    private void showDiagnostics() {
+        if (!view.getDiagnosticsDialog().showLatencies(latencies::getSummary, latencies::reset))
+            return;
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Latencies");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON", "*.json"));
+        fileChooser.setInitialFileName("latency.json");
+
+        File file = fileChooser.showSaveDialog(view.getMainStage());
+        if (file == null)
+            return;
+
+        try {
+            latencies.writeJson(file);
+            view.getStatusBar().setMessage("Saved latencies to " + file.getName(), false);
+        } catch (IOException e) {
+            e.printStackTrace();
+            view.getStatusBar().setMessage("The latencies could not be saved: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Merges another copy of the current project into it. The user chooses the other copy, and then the
+     * original both copies were made from, which may be skipped. The merge is prepared through the
+     * {@link CommandBus}, from the project as it is now, and is shown before it is applied.
+     */
+    private void mergeProject() {
+        if (model.getProjectFile() == null) {
+            view.getStatusBar().setMessage("Save the project before merging another copy into it", false);
+            return;
+        }
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Merge With Project File");
+        fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("Writer's Studio Project File", "*.wsp")
+        );
+        fileChooser.setInitialDirectory(model.getProjectFile().getAbsoluteFile().getParentFile());
+
+        File theirFile = fileChooser.showOpenDialog(view.getMainStage());
+        if (theirFile == null)
+            return;
+
+        fileChooser.setTitle("Choose the Original Both Copies Were Made From (Cancel if None)");
+        fileChooser.setInitialDirectory(theirFile.getAbsoluteFile().getParentFile());
+        File originalFile = fileChooser.showOpenDialog(view.getMainStage());
+
+        long start = latencies.start();
+        ProjectSnapshot ours = model.createSnapshot();
+        File projectFile = model.getProjectFile();
+        long changeCount = model.getChangeCount();
+        commands.submit("Merging " + theirFile.getName() + "...",
+                () -> Project.prepareMerge(ours, theirFile, originalFile),
+                merge -> {
+                    // A merge made from an older state of the project would undo the changes made since
+                    if (!projectFile.equals(model.getProjectFile()) || model.getChangeCount() != changeCount) {
+                        view.getStatusBar().setMessage("The project was changed while merging, merge again", true);
+                        return;
+                    }
+                    latencies.record("command:merge", start);
+                    confirmMerge(merge, theirFile);
+                },
+                e -> {
+                    e.printStackTrace();
+                    view.getStatusBar().setMessage("The projects could not be merged: " + e.getMessage(), true);
+                });
+    }
+
+    /**
+     * Shows a prepared merge to the user, and applies it if confirmed.
+     * @param merge the merge
+     * @param theirFile the other copy that was merged
+     */
+    private void confirmMerge(ProjectMerge merge, File theirFile) {
+        if (merge.getOurChanges().isEmpty() && merge.getTheirChanges().isEmpty()) {
+            view.getStatusBar().setMessage(theirFile.getName() + " has nothing to merge", false);
+            return;
+        }
+
+        List<String> conflicts = new ArrayList<>();
+        for (ProjectMerge.Conflict conflict : merge.getConflicts())
+            conflicts.add(conflict.toString());
+
+        String summary = "This copy: " + merge.getOurChanges() + "\n"
+                + theirFile.getName() + ": " + merge.getTheirChanges();
+        if (!view.showMergeDialog(summary, conflicts))
+            return;
+
+        // The merge was made from the project as it is in memory, so unsaved changes are part of it
+        replaceProject(model.prepareApply(merge), "Applying the merge...", "Merged " + theirFile.getName()
+                + (conflicts.isEmpty() ? "" : ", with " + conflicts.size() + " conflicts"), "Merging failed: ");
+    }
+
+    /**
+     * Shows the {@link SearchProjectsDialog}, which searches the projects in the project directory
+     * through the {@link LibraryService}, and opens the project the user picks.
+     */
+    private void searchProjects() {
+        File file = view.getSearchProjectsDialog().showSearch(query -> {
+            List<Object[]> results = new ArrayList<>();
+            for (LibraryIndex.Result result : library.search(query, SearchProjectsDialog.getResultLimit()))
+                results.add(new Object[]{result.getFile(), result.getProjectName(), describeFields(result.getFields())});
+            return results;
+        });
+
+        if (file != null)
+            saveBeforeContinue(() -> openProjectFile(file));
+    }
+
+    /**
+     * Describes where the words of a search were found, eg. "in event names, character descriptions".
+     * @param fields the fields, see {@link LibraryIndex#EVENT_NAME} etc.
+     * @return the description
+     */
+    private static String describeFields(int fields) {
+        List<String> names = new ArrayList<>();
+        if ((fields & LibraryIndex.PROJECT_NAME) != 0) names.add("project name");
+        if ((fields & LibraryIndex.EVENT_NAME) != 0) names.add("event names");
+        if ((fields & LibraryIndex.EVENT_DESCRIPTION) != 0) names.add("event descriptions");
+        if ((fields & LibraryIndex.CHARACTER_NAME) != 0) names.add("character names");
+        if ((fields & LibraryIndex.CHARACTER_DESCRIPTION) != 0) names.add("character descriptions");
+        return names.isEmpty() ? "" : "in " + String.join(", ", names);
+    }
+
+    /**
+     * Shows the {@link com.team34.view.RecentProjectsPanel} with the projects in the {@link RecentProjects}
+     * cache, leaving out those whose file no longer exists. Nothing is shown if there are no such projects.
+     * @return the most recent project file, or null if there is none
+     */
+    private File showRecentProjects() {
+        List<Object[]> projects = new ArrayList<>();
+        for (RecentProjects.Entry entry : model.getRecentProjects().getEntries()) {
+            if (!entry.getFile().exists())
+                continue;
+
+            projects.add(new Object[]{
+                    entry.getFile(), entry.getName(),
+                    entry.getEventCount(), entry.getCharacterCount(), entry.getAssociationCount(),
+                    entry.getLastUsed(),
+                    entry.getThumbnail().getBoxes(), entry.getThumbnail().getLines()
+            });
+        }
+
+        if (projects.isEmpty())
+            return null;
+
+        view.showRecentProjects(projects);
+        return (File) projects.get(0)[0];
+    }
+
+    /**
+     * Lists the projects that are kept in memory by the {@link Workspace} in the "Switch Project" menu.
+     */
+    private void refreshWorkspaceMenu() {
+        view.setWorkspaceProjects(workspace.getKeptProjects());
+    }
+
+    /**
+     * Opens the file chooser, and starts importing the chosen outline in the background.
+     * The view is refreshed once the import has finished.
+     */
+    private void importOutline() {
+        if (commands.isBusy()) {
+            view.getStatusBar().setMessage("Wait for the current operation to finish first", true);
+            return;
+        }
+
+        Project.UserPreferences userPrefs = model.getUserPreferences();
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import Outline");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Outline (CSV or JSON)", "*.csv", "*.json"),
+                new FileChooser.ExtensionFilter("All Files", "*.*")
+        );
+
+        File directory = Paths.get(userPrefs.projectDir).toFile();
+        if (directory.exists())
+            fileChooser.setInitialDirectory(directory);
+
+        File file = fileChooser.showOpenDialog(view.getMainStage());
+        if (file == null)
+            return;
+
+        importService.start(file);
+        view.setImporting(true);
+        view.getStatusBar().setMessage("Importing " + file.getName() + "...", false);
+        view.getStatusBar().showProgress(0.0);
+    }
+
+    /**
+     * Opens the file chooser, and exports the project in the format of the chosen file type.
+     */
+    private void exportOutline() {
+        if (model.isLoading()) {
+            view.getStatusBar().setMessage("Wait for the project to finish loading before exporting", false);
+            return;
         }
+
+        Project.UserPreferences userPrefs = model.getUserPreferences();
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export Project");
+        FileChooser.ExtensionFilter markdownFilter =
+                new FileChooser.ExtensionFilter("Markdown Outline", "*.md");
+        FileChooser.ExtensionFilter htmlFilter =
+                new FileChooser.ExtensionFilter("HTML Story Bible", "*.html");
+        FileChooser.ExtensionFilter jsonFilter =
+                new FileChooser.ExtensionFilter("JSON", "*.json");
+        fileChooser.getExtensionFilters().addAll(markdownFilter, htmlFilter, jsonFilter);
+
+        File directory = Paths.get(userPrefs.projectDir).toFile();
+        if (directory.exists())
+            fileChooser.setInitialDirectory(directory);
+
+        File file = fileChooser.showSaveDialog(view.getMainStage());
+        if (file == null)
+            return;
+
+        ExportFormat format;
+        if (fileChooser.getSelectedExtensionFilter() == htmlFilter)
+            format = ExportFormat.HTML;
+        else if (fileChooser.getSelectedExtensionFilter() == jsonFilter)
+            format = ExportFormat.JSON;
+        else
+            format = ExportFormat.MARKDOWN;
+
+        if (!file.getName().contains("."))
+            file = new File(file.getParentFile(), file.getName() + "." + format.getExtension());
+
+        // Only the copy is taken here; the file is written through the command bus
+        ProjectSnapshot snapshot = model.createSnapshot();
+        File target = file;
+        commands.submit("Exporting to " + target.getName() + "...", () -> {
+            Project.exportOutline(snapshot, target, format);
+            return target;
+        }, exported -> view.getStatusBar().setMessage("Exported to " + exported.getName(), false), e -> {
+            e.printStackTrace();
+            view.getStatusBar().setMessage("Export failed: " + e.getMessage(), true);
+        });
     }
 
     /**
      * Opens the file chooser if no project file is in use, then saves the current project to that file.
+     * <p>
+     * The file is written in the background by the {@link AutosaveService}, and the status bar reports
+     * when it is done. With an active journal, saving only waits for the journal to reach the disk.
+     *
+     * @param then run once the project has been saved, or null; not run if saving is cancelled or fails
      */
-    private void saveProject() {
+    private void saveProject(Runnable then) {
+        if (model.isLoading()) {
+            view.getStatusBar().setMessage("Wait for the project to finish loading before saving", false);
+            return;
+        }
+
         if (model.getProjectFile() == null) {
 
             Project.UserPreferences userPrefs = model.getUserPreferences();
 
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Save Project File");
-            fileChooser.getExtensionFilters().add(
-                    new FileChooser.ExtensionFilter("Writer's Studio Project File", "*.wsp")
-            );
+            FileChooser.ExtensionFilter xmlFilter =
+                    new FileChooser.ExtensionFilter("Writer's Studio Project File", "*.wsp");
+            FileChooser.ExtensionFilter binaryFilter =
+                    new FileChooser.ExtensionFilter("Writer's Studio Project File (binary)", "*.wsp");
+            FileChooser.ExtensionFilter compressedFilter =
+                    new FileChooser.ExtensionFilter("Writer's Studio Project File (compressed)", "*.wsp");
+            fileChooser.getExtensionFilters().addAll(xmlFilter, binaryFilter, compressedFilter);
+            if (model.getProjectFormat() == ProjectFormat.BINARY)
+                fileChooser.setSelectedExtensionFilter(binaryFilter);
+            else if (model.getProjectFormat() == ProjectFormat.COMPRESSED)
+                fileChooser.setSelectedExtensionFilter(compressedFilter);
 
             File directory = Paths.get(userPrefs.projectDir).toFile();
             if (directory.exists())
@@ -250,15 +856,39 @@ public class MainController {
             else {
                 model.setProjectFile(file);
                 model.setProjectName(file.getName());
+
+                // Saving to a new file in another format converts the project.
+                if (fileChooser.getSelectedExtensionFilter() == binaryFilter)
+                    model.setProjectFormat(ProjectFormat.BINARY);
+                else if (fileChooser.getSelectedExtensionFilter() == compressedFilter)
+                    model.setProjectFormat(ProjectFormat.COMPRESSED);
+                else
+                    model.setProjectFormat(ProjectFormat.XML);
             }
         }
 
+        if (!model.isJournalActive()) {
+            if (then != null)
+                autosave.saveNow(then);
+            else
+                autosave.saveNow();
+            return;
+        }
+
+        // With an active journal, saving only waits for the journal to reach the disk
+        autosave.awaitIdle();
         try {
             model.saveProject();
             refreshTitleBar();
+            library.scan(model.getProjectFile().getAbsoluteFile().getParentFile());
         } catch (IOException | XMLStreamException e) {
             e.printStackTrace();
+            view.getStatusBar().setMessage("Saving failed: " + e.getMessage(), true);
+            return;
         }
+
+        if (then != null)
+            then.run();
     }
 
     /**
@@ -276,10 +906,7 @@ public class MainController {
                     view.getEditCharacterPanel().getCharacterDescription(),
                     x, y
             );
-            view.updateCharacterList(
-                    model.characterManager.getCharacterList(),
-                    model.characterManager.getAssociationData()
-            );
+            refreshCharacterList();
 
             if (newCharacterUID == -1L) {
                 // TODO Popup warning dialog, stating that either name or description has unsupported format
@@ -360,7 +987,7 @@ public class MainController {
                     view.getEditAssociationDialog().getAssociationLabel(), startX, startY
             );
 
-            view.updateCharacterList(model.characterManager.getCharacterList(), model.characterManager.getAssociationData());
+            refreshes.refreshNow(RefreshScheduler.View.CHARACTERS); // The association must be in the chart to be dragged
             view.startCharacterAssociationDrag(assocUID, false);
             refreshTitleBar();
         }
@@ -390,12 +1017,20 @@ public class MainController {
         refreshTitleBar();
     }
 
+    /**
+     * Marks the character list and chart dirty, so that they are updated once the current action
+     * has finished, see {@link RefreshScheduler}.
+     */
+    private void refreshCharacterList() {
+        refreshes.markDirty(RefreshScheduler.View.CHARACTERS);
+    }
+
     /**
      * Retrieves an updated list of characters from {@link com.team34.model.character.CharacterManager} and updates
      * the character list view.
      * @author Jim Andersson
      */
-    private void refreshCharacterList() {
+    private void updateCharacterList() {
         view.updateCharacterList(
                 model.characterManager.getCharacterList(),
                 model.characterManager.getAssociationData()
@@ -427,18 +1062,15 @@ public class MainController {
             switch (sourceID) {
                 case MainView.ID_BTN_EVENT_ADD:
                     createNewEvent();
-                    refreshViewEvents();
                     break;
 
                 case MainView.ID_BTN_EVENT_DELETE:
                     model.eventManager.removeEvent(eventUID);
-                    refreshViewEvents();
                     refreshTitleBar();
                     break;
 
                 case MainView.ID_BTN_EVENT_EDIT:
                     editEvent(eventUID);
-                    refreshViewEvents();
                     break;
 
                 case MainView.ID_BTN_CHARACTERLIST_ADD:
@@ -459,6 +1091,16 @@ public class MainController {
                     }
                     break;
 
+                case MainView.ID_BTN_RECENT_OPEN_OTHER:
+                    if (!checkIdle())
+                        break;
+                    saveBeforeContinue(MainController.this::openProject);
+                    break;
+
+                case MainView.ID_BTN_RECENT_CLOSE:
+                    view.hideRecentProjects();
+                    break;
+
                 default:
                     System.out.println("Unrecognized ID: " + sourceID);
                     break;
@@ -484,14 +1126,12 @@ public class MainController {
             switch (sourceID) {
                 case MainView.ID_TIMELINE_NEW_EVENT:
                     createNewEvent();
-                    refreshViewEvents();
                     break;
 
                 case MainView.ID_TIMELINE_REMOVE_EVENT:
                     if (view.getTimelineContextMenu().getUserData() instanceof Long)
                         sourceUID = (Long) view.getTimelineContextMenu().getUserData();
                     model.eventManager.removeEvent(sourceUID);
-                    refreshViewEvents();
                     refreshTitleBar();
                     break;
 
@@ -499,7 +1139,6 @@ public class MainController {
                     if (view.getTimelineContextMenu().getUserData() instanceof Long)
                         sourceUID = (Long) view.getTimelineContextMenu().getUserData();
                     editEvent(sourceUID);
-                    refreshViewEvents();
                     break;
 
                 case MainView.ID_CHART_NEW_CHARACTER:
@@ -568,8 +1207,8 @@ public class MainController {
     private class EventCloseRequest implements EventHandler<WindowEvent> {
         @Override
         public void handle(WindowEvent e) {
-            if (!saveBeforeContinue()) // If user pressed cancel
-                e.consume();
+            // The window is closed by exit(), once any unsaved changes have been saved
+            e.consume();
 
             Project.UserPreferences prefs = model.getUserPreferences();
             prefs.windowMaximized = view.getMainStage().isMaximized();
@@ -578,11 +1217,146 @@ public class MainController {
                 prefs.windowHeight = (int) view.getMainStage().getScene().getHeight();
             }
 
+            model.writeUserPrefs();
+            saveBeforeContinue(this::exit);
+        }
+
+        private void exit() {
+            // Leave the latencies of this session on disk, to compare between sessions
             try {
-                model.writeUserPrefs();
-            } catch (IOException | XMLStreamException ex) {
+                latencies.writeJson(new File(System.getProperty("user.dir"), "latency.json"));
+            } catch (IOException ex) {
                 ex.printStackTrace();
             }
+
+            importService.shutdown();
+            commands.shutdown();
+            library.shutdown();
+            autosave.shutdown();
+            model.close();
+            view.getMainStage().close();
+        }
+    }
+
+    /**
+     * Updates the timeline and the event list as events are changed, so that only the affected events
+     * are redrawn, and marks the title dirty, as there are now unsaved changes. Loading a project is not reported as changes, and is instead followed by
+     * {@link MainController#refreshViewEvents()}, as is an import, whose events are shown once it has finished.
+     */
+    private class EventViewUpdater implements ModelChangeListener {
+        @Override
+        public void eventPut(long uid, String name, String description) {
+            if (!importService.isImporting())
+                view.putEvent(uid, name);
+            refreshTitleBar();
+        }
+
+        @Override
+        public void eventAppended(long uid) {
+            if (!importService.isImporting())
+                view.appendEvent(uid);
+            refreshTitleBar();
+        }
+
+        @Override
+        public void eventRemoved(long uid) {
+            if (!importService.isImporting())
+                view.removeEvent(uid);
+            refreshTitleBar();
+        }
+
+        @Override
+        public void eventMoved(int orderList, int fromIndex, int toIndex) {
+            if (!importService.isImporting() && orderList == view.getEventOrderList())
+                view.moveEvent(fromIndex, toIndex);
+            refreshTitleBar();
+        }
+
+        @Override
+        public void eventSwapped(int orderList, int index1, int index2) {
+            if (!importService.isImporting() && orderList == view.getEventOrderList())
+                view.swapEvents(index1, index2);
+            refreshTitleBar();
+        }
+    }
+
+    /**
+     * Reports the progress of saves made by the {@link AutosaveService} in the status bar.
+     */
+    private class SaveProgress implements AutosaveService.Listener {
+        private final DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+        @Override
+        public void saveStarted(boolean autosave) {
+            view.getStatusBar().setMessage(autosave ? "Autosaving..." : "Saving...", false);
+            view.getStatusBar().showProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        }
+
+        @Override
+        public void saveFinished(boolean autosave) {
+            view.getStatusBar().hideProgress();
+            view.getStatusBar().setMessage(
+                    (autosave ? "Autosaved at " : "Saved at ") + LocalTime.now().format(timeFormat), false);
+            refreshTitleBar();
+            if (model.getProjectFile() != null)
+                library.scan(model.getProjectFile().getAbsoluteFile().getParentFile());
+        }
+
+        @Override
+        public void saveFailed(boolean autosave, Exception e) {
+            e.printStackTrace();
+            view.getStatusBar().hideProgress();
+            view.getStatusBar().setMessage(
+                    (autosave ? "Autosave failed: " : "Saving failed: ") + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Shows in the status bar while the {@link CommandBus} runs commands.
+     */
+    private class CommandProgress implements CommandBus.Listener {
+        @Override
+        public void busyChanged(boolean busy, String description) {
+            if (busy) {
+                view.getStatusBar().setMessage(description, false);
+                view.getStatusBar().showProgress(ProgressBar.INDETERMINATE_PROGRESS);
+            } else if (!importService.isImporting()) {
+                view.getStatusBar().hideProgress();
+            }
+        }
+    }
+
+    /**
+     * Reports the progress of imports made by the {@link ImportService} in the status bar,
+     * and refreshes the view once an import has finished.
+     */
+    private class ImportProgress implements ImportService.Listener {
+        @Override
+        public void importProgress(int events, int characters, double progress) {
+            view.getStatusBar().setMessage("Importing... " + events + " events, " + characters + " characters", false);
+            view.getStatusBar().showProgress(progress);
+        }
+
+        @Override
+        public void importFinished(int events, int characters, boolean cancelled) {
+            view.setImporting(false);
+            view.getStatusBar().hideProgress();
+            view.getStatusBar().setMessage((cancelled ? "Import cancelled after " : "Imported ")
+                    + events + " events and " + characters + " characters", false);
+            refreshViewEvents();
+            refreshCharacterList();
+            refreshTitleBar();
+        }
+
+        @Override
+        public void importFailed(Exception e) {
+            e.printStackTrace();
+            view.setImporting(false);
+            view.getStatusBar().hideProgress();
+            view.getStatusBar().setMessage("Import failed: " + e.getMessage(), true);
+            refreshViewEvents();
+            refreshCharacterList();
+            refreshTitleBar();
         }
     }
 
@@ -597,26 +1371,99 @@ public class MainController {
 
             switch (sourceID) {
                 case MainView.ID_MENU_NEW:
-                    if (saveBeforeContinue()) {
+                    if (!checkIdle())
+                        break;
+                    saveBeforeContinue(() -> {
+                        view.hideRecentProjects();
+                        workspace.keepCurrent();
                         model.clearProject();
+                        refreshWorkspaceMenu();
                         refreshViewEvents();
                         refreshCharacterList();
-                    }
-                    refreshTitleBar();
+                        refreshTitleBar();
+                    });
                     break;
 
                 case MainView.ID_MENU_OPEN:
-                    if (saveBeforeContinue())
-                        openProject();
+                    if (!checkIdle())
+                        break;
+                    saveBeforeContinue(MainController.this::openProject);
+                    break;
+
+                case MainView.ID_MENU_SWITCH_PROJECT:
+                    if (!checkIdle())
+                        break;
+                    saveBeforeContinue(() -> openProjectFile((File) source.getUserData()));
+                    break;
+
+                case MainView.ID_MENU_RECENT_PROJECTS:
+                    if (showRecentProjects() == null)
+                        view.getStatusBar().setMessage("There are no recent projects", false);
+                    break;
+
+                case MainView.ID_MENU_SEARCH_PROJECTS:
+                    if (!checkIdle())
+                        break;
+                    searchProjects();
                     break;
 
                 case MainView.ID_MENU_SAVE:
-                    saveProject();
+                    saveProject(null);
                     break;
 
                 case MainView.ID_MENU_SAVE_AS:
                     model.setProjectFile(null);
-                    saveProject();
+                    saveProject(null);
+                    break;
+
+                case MainView.ID_MENU_JOURNALED_SAVING:
+                    try {
+                        model.setJournalEnabled(((CheckMenuItem) source).isSelected());
+                        model.writeUserPrefs();
+                    } catch (IOException | XMLStreamException ex) {
+                        ex.printStackTrace();
+                    }
+                    refreshTitleBar();
+                    break;
+
+                case MainView.ID_MENU_AUTOSAVE:
+                    Project.UserPreferences userPrefs = model.getUserPreferences();
+                    userPrefs.autosaveEnabled = ((CheckMenuItem) source).isSelected();
+                    if (userPrefs.autosaveEnabled)
+                        autosave.start(userPrefs.autosaveInterval, userPrefs.autosaveIdle);
+                    else
+                        autosave.stop();
+
+                    model.writeUserPrefs();
+                    break;
+
+                case MainView.ID_MENU_KEEP_HISTORY:
+                    model.getUserPreferences().historyEnabled = ((CheckMenuItem) source).isSelected();
+                    model.writeUserPrefs();
+                    break;
+
+                case MainView.ID_MENU_VERSION_HISTORY:
+                    if (!checkIdle())
+                        break;
+                    showVersionHistory();
+                    break;
+
+                case MainView.ID_MENU_MERGE:
+                    if (!checkIdle())
+                        break;
+                    mergeProject();
+                    break;
+
+                case MainView.ID_MENU_IMPORT:
+                    importOutline();
+                    break;
+
+                case MainView.ID_MENU_CANCEL_IMPORT:
+                    importService.cancel();
+                    break;
+
+                case MainView.ID_MENU_EXPORT:
+                    exportOutline();
                     break;
 
                 case MainView.ID_MENU_EXIT:
@@ -629,7 +1476,10 @@ public class MainController {
 
                 case MainView.ID_MENU_ADD_EVENT:
                     createNewEvent();
-                    refreshViewEvents();
+                    break;
+
+                case MainView.ID_MENU_DIAGNOSTICS:
+                    showDiagnostics();
                     break;
 
                 default:
@@ -711,14 +1561,38 @@ public class MainController {
             int dragged = model.eventManager.getEventIndex(view.getEventOrderList(), uidDragged);
             int target = model.eventManager.getEventIndex(view.getEventOrderList(), uidTarget);
 
-            if (dragged != -1 && target != -1) {
+            if (dragged != -1 && target != -1)
                 model.eventManager.moveEvent(view.getEventOrderList(), dragged, target);
-                refreshViewEvents();
-            }
         }
 
     }
 
+    /**
+     * Opens the project the user clicks in the {@link com.team34.view.RecentProjectsPanel}.
+     */
+    private class RecentProjectsMouseEvent implements EventHandler<MouseEvent> {
+
+        @Override
+        public void handle(MouseEvent click) {
+            File file = view.getSelectedRecentProject();
+            if (click.getButton() != MouseButton.PRIMARY || file == null)
+                return;
+
+            if (!checkIdle())
+                return;
+
+            if (!file.exists()) {
+                model.getRecentProjects().remove(file);
+                if (showRecentProjects() == null)
+                    view.hideRecentProjects();
+                view.getStatusBar().setMessage(file.getName() + " no longer exists", true);
+                return;
+            }
+
+            saveBeforeContinue(() -> openProjectFile(file));
+        }
+    }
+
     private class CharacterListMouseEvent implements EventHandler<MouseEvent> {
 
         @Override
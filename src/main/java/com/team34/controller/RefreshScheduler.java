@@ -0,0 +1,107 @@
+package com.team34.controller;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.concurrent.Executor;
+
+/**
+ * Coalesces refreshes of the views, so that each view is refreshed at most once per pulse.
+ * <p>
+ * Instead of refreshing a view right away, the controller marks it dirty. The first view marked dirty
+ * schedules a single task on the view thread, which then refreshes every view that is dirty at that time.
+ * Any number of requests made in between, eg. by a single user action that changes several things, or by
+ * a burst of changes, result in one refresh per view. With Platform::runLater as the executor, the task
+ * runs among the other pending tasks, ahead of the next pulse that renders the scene.
+ * <p>
+ * All methods must be called on the view thread.
+ */
+public class RefreshScheduler {
+
+    public enum View { EVENTS, CHARACTERS, TITLE }
+
+    private final Executor viewExecutor;
+    private final EnumMap<View, Runnable> refreshers;
+    private final EnumSet<View> dirty;
+    private boolean scheduled;
+    private long requestCount;
+    private long refreshCount;
+
+    /**
+     * @param viewExecutor runs tasks on the thread that owns the views, eg. Platform::runLater
+     */
+    public RefreshScheduler(Executor viewExecutor) {
+        this.viewExecutor = viewExecutor;
+        refreshers = new EnumMap<>(View.class);
+        dirty = EnumSet.noneOf(View.class);
+        scheduled = false;
+        requestCount = 0L;
+        refreshCount = 0L;
+    }
+
+    /**
+     * Sets how a view is refreshed.
+     * @param view the view
+     * @param refresher refreshes the view with the current state of the model
+     */
+    public void setRefresher(View view, Runnable refresher) {
+        refreshers.put(view, refresher);
+    }
+
+    /**
+     * Marks a view dirty, so that it is refreshed once the current task on the view thread has finished.
+     * @param view the view to refresh
+     */
+    public void markDirty(View view) {
+        requestCount++;
+        dirty.add(view);
+        if(scheduled)
+            return;
+
+        scheduled = true;
+        viewExecutor.execute(this::refreshDirty);
+    }
+
+    /**
+     * Refreshes a view right away, for when the view must be up to date before the current task continues.
+     * The view is no longer dirty afterwards.
+     * @param view the view to refresh
+     */
+    public void refreshNow(View view) {
+        requestCount++;
+        dirty.remove(view);
+        refresh(view);
+    }
+
+    /**
+     * Refreshes every view that is dirty right away.
+     */
+    public void flush() {
+        for(View view : View.values()) {
+            if(dirty.remove(view))
+                refresh(view);
+        }
+    }
+
+    /**
+     * Returns the number of refreshes requested, and the number actually made, so far.
+     * @return {requested, refreshed}
+     */
+    public long[] getCounts() {
+        return new long[] {requestCount, refreshCount};
+    }
+
+    private void refreshDirty() {
+        scheduled = false;
+        flush();
+    }
+
+    private void refresh(View view) {
+        Runnable refresher = refreshers.get(view);
+        if(refresher == null)
+            return;
+
+        refreshCount++;
+        refresher.run();
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.team34.model;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Forwards the notifications of the managers to any number of {@link ModelChangeListener}s,
+ * in the order the listeners were added. Listeners may be added or removed while a notification
+ * is being forwarded; the change takes effect from the next notification.
+ * <p>
+ * Forwarding can be disabled, which is used while a project is being loaded, as loaded data is
+ * not to be reported as changes.
+ */
+public class ModelChangeDispatcher implements ModelChangeListener {
+
+    private final CopyOnWriteArrayList<ModelChangeListener> listeners;
+    private boolean enabled;
+    private long changeCount;
+
+    public ModelChangeDispatcher() {
+        listeners = new CopyOnWriteArrayList<>();
+        enabled = true;
+        changeCount = 0L;
+    }
+
+    public void addListener(ModelChangeListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(ModelChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Enables or disables forwarding. Notifications received while disabled are discarded.
+     * @param enabled whether notifications are to be forwarded
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the number of notifications forwarded so far. Comparing two values tells
+     * whether the data has changed in between.
+     * @return the number of forwarded notifications
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    @Override
+    public void uidAdded(long uid) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.uidAdded(uid);
+    }
+
+    @Override
+    public void eventPut(long uid, String name, String description) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.eventPut(uid, name, description);
+    }
+
+    @Override
+    public void eventAppended(long uid) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.eventAppended(uid);
+    }
+
+    @Override
+    public void eventRemoved(long uid) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.eventRemoved(uid);
+    }
+
+    @Override
+    public void eventMoved(int orderList, int fromIndex, int toIndex) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.eventMoved(orderList, fromIndex, toIndex);
+    }
+
+    @Override
+    public void eventSwapped(int orderList, int index1, int index2) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.eventSwapped(orderList, index1, index2);
+    }
+
+    @Override
+    public void characterPut(long uid, String name, String description, double chartX, double chartY) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.characterPut(uid, name, description, chartX, chartY);
+    }
+
+    @Override
+    public void characterRemoved(long uid) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.characterRemoved(uid);
+    }
+
+    @Override
+    public void associationPut(long uid, long startUID, long endUID, double sX, double sY, double eX, double eY,
+                               String label, double lblX, double lblY)
+    {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.associationPut(uid, startUID, endUID, sX, sY, eX, eY, label, lblX, lblY);
+    }
+
+    @Override
+    public void associationRemoved(long uid) {
+        if(!enabled)
+            return;
+
+        changeCount++;
+        for(ModelChangeListener l : listeners)
+            l.associationRemoved(uid);
+    }
+
+}
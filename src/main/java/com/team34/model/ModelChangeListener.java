@@ -0,0 +1,77 @@
+package com.team34.model;
+
+/**
+ * Receives notifications of every mutation made to the data of a project.
+ * <p>
+ * The {@link com.team34.model.event.EventManager} and {@link com.team34.model.character.CharacterManager}
+ * call the listener after a change has been applied. Each notification carries the complete
+ * resulting state of the entity it concerns, so that applying the same notifications, in the same
+ * order, to the same starting state reproduces the same data.
+ * <p>
+ * Data that is installed when loading a project is not reported.
+ * All methods have empty default implementations.
+ */
+public interface ModelChangeListener {
+
+    /**
+     * A UID has been generated and added to the {@link UIDManager}.
+     * @param uid the new UID
+     */
+    default void uidAdded(long uid) { }
+
+    /**
+     * An event has been created or edited.
+     * @param uid the UID of the event
+     * @param name the name of the event
+     * @param description the description of the event
+     */
+    default void eventPut(long uid, String name, String description) { }
+
+    /**
+     * An event has been placed at the back of every event order list.
+     * @param uid the UID of the event
+     */
+    default void eventAppended(long uid) { }
+
+    /**
+     * An event has been removed, along with its UID and its place in every event order list.
+     * @param uid the UID of the event
+     */
+    default void eventRemoved(long uid) { }
+
+    /**
+     * An event has been moved within an event order list.
+     * See {@link com.team34.model.event.EventManager#moveEvent(int, int, int)}.
+     */
+    default void eventMoved(int orderList, int fromIndex, int toIndex) { }
+
+    /**
+     * Two events have swapped places within an event order list.
+     * See {@link com.team34.model.event.EventManager#swapEvent(int, int, int)}.
+     */
+    default void eventSwapped(int orderList, int index1, int index2) { }
+
+    /**
+     * A character has been created or edited.
+     */
+    default void characterPut(long uid, String name, String description, double chartX, double chartY) { }
+
+    /**
+     * A character has been removed, along with its UID.
+     * @param uid the UID of the character
+     */
+    default void characterRemoved(long uid) { }
+
+    /**
+     * An association has been created or edited.
+     */
+    default void associationPut(long uid, long startUID, long endUID, double sX, double sY, double eX, double eY,
+                                String label, double lblX, double lblY) { }
+
+    /**
+     * An association has been removed, along with its UID.
+     * @param uid the UID of the association
+     */
+    default void associationRemoved(long uid) { }
+
+}
@@ -0,0 +1,204 @@
+package com.team34.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Writes the user preferences to the preferences file on a background thread.
+ * <p>
+ * Each call to {@link PreferencesWriter#submit(Project.UserPreferences)} hands over a copy of the preferences,
+ * and the file is written once no new copy has been handed over for {@link PreferencesWriter#DELAY_MILLIS},
+ * or at the latest {@link PreferencesWriter#MAX_DELAY_MILLIS} after the first copy that has yet to be written.
+ * Changes made in quick succession are thereby coalesced into a single write, of the latest copy.
+ * The file is written to a temporary file first, which then replaces the preferences file, so that a
+ * crash while writing never leaves a partially written preferences file behind.
+ * <p>
+ * This class is only to be used internally by the {@link Project}.
+ */
+class PreferencesWriter {
+
+    static final long DELAY_MILLIS = 500L;
+    static final long MAX_DELAY_MILLIS = 5000L;
+
+    private final File file;
+    private final ScheduledExecutorService worker;
+    private final Object writeLock;
+
+    // Guarded by this
+    private Project.UserPreferences pending;
+    private ScheduledFuture<?> scheduled;
+    private long pendingSince;
+
+    /**
+     * @param file the preferences file
+     */
+    PreferencesWriter(File file) {
+        this.file = file;
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "preferences");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        worker = executor;
+
+        writeLock = new Object();
+        pending = null;
+        scheduled = null;
+        pendingSince = 0L;
+    }
+
+    /**
+     * Schedules the given preferences to be written, replacing any that have yet to be written.
+     * @param prefs a copy of the preferences, which must not be changed afterwards
+     */
+    synchronized void submit(Project.UserPreferences prefs) {
+        long now = System.currentTimeMillis();
+        if(pending == null)
+            pendingSince = now;
+        pending = prefs;
+
+        if(scheduled != null)
+            scheduled.cancel(false);
+        long delay = Math.max(0L, Math.min(DELAY_MILLIS, pendingSince + MAX_DELAY_MILLIS - now));
+        scheduled = worker.schedule(this::writePending, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the preferences that have yet to be written, if any, on the calling thread.
+     * Returns once they are in the file.
+     */
+    void flush() {
+        synchronized(this) {
+            if(scheduled != null) {
+                scheduled.cancel(false);
+                scheduled = null;
+            }
+        }
+        writePending();
+    }
+
+    /**
+     * Writes the preferences that have yet to be written, and shuts down the background thread.
+     */
+    void shutdown() {
+        flush();
+        worker.shutdown();
+    }
+
+    private void writePending() {
+        synchronized(writeLock) {
+            Project.UserPreferences prefs;
+            synchronized(this) {
+                prefs = pending;
+                pending = null;
+            }
+            if(prefs == null)
+                return;
+
+            try {
+                write(prefs);
+            } catch (IOException | XMLStreamException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Writes the preferences to a temporary file next to the preferences file, and moves it into place.
+     */
+    private void write(Project.UserPreferences prefs) throws IOException, XMLStreamException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+
+        boolean moved = false;
+        try {
+            try(FileOutputStream fileStream = new FileOutputStream(temp, false)) {
+
+                XMLEventFactory eventFactory = XMLEventFactory.newFactory();
+                XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+                XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream, "UTF-8");
+
+                eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+                eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+                eventWriter.add(eventFactory.createStartElement("", "", "preferences"));
+                eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+                addPreference(eventFactory, eventWriter,
+                        "project_directory", prefs.projectDir);
+                addPreference(eventFactory, eventWriter,
+                        "window_maximized", Boolean.toString(prefs.windowMaximized));
+                addPreference(eventFactory, eventWriter,
+                        "window_width", Integer.toString(prefs.windowWidth));
+                addPreference(eventFactory, eventWriter,
+                        "window_height", Integer.toString(prefs.windowHeight));
+                addPreference(eventFactory, eventWriter,
+                        "journal_enabled", Boolean.toString(prefs.journalEnabled));
+                addPreference(eventFactory, eventWriter,
+                        "autosave_enabled", Boolean.toString(prefs.autosaveEnabled));
+                addPreference(eventFactory, eventWriter,
+                        "autosave_interval", Integer.toString(prefs.autosaveInterval));
+                addPreference(eventFactory, eventWriter,
+                        "autosave_idle", Integer.toString(prefs.autosaveIdle));
+                addPreference(eventFactory, eventWriter,
+                        "backup_count", Integer.toString(prefs.backupCount));
+                addPreference(eventFactory, eventWriter,
+                        "workspace_memory", Integer.toString(prefs.workspaceMemory));
+                addPreference(eventFactory, eventWriter,
+                        "history_enabled", Boolean.toString(prefs.historyEnabled));
+
+                eventWriter.add(eventFactory.createEndElement("", "", "preferences"));
+                eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+                eventWriter.add(eventFactory.createEndDocument());
+
+                eventWriter.flush();
+                fileStream.getFD().sync();
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if(!moved)
+                temp.delete();
+        }
+    }
+
+    /**
+     * Internal helper method to {@link PreferencesWriter#write(Project.UserPreferences)}
+     * @param factory
+     * @param writer
+     * @param localName
+     * @param content
+     * @throws XMLStreamException
+     */
+    private static void addPreference(XMLEventFactory factory, XMLEventWriter writer, String localName, String content)
+        throws XMLStreamException
+    {
+        writer.add(factory.createStartElement("", "", localName));
+        writer.add(factory.createCharacters(content));
+        writer.add(factory.createEndElement("", "", localName));
+        writer.add(factory.createCharacters(System.lineSeparator()));
+    }
+
+}
@@ -1,22 +1,51 @@
 package com.team34.model;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipException;
 
 import javax.xml.stream.*;
-import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
 import com.team34.model.event.*;
 import com.team34.model.character.*;
+import com.team34.model.diagnostics.LatencyRecorder;
+import com.team34.model.diagnostics.ProjectLoadEvent;
+import com.team34.model.diagnostics.ProjectSaveEvent;
+import com.team34.model.io.BinaryProjectFormat;
+import com.team34.model.io.CorruptSectionException;
+import com.team34.model.io.ExportFormat;
+import com.team34.model.io.OutlineWriter;
+import com.team34.model.io.ProjectFiles;
+import com.team34.model.io.ProjectFormat;
+import com.team34.model.io.ProjectHistory;
+import com.team34.model.io.ProjectJournal;
+import com.team34.model.io.ProjectMerge;
+import com.team34.model.io.ProjectSection;
+import com.team34.model.io.ProjectSnapshot;
+import com.team34.model.io.SnapshotReplay;
+import com.team34.model.io.TableOfContents;
+import com.team34.model.library.RecentProjects;
 
 /**
  * This class represents the top layer of the model/data.
@@ -27,14 +56,22 @@ import com.team34.model.character.*;
  * and stored throughout and between sessions.
  * <p>
  * Writer's Studio stores each project a user creates as an individual wsp-file (Writer's Studio Project).
+ * A wsp-file is stored as XML, as compressed XML or in a compact binary format, see {@link ProjectFormat}.
  * By calling the method {@link Project#loadProject(File)}, the project file will be loaded.
  * Likewise, if the method {@link Project#saveProject()} is called, the project file will be saved.
  * Any project that was already loaded when loading a new project, will be discarded.
+ * <p>
+ * In journaled mode, see {@link Project#setJournalEnabled(boolean)}, every change is appended to a
+ * {@link ProjectJournal} next to the project file instead, and saving only waits for the journal to
+ * reach the disk. The project file is rewritten in the background once the journal grows large,
+ * and loading a project replays any journals written since the project file was last written.
  *
  * @author Kasper S. Skott
  */
 public class Project {
 
+    private static final int LOAD_ATTEMPTS = 3;
+
     public final EventManager eventManager;
     public final CharacterManager characterManager;
 
@@ -42,8 +79,27 @@ public class Project {
     private Path workingPath;
 
     private UserPreferences userPrefs;
+    private PreferencesWriter prefsWriter;
+    private RecentProjects recentProjects;
     private String currProjectName;
     private File currProjectFile;
+    private ProjectFormat currProjectFormat;
+
+    private final ModelChangeDispatcher changeDispatcher;
+    private boolean journalEnabled;
+    private ProjectJournal journal;
+    private final ExecutorService compactionExecutor;
+    private Future<?> compaction;
+    private boolean compactionDue;
+    private Executor modelExecutor;
+    private File recoveredFrom;
+    private Exception damage; // Why the project file could not be read, if it was recovered
+    private Set<ProjectSection> editedSections;
+    private boolean journalsReplayed; // Journals were loaded, and journaled saving is disabled
+    private ProjectHistory history;
+    private PendingLoad partialLoad; // The load of the current project, while sections of it remain to be installed
+    private PendingReplace pendingReplace; // The replacement of the current project, while it is being written
+    private final LatencyRecorder latencies;
 
 
     /**
@@ -58,6 +114,28 @@ public class Project {
         workingPath = Paths.get(workingDir);
         currProjectName = "";
         currProjectFile = null;
+        currProjectFormat = ProjectFormat.XML;
+
+        changeDispatcher = new ModelChangeDispatcher();
+        eventManager.setChangeListener(changeDispatcher);
+        characterManager.setChangeListener(changeDispatcher);
+
+        journal = null;
+        compaction = null;
+        compactionDue = false;
+        modelExecutor = null;
+        recoveredFrom = null;
+        damage = null;
+        editedSections = EnumSet.noneOf(ProjectSection.class);
+        history = null;
+        partialLoad = null;
+        pendingReplace = null;
+        latencies = new LatencyRecorder();
+        compactionExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "journal-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         if(workingPath.endsWith("bin")) {
             System.setProperty("user.dir", workingPath.getRoot().resolve(workingPath.subpath(0, workingPath.getNameCount()-1)).toString());
@@ -65,11 +143,15 @@ public class Project {
             workingPath = Paths.get(workingDir);
         }
 
+        prefsWriter = new PreferencesWriter(new File(workingDir, "preferences.xml"));
+        recentProjects = new RecentProjects(new File(workingDir, "recent.cache"));
         try {
             loadUserPrefs();
         } catch (IOException | XMLStreamException e) {
             e.printStackTrace();
         }
+
+        journalEnabled = userPrefs.journalEnabled;
     }
 
     /**
@@ -104,6 +186,23 @@ public class Project {
         currProjectFile = file;
     }
 
+    /**
+     * Returns the format the current project is saved in.
+     * @return {@link Project#currProjectFormat}
+     */
+    public ProjectFormat getProjectFormat() {
+        return currProjectFormat;
+    }
+
+    /**
+     * Sets the format the current project is to be saved in.
+     * The next call to {@link Project#saveProject()} will write the file in this format.
+     * @param format the new format
+     */
+    public void setProjectFormat(ProjectFormat format) {
+        currProjectFormat = format;
+    }
+
     /**
      * Loads the preferences file.
      * @throws IOException
@@ -143,6 +242,34 @@ public class Project {
                             event = eventReader.nextEvent();
                             userPrefs.windowHeight = Integer.parseInt(event.asCharacters().getData());
                             break;
+                        case "journal_enabled":
+                            event = eventReader.nextEvent();
+                            userPrefs.journalEnabled = Boolean.parseBoolean(event.asCharacters().getData());
+                            break;
+                        case "autosave_enabled":
+                            event = eventReader.nextEvent();
+                            userPrefs.autosaveEnabled = Boolean.parseBoolean(event.asCharacters().getData());
+                            break;
+                        case "autosave_interval":
+                            event = eventReader.nextEvent();
+                            userPrefs.autosaveInterval = Integer.parseInt(event.asCharacters().getData());
+                            break;
+                        case "autosave_idle":
+                            event = eventReader.nextEvent();
+                            userPrefs.autosaveIdle = Integer.parseInt(event.asCharacters().getData());
+                            break;
+                        case "backup_count":
+                            event = eventReader.nextEvent();
+                            userPrefs.backupCount = Integer.parseInt(event.asCharacters().getData());
+                            break;
+                        case "workspace_memory":
+                            event = eventReader.nextEvent();
+                            userPrefs.workspaceMemory = Integer.parseInt(event.asCharacters().getData());
+                            break;
+                        case "history_enabled":
+                            event = eventReader.nextEvent();
+                            userPrefs.historyEnabled = Boolean.parseBoolean(event.asCharacters().getData());
+                            break;
                     }
                 }
             }
@@ -150,609 +277,1032 @@ public class Project {
     }
 
     /**
-     * Internal helper method to {@link Project#writeUserPrefs()}
-     * @param factory
-     * @param writer
-     * @param localName
-     * @param content
-     * @throws XMLStreamException
+     * Saves the current state of {@link Project#userPrefs} to the preferences file. The file is written
+     * in the background, shortly after the last change, see {@link PreferencesWriter}.
      */
-    private void addPreference(XMLEventFactory factory, XMLEventWriter writer, String localName, String content)
-        throws XMLStreamException
-    {
-        XMLEvent event;
-        event = factory.createStartElement("", "", localName);
-        writer.add(event);
-        event = factory.createCharacters(content);
-        writer.add(event);
-        event = factory.createEndElement("", "", localName);
-        writer.add(event);
-        writer.add(factory.createCharacters(System.lineSeparator()));
+    public void writeUserPrefs() {
+        prefsWriter.submit(new UserPreferences(userPrefs));
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
-     * @param event
-     * @param reader
-     * @throws XMLStreamException
+     * Loads the given file as a project. The format of the file is detected automatically.
+     * Any journals written since the file was last written are replayed on top of it.
+     * This will discard any existing data, present in the currently loaded project.
+     * The existing data is only discarded once the file has been read successfully.
+     * <p>
+     * If the file cannot be read, eg. because it was damaged by a crash, the most recent backup that
+     * can be read is loaded instead, see {@link Project#getRecoveredFrom()}. The project is then
+     * considered to have unsaved changes, so that the file is repaired once saved.
+     * <p>
+     * This reads the file on the calling thread. To read it on another thread, use
+     * {@link Project#prepareLoad(File)} and {@link Project#completeLoad(PendingLoad)} instead.
+     * @param projectFile the project file to load
+     * @throws IOException if neither the file nor any of its backups could be read, or if the file
+     *                     keeps changing while it is read
+     * @throws XMLStreamException if neither the file nor any of its backups could be read
      */
-    private void loadUIDManager(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException
-    {
-        while(reader.hasNext()) {
-            event = reader.nextEvent();
+    public void loadProject(File projectFile) throws IOException, XMLStreamException {
+        long start = latencies.start();
+        try {
+            waitForCompaction();
+            flushJournalOf(projectFile);
 
-            if(event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
+            for(int attempt = 1; ; attempt++) {
+                if(completeLoad(prepareLoad(projectFile)))
+                    return;
+                if(attempt == LOAD_ATTEMPTS)
+                    throw new IOException("The project file kept changing while it was read: " + projectFile);
+            }
+        } finally {
+            latencies.record("project.load", start);
+        }
+    }
 
-                if(startElement.getName().getLocalPart() == "uid"){
-                    event = reader.nextEvent();
-                    if(event.isCharacters()) {
-                        UIDManager.addUID(Long.parseLong(event.asCharacters().getData()));
-                    }
-                    event = reader.nextEvent();
-                }
+    /**
+     * Reads the given project file, along with any journals written since the file was last written,
+     * to be loaded by {@link Project#completeLoad(PendingLoad)}. If the file cannot be read, the most
+     * recent backup that can be read is read instead, see {@link Project#loadProject(File)}.
+     * <p>
+     * This does not touch the project, and may be called on any thread.
+     * @param projectFile the project file to read
+     * @return the content of the file, with the journals replayed
+     * @throws IOException if neither the file nor any of its backups could be read
+     * @throws XMLStreamException if neither the file nor any of its backups could be read
+     */
+    public PendingLoad prepareLoad(File projectFile) throws IOException, XMLStreamException {
+        return prepareLoad(projectFile, EnumSet.allOf(ProjectSection.class));
+    }
 
+    /**
+     * Reads the given project file like {@link Project#prepareLoad(File)}, but if the file is binary, only the
+     * given sections are parsed, along with the name and the UIDs of the project. The rest of the file is kept
+     * in memory, so that the given sections can be shown while the rest is parsed by
+     * {@link PendingLoad#readRemaining()}, and installed by {@link Project#completeRemaining(PendingLoad)}.
+     * <p>
+     * The whole file is parsed if a backup is read instead, or if there are journals with changes to replay,
+     * as these may change any section.
+     * <p>
+     * This does not touch the project, and may be called on any thread.
+     * @param projectFile the project file to read
+     * @param first the sections to parse first
+     * @return the content of the file, with the journals replayed
+     * @throws IOException if neither the file nor any of its backups could be read
+     * @throws XMLStreamException if neither the file nor any of its backups could be read
+     */
+    public PendingLoad prepareLoad(File projectFile, Set<ProjectSection> first) throws IOException, XMLStreamException {
+        long start = latencies.start();
+        ProjectLoadEvent event = new ProjectLoadEvent();
+        event.begin();
+
+        // Captured before reading, so that any change made while reading makes the load stale
+        ProjectFileState state = ProjectFileState.capture(projectFile);
+
+        File source = projectFile;
+        ProjectFormat format;
+        ProjectSnapshot snapshot;
+        BinaryProjectFormat.Sections remaining = null;
+        Exception damage = null;
+        try {
+            format = ProjectFiles.detectFormat(projectFile);
+            if(format == ProjectFormat.BINARY) {
+                EnumSet<ProjectSection> sections = EnumSet.of(ProjectSection.PROJECT, ProjectSection.UID_MANAGER);
+                sections.addAll(first);
+                remaining = BinaryProjectFormat.readSections(projectFile);
+                snapshot = remaining.parse(sections);
+            } else {
+                snapshot = ProjectFiles.read(projectFile, format);
             }
-            else if(event.isEndElement()) {
-                if(event.asEndElement().getName().getLocalPart() == "uid_manager")
-                    return;
-            }
+        } catch (IOException | XMLStreamException e) {
+            // Eg. a file locked by another program may be readable later, and is no reason to use a backup
+            if(!isDamage(e))
+                throw e;
+
+            Backup backup = findReadableBackup(projectFile);
+            if(backup == null)
+                throw e;
+
+            // The backup was parsed to test it, so that read is used rather than reading it again
+            e.printStackTrace();
+            source = backup.file;
+            format = backup.format;
+            snapshot = backup.snapshot;
+            remaining = null;
+            damage = e;
+        }
+
+        // Journals are only valid on top of the file they continue from, and must follow each other
+        long baseGeneration = snapshot.journalGeneration;
+        ArrayList<File> journals = new ArrayList<>();
+        boolean changed = false;
+        for(long generation : state.getGenerations()) {
+            if(generation <= baseGeneration)
+                continue;
+            if(generation != baseGeneration + journals.size() + 1)
+                break;
+
+            File journalFile = ProjectJournal.journalFile(projectFile, generation);
+            journals.add(journalFile);
+            changed |= !ProjectJournal.isEmpty(journalFile);
         }
+
+        // The changes in the journals may apply to any section, so every section is needed to replay them
+        if(remaining != null && (changed || !remaining.hasRemaining())) {
+            snapshot.addAll(remaining.parseRemaining());
+            remaining = null;
+        }
+
+        SnapshotReplay replay = new SnapshotReplay(snapshot);
+        for(File journalFile : journals)
+            ProjectJournal.replay(journalFile, replay);
+        replay.finish();
+        long nextGeneration = baseGeneration + journals.size() + 1;
+
+        event.end();
+        if(event.isEnabled()) {
+            event.file = projectFile.getPath();
+            event.format = format.name();
+            event.fileSize = source.length();
+            event.sections = format == ProjectFormat.BINARY
+                    ? describeSections(BinaryProjectFormat.readTableOfContents(source)) : null;
+            event.recovered = source != projectFile;
+            event.journals = journals.size();
+            // Counted after the replay, so that the changes in the journals are included
+            event.events = snapshot.events.size();
+            event.characters = snapshot.characters.size();
+            event.associations = snapshot.associations.size();
+        }
+
+        latencies.record("project.read", start);
+        return new PendingLoad(projectFile, source, format, snapshot, remaining, damage, state, nextGeneration, event);
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
-     * @param event
-     * @param reader
-     * @throws XMLStreamException
+     * Makes the project read by {@link Project#prepareLoad(File)} the current project, unless the project
+     * file or its journals have changed since they were read. This only installs what was read, and does
+     * not read the file again.
+     * <p>
+     * If only some sections were parsed, see {@link Project#prepareLoad(File, Set)}, the rest of the project is
+     * empty until {@link Project#completeRemaining(PendingLoad)} has been called, see {@link Project#isLoading()}.
+     * @param load the project read
+     * @return true if the project was loaded; false if the files have changed, in which case nothing is
+     *         changed, and the file has to be read again
+     * @throws IOException if the journal cannot be created
      */
-    private void loadEvents(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException
-    {
-        long uid = -1L;
-        String name = null;
-
-        while(reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if(event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if(startElement.getName().getLocalPart() == "event"){
-                    Iterator<Attribute> attrIt = startElement.getAttributes();
-                    while(attrIt.hasNext()) {
-                        Attribute attr = attrIt.next();
-                        switch(attr.getName().getLocalPart()) {
-                            case "uid":
-                                uid = Long.parseLong(attr.getValue());
-                                break;
-                            case "name":
-                                name = attr.getValue();
-                                break;
-                        }
-                    }
+    public boolean completeLoad(PendingLoad load) throws IOException {
+        waitForCompaction();
+        flushJournalOf(load.projectFile);
+        if(!load.state.isCurrent(load.projectFile))
+            return false;
+
+        installSnapshot(load.snapshot);
+        currProjectFile = load.projectFile;
+        currProjectFormat = load.format;
+        recoveredFrom = load.isRecovered() ? load.source : null;
+        damage = load.damage;
+        editedSections = EnumSet.copyOf(load.snapshot.edited);
+
+        long baseGeneration = load.snapshot.journalGeneration;
+        if(recoveredFrom == null)
+            ProjectJournal.deleteObsolete(load.projectFile, baseGeneration);
+
+        if(journalEnabled && recoveredFrom == null)
+            openJournal(Math.max(load.nextGeneration, load.state.getLastGeneration() + 1));
+        else
+            journalsReplayed = load.hasReplayedJournals();
+
+        if(load.isPartial())
+            partialLoad = load; // The event is committed once the load is complete
+        else if(load.event.shouldCommit())
+            load.event.commit();
+        return true;
+    }
 
-                    event = reader.nextEvent();
-                    if(uid != -1L && name != null) {
-                        if(event.isCharacters())
-                            eventManager.addEvent(uid, name, event.asCharacters().getData());
-                        else
-                            eventManager.addEvent(uid, name, "");
+    /**
+     * Installs the sections of the current project that were left out when it was loaded, once they have
+     * been parsed by {@link PendingLoad#readRemaining()}. Does nothing if another project has been loaded,
+     * or the project has been cleared, since. Like the rest of the project, the installed data is not
+     * reported as changes.
+     * @param load the load of the current project, see {@link Project#getPartialLoad()}
+     * @throws IllegalStateException if the remaining sections have not been parsed
+     */
+    public void completeRemaining(PendingLoad load) {
+        if(load != partialLoad)
+            return;
+        if(load.rest == null)
+            throw new IllegalStateException("The remaining sections have not been read");
 
-                    }
-                }
+        changeDispatcher.setEnabled(false);
+        installEvents(load.rest);
+        installCharacters(load.rest);
 
-            }
-            else if(event.isEndElement()) {
-                if(event.asEndElement().getName().getLocalPart() == "events")
-                    return;
-            }
+        // The data of the sections installed here has not been changed since the project was loaded
+        if(!load.rest.events.isEmpty() || !load.rest.eventOrderLists.isEmpty())
+            eventManager.resetChanges();
+        if(!load.rest.characters.isEmpty() || !load.rest.associations.isEmpty())
+            characterManager.resetChanges();
+        changeDispatcher.setEnabled(true);
+        partialLoad = null;
+
+        if(load.event.shouldCommit())
+            load.event.commit();
+        compactJournal(); // Put off while the project was being loaded
+    }
+
+    /**
+     * Returns whether sections of the current project remain to be installed, see
+     * {@link Project#completeRemaining(PendingLoad)}, or the project is being replaced, see
+     * {@link Project#prepareRestore(long)}. Until then, the project cannot be saved, and the data of the
+     * remaining sections must not be changed.
+     * @return true if the project is still being loaded
+     */
+    public boolean isLoading() {
+        return partialLoad != null || pendingReplace != null;
+    }
+
+    /**
+     * Returns the load of the current project, while sections of it remain to be installed.
+     * @return the load, or null if the project has been loaded completely
+     */
+    public PendingLoad getPartialLoad() {
+        return partialLoad;
+    }
+
+    /**
+     * Waits for the journal to reach the disk, if one is in use for the given file, so that reading the file
+     * includes every change made so far.
+     */
+    private void flushJournalOf(File projectFile) throws IOException {
+        if(journal != null && journal.getProjectFile().getAbsoluteFile().equals(projectFile.getAbsoluteFile()))
+            journal.flush();
+    }
+
+    /**
+     * Makes the given snapshot the current project, as if the given file had been loaded, without reading it.
+     * The snapshot must hold the exact content of the file, including any journals written for it,
+     * see {@link Workspace}. If journaled saving is enabled, a new journal is started after the existing ones.
+     * @param projectFile the project file the snapshot was taken of
+     * @param format the format of the project file
+     * @param snapshot the content of the project file
+     * @throws IOException if the journal cannot be created
+     */
+    public void resumeProject(File projectFile, ProjectFormat format, ProjectSnapshot snapshot) throws IOException {
+        long start = latencies.start();
+        waitForCompaction();
+
+        installSnapshot(snapshot);
+        currProjectFile = projectFile;
+        currProjectFormat = format;
+        recoveredFrom = null;
+
+        if(journalEnabled) {
+            long[] generations = ProjectJournal.findGenerations(projectFile);
+            long lastGeneration = generations.length > 0 ? generations[generations.length - 1] : 0L;
+            openJournal(Math.max(snapshot.journalGeneration, lastGeneration) + 1);
         }
+
+        latencies.record("project.resume", start);
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)} ()}
-     * @param event
-     * @param reader
-     * @throws XMLStreamException
+     * Describes the size of each section of a binary project file, for the diagnostic events.
+     * @param contents the table of contents of the file, may be null
+     * @return eg. "events=1024, characters=512", or null if there is no table of contents
      */
-    private void loadEventOrderLists(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException
-    {
-        LinkedList<Long> orderList = new LinkedList<>();
-
-        while(reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if (event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if (startElement.getName().getLocalPart() == "order_list") {
-                    orderList = new LinkedList<Long>();
-
-                    while (reader.hasNext()) {
-                        event = reader.nextEvent();
-
-                        if (event.isStartElement()) {
-                            startElement = event.asStartElement();
-                            if (startElement.getName().getLocalPart() == "li") {
-                                event = reader.nextEvent();
-                                if (event.isCharacters())
-                                    orderList.add(Long.parseLong(event.asCharacters().getData()));
-                            }
-                        }
-                        else if(event.isEndElement()) {
-                            if (event.asEndElement().getName().getLocalPart() == "order_list")
-                                eventManager.addOrderList(orderList);
-                            if (event.asEndElement().getName().getLocalPart() == "event_order")
-                                return;
-                        }
-                    }
-                }
+    private static String describeSections(TableOfContents contents) {
+        StringBuilder sb = new StringBuilder();
+        for(TableOfContents.Entry entry : contents.getEntries()) {
+            if(sb.length() > 0)
+                sb.append(", ");
+            ProjectSection section = entry.getSection();
+            sb.append(section != null ? section.getSectionName() : "unknown").append('=').append(entry.getLength());
+        }
+        return sb.toString();
+    }
 
-            }
+    /**
+     * Returns whether an error reading a project file means that the file is damaged. Other errors, eg.
+     * the file being locked or inaccessible, are not a reason to load a backup instead.
+     */
+    private static boolean isDamage(Exception e) {
+        return e instanceof XMLStreamException || e instanceof CorruptSectionException
+                || e instanceof EOFException || e instanceof ZipException;
+    }
 
+    /**
+     * Reads the most recent backup of the given project file that can be read.
+     * @param projectFile the project file
+     * @return the backup and its content, or null if there is none
+     */
+    private static Backup findReadableBackup(File projectFile) {
+        for(int i = 1; ; i++) {
+            File file = ProjectFiles.backupFile(projectFile, i);
+            if(!file.exists())
+                return null;
+
+            try {
+                ProjectFormat format = ProjectFiles.detectFormat(file);
+                return new Backup(file, format, ProjectFiles.read(file, format));
+            } catch (IOException | XMLStreamException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
-     * @param event
-     * @param reader
+     * Returns the backup that the current project was recovered from, if the project file
+     * could not be read when it was loaded. Cleared once the project has been saved.
+     * @return the backup file, or null if the project file was loaded as is
+     */
+    public File getRecoveredFrom() {
+        return recoveredFrom;
+    }
+
+    /**
+     * Returns why the project file could not be read, if the current project was recovered from a backup,
+     * see {@link Project#getRecoveredFrom()}. Cleared once the project has been saved.
+     * @return the error, eg. a {@link CorruptSectionException} naming the damaged section, or null
+     */
+    public Exception getDamage() {
+        return recoveredFrom != null ? damage : null;
+    }
+
+    /**
+     * Returns the sections of the project file that had been edited outside of Writer's Studio when the
+     * current project was loaded, and could not be checked for damage, see {@link ProjectSnapshot#edited}.
+     * Cleared once the project has been saved, as the file is then checked again.
+     * @return the sections, empty if none
+     */
+    public Set<ProjectSection> getEditedSections() {
+        return Collections.unmodifiableSet(editedSections);
+    }
+
+    /**
+     * Saves the current state of the project data into the file, {@link Project#currProjectFile},
+     * using the format {@link Project#currProjectFormat}.
+     * <p>
+     * If a journal is in use for the file, the changes are already being written to it, and this
+     * only waits for the journal to reach the disk.
+     * @throws IOException
      * @throws XMLStreamException
      */
-    private void loadCharacters(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException
-    {
-        long uid = -1L;
-        String name = null;
-        double chartX = 0.0;
-        double chartY = 0.0;
-
-        while(reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if(event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if(startElement.getName().getLocalPart() == "character"){
-                    Iterator<Attribute> attrIt = startElement.getAttributes();
-                    while(attrIt.hasNext()) {
-                        Attribute attr = attrIt.next();
-                        switch(attr.getName().getLocalPart()) {
-                            case "uid":
-                                uid = Long.parseLong(attr.getValue());
-                                break;
-                            case "name":
-                                name = attr.getValue();
-                                break;
-                            case "chartX":
-                                chartX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "chartY":
-                                chartY = Double.parseDouble(attr.getValue());
-                                break;
-                        }
-                    }
+    public void saveProject() throws IOException, XMLStreamException {
+        if(currProjectFile == null)
+            throw new NullPointerException("currProjectFile must not be null");
+        checkLoaded();
 
-                    event = reader.nextEvent();
-                    if(uid != -1L && name != null) {
-                        if(event.isCharacters())
-                            characterManager.addCharacter(uid, name, event.asCharacters().getData(), chartX, chartY);
-                        else
-                            characterManager.addCharacter(uid, name, "", chartX, chartY);
+        long start = latencies.start();
+        try {
+            writeProject();
+        } finally {
+            latencies.record("project.save", start);
+        }
+    }
 
-                    }
+    private void writeProject() throws IOException, XMLStreamException {
+        compactJournal();
+
+        if(journal != null) {
+            if(journal.getProjectFile().equals(currProjectFile)) {
+                ProjectSaveEvent event = new ProjectSaveEvent();
+                event.begin();
+                journal.flush();
+                event.end();
+                if(event.shouldCommit()) {
+                    event.file = currProjectFile.getPath();
+                    event.format = currProjectFormat.name();
+                    event.journaled = true;
+                    event.commit();
                 }
 
+                eventManager.resetChanges();
+                characterManager.resetChanges();
+                recordRecentProject();
+
+                // The project file is not written, so the revision is stored from a snapshot instead
+                ProjectHistory revisions = historyFor(currProjectFile);
+                if(revisions != null) {
+                    ProjectSnapshot snapshot = createSnapshot();
+                    compactionExecutor.execute(() -> commitRevision(revisions, snapshot));
+                }
+                return;
             }
-            else if(event.isEndElement()) {
-                if(event.asEndElement().getName().getLocalPart() == "characters")
-                    return;
-            }
+
+            // Saving to another file; the journal is left behind with the old one
+            closeJournal();
         }
+
+        PendingSave save = prepareSave();
+        save.write();
+        completeSave(save);
     }
 
     /**
-     * Internal helper method to {@link Project#loadProject(File)}
-     * @param event
-     * @param reader
-     * @throws XMLStreamException
+     * Captures the current state of the project data, to be written to {@link Project#currProjectFile}
+     * by {@link PendingSave#write()}, which may be called on any thread. Once written,
+     * {@link Project#completeSave(PendingSave)} must be called.
+     * <p>
+     * Any journal in use is closed, as the project is written as a whole instead.
+     * @return the captured save
+     * @throws IOException if the project file cannot be created
      */
-    private void loadAssociations(XMLEvent event, XMLEventReader reader)
-            throws XMLStreamException
-    {
-        long uid = -1L;
-        long startUID = -1L;
-        long endUID = -1L;
-        double sX = 0.0;
-        double sY = 0.0;
-        double eX = 0.0;
-        double eY = 0.0;
-        String label = "";
-        double lblX = 0.0;
-        double lblY = 0.0;
-
-        while(reader.hasNext()) {
-            event = reader.nextEvent();
-
-            if(event.isStartElement()) {
-                StartElement startElement = event.asStartElement();
-
-                if(startElement.getName().getLocalPart() == "association"){
-                    Iterator<Attribute> attrIt = startElement.getAttributes();
-                    while(attrIt.hasNext()) {
-                        Attribute attr = attrIt.next();
-                        switch(attr.getName().getLocalPart()) {
-                            case "uid":
-                                uid = Long.parseLong(attr.getValue());
-                                break;
-                            case "startUID":
-                                startUID = Long.parseLong(attr.getValue());
-                                break;
-                            case "endUID":
-                                endUID = Long.parseLong(attr.getValue());
-                                break;
-                            case "sX":
-                                sX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "sY":
-                                sY = Double.parseDouble(attr.getValue());
-                                break;
-                            case "eX":
-                                eX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "eY":
-                                eY = Double.parseDouble(attr.getValue());
-                                break;
-                            case "lblX":
-                                lblX = Double.parseDouble(attr.getValue());
-                                break;
-                            case "lblY":
-                                lblY = Double.parseDouble(attr.getValue());
-                                break;
-                        }
-                    }
+    public PendingSave prepareSave() throws IOException {
+        if(currProjectFile == null)
+            throw new NullPointerException("currProjectFile must not be null");
+        checkLoaded();
 
-                    event = reader.nextEvent();
-                    if(uid != -1L && label != null) {
-                        if(event.isCharacters())
-                            characterManager.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, event.asCharacters().getData(), lblX, lblY);
-                        else
-                            characterManager.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, "", lblX, lblY);
+        closeJournal();
+        waitForCompaction();
+        currProjectFile.createNewFile();
 
-                    }
+        if(currProjectName.isEmpty())
+            currProjectName = currProjectFile.getName();
+
+        // Everything in the existing journals is included, so they become obsolete
+        long[] generations = ProjectJournal.findGenerations(currProjectFile);
+        long generation = generations.length > 0 ? generations[generations.length - 1] : 0L;
+
+        ProjectSnapshot snapshot = createSnapshot();
+        snapshot.journalGeneration = generation;
+        return new PendingSave(snapshot, currProjectFile, currProjectFormat, userPrefs.backupCount,
+                changeDispatcher.getChangeCount(), historyFor(currProjectFile), latencies);
+    }
+
+    /**
+     * Marks the project as saved, unless it has changed since the save was prepared, or the
+     * project file has changed. Starts a journal, if journaled saving is enabled.
+     * @param save a save that has been written successfully
+     * @throws IOException if the journal cannot be created
+     */
+    public void completeSave(PendingSave save) throws IOException {
+        if(!save.file.equals(currProjectFile) || save.changeCount != changeDispatcher.getChangeCount())
+            return;
+        if(pendingReplace != null)
+            return; // The file is about to be replaced
+
+        eventManager.resetChanges();
+        characterManager.resetChanges();
+        recoveredFrom = null;
+        editedSections.clear();
+        journalsReplayed = false;
+        recordRecentProject();
+
+        if(journalEnabled && journal == null)
+            openJournal(save.snapshot.journalGeneration + 1);
+    }
+
+    /**
+     * Exports the project to a file that can be read outside of Writer's Studio. The events are
+     * written in the order of the first event order list, followed by the characters, sorted by
+     * name, and their associations. Each event is written as soon as it has been looked up, so the
+     * whole export is never held in memory.
+     * <p>
+     * This writes the file on the calling thread. To write it on another thread, pass a
+     * {@link Project#createSnapshot()} to {@link Project#exportOutline(ProjectSnapshot, File, ExportFormat)}.
+     * @param file the file to write, which is replaced if it exists
+     * @param format the format to write
+     * @throws IOException
+     */
+    public void exportOutline(File file, ExportFormat format) throws IOException {
+        exportOutline(createSnapshot(), file, format);
+    }
+
+    /**
+     * Exports a copy of a project, like {@link Project#exportOutline(File, ExportFormat)} does. The snapshot
+     * shares the text of the project it was taken of, so only its entries are held in memory twice.
+     * Does not touch the current project, and may be called on any thread.
+     * @param snapshot the project to export, eg. from {@link Project#createSnapshot()}
+     * @param file the file to write, which is replaced if it exists
+     * @param format the format to write
+     * @throws IOException
+     */
+    public static void exportOutline(ProjectSnapshot snapshot, File file, ExportFormat format) throws IOException {
+        try(OutlineWriter writer = OutlineWriter.open(file, format)) {
+            writer.beginOutline(snapshot.name);
+
+            HashMap<Long, ProjectSnapshot.EventEntry> events = new HashMap<>();
+            for(ProjectSnapshot.EventEntry event : snapshot.events)
+                events.put(event.uid, event);
+
+            writer.beginEvents();
+            if(!snapshot.eventOrderLists.isEmpty()) {
+                Long[] order = snapshot.eventOrderLists.get(0);
+                for(int i = 0; i < order.length; i++) {
+                    ProjectSnapshot.EventEntry event = events.get(order[i]);
+                    writer.event(i + 1, order[i], event.name, event.description);
                 }
+            }
+            writer.endEvents();
+
+            ArrayList<ProjectSnapshot.CharacterEntry> characters = new ArrayList<>(snapshot.characters);
+            characters.sort(Comparator.comparing(character -> character.name, String.CASE_INSENSITIVE_ORDER));
+            HashMap<Long, String> names = new HashMap<>();
 
+            writer.beginCharacters();
+            for(ProjectSnapshot.CharacterEntry character : characters) {
+                names.put(character.uid, character.name);
+                writer.character(character.uid, character.name, character.description,
+                        character.chartX, character.chartY);
             }
-            else if(event.isEndElement()) {
-                if(event.asEndElement().getName().getLocalPart() == "associations")
-                    return;
+            writer.endCharacters();
+
+            writer.beginAssociations();
+            for(ProjectSnapshot.AssociationEntry association : snapshot.associations) {
+                String from = names.get(association.startUID);
+                String to = names.get(association.endUID);
+                String label = association.label != null ? association.label : "";
+                if(from != null && to != null)
+                    writer.association(from, to, label);
             }
+            writer.endAssociations();
+
+            writer.endOutline();
         }
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     * @param factory
-     * @param writer
+     * Returns whether a journal is in use for the current project file. If so, changes are
+     * saved as they are made, and {@link Project#saveProject()} only needs to flush the journal.
+     * @return true if a journal is in use
+     */
+    public boolean isJournalActive() {
+        return journal != null && journal.getProjectFile().equals(currProjectFile);
+    }
+
+    /**
+     * Enables or disables journaled saving. The setting is stored in the user preferences.
+     * <p>
+     * If a project file is in use, enabling writes the project file and starts a journal,
+     * and disabling closes the journal and writes the project file.
+     * @param enabled whether to use journaled saving
+     * @throws IOException
      * @throws XMLStreamException
      */
-    private void writeUIDManager(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException
-    {
-        Long[] uids = UIDManager.getUIDs();
-        if(uids == null)
+    public void setJournalEnabled(boolean enabled) throws IOException, XMLStreamException {
+        if(journalEnabled == enabled)
             return;
 
-        for(int i = 0; i < uids.length; i++) {
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "uid"));
-            writer.add(factory.createCharacters(Long.toString(uids[i])));
-            writer.add(factory.createEndElement("", "", "uid"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
+        journalEnabled = enabled;
+        userPrefs.journalEnabled = enabled;
+
+        if(currProjectFile == null)
+            return;
+
+        if(!enabled)
+            closeJournal();
+
+        saveProject();
+    }
+
+    /**
+     * Returns whether journaled saving is enabled.
+     * @return {@link Project#journalEnabled}
+     */
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * Flushes and closes the journal, waits for any compaction to finish, and writes
+     * any preferences that have yet to be written. This must be called before the application exits.
+     */
+    public void close() {
+        closeJournal();
+        waitForCompaction();
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(30, TimeUnit.SECONDS); // Revisions still being stored
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        prefsWriter.shutdown();
+        recentProjects.shutdown();
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Returns the saved revisions of the current project file, oldest first, see {@link ProjectHistory}.
+     * @return the revisions, or an empty list if there is no project file, or no history
+     * @throws IOException if the history cannot be read
      */
-    private void writeEvents(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException
-    {
-        Object[][] event = eventManager.getEvents();
-        if(event == null)
-            return;
+    public List<ProjectHistory.Revision> getRevisions() throws IOException {
+        if(currProjectFile == null)
+            return new ArrayList<>();
+        return openHistory(currProjectFile).getRevisions();
+    }
 
-        for(int i = 0; i < event.length; i++) {
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "event"));
-            writer.add(factory.createAttribute("name", (String) event[i][1]));
-            writer.add(factory.createAttribute("uid", Long.toString((Long) event[i][0])));
+    /**
+     * Makes a saved revision the current state of the project. The revision is written to the project
+     * file, which is then loaded again, so any unsaved changes are discarded. The restored state is
+     * stored as a new revision, so the revisions made after it are kept.
+     * <p>
+     * This writes the file on the calling thread. To write it on another thread, use
+     * {@link Project#prepareRestore(long)} and {@link Project#completeReplace(PendingReplace)} instead.
+     * @param number the number of the revision, see {@link ProjectHistory.Revision#getNumber()}
+     * @throws IOException if the revision cannot be read, or the project file cannot be written
+     * @throws XMLStreamException if the project file cannot be written
+     */
+    public void restoreRevision(long number) throws IOException, XMLStreamException {
+        replaceProject(prepareRestore(number));
+    }
 
-            writer.add(factory.createCharacters((String) event[i][2]));
+    /**
+     * Prepares to make a saved revision the current state of the project, see
+     * {@link Project#restoreRevision(long)}. The revision is read and written to the project file by
+     * {@link PendingReplace#write()}, which may be called on any thread, and is then installed by
+     * {@link Project#completeReplace(PendingReplace)}.
+     * <p>
+     * Any journal in use is closed, and the project cannot be saved until the replacement is completed or
+     * cancelled, see {@link Project#isLoading()}.
+     * @param number the number of the revision, see {@link ProjectHistory.Revision#getNumber()}
+     * @return the replacement, to be written
+     */
+    public PendingReplace prepareRestore(long number) {
+        if(currProjectFile == null)
+            throw new NullPointerException("currProjectFile must not be null");
 
-            writer.add(factory.createEndElement("", "", "event"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-        }
+        return prepareReplace(null, openHistory(currProjectFile), number);
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Merges another copy of a project with it, see {@link ProjectMerge}. Nothing is changed until the
+     * merge is applied by {@link Project#applyMerge(ProjectMerge)}.
+     * Does not touch the current project, and may be called on any thread.
+     * @param ours the project to merge into, eg. from {@link Project#createSnapshot()}
+     * @param theirFile the other copy
+     * @param originalFile the project file both copies were made from, or null if there is none
+     * @return the merge
+     * @throws IOException if either file cannot be read
+     * @throws XMLStreamException if either file cannot be read
      */
-    private void writeEventOrderLists(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException
-    {
-        int i = 0;
-        Long[] orderList = eventManager.getEventOrder(i);
-        if(orderList == null)
-            return;
+    public static ProjectMerge prepareMerge(ProjectSnapshot ours, File theirFile, File originalFile)
+            throws IOException, XMLStreamException {
+        ProjectSnapshot original = originalFile != null ? ProjectFiles.read(originalFile) : new ProjectSnapshot();
+        ProjectSnapshot theirs = ProjectFiles.read(theirFile);
+        return ProjectMerge.merge(original, ours, theirs);
+    }
 
-        while(orderList != null) {
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "order_list"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
-
-            for (int j = 0; j < orderList.length; j++) {
-                writer.add(factory.createCharacters("\t\t\t"));
-                writer.add(factory.createStartElement("", "", "li"));
-                writer.add(factory.createCharacters(Long.toString(orderList[j])));
-                writer.add(factory.createEndElement("", "", "li"));
-                writer.add(factory.createCharacters(System.lineSeparator()));
-            }
+    /**
+     * Makes the result of a merge the current state of the project. Like a restored revision, the result
+     * is written to the project file, which is then loaded again.
+     * <p>
+     * This writes the file on the calling thread. To write it on another thread, use
+     * {@link Project#prepareApply(ProjectMerge)} and {@link Project#completeReplace(PendingReplace)} instead.
+     * @param merge the merge, from {@link Project#prepareMerge(ProjectSnapshot, File, File)}
+     * @throws IOException if the project file cannot be written
+     * @throws XMLStreamException if the project file cannot be written
+     */
+    public void applyMerge(ProjectMerge merge) throws IOException, XMLStreamException {
+        replaceProject(prepareApply(merge));
+    }
+
+    /**
+     * Prepares to make the result of a merge the current state of the project, like
+     * {@link Project#prepareRestore(long)} does for a revision.
+     * @param merge the merge, from {@link Project#prepareMerge(ProjectSnapshot, File, File)}
+     * @return the replacement, to be written
+     */
+    public PendingReplace prepareApply(ProjectMerge merge) {
+        if(currProjectFile == null)
+            throw new NullPointerException("currProjectFile must not be null");
+
+        return prepareReplace(merge.getResult(), null, -1L);
+    }
 
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createEndElement("", "", "order_list"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
+    private PendingReplace prepareReplace(ProjectSnapshot snapshot, ProjectHistory source, long number) {
+        checkLoaded();
+        closeJournal();
+        waitForCompaction();
 
-            orderList = eventManager.getEventOrder(++i);
+        pendingReplace = new PendingReplace(snapshot, source, number, currProjectFile, currProjectFormat,
+                userPrefs.backupCount, historyFor(currProjectFile));
+        return pendingReplace;
+    }
+
+    /**
+     * Writes a replacement and installs it, see {@link Project#completeReplace(PendingReplace)}.
+     */
+    private void replaceProject(PendingReplace replace) throws IOException, XMLStreamException {
+        try {
+            replace.write();
+        } catch (IOException | XMLStreamException e) {
+            cancelReplace(replace);
+            throw e;
         }
+        completeReplace(replace);
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Makes a replacement that has been written by {@link PendingReplace#write()} the current state of the
+     * project, and stores it as a new revision. What was written is installed as is, without reading the
+     * file again. Does nothing if another project has been loaded, or the project has been cleared, since
+     * the replacement was prepared.
+     * @param replace the replacement
+     * @throws IOException if the journal cannot be created
      */
-    private void writeCharacters(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException
-    {
-        ArrayList<Object[]> chars = characterManager.getCharacterList();
-        if(chars == null)
+    public void completeReplace(PendingReplace replace) throws IOException {
+        if(replace != pendingReplace)
             return;
+        if(!replace.written)
+            throw new IllegalStateException("The replacement has not been written");
 
-        Object[] data;
-        for(int i = 0; i < chars.size(); i++) {
-            data = chars.get(i);
+        resumeProject(replace.file, replace.format, replace.snapshot);
 
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "character"));
-            writer.add(factory.createAttribute("name", (String) data[0]));
-            writer.add(factory.createAttribute("uid", Long.toString((Long) data[1])));
-            writer.add(factory.createAttribute("chartX", Double.toString((Double) data[2])));
-            writer.add(factory.createAttribute("chartY", Double.toString((Double) data[3])));
+        ProjectSnapshot snapshot = replace.snapshot;
+        compactionExecutor.execute(() -> commitRevision(replace.history, snapshot));
+    }
 
-            writer.add(factory.createCharacters((String) data[4]));
+    /**
+     * Gives up a replacement that could not be written, keeping the project as it is. A new journal is started
+     * if journaled saving is enabled, as the one in use was closed when the replacement was prepared.
+     * Does nothing if another project has been loaded, or the project has been cleared, since.
+     * @param replace the replacement
+     */
+    public void cancelReplace(PendingReplace replace) {
+        if(replace != pendingReplace)
+            return;
 
-            writer.add(factory.createEndElement("", "", "character"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
+        pendingReplace = null;
+        if(journalEnabled) {
+            try {
+                long[] generations = ProjectJournal.findGenerations(currProjectFile);
+                openJournal((generations.length > 0 ? generations[generations.length - 1] : 0L) + 1);
+            } catch (IOException e) {
+                // The changes are still in memory, and are saved to the project file instead
+                e.printStackTrace();
+            }
         }
     }
 
     /**
-     * Internal helper method to {@link Project#saveProject()}
-     * @param factory
-     * @param writer
-     * @throws XMLStreamException
+     * Returns the {@link ProjectHistory} of the given project file, or null if version history is disabled.
      */
-    private void writeAssociations(XMLEventFactory factory, XMLEventWriter writer)
-            throws XMLStreamException
-    {
-        Object[][] assocs = characterManager.getAssociationData();
-        if(assocs == null)
+    private ProjectHistory historyFor(File file) {
+        return userPrefs.historyEnabled ? openHistory(file) : null;
+    }
+
+    /**
+     * Returns the {@link ProjectHistory} of the given project file, reusing the last one if it is of the same file.
+     */
+    private ProjectHistory openHistory(File file) {
+        if(history == null || !history.getProjectFile().equals(file.getAbsoluteFile()))
+            history = new ProjectHistory(file);
+        return history;
+    }
+
+    /**
+     * Stores a revision in the given history, if any. Failing to do so does not fail the save.
+     * May be called on any thread.
+     */
+    private static void commitRevision(ProjectHistory revisions, ProjectSnapshot snapshot) {
+        if(revisions == null)
             return;
+        try {
+            revisions.commit(snapshot);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        Object[] data;
-        for(int i = 0; i < assocs.length; i++) {
-            data = assocs[i];
+    /**
+     * Returns the cache of recently saved and opened projects.
+     * @return the recent projects
+     */
+    public RecentProjects getRecentProjects() {
+        return recentProjects;
+    }
 
-            writer.add(factory.createCharacters("\t\t"));
-            writer.add(factory.createStartElement("", "", "association"));
-            writer.add(factory.createAttribute("uid", Long.toString((Long) data[0])));
-            writer.add(factory.createAttribute("startUID", Long.toString((Long) data[1])));
-            writer.add(factory.createAttribute("endUID", Long.toString((Long) data[2])));
-            writer.add(factory.createAttribute("sX", Double.toString((Double) data[3])));
-            writer.add(factory.createAttribute("sY", Double.toString((Double) data[4])));
-            writer.add(factory.createAttribute("eX", Double.toString((Double) data[5])));
-            writer.add(factory.createAttribute("eY", Double.toString((Double) data[6])));
-            writer.add(factory.createAttribute("lblX", Double.toString((Double) data[8])));
-            writer.add(factory.createAttribute("lblY", Double.toString((Double) data[9])));
+    /**
+     * Records the metadata of the current project in the {@link RecentProjects} cache, making it the most
+     * recent entry. This is done whenever the project is saved, and is to be called when a project has been
+     * opened. Does nothing if the project has no file.
+     */
+    public void recordRecentProject() {
+        if(currProjectFile == null)
+            return;
 
-            writer.add(factory.createCharacters((String) data[7]));
+        ArrayList<Object[]> chars = characterManager.getCharacterList();
+        double[] positions = new double[chars.size() * 2];
+        for(int i = 0; i < chars.size(); i++) {
+            positions[i*2] = (Double) chars.get(i)[2];
+            positions[i*2 + 1] = (Double) chars.get(i)[3];
+        }
 
-            writer.add(factory.createEndElement("", "", "association"));
-            writer.add(factory.createCharacters(System.lineSeparator()));
+        Object[][] assocs = characterManager.getAssociationData();
+        double[] lines = new double[assocs != null ? assocs.length * 4 : 0];
+        for(int i = 0; i < lines.length / 4; i++) {
+            for(int j = 0; j < 4; j++)
+                lines[i*4 + j] = (Double) assocs[i][3 + j];
         }
+
+        String name = currProjectName.isEmpty() ? currProjectFile.getName() : currProjectName;
+        recentProjects.record(currProjectFile, name, eventManager.getEventCount(), positions, lines);
+    }
+
+    private void openJournal(long generation) throws IOException {
+        journal = ProjectJournal.create(currProjectFile, generation, this::requestCompaction);
+        changeDispatcher.addListener(journal);
+        compactionDue = false;
     }
 
     /**
-     * Saves the current state of {@link Project#userPrefs} to the preferences file
-     * @throws IOException
-     * @throws XMLStreamException
+     * Flushes and closes the journal, if one is in use. The journal file is kept.
      */
-    public void writeUserPrefs() throws IOException, XMLStreamException {
-        File file = new File(workingDir, "preferences.xml");
-        file.createNewFile();
+    private void closeJournal() {
+        if(journal == null)
+            return;
 
-        try(FileOutputStream fileStream = new FileOutputStream(file, false)) {
+        changeDispatcher.removeListener(journal);
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        journal = null;
+        compactionDue = false;
+    }
 
-            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
-            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
-            XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream);
+    /**
+     * Sets the executor that runs tasks on the thread that owns the model, eg. Platform::runLater. A task
+     * submitted to it must run after the action that is currently changing the model has finished.
+     * <p>
+     * It is used to compact the journal between actions. Without it, the journal is only compacted
+     * when the project is saved.
+     * @param modelExecutor the executor, or null
+     */
+    public void setModelExecutor(Executor modelExecutor) {
+        this.modelExecutor = modelExecutor;
+    }
 
-            eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+    /**
+     * Called by the journal when it has grown past {@link ProjectJournal#COMPACTION_THRESHOLD}. This happens
+     * while a change is being recorded, in the middle of an action, when the managers may be in between two
+     * notifications of the same change, so the compaction is only flagged here, and run once the action is done.
+     */
+    private void requestCompaction() {
+        if(compactionDue)
+            return;
 
-            eventWriter.add(eventFactory.createStartElement("", "", "preferences"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        compactionDue = true;
+        if(modelExecutor != null)
+            modelExecutor.execute(this::compactJournal);
+    }
 
-            addPreference(eventFactory, eventWriter,
-                    "project_directory", userPrefs.projectDir);
-            addPreference(eventFactory, eventWriter,
-                    "window_maximized", Boolean.toString(userPrefs.windowMaximized));
-            addPreference(eventFactory, eventWriter,
-                    "window_width", Integer.toString(userPrefs.windowWidth));
-            addPreference(eventFactory, eventWriter,
-                    "window_height", Integer.toString(userPrefs.windowHeight));
+    /**
+     * Continues in a new journal, and writes the project file in the background, including
+     * everything up to the current journal, if the journal has asked for it, see
+     * {@link Project#requestCompaction()}. Must only be called in between actions.
+     */
+    private void compactJournal() {
+        if(!compactionDue || journal == null || isLoading())
+            return;
+        if(compaction != null && !compaction.isDone())
+            return; // Still due, the next save compacts it
+        compactionDue = false;
 
-            eventWriter.add(eventFactory.createEndElement("", "", "preferences"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+        ProjectJournal previous = journal;
+        File file = currProjectFile;
+        ProjectFormat format = currProjectFormat;
+        int backups = userPrefs.backupCount;
+        ProjectHistory revisions = historyFor(file);
 
-            eventWriter.add(eventFactory.createEndDocument());
+        if(currProjectName.isEmpty())
+            currProjectName = file.getName();
+        ProjectSnapshot snapshot = createSnapshot();
+        snapshot.journalGeneration = previous.getGeneration();
 
-            eventWriter.flush();
+        changeDispatcher.removeListener(previous);
+        try {
+            openJournal(previous.getGeneration() + 1);
+        } catch (IOException e) {
+            // Keep appending to the current journal rather than losing changes
+            e.printStackTrace();
+            journal = previous;
+            changeDispatcher.addListener(previous);
+            return;
+        }
+
+        compaction = compactionExecutor.submit(() -> {
+            try {
+                previous.close();
+                ProjectFiles.write(snapshot, file, format, backups);
+                ProjectJournal.deleteObsolete(file, snapshot.journalGeneration);
+            } catch (IOException | XMLStreamException e) {
+                // The journals are kept, so nothing is lost
+                e.printStackTrace();
+                return;
+            }
+            commitRevision(revisions, snapshot);
+        });
+    }
+
+    private void waitForCompaction() {
+        if(compaction == null)
+            return;
+
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
         }
+        compaction = null;
     }
 
     /**
-     * Loads the given file as a project.
-     * This will discard any existing data, present in the currently loaded project.
-     * @param projectFile the project file to load
-     * @throws IOException
-     * @throws XMLStreamException
+     * Copies all data of the currently loaded project into a new {@link ProjectSnapshot}.
+     * @return the snapshot
+     * @throws IllegalStateException if the project is still being loaded, see {@link Project#isLoading()}
      */
-    public void loadProject(File projectFile) throws IOException, XMLStreamException {
-        clearProject();
+    public ProjectSnapshot createSnapshot() {
+        checkLoaded();
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        snapshot.name = currProjectName;
 
-        try(FileInputStream fileStream = new FileInputStream(projectFile)) {
+        Collections.addAll(snapshot.uids, UIDManager.getUIDs());
 
-            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
-            XMLEventReader eventReader = inputFactory.createXMLEventReader(fileStream);
+        Object[][] events = eventManager.getEvents();
+        if(events != null) {
+            for(int i = 0; i < events.length; i++)
+                snapshot.addEvent((Long) events[i][0], (String) events[i][1], (String) events[i][2]);
+        }
 
-            XMLEvent event;
-            while(eventReader.hasNext()) {
-                event = eventReader.nextEvent();
+        int i = 0;
+        Long[] orderList = eventManager.getEventOrder(i);
+        while(orderList != null) {
+            snapshot.eventOrderLists.add(orderList);
+            orderList = eventManager.getEventOrder(++i);
+        }
 
-                if(event.isStartElement()) {
-                    StartElement startElement = event.asStartElement();
-                    switch (startElement.getName().getLocalPart()) {
-                        case "project":
-                            Attribute projName = startElement.getAttributes().next();
-                            if(projName.getName().getLocalPart() == "name")
-                                currProjectName = projName.getValue();
-                            break;
-                        case "uid_manager":
-                            loadUIDManager(event, eventReader);
-                            break;
-                        case "events":
-                            loadEvents(event, eventReader);
-                            break;
-                        case "event_order":
-                            loadEventOrderLists(event, eventReader);
-                            break;
-                        case "characters":
-                            loadCharacters(event, eventReader);
-                            break;
-                        case "associations":
-                            loadAssociations(event, eventReader);
-                            break;
-                    }
-                }
+        ArrayList<Object[]> chars = characterManager.getCharacterList();
+        for(Object[] data : chars)
+            snapshot.addCharacter((Long) data[1], (String) data[0], (String) data[4], (Double) data[2], (Double) data[3]);
+
+        Object[][] assocs = characterManager.getAssociationData();
+        if(assocs != null) {
+            for(Object[] data : assocs) {
+                snapshot.addAssociation((Long) data[0], (Long) data[1], (Long) data[2],
+                        (Double) data[3], (Double) data[4], (Double) data[5], (Double) data[6],
+                        (String) data[7], (Double) data[8], (Double) data[9]);
             }
         }
-        finally {
-            currProjectFile = projectFile;
-            eventManager.resetChanges();
-            characterManager.resetChanges();
-        }
 
+        return snapshot;
     }
 
     /**
-     * Saves the current state of the project data into the file, {@link Project#currProjectFile}.
-     * @throws IOException
-     * @throws XMLStreamException
+     * Makes sure the current project has been loaded completely, as a copy of it would lack the sections
+     * that remain to be installed.
      */
-    public void saveProject() throws IOException, XMLStreamException {
-        if(currProjectFile == null)
-            throw new NullPointerException("currProjectFile must not be null");
+    private void checkLoaded() {
+        if(isLoading())
+            throw new IllegalStateException("The project is still being loaded");
+    }
 
-        currProjectFile.createNewFile();
+    /**
+     * Discards all data currently loaded, and replaces it with the data of the given snapshot.
+     * The project file is left unset, see {@link Project#setProjectFile(File)}.
+     * @param snapshot the snapshot to install
+     */
+    public void installSnapshot(ProjectSnapshot snapshot) {
+        clearProject();
+        changeDispatcher.setEnabled(false);
 
-        if(currProjectName.isEmpty())
-            currProjectName = currProjectFile.getName();
+        for(Long uid : snapshot.uids)
+            UIDManager.addUID(uid);
 
-        try(FileOutputStream fileStream = new FileOutputStream(currProjectFile, false)) {
-
-            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
-            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
-            XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream);
-
-            eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createStartElement("", "", "project"));
-            eventWriter.add(eventFactory.createAttribute("name", currProjectName));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "uid_manager"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeUIDManager(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "uid_manager"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "events"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeEvents(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "events"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "event_order"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeEventOrderLists(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "event_order"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "characters"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeCharacters(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "characters"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createStartElement("", "", "associations"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-            writeAssociations(eventFactory, eventWriter);
-            eventWriter.add(eventFactory.createCharacters("\t"));
-            eventWriter.add(eventFactory.createEndElement("", "", "associations"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createEndElement("", "", "project"));
-            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
-
-            eventWriter.add(eventFactory.createEndDocument());
-
-            eventWriter.flush();
+        installEvents(snapshot);
+        installCharacters(snapshot);
 
-            eventManager.resetChanges();
-            characterManager.resetChanges();
-        }
+        currProjectName = snapshot.name;
+        eventManager.resetChanges();
+        characterManager.resetChanges();
+        changeDispatcher.setEnabled(true);
+    }
+
+    /**
+     * Internal helper method to {@link Project#installSnapshot(ProjectSnapshot)}
+     * @param snapshot
+     */
+    private void installEvents(ProjectSnapshot snapshot) {
+        for(ProjectSnapshot.EventEntry event : snapshot.events)
+            eventManager.addEvent(event.uid, event.name, event.description);
+
+        for(Long[] orderList : snapshot.eventOrderLists)
+            eventManager.addOrderList(new LinkedList<>(Arrays.asList(orderList)));
+    }
+
+    /**
+     * Internal helper method to {@link Project#installSnapshot(ProjectSnapshot)}
+     * @param snapshot
+     */
+    private void installCharacters(ProjectSnapshot snapshot) {
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters)
+            characterManager.addCharacter(character.uid, character.name, character.description,
+                    character.chartX, character.chartY);
+
+        for(ProjectSnapshot.AssociationEntry assoc : snapshot.associations)
+            characterManager.addAssociation(assoc.uid, assoc.startUID, assoc.endUID,
+                    assoc.sX, assoc.sY, assoc.eX, assoc.eY, assoc.label, assoc.lblX, assoc.lblY);
     }
 
     /**
@@ -760,6 +1310,12 @@ public class Project {
      * This only affects the data currently loaded in the application.
      */
     public void clearProject() {
+        closeJournal();
+        partialLoad = null;
+        pendingReplace = null;
+        recoveredFrom = null;
+        editedSections.clear();
+        journalsReplayed = false;
         eventManager.clear();
         characterManager.clear();
         UIDManager.clear();
@@ -772,10 +1328,39 @@ public class Project {
      * @return true if there are unsaved changed
      */
     public boolean hasUnsavedChanges() {
+        if(recoveredFrom != null)
+            return true; // The project file is damaged
+        if(journalsReplayed)
+            return true; // The changes in the journals are only in the project file once it is saved
+        if(journal != null)
+            return false; // Every change is already being written to the journal
+
         return  eventManager.hasChanged() ||
                 characterManager.hasChanged();
     }
 
+    /**
+     * Adds a listener to be notified of every change made to the project data.
+     * Data installed when loading a project is not reported.
+     * @param listener the listener to add
+     */
+    public void addChangeListener(ModelChangeListener listener) {
+        changeDispatcher.addListener(listener);
+    }
+
+    public void removeChangeListener(ModelChangeListener listener) {
+        changeDispatcher.removeListener(listener);
+    }
+
+    /**
+     * Returns the number of changes made to the project data since the application started.
+     * Comparing two values tells whether the data has changed in between.
+     * @return the change count
+     */
+    public long getChangeCount() {
+        return changeDispatcher.getChangeCount();
+    }
+
     /**
      * Returns a reference to the internal user preferences {@link Project#userPrefs}.
      * @return {@link Project#userPrefs}
@@ -784,6 +1369,263 @@ public class Project {
         return userPrefs;
     }
 
+    /**
+     * Returns the recorder that the latencies of loading and saving the project are recorded in,
+     * and that the controller records the latencies of user actions in.
+     * @return the latency recorder
+     */
+    public LatencyRecorder getLatencyRecorder() {
+        return latencies;
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The data of a project captured by {@link Project#prepareSave()}, along with the file
+     * and format to write it in.
+     */
+    public static class PendingSave {
+        private final ProjectSnapshot snapshot;
+        private final File file;
+        private final ProjectFormat format;
+        private final int backups;
+        private final long changeCount;
+        private final ProjectHistory history;
+        private final LatencyRecorder latencies;
+
+        private PendingSave(ProjectSnapshot snapshot, File file, ProjectFormat format, int backups,
+                            long changeCount, ProjectHistory history, LatencyRecorder latencies)
+        {
+            this.snapshot = snapshot;
+            this.file = file;
+            this.format = format;
+            this.backups = backups;
+            this.changeCount = changeCount;
+            this.history = history;
+            this.latencies = latencies;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Writes the captured data to the file, and stores it as a revision if version history is enabled.
+         * This does not touch the project, and may be called on any thread.
+         * @throws IOException
+         * @throws XMLStreamException
+         */
+        public void write() throws IOException, XMLStreamException {
+            long start = latencies.start();
+            ProjectSaveEvent event = new ProjectSaveEvent();
+            event.begin();
+            ProjectFiles.write(snapshot, file, format, backups);
+            event.end();
+            latencies.record("project.write", start);
+
+            if(event.shouldCommit()) {
+                event.file = file.getPath();
+                event.format = format.name();
+                event.fileSize = file.length();
+                event.sections = format == ProjectFormat.BINARY
+                        ? describeSections(BinaryProjectFormat.readTableOfContents(file)) : null;
+                event.events = snapshot.events.size();
+                event.characters = snapshot.characters.size();
+                event.associations = snapshot.associations.size();
+                event.commit();
+            }
+
+            ProjectJournal.deleteObsolete(file, snapshot.journalGeneration);
+            commitRevision(history, snapshot);
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A state of the project that is to replace the project file, and the project, prepared by
+     * {@link Project#prepareRestore(long)} or {@link Project#prepareApply(ProjectMerge)}.
+     */
+    public static class PendingReplace {
+        private volatile ProjectSnapshot snapshot;
+        private volatile boolean written;
+        private final ProjectHistory source;
+        private final long number;
+        private final File file;
+        private final ProjectFormat format;
+        private final int backups;
+        private final ProjectHistory history;
+
+        private PendingReplace(ProjectSnapshot snapshot, ProjectHistory source, long number, File file,
+                               ProjectFormat format, int backups, ProjectHistory history)
+        {
+            this.snapshot = snapshot;
+            this.written = false;
+            this.source = source;
+            this.number = number;
+            this.file = file;
+            this.format = format;
+            this.backups = backups;
+            this.history = history;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Reads the revision to restore, if any, and writes the replacement to the project file, replacing
+         * its journals. This does not touch the project, and may be called on any thread.
+         * @throws IOException if the revision cannot be read, or the project file cannot be written
+         * @throws XMLStreamException if the project file cannot be written
+         */
+        public void write() throws IOException, XMLStreamException {
+            ProjectSnapshot replacement = snapshot != null ? snapshot : source.restore(number);
+
+            // Everything in the existing journals is replaced, so they become obsolete
+            long[] generations = ProjectJournal.findGenerations(file);
+            replacement.journalGeneration = generations.length > 0 ? generations[generations.length - 1] : 0L;
+            ProjectFiles.write(replacement, file, format, backups);
+            ProjectJournal.deleteObsolete(file, replacement.journalGeneration);
+            snapshot = replacement;
+            written = true;
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A project file read by {@link Project#prepareLoad(File)}, with its journals replayed, along with
+     * the state of the files when they were read.
+     */
+    public static class PendingLoad {
+        private final File projectFile;
+        private final File source;
+        private final ProjectFormat format;
+        private final ProjectSnapshot snapshot;
+        private BinaryProjectFormat.Sections remaining;
+        private volatile ProjectSnapshot rest;
+        private final Exception damage;
+        private final ProjectFileState state;
+        private final long nextGeneration;
+        private final ProjectLoadEvent event;
+
+        private PendingLoad(File projectFile, File source, ProjectFormat format, ProjectSnapshot snapshot,
+                            BinaryProjectFormat.Sections remaining, Exception damage, ProjectFileState state,
+                            long nextGeneration, ProjectLoadEvent event)
+        {
+            this.projectFile = projectFile;
+            this.source = source;
+            this.format = format;
+            this.snapshot = snapshot;
+            this.remaining = remaining;
+            this.rest = null;
+            this.damage = damage;
+            this.state = state;
+            this.nextGeneration = nextGeneration;
+            this.event = event;
+        }
+
+        public File getProjectFile() {
+            return projectFile;
+        }
+
+        ProjectFormat getFormat() {
+            return format;
+        }
+
+        ProjectSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        ProjectFileState getState() {
+            return state;
+        }
+
+        /**
+         * Returns whether the project file could not be read, and a backup was read instead.
+         * @return true if a backup was read
+         */
+        public boolean isRecovered() {
+            return source != projectFile;
+        }
+
+        /**
+         * Returns why the project file could not be read, if a backup was read instead.
+         * @return the error, eg. a {@link CorruptSectionException} naming the damaged section, or null
+         */
+        public Exception getDamage() {
+            return damage;
+        }
+
+        /**
+         * Returns whether any journals were replayed on top of the file that was read.
+         * @return true if journals were replayed
+         */
+        boolean hasReplayedJournals() {
+            return nextGeneration > snapshot.journalGeneration + 1;
+        }
+
+        /**
+         * Returns whether only some sections of the file have been parsed, see
+         * {@link Project#prepareLoad(File, Set)}.
+         * @return true if sections remain to be parsed and installed
+         */
+        public boolean isPartial() {
+            return remaining != null || rest != null;
+        }
+
+        /**
+         * Parses the sections of the file that were left out by {@link Project#prepareLoad(File, Set)},
+         * from the bytes that were read then, to be installed by {@link Project#completeRemaining(PendingLoad)}.
+         * Does nothing if they have already been parsed.
+         * <p>
+         * This does not touch the project, and may be called on any thread.
+         * @throws IOException if the sections cannot be parsed
+         */
+        public void readRemaining() throws IOException {
+            if(remaining == null)
+                return;
+
+            ProjectSnapshot parsed = remaining.parseRemaining();
+            event.end();
+            if(event.isEnabled()) {
+                event.events += parsed.events.size();
+                event.characters += parsed.characters.size();
+                event.associations += parsed.associations.size();
+            }
+
+            remaining = null;
+            rest = parsed;
+        }
+
+        /**
+         * Returns whether the project file and its journals are unchanged since they were read.
+         * May be called on any thread.
+         * @return true if unchanged
+         */
+        public boolean isCurrent() {
+            return state.isCurrent(projectFile);
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A backup read by {@link Project#findReadableBackup(File)}.
+     */
+    private static class Backup {
+        final File file;
+        final ProjectFormat format;
+        final ProjectSnapshot snapshot;
+
+        Backup(File file, ProjectFormat format, ProjectSnapshot snapshot) {
+            this.file = file;
+            this.format = format;
+            this.snapshot = snapshot;
+        }
+    }
+
     /////////////////////////////////////////////////////////////////////////
 
     /**
@@ -794,6 +1636,13 @@ public class Project {
         public boolean windowMaximized = false;
         public int windowWidth = 1280;
         public int windowHeight = 720;
+        public boolean journalEnabled = false;
+        public boolean autosaveEnabled = true;
+        public int autosaveInterval = 300;
+        public int autosaveIdle = 30;
+        public int backupCount = 1;
+        public int workspaceMemory = 256;
+        public boolean historyEnabled = true;
 
         /**
          * Default constructor
@@ -809,6 +1658,13 @@ public class Project {
             windowMaximized = ref.windowMaximized;
             windowWidth = ref.windowWidth;
             windowHeight = ref.windowHeight;
+            journalEnabled = ref.journalEnabled;
+            autosaveEnabled = ref.autosaveEnabled;
+            autosaveInterval = ref.autosaveInterval;
+            autosaveIdle = ref.autosaveIdle;
+            backupCount = ref.backupCount;
+            workspaceMemory = ref.workspaceMemory;
+            historyEnabled = ref.historyEnabled;
         }
     }
 
@@ -0,0 +1,73 @@
+package com.team34.model;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.team34.model.io.ProjectJournal;
+
+/**
+ * The state of a project file and its journals at some point, to tell whether what was read from them
+ * is still current. A file is considered unchanged if its modification time and length are, the same
+ * journals exist, and the last journal has the same length; journals are only ever appended to.
+ */
+class ProjectFileState {
+
+    private final long lastModified;
+    private final long length;
+    private final long[] generations;
+    private final long journalLength;
+
+    private ProjectFileState(long lastModified, long length, long[] generations, long journalLength) {
+        this.lastModified = lastModified;
+        this.length = length;
+        this.generations = generations;
+        this.journalLength = journalLength;
+    }
+
+    /**
+     * Captures the current state of the given project file and its journals.
+     * @param file the project file
+     * @return the state
+     */
+    static ProjectFileState capture(File file) {
+        long[] generations = ProjectJournal.findGenerations(file);
+        return new ProjectFileState(file.lastModified(), file.length(), generations,
+                lastJournalLength(file, generations));
+    }
+
+    /**
+     * Returns the generations of the journals that existed when the state was captured.
+     * @return the generations, in ascending order
+     */
+    long[] getGenerations() {
+        return generations;
+    }
+
+    /**
+     * Returns the generation of the last journal that existed when the state was captured.
+     * @return the generation, or 0 if there were no journals
+     */
+    long getLastGeneration() {
+        return generations.length > 0 ? generations[generations.length - 1] : 0L;
+    }
+
+    /**
+     * Returns whether the given project file and its journals are unchanged since the state was captured.
+     * @param file the project file
+     * @return true if unchanged
+     */
+    boolean isCurrent(File file) {
+        long[] current = ProjectJournal.findGenerations(file);
+        return file.lastModified() == lastModified
+                && file.length() == length
+                && Arrays.equals(current, generations)
+                && lastJournalLength(file, current) == journalLength;
+    }
+
+    private static long lastJournalLength(File file, long[] generations) {
+        if(generations.length == 0)
+            return 0L;
+        return ProjectJournal.journalFile(file, generations[generations.length - 1]).length();
+    }
+
+}
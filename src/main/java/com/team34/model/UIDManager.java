@@ -1,17 +1,20 @@
 package com.team34.model;
 
-import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.Random;
 import java.util.UUID;
 
 /**
  * The UID Manager generates and stores Unique IDs (UID).
  * The UID Manager class can create new UIDs or remove existing UIDs.
+ * The UIDs are kept in a hash set, in the order they were added, so that checking
+ * whether a UID is unique takes constant time.
  * @author Jim Andersson
  * @version 1.0
  */
 public class UIDManager {
-    private static ArrayList<Long> uidList = new ArrayList<>(); // TODO: How to store UID list during application downtime?
+    private static LinkedHashSet<Long> uidList = new LinkedHashSet<>(); // TODO: How to store UID list during application downtime?
+    private static final Random rand = new Random();
 
     /**
      * Creates a UID and checks it against the UID list to ensure uniqueness. If unique, returns the UID.
@@ -21,7 +24,6 @@ public class UIDManager {
         UUID idGenerator;
         long uid;
         do {
-            Random rand = new Random();
             long input1 = rand.nextLong();
             long input2 = rand.nextLong();
             idGenerator = new UUID(input1, input2);
@@ -37,12 +39,20 @@ public class UIDManager {
      * @return boolean
      */
     private static boolean isUnique(long uid) {
-        for (long listEntry : uidList) {
-            if (uid == listEntry) {
-                return false;
-            }
-        }
-        return true;
+        return !uidList.contains(uid);
+    }
+
+    /**
+     * Creates the given number of UIDs at once, each unique, and stores them.
+     * This is used when adding many entities in one go, eg. when importing.
+     * @param count the number of UIDs to create
+     * @return the new UIDs
+     */
+    public static long[] reserveUIDs(int count) {
+        long[] uids = new long[count];
+        for (int i = 0; i < count; i++)
+            uids[i] = nextUID();
+        return uids;
     }
 
     /**
@@ -0,0 +1,360 @@
+package com.team34.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.xml.stream.XMLStreamException;
+
+import com.team34.model.io.ProjectFormat;
+import com.team34.model.io.ProjectSection;
+import com.team34.model.io.ProjectSnapshot;
+
+/**
+ * Keeps the most recently used projects in memory, so that switching between them does not
+ * require reading their files again.
+ * <p>
+ * Only one project is loaded into the {@link Project} at a time. When another project is opened through
+ * {@link Workspace#open(File)}, the current one is kept as a {@link ProjectSnapshot}, provided it has no
+ * unsaved changes. Opening a kept project installs its snapshot right away. Kept projects are evicted,
+ * least recently used first, once their estimated size exceeds the memory budget; an evicted project is
+ * simply read from its file the next time it is opened.
+ * <p>
+ * A kept snapshot is only used if its project file, and the journals written for it, are unchanged since
+ * it was kept. Otherwise the file is read, just like with {@link Project#loadProject(File)}.
+ * <p>
+ * A project that is likely to be opened next can be read ahead of time with {@link Workspace#preload(File, Executor)}.
+ * A project that is about to be opened can be read on another thread with {@link Workspace#readAhead(File)}, and
+ * then opened with {@link Workspace#open(File, ReadAhead)}, so that the model thread does not wait for the file.
+ * Reading a file includes replaying its journals, and falling back to its backups.
+ */
+public class Workspace {
+
+    private final Project project;
+    private final LinkedHashMap<File, Entry> entries;
+    private long memoryBudget;
+    private long memoryUsed;
+
+    /**
+     * @param project the project to load into
+     * @param memoryBudget the estimated number of bytes the kept projects may use
+     */
+    public Workspace(Project project, long memoryBudget) {
+        this.project = project;
+        this.memoryBudget = memoryBudget;
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        memoryUsed = 0L;
+    }
+
+    /**
+     * Makes the given file the current project, from memory if it has been kept, else by reading it.
+     * The current project is kept first, see {@link Workspace#keepCurrent()}. Opening the current project
+     * again reads its file, discarding any unsaved changes.
+     * @param projectFile the project file to open
+     * @return true if the project was opened from memory; false if the file was read
+     * @throws IOException if the file had to be read, and could not be
+     * @throws XMLStreamException if the file had to be read, and could not be
+     */
+    public boolean open(File projectFile) throws IOException, XMLStreamException {
+        File key = projectFile.getAbsoluteFile();
+        if(key.equals(currentFile())) {
+            // Reopening the current project reverts it to what is on disk
+            project.loadProject(projectFile);
+            return false;
+        }
+
+        keepCurrent();
+
+        Entry entry = entries.remove(key);
+        if(entry != null) {
+            memoryUsed -= entry.size;
+            if(entry.state.isCurrent(key)) {
+                project.resumeProject(projectFile, entry.format, entry.snapshot);
+                return true;
+            }
+        }
+
+        project.loadProject(projectFile);
+        return false;
+    }
+
+    /**
+     * Makes the given file the current project, like {@link Workspace#open(File)} does, from memory if it has
+     * been kept, else from the content read by {@link Workspace#readAhead(File)}. The file is never read here.
+     * <p>
+     * If the file or its journals have changed since they were read, nothing is opened, and the file has
+     * to be read ahead again. The current project is then left as is.
+     * @param projectFile the project file to open
+     * @param read what was read ahead of time
+     * @return true if the project was opened; false if the file has to be read again
+     * @throws IOException if the journal cannot be created
+     */
+    public boolean open(File projectFile, ReadAhead read) throws IOException {
+        File key = projectFile.getAbsoluteFile();
+        if(!read.load.getProjectFile().equals(key))
+            throw new IllegalArgumentException("Read ahead of another file: " + read.load.getProjectFile());
+
+        if(key.equals(currentFile())) {
+            // Reopening the current project reverts it to what is on disk
+            return project.completeLoad(read.load);
+        }
+
+        Entry entry = entries.get(key);
+        if(entry == null || !entry.state.isCurrent(key)) {
+            if(!read.load.isCurrent())
+                return false;
+            entry = null;
+        }
+
+        keepCurrent();
+        entries.remove(key);
+        if(entry != null) {
+            memoryUsed -= entry.size;
+            project.resumeProject(projectFile, entry.format, entry.snapshot);
+            return true;
+        }
+
+        return project.completeLoad(read.load);
+    }
+
+    /**
+     * Reads the given project file, to be opened by {@link Workspace#open(File, ReadAhead)}, like
+     * {@link Project#loadProject(File)} would, including its journals and backups. Of a binary file, only the
+     * characters and their associations are parsed at first, see {@link Project#prepareLoad(File, java.util.Set)};
+     * once opened, the rest is parsed from the same read, see {@link Project#getPartialLoad()}.
+     * May be called on any thread.
+     * @param projectFile the project file to read
+     * @return what was read
+     * @throws IOException if neither the file nor any of its backups could be read
+     * @throws XMLStreamException if neither the file nor any of its backups could be read
+     */
+    public ReadAhead readAhead(File projectFile) throws IOException, XMLStreamException {
+        return new ReadAhead(project.prepareLoad(projectFile.getAbsoluteFile(),
+                EnumSet.of(ProjectSection.CHARACTERS, ProjectSection.ASSOCIATIONS)));
+    }
+
+    /**
+     * Keeps a copy of the current project in memory, unless it has unsaved changes or no project file,
+     * or is still being loaded.
+     * This is to be called before the current project is discarded by other means than
+     * {@link Workspace#open(File)}, eg. when a new project is created.
+     */
+    public void keepCurrent() {
+        File key = currentFile();
+        if(key == null || project.hasUnsavedChanges() || project.isLoading() || !key.exists())
+            return;
+
+        if(project.isJournalActive()) {
+            // The journal must be on disk, so that it matches the snapshot when the project is opened again
+            try {
+                project.saveProject();
+            } catch (IOException | XMLStreamException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+
+        Entry previous = entries.remove(key);
+        if(previous != null)
+            memoryUsed -= previous.size;
+
+        ProjectSnapshot snapshot = project.createSnapshot();
+        Entry entry = new Entry(snapshot, project.getProjectFormat(), key);
+        if(entry.size > memoryBudget)
+            return;
+
+        entries.put(key, entry);
+        memoryUsed += entry.size;
+        evict();
+    }
+
+    /**
+     * Reads the given project file on a background thread, and keeps it as if it had been opened before,
+     * so that opening it is instant. Nothing is kept if the file cannot be read, if it has journals that
+     * would have to be replayed, or if the project has been opened or kept in the meantime.
+     * @param projectFile the project file to read
+     * @param modelExecutor runs tasks on the thread that owns the model, eg. Platform::runLater
+     */
+    public void preload(File projectFile, Executor modelExecutor) {
+        File key = projectFile.getAbsoluteFile();
+        if(key.equals(currentFile()) || entries.containsKey(key))
+            return;
+
+        Thread thread = new Thread(() -> {
+            Project.PendingLoad load;
+            try {
+                load = project.prepareLoad(key);
+            } catch (IOException | XMLStreamException e) {
+                e.printStackTrace();
+                return;
+            }
+
+            // Only a project that is loaded as is can be resumed from memory
+            if(!load.isRecovered() && !load.hasReplayedJournals())
+                modelExecutor.execute(() -> adopt(key, new Entry(load)));
+        }, "preload");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Keeps a preloaded entry, unless the project has been opened or kept since the preload started.
+     */
+    private void adopt(File key, Entry entry) {
+        if(key.equals(currentFile()) || entries.containsKey(key) || entry.size > memoryBudget)
+            return;
+        if(!entry.state.isCurrent(key))
+            return;
+
+        entries.put(key, entry);
+        memoryUsed += entry.size;
+        evict();
+    }
+
+    /**
+     * Discards the kept copy of the given project, if any.
+     * @param projectFile the project file
+     */
+    public void forget(File projectFile) {
+        Entry entry = entries.remove(projectFile.getAbsoluteFile());
+        if(entry != null)
+            memoryUsed -= entry.size;
+    }
+
+    /**
+     * Returns the project files that are kept in memory, most recently used first.
+     * @return the project files
+     */
+    public List<File> getKeptProjects() {
+        ArrayList<File> files = new ArrayList<>(entries.keySet());
+        Collections.reverse(files);
+        return files;
+    }
+
+    /**
+     * Returns the estimated number of bytes used by the kept projects.
+     * @return the memory used
+     */
+    public long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the estimated number of bytes the kept projects may use, evicting projects if needed.
+     * @param memoryBudget the memory budget
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    private File currentFile() {
+        File file = project.getProjectFile();
+        return file != null ? file.getAbsoluteFile() : null;
+    }
+
+    /**
+     * Evicts the least recently used projects until the memory budget is met.
+     */
+    private void evict() {
+        Iterator<Map.Entry<File, Entry>> it = entries.entrySet().iterator();
+        while(memoryUsed > memoryBudget && it.hasNext()) {
+            memoryUsed -= it.next().getValue().size;
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns a rough estimate of the number of bytes used by the given snapshot.
+     */
+    private static long estimateSize(ProjectSnapshot snapshot) {
+        final long object = 16L;
+        final long reference = 8L;
+        final long boxedLong = object + 8L;
+
+        long size = object + (snapshot.uids.size() * (reference + boxedLong));
+
+        for(ProjectSnapshot.EventEntry event : snapshot.events)
+            size += reference + object + 8L + estimateSize(event.name) + estimateSize(event.description);
+
+        for(Long[] orderList : snapshot.eventOrderLists)
+            size += reference + object + (orderList.length * reference);
+
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters)
+            size += reference + object + 24L + estimateSize(character.name) + estimateSize(character.description);
+
+        for(ProjectSnapshot.AssociationEntry association : snapshot.associations)
+            size += reference + object + 80L + estimateSize(association.label);
+
+        return size;
+    }
+
+    private static long estimateSize(String text) {
+        return text == null ? 0L : 40L + (2L * text.length());
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A project file read by {@link Workspace#readAhead(File)}.
+     */
+    public static class ReadAhead {
+        private final Project.PendingLoad load;
+
+        private ReadAhead(Project.PendingLoad load) {
+            this.load = load;
+        }
+
+        /**
+         * Returns whether the file could not be read, and one of its backups was read instead.
+         * @return true if a backup was read
+         */
+        public boolean isRecovered() {
+            return load.isRecovered();
+        }
+    }
+
+    /**
+     * A project kept in memory, along with the state of its files when it was kept.
+     */
+    private static class Entry {
+        final ProjectSnapshot snapshot;
+        final ProjectFormat format;
+        final long size;
+        final ProjectFileState state;
+
+        /**
+         * Keeps the current project, which must have no unsaved changes.
+         */
+        Entry(ProjectSnapshot snapshot, ProjectFormat format, File file) {
+            this.snapshot = snapshot;
+            this.format = format;
+            size = estimateSize(snapshot);
+            state = ProjectFileState.capture(file);
+            snapshot.journalGeneration = state.getLastGeneration();
+        }
+
+        /**
+         * Keeps a project that has been read, but not loaded.
+         */
+        Entry(Project.PendingLoad load) {
+            snapshot = load.getSnapshot();
+            format = load.getFormat();
+            size = estimateSize(snapshot);
+            state = load.getState();
+        }
+    }
+
+}
@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import com.team34.model.ModelChangeListener;
 import com.team34.model.UIDManager;
 import com.team34.view.character.CharacterListObject;
 
@@ -22,6 +23,7 @@ public class CharacterManager {
     private HashMap<Long, Character> characterMap;
     private HashMap<Long, Association> associationMap;
     private boolean hasChanged;
+    private ModelChangeListener changeListener;
 
     public CharacterManager() {
         characterMap = new HashMap<>();
@@ -41,13 +43,42 @@ public class CharacterManager {
 
     public long newCharacter(String name, String description, double posX, double posY) {
         long uid = UIDManager.nextUID();
+        if(changeListener != null)
+            changeListener.uidAdded(uid);
+
         addCharacter(uid, name, description, posX, posY);
         return uid;
     }
 
+    /**
+     * Creates several new characters at once, with UIDs reserved in bulk from the {@link UIDManager}.
+     * The data is formatted like this:
+     * <ul>
+     *  <li>data[i][0] -- name (String)
+     *  <li>data[i][1] -- description (String)
+     *  <li>data[i][2] -- chart position X (Double)
+     *  <li>data[i][3] -- chart position Y (Double)
+     * </ul>
+     * @param data the data of the characters
+     * @return the UIDs of the new characters, in the given order
+     */
+    public long[] newCharacters(Object[][] data) {
+        long[] uids = UIDManager.reserveUIDs(data.length);
+
+        for(int i = 0; i < data.length; i++) {
+            if(changeListener != null)
+                changeListener.uidAdded(uids[i]);
+            addCharacter(uids[i], (String) data[i][0], (String) data[i][1], (Double) data[i][2], (Double) data[i][3]);
+        }
+
+        return uids;
+    }
+
     public void addCharacter(long uid, String name, String description, double posX, double posY) {
         characterMap.put(uid, new Character(name, description, posX, posY));
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.characterPut(uid, name, description, posX, posY);
     }
 
     /**
@@ -64,6 +95,9 @@ public class CharacterManager {
                     new Character(name, description, existing.getChartPositionX(), existing.getChartPositionY())
             );
             hasChanged = true;
+            if(changeListener != null)
+                changeListener.characterPut(uid, name, description,
+                        existing.getChartPositionX(), existing.getChartPositionY());
             return true;
         }
 
@@ -77,6 +111,9 @@ public class CharacterManager {
                     new Character(existing.getName(), existing.getDescription(), chartPosX, chartPosY)
             );
             hasChanged = true;
+            if(changeListener != null)
+                changeListener.characterPut(uid, existing.getName(), existing.getDescription(),
+                        chartPosX, chartPosY);
             return true;
         }
 
@@ -91,10 +128,15 @@ public class CharacterManager {
         characterMap.remove(uid);
         UIDManager.removeUID(uid);
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.characterRemoved(uid);
     }
 
     public long newAssociation(long sCharUID, long eCharUID, double sX, double sY, double eX, double eY, String label, double lblX, double lblY) {
         long uid = UIDManager.nextUID();
+        if(changeListener != null)
+            changeListener.uidAdded(uid);
+
         addAssociation(uid, sCharUID, eCharUID, sX, sY, eX, eY, label, lblX, lblY);
         return uid;
     }
@@ -113,6 +155,8 @@ public class CharacterManager {
 
         associationMap.put(uid, assoc);
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.associationPut(uid, sCharUID, eCharUID, sX, sY, eX, eY, label, lblX, lblY);
     }
 
     public boolean editAssociation(long uid, long sCharUID, long eCharUID, double sX, double sY, double eX, double eY, String label, double lblX, double lblY) {
@@ -130,6 +174,8 @@ public class CharacterManager {
 
             associationMap.replace(uid, assoc);
             hasChanged = true;
+            if(changeListener != null)
+                changeListener.associationPut(uid, sCharUID, eCharUID, sX, sY, eX, eY, label, lblX, lblY);
             return true;
         }
 
@@ -140,6 +186,8 @@ public class CharacterManager {
         associationMap.remove(uid);
         UIDManager.removeUID(uid);
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.associationRemoved(uid);
     }
 
     /**
@@ -244,4 +292,13 @@ public class CharacterManager {
         hasChanged = false;
     }
 
+    /**
+     * Sets the listener that is notified of every change made through this class.
+     * Changes made by {@link #clear()} are not reported.
+     * @param listener the listener, or null to remove it
+     */
+    public void setChangeListener(ModelChangeListener listener) {
+        changeListener = listener;
+    }
+
 }
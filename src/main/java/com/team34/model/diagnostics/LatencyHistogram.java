@@ -0,0 +1,141 @@
+package com.team34.model.diagnostics;
+
+import java.util.Arrays;
+
+/**
+ * Counts latencies, in microseconds, in buckets of about 1% precision, like HdrHistogram does.
+ * <p>
+ * Values below 128 have a bucket each. Above that, every power of two is split into 64 buckets, so that
+ * the width of a bucket is at most 1/64 of the values in it. Recording a value is a few shifts and an
+ * increment, and the buckets take a fixed 14 KB, no matter how many values are recorded. Values above
+ * an hour are counted as an hour.
+ * <p>
+ * All methods are thread safe.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+    private static final long HIGHEST_VALUE = 3_600_000_000L;
+    private static final int BUCKET_COUNT = indexOf(HIGHEST_VALUE) + 1;
+
+    private final long[] counts;
+    private long totalCount;
+    private long totalValue;
+    private long maxValue;
+
+    public LatencyHistogram() {
+        counts = new long[BUCKET_COUNT];
+        totalCount = 0L;
+        totalValue = 0L;
+        maxValue = 0L;
+    }
+
+    /**
+     * Records a latency.
+     * @param micros the latency in microseconds, negative values are counted as 0
+     */
+    public synchronized void record(long micros) {
+        long value = Math.min(Math.max(micros, 0L), HIGHEST_VALUE);
+        counts[indexOf(value)]++;
+        totalCount++;
+        totalValue += value;
+        if(value > maxValue)
+            maxValue = value;
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     * @return the count
+     */
+    public synchronized long getCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns the mean of the latencies recorded.
+     * @return the mean in microseconds, or 0 if none have been recorded
+     */
+    public synchronized double getMean() {
+        return totalCount == 0L ? 0.0 : (double) totalValue / totalCount;
+    }
+
+    /**
+     * Returns the highest latency recorded.
+     * @return the maximum in microseconds
+     */
+    public synchronized long getMax() {
+        return maxValue;
+    }
+
+    /**
+     * Returns the latency below which the given percentage of the recorded latencies fall, within the
+     * precision of the buckets.
+     * @param percentile the percentage, between 0 and 100
+     * @return the latency in microseconds, or 0 if none have been recorded
+     */
+    public synchronized long getPercentile(double percentile) {
+        if(totalCount == 0L)
+            return 0L;
+
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0L;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= rank)
+                return Math.min(highestValueAt(i), maxValue);
+        }
+
+        return maxValue;
+    }
+
+    /**
+     * Returns the buckets that have any latencies in them.
+     * @return {highest latency in the bucket, count} for each bucket, from the lowest latencies up
+     */
+    public synchronized long[][] getBuckets() {
+        int used = 0;
+        for(long count : counts) {
+            if(count > 0L)
+                used++;
+        }
+
+        long[][] buckets = new long[used][];
+        int b = 0;
+        for(int i = 0; i < counts.length; i++) {
+            if(counts[i] > 0L)
+                buckets[b++] = new long[] {highestValueAt(i), counts[i]};
+        }
+
+        return buckets;
+    }
+
+    /**
+     * Forgets all latencies recorded.
+     */
+    public synchronized void reset() {
+        Arrays.fill(counts, 0L);
+        totalCount = 0L;
+        totalValue = 0L;
+        maxValue = 0L;
+    }
+
+    private static int indexOf(long value) {
+        if(value < (SUB_BUCKET_HALF << 1))
+            return (int) value;
+
+        // Shift the value so that it falls in the upper half of the sub-buckets
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    private static long highestValueAt(int index) {
+        if(index < (SUB_BUCKET_HALF << 1))
+            return index;
+
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index - (long) shift * SUB_BUCKET_HALF;
+        return ((subBucket + 1L) << shift) - 1L;
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.team34.model.diagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how long actions take, with a {@link LatencyHistogram} for each kind of action.
+ * <p>
+ * An action is timed by taking {@link LatencyRecorder#start()} before it, and passing it to
+ * {@link LatencyRecorder#record(String, long)} after it. The actions are named by the caller, eg.
+ * "menu:menu_save" or "project.load".
+ * <p>
+ * All methods are thread safe.
+ */
+public class LatencyRecorder {
+
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms;
+    private final long startTime;
+
+    public LatencyRecorder() {
+        histograms = new ConcurrentHashMap<>();
+        startTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the time an action starts at, to be passed to {@link LatencyRecorder#record(String, long)}.
+     * @return the current value of System.nanoTime()
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records that an action has finished.
+     * @param action the name of the action
+     * @param start when the action started, from {@link LatencyRecorder#start()}
+     */
+    public void record(String action, long start) {
+        long micros = (System.nanoTime() - start) / 1000L;
+        histograms.computeIfAbsent(action, a -> new LatencyHistogram()).record(micros);
+    }
+
+    /**
+     * Returns a summary of the latencies of each action, sorted by the name of the action.
+     * Each row is {String action, Long count, Double mean, Long p50, Long p90, Long p99, Long max}, with the
+     * latencies in microseconds.
+     * @return the summary
+     */
+    public List<Object[]> getSummary() {
+        List<Object[]> rows = new ArrayList<>();
+        for(Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            rows.add(new Object[] {
+                    entry.getKey(), h.getCount(), h.getMean(),
+                    h.getPercentile(50.0), h.getPercentile(90.0), h.getPercentile(99.0), h.getMax()
+            });
+        }
+
+        return rows;
+    }
+
+    /**
+     * Forgets the latencies of every action.
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * Writes the latencies of every action to a JSON file, including the buckets of each histogram,
+     * so that the distributions can be compared outside of the application.
+     * @param file the file to write, which is replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(File file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            out.write("{\n\"unit\":\"microseconds\",\n\"started\":");
+            out.write(Long.toString(startTime));
+            out.write(",\n\"written\":");
+            out.write(Long.toString(System.currentTimeMillis()));
+            out.write(",\n\"actions\":[");
+
+            boolean first = true;
+            for(Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+                LatencyHistogram h = entry.getValue();
+                out.write(first ? "\n" : ",\n");
+                first = false;
+
+                out.write("{\"action\":");
+                writeString(out, entry.getKey());
+                out.write(",\"count\":" + h.getCount());
+                out.write(",\"mean\":" + Math.round(h.getMean()));
+                out.write(",\"p50\":" + h.getPercentile(50.0));
+                out.write(",\"p90\":" + h.getPercentile(90.0));
+                out.write(",\"p99\":" + h.getPercentile(99.0));
+                out.write(",\"p999\":" + h.getPercentile(99.9));
+                out.write(",\"max\":" + h.getMax());
+                out.write(",\"buckets\":[");
+                long[][] buckets = h.getBuckets();
+                for(int i = 0; i < buckets.length; i++) {
+                    if(i > 0)
+                        out.write(',');
+                    out.write("[" + buckets[i][0] + "," + buckets[i][1] + "]");
+                }
+                out.write("]}");
+            }
+
+            out.write("\n]\n}\n");
+        }
+    }
+
+    private static void writeString(Writer out, String s) throws IOException {
+        out.write('"');
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '"' || c == '\\') {
+                out.write('\\');
+                out.write(c);
+            } else if(c < 0x20) {
+                out.write(String.format("\\u%04x", (int) c));
+            } else {
+                out.write(c);
+            }
+        }
+        out.write('"');
+    }
+
+}
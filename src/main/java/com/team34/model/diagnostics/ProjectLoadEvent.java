@@ -0,0 +1,52 @@
+package com.team34.model.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for loading a project file, see
+ * {@link com.team34.model.Project#loadProject(java.io.File)}.
+ * <p>
+ * The counts are those of the project once loaded, including the changes replayed from its journals.
+ */
+@Name("com.team34.ProjectLoad")
+@Label("Project Load")
+@Category({"Writer's Studio", "Model"})
+@Description("Loading a project file, including replaying its journals")
+public class ProjectLoadEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Format")
+    public String format;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Section Sizes")
+    @Description("The size in bytes of each section of a binary file")
+    public String sections;
+
+    @Label("Recovered")
+    @Description("Whether the file could not be read, and a backup was loaded instead")
+    public boolean recovered;
+
+    @Label("Journals Replayed")
+    public int journals;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Characters")
+    public int characters;
+
+    @Label("Associations")
+    public int associations;
+
+}
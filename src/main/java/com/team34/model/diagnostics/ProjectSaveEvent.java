@@ -0,0 +1,47 @@
+package com.team34.model.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for saving a project, see {@link com.team34.model.Project#saveProject()}.
+ * <p>
+ * A save to a journal only waits for the journal to reach the disk, and has no sizes.
+ */
+@Name("com.team34.ProjectSave")
+@Label("Project Save")
+@Category({"Writer's Studio", "Model"})
+@Description("Writing a project file, or flushing its journal")
+public class ProjectSaveEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Journaled")
+    public boolean journaled;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileSize;
+
+    @Label("Section Sizes")
+    @Description("The size in bytes of each section of a binary file")
+    public String sections;
+
+    @Label("Events")
+    public int events;
+
+    @Label("Characters")
+    public int characters;
+
+    @Label("Associations")
+    public int associations;
+
+}
@@ -0,0 +1,34 @@
+package com.team34.model.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Java Flight Recorder event for rebuilding or laying out a view, such as the timeline, the event list,
+ * the character list or the character chart. These run on the JavaFX thread, so long ones show as UI stalls.
+ */
+@Name("com.team34.ViewUpdate")
+@Label("View Update")
+@Category({"Writer's Studio", "View"})
+@Description("Rebuilding or laying out a view from the model")
+public class ViewUpdateEvent extends Event {
+
+    @Label("View")
+    @Description("The method that updated the view, eg. Timeline.recalculateLayout")
+    public String view;
+
+    @Label("Entities")
+    @Description("The number of events or characters shown")
+    public int entities;
+
+    @Label("Associations")
+    public int associations;
+
+    @Label("Laid Out")
+    @Description("The number of entities that were positioned or rebuilt")
+    public int updated;
+
+}
@@ -18,6 +18,14 @@ public class EventListObject {
         return title;
     }
 
+    /**
+     * Changes the title. The list view displaying this object must be refreshed afterwards.
+     * @param title Event title.
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
     public long getUid() {
         return uid;
     }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 
+import com.team34.model.ModelChangeListener;
 import com.team34.model.UIDManager;
 
 /**
@@ -21,6 +22,7 @@ public class EventManager {
     private HashMap<Long, Event> events;
     private ArrayList<LinkedList<Long>> eventOrderLists;
     private boolean hasChanged;
+    private ModelChangeListener changeListener;
 
     /**
      * Constructs and initializes the EventManager. Creates a default event order list at index 0.
@@ -42,15 +44,62 @@ public class EventManager {
      */
     public long newEvent(String name, String description) {
         long uid = UIDManager.nextUID();
+        if(changeListener != null)
+            changeListener.uidAdded(uid);
+
         addEvent(uid, name, description);
+        appendEvent(uid);
+
+        return uid;
+    }
+
+    /**
+     * Constructs several new events at once, with UIDs reserved in bulk from the {@link UIDManager}.
+     * Each event is reported to the change listener, just like with {@link EventManager#newEvent(String, String)}.
+     * This will set {@link EventManager#hasChanged} to true, as data has been changed.
+     * <p>
+     * The data is formatted like this:
+     * <ul>
+     *  <li>data[i][0] -- name
+     *  <li>data[i][1] -- description
+     * </ul>
+     * @param data the names and descriptions of the events
+     * @param append true to place the events at the back of each event order list, in the given order;
+     *               false to leave them out, so that they can be placed later with {@link EventManager#appendEvent(long)}
+     * @return the UIDs of the new events, in the given order
+     */
+    public long[] newEvents(String[][] data, boolean append) {
+        long[] uids = UIDManager.reserveUIDs(data.length);
+
+        for(int i = 0; i < data.length; i++) {
+            if(changeListener != null)
+                changeListener.uidAdded(uids[i]);
+            addEvent(uids[i], data[i][0], data[i][1]);
+        }
+
+        if(append) {
+            for(long uid : uids)
+                appendEvent(uid);
+        }
 
+        return uids;
+    }
+
+    /**
+     * Places the given event UID at the back of each event order list.
+     * This will set {@link EventManager#hasChanged} to true, as data has been changed.
+     * @param uid the UID of the event
+     */
+    public void appendEvent(long uid) {
         if(eventOrderLists.size() < 1)
             eventOrderLists.add(new LinkedList<>());
 
         for(LinkedList<Long> e : eventOrderLists)
             e.add(uid);
 
-        return uid;
+        hasChanged = true;
+        if(changeListener != null)
+            changeListener.eventAppended(uid);
     }
 
     /**
@@ -65,6 +114,8 @@ public class EventManager {
         if(events.containsKey(uid)) {
             events.replace(uid, new Event(name, description));
             hasChanged = true;
+            if(changeListener != null)
+                changeListener.eventPut(uid, name, description);
             return true;
         }
         return false;
@@ -84,6 +135,8 @@ public class EventManager {
             e.remove(uid);
 
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.eventRemoved(uid);
     }
 
     /**
@@ -99,6 +152,8 @@ public class EventManager {
     public void addEvent(long uid, String name, String description) {
         events.put(uid, new Event(name, description));
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.eventPut(uid, name, description);
     }
 
     /**
@@ -120,6 +175,14 @@ public class EventManager {
         return data;
     }
 
+    /**
+     * Returns the number of events.
+     * @return the number of events
+     */
+    public int getEventCount() {
+        return events.size();
+    }
+
     /**
      * Returns a structure which contains all data within every event.
      * <p>
@@ -220,6 +283,8 @@ public class EventManager {
             eventOrderLists.get(orderList).set(i, order[i]);
         }
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.eventSwapped(orderList, index1, index2);
     }
 
     /**
@@ -261,6 +326,8 @@ public class EventManager {
             eventOrderLists.get(orderList).set(i, order[i]);
         }
         hasChanged = true;
+        if(changeListener != null)
+            changeListener.eventMoved(orderList, fromIndex, toIndex);
     }
 
     /**
@@ -296,4 +363,14 @@ public class EventManager {
         hasChanged = false;
     }
 
+    /**
+     * Sets the listener that is notified of every change made through this class.
+     * Changes made by {@link EventManager#addOrderList(LinkedList)} and
+     * {@link EventManager#clear()} are not reported.
+     * @param listener the listener, or null to remove it
+     */
+    public void setChangeListener(ModelChangeListener listener) {
+        changeListener = listener;
+    }
+
 }
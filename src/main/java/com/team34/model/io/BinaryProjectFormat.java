@@ -0,0 +1,539 @@
+package com.team34.model.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Reads and writes the binary project format.
+ * <p>
+ * The file starts with the 4-byte magic "WSPB" and a 1-byte format version, followed by a
+ * {@link TableOfContents} that lists the offset, length and checksum of each section. The rest of
+ * the file holds the section payloads. Sections with unknown IDs are skipped. As the location of each
+ * section is known up front, the sections can be parsed in separate steps, see {@link Sections}.
+ * <p>
+ * Within a payload, counts and string indices are stored as unsigned variable-length integers,
+ * UIDs as ZigZag-encoded variable-length integers, and doubles as raw 8-byte little-endian values.
+ * Sections that contain text start with their own string table, so that each section can be
+ * parsed on its own and repeated strings are stored once per section.
+ * <p>
+ * When reading, each section payload is read into a buffer of its own with positional reads, rather
+ * than through a stream, and the sections are parsed concurrently, see {@link SectionLoader}. The
+ * payloads are not memory-mapped, since a mapping outlives the channel until it is garbage collected,
+ * and on Windows, a file that is still mapped cannot be replaced or deleted by the next save.
+ */
+public class BinaryProjectFormat {
+
+    static final byte[] MAGIC = { 'W', 'S', 'P', 'B' };
+    static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 5; // magic + version
+
+    private BinaryProjectFormat() { }
+
+    /**
+     * Returns whether the given bytes start with the magic of the binary format.
+     * @param header the first bytes of a file
+     * @return true if the bytes match the magic
+     */
+    static boolean isBinaryHeader(byte[] header) {
+        if(header.length < MAGIC.length)
+            return false;
+
+        for(int i = 0; i < MAGIC.length; i++) {
+            if(header[i] != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the given binary project file into a new snapshot.
+     * @param file the project file to read
+     * @return the data contained within the file
+     * @throws IOException if the file could not be read, or is not a valid binary project file
+     */
+    public static ProjectSnapshot read(File file) throws IOException {
+        return readSections(file).parse(EnumSet.allOf(ProjectSection.class));
+    }
+
+    /**
+     * Reads the payload of every section of the given binary project file, without parsing them.
+     * The file is not needed after this, so the sections can be parsed in separate steps, see {@link Sections}.
+     * @param file the project file to read
+     * @return the sections
+     * @throws IOException if the file could not be read, or is not a valid binary project file
+     */
+    public static Sections readSections(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            readHeader(channel, size, file);
+
+            Sections sections = new Sections(size);
+            for(TableOfContents.Entry entry : readTableOfContents(channel, size).getEntries()) {
+                ProjectSection section = entry.getSection();
+                if(section == null || entry.getLength() == 0L)
+                    continue;
+                if(entry.getLength() > Integer.MAX_VALUE)
+                    throw new IOException("Section " + section.getId() + " is too large to be read");
+
+                sections.add(section, readFully(channel, entry.getOffset(), (int) entry.getLength(), size),
+                        entry.getChecksum());
+            }
+            return sections;
+        }
+    }
+
+    /**
+     * Reads the table of contents of the given binary project file.
+     * @param file the project file
+     * @return the table of contents
+     * @throws IOException if the file could not be read, or is not a valid binary project file
+     */
+    public static TableOfContents readTableOfContents(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            readHeader(channel, size, file);
+            return readTableOfContents(channel, size);
+        }
+    }
+
+    /**
+     * Checks every section of the given binary project file against its checksum, without parsing it.
+     * @param file the project file to check
+     * @throws CorruptSectionException if a section is damaged
+     * @throws IOException if the file could not be read, or is not a valid binary project file
+     */
+    public static void verify(File file) throws IOException {
+        TableOfContents contents = readTableOfContents(file);
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for(TableOfContents.Entry entry : contents.getEntries()) {
+                ProjectSection section = entry.getSection();
+                if(section == null || entry.getLength() == 0L)
+                    continue;
+                if(entry.getLength() > Integer.MAX_VALUE)
+                    throw new IOException("Section " + section.getId() + " is too large to be read");
+
+                verifySection(section, readFully(channel, entry.getOffset(), (int) entry.getLength(), size),
+                        entry.getChecksum());
+            }
+        }
+    }
+
+    /**
+     * Writes the given snapshot to the file as a binary project, overwriting any existing content.
+     * @param snapshot the data to write
+     * @param file the file to write to
+     * @throws IOException
+     */
+    public static void write(ProjectSnapshot snapshot, File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            SectionWriter writer = new SectionWriter(channel);
+
+            writer.writeBytes(MAGIC);
+            writer.writeByte(VERSION);
+
+            // The table of contents is filled in once the sections have been written
+            ProjectSection[] sections = ProjectSection.values();
+            long contentsPos = writer.position();
+            writer.writeBytes(new byte[TableOfContents.encodedSize(sections.length)]);
+
+            for(ProjectSection section : sections) {
+                writer.beginSection(section.getId());
+                writeSection(section, writer, snapshot);
+                writer.endSection();
+            }
+
+            writer.writeAt(writer.getTableOfContents().encode(), contentsPos);
+        }
+    }
+
+    /**
+     * Reads and checks the magic and version of the file.
+     */
+    private static void readHeader(FileChannel channel, long size, File file) throws IOException {
+        ByteBuffer header = readFully(channel, 0L, HEADER_SIZE, size);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if(!isBinaryHeader(magic))
+            throw new IOException("Not a binary project file: " + file);
+
+        int version = header.get() & 0xFF;
+        if(version != VERSION)
+            throw new IOException("Unsupported binary project version: " + version);
+    }
+
+    /**
+     * Reads the table of contents, which follows the header.
+     */
+    private static TableOfContents readTableOfContents(FileChannel channel, long size) throws IOException {
+        int count = readFully(channel, HEADER_SIZE, 1, size).get() & 0xFF;
+        ByteBuffer entries = readFully(channel, HEADER_SIZE + 1, count * TableOfContents.ENTRY_SIZE, size);
+        return TableOfContents.decode(entries, count, size);
+    }
+
+    /**
+     * Checks the payload of a section against the checksum stored in the table of contents.
+     * @throws IOException if the checksum does not match
+     */
+    private static void verifySection(ProjectSection section, ByteBuffer payload, int expected)
+            throws CorruptSectionException
+    {
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.duplicate());
+        if((int) checksum.getValue() != expected)
+            throw new CorruptSectionException(section, "checksum mismatch");
+    }
+
+    /**
+     * Parses the payload of a section into the snapshot.
+     * @param section the section to parse
+     * @param reader the reader of the section payload
+     * @param snapshot the snapshot to fill
+     * @throws CorruptSectionException if the payload is malformed
+     */
+    static void readSection(ProjectSection section, SectionReader reader, ProjectSnapshot snapshot)
+            throws IOException
+    {
+        try {
+            switch(section) {
+                case PROJECT:
+                    readProject(reader, snapshot);
+                    break;
+                case UID_MANAGER:
+                    readUIDManager(reader, snapshot);
+                    break;
+                case EVENTS:
+                    readEvents(reader, snapshot);
+                    break;
+                case EVENT_ORDER:
+                    readEventOrderLists(reader, snapshot);
+                    break;
+                case CHARACTERS:
+                    readCharacters(reader, snapshot);
+                    break;
+                case ASSOCIATIONS:
+                    readAssociations(reader, snapshot);
+                    break;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new CorruptSectionException(section, "truncated", e);
+        } catch (CorruptSectionException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new CorruptSectionException(section, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the payload of a section from the snapshot.
+     * @param section the section to write
+     * @param writer the writer, positioned at the start of the section payload
+     * @param snapshot the snapshot to write from
+     * @throws IOException
+     */
+    static void writeSection(ProjectSection section, SectionWriter writer, ProjectSnapshot snapshot)
+            throws IOException
+    {
+        switch(section) {
+            case PROJECT:
+                writeProject(writer, snapshot);
+                break;
+            case UID_MANAGER:
+                writeUIDManager(writer, snapshot);
+                break;
+            case EVENTS:
+                writeEvents(writer, snapshot);
+                break;
+            case EVENT_ORDER:
+                writeEventOrderLists(writer, snapshot);
+                break;
+            case CHARACTERS:
+                writeCharacters(writer, snapshot);
+                break;
+            case ASSOCIATIONS:
+                writeAssociations(writer, snapshot);
+                break;
+        }
+    }
+
+    ////// READING /////////////////////////////////////////////////////////
+
+    private static void readProject(SectionReader reader, ProjectSnapshot snapshot) throws IOException {
+        String[] strings = reader.readStringTable();
+        snapshot.name = reader.readString(strings);
+
+        // Files written before journaling was added end here
+        if(reader.hasRemaining())
+            snapshot.journalGeneration = reader.readVarLong();
+    }
+
+    private static void readUIDManager(SectionReader reader, ProjectSnapshot snapshot) throws IOException {
+        int count = reader.readCount();
+        snapshot.uids.ensureCapacity(count);
+        for(int i = 0; i < count; i++)
+            snapshot.uids.add(reader.readZigZag());
+    }
+
+    private static void readEvents(SectionReader reader, ProjectSnapshot snapshot) throws IOException {
+        String[] strings = reader.readStringTable();
+        int count = reader.readCount();
+        snapshot.events.ensureCapacity(count);
+
+        for(int i = 0; i < count; i++) {
+            long uid = reader.readZigZag();
+            String name = reader.readString(strings);
+            String description = reader.readString(strings);
+            snapshot.addEvent(uid, name, description);
+        }
+    }
+
+    private static void readEventOrderLists(SectionReader reader, ProjectSnapshot snapshot) throws IOException {
+        int listCount = reader.readCount();
+        for(int i = 0; i < listCount; i++) {
+            Long[] orderList = new Long[reader.readCount()];
+            for(int j = 0; j < orderList.length; j++)
+                orderList[j] = reader.readZigZag();
+            snapshot.eventOrderLists.add(orderList);
+        }
+    }
+
+    private static void readCharacters(SectionReader reader, ProjectSnapshot snapshot) throws IOException {
+        String[] strings = reader.readStringTable();
+        int count = reader.readCount();
+        snapshot.characters.ensureCapacity(count);
+
+        for(int i = 0; i < count; i++) {
+            long uid = reader.readZigZag();
+            String name = reader.readString(strings);
+            String description = reader.readString(strings);
+            double chartX = reader.readDouble();
+            double chartY = reader.readDouble();
+            snapshot.addCharacter(uid, name, description, chartX, chartY);
+        }
+    }
+
+    private static void readAssociations(SectionReader reader, ProjectSnapshot snapshot) throws IOException {
+        String[] strings = reader.readStringTable();
+        int count = reader.readCount();
+        snapshot.associations.ensureCapacity(count);
+
+        for(int i = 0; i < count; i++) {
+            long uid = reader.readZigZag();
+            long startUID = reader.readZigZag();
+            long endUID = reader.readZigZag();
+            double sX = reader.readDouble();
+            double sY = reader.readDouble();
+            double eX = reader.readDouble();
+            double eY = reader.readDouble();
+            String label = reader.readString(strings);
+            double lblX = reader.readDouble();
+            double lblY = reader.readDouble();
+            snapshot.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, label, lblX, lblY);
+        }
+    }
+
+    ////// WRITING /////////////////////////////////////////////////////////
+
+    private static void writeProject(SectionWriter writer, ProjectSnapshot snapshot) throws IOException {
+        StringTable strings = new StringTable();
+        int name = strings.add(snapshot.name);
+        writer.writeStringTable(strings);
+        writer.writeVarLong(name);
+        writer.writeVarLong(snapshot.journalGeneration);
+    }
+
+    private static void writeUIDManager(SectionWriter writer, ProjectSnapshot snapshot) throws IOException {
+        writer.writeVarLong(snapshot.uids.size());
+        for(Long uid : snapshot.uids)
+            writer.writeZigZag(uid);
+    }
+
+    private static void writeEvents(SectionWriter writer, ProjectSnapshot snapshot) throws IOException {
+        StringTable strings = new StringTable();
+        for(ProjectSnapshot.EventEntry event : snapshot.events) {
+            strings.add(event.name);
+            strings.add(event.description);
+        }
+        writer.writeStringTable(strings);
+
+        writer.writeVarLong(snapshot.events.size());
+        for(ProjectSnapshot.EventEntry event : snapshot.events) {
+            writer.writeZigZag(event.uid);
+            writer.writeVarLong(strings.indexOf(event.name));
+            writer.writeVarLong(strings.indexOf(event.description));
+        }
+    }
+
+    private static void writeEventOrderLists(SectionWriter writer, ProjectSnapshot snapshot) throws IOException {
+        writer.writeVarLong(snapshot.eventOrderLists.size());
+        for(Long[] orderList : snapshot.eventOrderLists) {
+            writer.writeVarLong(orderList.length);
+            for(Long uid : orderList)
+                writer.writeZigZag(uid);
+        }
+    }
+
+    private static void writeCharacters(SectionWriter writer, ProjectSnapshot snapshot) throws IOException {
+        StringTable strings = new StringTable();
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters) {
+            strings.add(character.name);
+            strings.add(character.description);
+        }
+        writer.writeStringTable(strings);
+
+        writer.writeVarLong(snapshot.characters.size());
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters) {
+            writer.writeZigZag(character.uid);
+            writer.writeVarLong(strings.indexOf(character.name));
+            writer.writeVarLong(strings.indexOf(character.description));
+            writer.writeDouble(character.chartX);
+            writer.writeDouble(character.chartY);
+        }
+    }
+
+    private static void writeAssociations(SectionWriter writer, ProjectSnapshot snapshot) throws IOException {
+        StringTable strings = new StringTable();
+        for(ProjectSnapshot.AssociationEntry assoc : snapshot.associations)
+            strings.add(assoc.label);
+        writer.writeStringTable(strings);
+
+        writer.writeVarLong(snapshot.associations.size());
+        for(ProjectSnapshot.AssociationEntry assoc : snapshot.associations) {
+            writer.writeZigZag(assoc.uid);
+            writer.writeZigZag(assoc.startUID);
+            writer.writeZigZag(assoc.endUID);
+            writer.writeDouble(assoc.sX);
+            writer.writeDouble(assoc.sY);
+            writer.writeDouble(assoc.eX);
+            writer.writeDouble(assoc.eY);
+            writer.writeVarLong(strings.indexOf(assoc.label));
+            writer.writeDouble(assoc.lblX);
+            writer.writeDouble(assoc.lblY);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The section payloads of a binary project file, read into memory by
+     * {@link BinaryProjectFormat#readSections(File)}, to be parsed in one or more steps. This allows eg. the
+     * characters to be shown before the events have been parsed, without reading the file a second time.
+     * <p>
+     * The first step checks every section against its checksum, concurrently with parsing the sections of
+     * that step, so that a damaged section is found before any part of the file is used. Each section is
+     * parsed once, and its payload is released once it has been.
+     * <p>
+     * The steps may be taken on any thread, but not concurrently.
+     */
+    public static class Sections {
+        private final long size;
+        private final EnumMap<ProjectSection, ByteBuffer> payloads;
+        private final EnumMap<ProjectSection, Integer> checksums;
+        private boolean verified;
+
+        private Sections(long size) {
+            this.size = size;
+            payloads = new EnumMap<>(ProjectSection.class);
+            checksums = new EnumMap<>(ProjectSection.class);
+            verified = false;
+        }
+
+        private void add(ProjectSection section, ByteBuffer payload, int checksum) {
+            payloads.put(section, payload);
+            checksums.put(section, checksum);
+        }
+
+        /**
+         * Parses the given sections into a new snapshot. The data of the other sections is left empty.
+         * Sections that have already been parsed are skipped.
+         * @param sections the sections to parse
+         * @return the data of the given sections
+         * @throws CorruptSectionException if any section fails its checksum, or a parsed section is malformed
+         * @throws IOException if the sections could not be parsed
+         */
+        public ProjectSnapshot parse(Set<ProjectSection> sections) throws IOException {
+            ArrayList<SectionLoader.SectionTask> tasks = new ArrayList<>();
+            for(ProjectSection section : payloads.keySet()) {
+                ByteBuffer payload = payloads.get(section);
+                int checksum = checksums.get(section);
+                boolean parse = sections.contains(section);
+                if(!parse && verified)
+                    continue;
+
+                tasks.add(staging -> {
+                    if(!verified)
+                        verifySection(section, payload, checksum);
+                    if(parse)
+                        readSection(section, new SectionReader(payload), staging);
+                });
+            }
+
+            ProjectSnapshot snapshot = new ProjectSnapshot();
+            try {
+                SectionLoader.parseAll(tasks, snapshot, size >= SectionLoader.PARALLEL_THRESHOLD);
+            } catch (XMLStreamException e) {
+                throw new IOException(e); // Not thrown by binary sections
+            }
+
+            verified = true;
+            payloads.keySet().removeAll(sections);
+            return snapshot;
+        }
+
+        /**
+         * Parses every section that has not been parsed yet into a new snapshot.
+         * @return the data of the remaining sections
+         * @throws CorruptSectionException if any section fails its checksum, or a parsed section is malformed
+         * @throws IOException if the sections could not be parsed
+         */
+        public ProjectSnapshot parseRemaining() throws IOException {
+            return parse(EnumSet.allOf(ProjectSection.class));
+        }
+
+        /**
+         * Returns whether any section has yet to be parsed.
+         * @return true if sections remain
+         */
+        public boolean hasRemaining() {
+            return !payloads.isEmpty();
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Reads exactly the given number of bytes at the given position of the channel.
+     * @throws EOFException if the file ends before all bytes could be read
+     */
+    private static ByteBuffer readFully(FileChannel channel, long pos, int length, long size) throws IOException {
+        if(pos + length > size)
+            throw new EOFException("Unexpected end of binary project file");
+
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos + buffer.position());
+            if(read < 0)
+                throw new EOFException("Unexpected end of binary project file");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes text to a {@link FileChannel} as UTF-8, through a fixed-size character buffer and byte buffer.
+ * The text is encoded straight into the byte buffer, which is written to the channel whenever it is full,
+ * so the memory used does not depend on how much text is written.
+ * <p>
+ * This class is only to be used internally by the {@link OutlineWriter}.
+ */
+class ChannelWriter extends Writer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private boolean closed;
+
+    /**
+     * @param channel the channel to write to, which is closed along with the writer
+     */
+    ChannelWriter(FileChannel channel) {
+        this.channel = channel;
+        encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+        bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        closed = false;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if(!chars.hasRemaining())
+            encode(false);
+        chars.put((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while(len > 0) {
+            if(!chars.hasRemaining())
+                encode(false);
+            int n = Math.min(len, chars.remaining());
+            chars.put(cbuf, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        while(len > 0) {
+            if(!chars.hasRemaining())
+                encode(false);
+            int n = Math.min(len, chars.remaining());
+            str.getChars(off, off + n, chars.array(), chars.arrayOffset() + chars.position());
+            chars.position(chars.position() + n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        encode(false);
+        drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if(closed)
+            return;
+        closed = true;
+
+        try {
+            encode(true);
+            while(encoder.flush(bytes).isOverflow())
+                drain();
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encodes the buffered characters into the byte buffer, writing it to the channel as it fills up.
+     * A surrogate pair that has only been half written is kept until the rest of it is written.
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while(true) {
+            CoderResult result = encoder.encode(chars, bytes, endOfInput);
+            if(result.isOverflow())
+                drain();
+            else if(result.isUnderflow())
+                break;
+            else
+                result.throwException();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while(bytes.hasRemaining())
+            channel.write(bytes);
+        bytes.clear();
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.team34.model.io;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Reads and writes the compressed project format.
+ * <p>
+ * The file starts with the 4-byte magic "WSPZ" and a 1-byte format version, followed by an
+ * XML project document (see {@link XmlProjectFormat}) compressed as a single zlib stream.
+ * The zlib stream carries its own checksum, so a damaged file fails to load rather than loading
+ * partially.
+ * <p>
+ * The document is compressed and decompressed while it is being written and parsed, so it is never
+ * held in memory as a whole.
+ */
+public class CompressedProjectFormat {
+
+    static final byte[] MAGIC = { 'W', 'S', 'P', 'Z' };
+    static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CompressedProjectFormat() { }
+
+    /**
+     * Returns whether the given bytes start with the magic of the compressed format.
+     * @param header the first bytes of a file
+     * @return true if the bytes match the magic
+     */
+    static boolean isCompressedHeader(byte[] header) {
+        if(header.length < MAGIC.length)
+            return false;
+
+        for(int i = 0; i < MAGIC.length; i++) {
+            if(header[i] != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the given compressed project file into a new snapshot.
+     * @param file the project file to read
+     * @return the data contained within the file
+     * @throws IOException if the file could not be read, or is not a valid compressed project file
+     * @throws XMLStreamException
+     */
+    public static ProjectSnapshot read(File file) throws IOException, XMLStreamException {
+        Inflater inflater = new Inflater();
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            InputStream stream = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE))
+        {
+            byte[] magic = new byte[MAGIC.length];
+            if(stream.readNBytes(magic, 0, magic.length) != magic.length || !isCompressedHeader(magic))
+                throw new IOException("Not a compressed project file: " + file);
+
+            int version = stream.read();
+            if(version != VERSION)
+                throw new IOException("Unsupported compressed project version: " + version);
+
+            InputStream inflated = new InflaterInputStream(stream, inflater, BUFFER_SIZE);
+            return XmlProjectFormat.read(inflated);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes the given snapshot to the file as a compressed project, overwriting any existing content.
+     * @param snapshot the data to write
+     * @param file the file to write to
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static void write(ProjectSnapshot snapshot, File file) throws IOException, XMLStreamException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            OutputStream stream = Channels.newOutputStream(channel);
+            stream.write(MAGIC);
+            stream.write(VERSION);
+
+            DeflaterOutputStream deflated = new DeflaterOutputStream(stream, deflater, BUFFER_SIZE);
+            XmlProjectFormat.write(snapshot, deflated);
+            deflated.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+}
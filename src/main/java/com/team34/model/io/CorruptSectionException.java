@@ -0,0 +1,42 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a section of a project file is damaged, either because its content does not match
+ * its checksum, or because its content cannot be parsed.
+ */
+public class CorruptSectionException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ProjectSection section;
+
+    /**
+     * @param section the damaged section
+     * @param message a description of the damage
+     */
+    public CorruptSectionException(ProjectSection section, String message) {
+        super("Section \"" + section.getSectionName() + "\" is damaged: " + message);
+        this.section = section;
+    }
+
+    /**
+     * @param section the damaged section
+     * @param message a description of the damage
+     * @param cause the error raised when parsing the section
+     */
+    public CorruptSectionException(ProjectSection section, String message, Throwable cause) {
+        super("Section \"" + section.getSectionName() + "\" is damaged: " + message, cause);
+        this.section = section;
+    }
+
+    /**
+     * Returns the section that is damaged.
+     * @return the section
+     */
+    public ProjectSection getSection() {
+        return section;
+    }
+
+}
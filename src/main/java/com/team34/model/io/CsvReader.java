@@ -0,0 +1,113 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * Reads comma-separated values, one record at a time, as described by RFC 4180.
+ * Fields may be quoted with '"', in which case they may contain commas, line breaks and
+ * doubled quotes. Both CRLF and LF line breaks are accepted.
+ * <p>
+ * This class is only to be used internally by the {@link OutlineReader}.
+ */
+class CsvReader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private final StringBuilder field;
+    private final ArrayList<String> record;
+    private int peeked;
+
+    /**
+     * @param reader the reader to read from, which is read in blocks
+     */
+    CsvReader(Reader reader) {
+        this.reader = reader;
+        buffer = new char[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+        field = new StringBuilder();
+        record = new ArrayList<>();
+        peeked = -2;
+    }
+
+    /**
+     * Reads the next record. Empty lines are skipped.
+     * @return the fields of the record, or null at the end of the input
+     * @throws IOException if the input ends within a quoted field
+     */
+    String[] readRecord() throws IOException {
+        record.clear();
+
+        int c = read();
+        while(c == '\r' || c == '\n')
+            c = read();
+        if(c == -1)
+            return null;
+
+        while(true) {
+            field.setLength(0);
+
+            if(c == '"') {
+                while(true) {
+                    c = read();
+                    if(c == -1)
+                        throw new IOException("Unterminated quoted field");
+                    if(c == '"') {
+                        c = read();
+                        if(c != '"')
+                            break; // The closing quote
+                    }
+                    field.append((char) c);
+                }
+            }
+
+            while(c != ',' && c != '\r' && c != '\n' && c != -1) {
+                field.append((char) c);
+                c = read();
+            }
+
+            record.add(field.toString());
+
+            if(c == ',') {
+                c = read();
+                continue;
+            }
+
+            if(c == '\r') {
+                c = read();
+                if(c != '\n')
+                    unread(c);
+            }
+            return record.toArray(new String[record.size()]);
+        }
+    }
+
+    private int read() throws IOException {
+        if(peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+
+        if(position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if(limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread(int c) {
+        peeked = c;
+    }
+
+}
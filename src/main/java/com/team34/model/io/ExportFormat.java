@@ -0,0 +1,27 @@
+package com.team34.model.io;
+
+/**
+ * The formats a project can be exported to, see {@link OutlineWriter}.
+ */
+public enum ExportFormat {
+    /** A Markdown outline. See {@link MarkdownOutlineWriter}. */
+    MARKDOWN("md"),
+    /** A single-file HTML story bible. See {@link HtmlOutlineWriter}. */
+    HTML("html"),
+    /** JSON, in the format read by {@link OutlineReader}. See {@link JsonOutlineWriter}. */
+    JSON("json");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the file extension of the format, without the dot.
+     * @return the file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
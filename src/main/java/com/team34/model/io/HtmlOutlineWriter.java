@@ -0,0 +1,169 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a project as a single, self-contained HTML page, meant to be used as a story bible:
+ * the timeline as a numbered list, followed by the characters and a table of their associations.
+ * The page has no external resources, so it can be opened, printed or shared on its own.
+ * <p>
+ * This class is only to be used internally by the {@link OutlineWriter}.
+ */
+class HtmlOutlineWriter extends OutlineWriter {
+
+    private static final String STYLE =
+            "body{font-family:Georgia,serif;max-width:48em;margin:2em auto;padding:0 1em;line-height:1.5;color:#222}"
+            + "nav a{margin-right:1em}"
+            + "h2{border-bottom:1px solid #ccc;padding-bottom:.2em}"
+            + "ol.timeline>li{margin-bottom:1em}"
+            + "h3{margin:.2em 0}"
+            + "table{border-collapse:collapse}"
+            + "td,th{border:1px solid #ccc;padding:.3em .6em;text-align:left}"
+            + ".empty{color:#888;font-style:italic}";
+
+    private boolean empty;
+
+    HtmlOutlineWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void beginOutline(String title) throws IOException {
+        String name = title.isEmpty() ? "Untitled" : title;
+
+        out.write("<!DOCTYPE html>\n<html>\n<head>\n<meta charset=\"utf-8\">\n<title>");
+        writeEscaped(name);
+        out.write("</title>\n<style>");
+        out.write(STYLE);
+        out.write("</style>\n</head>\n<body>\n<h1>");
+        writeEscaped(name);
+        out.write("</h1>\n<nav><a href=\"#timeline\">Timeline</a><a href=\"#characters\">Characters</a>"
+                + "<a href=\"#associations\">Associations</a></nav>\n");
+    }
+
+    @Override
+    public void beginEvents() throws IOException {
+        out.write("<section id=\"timeline\">\n<h2>Timeline</h2>\n<ol class=\"timeline\">\n");
+        empty = true;
+    }
+
+    @Override
+    public void event(int index, long uid, String name, String description) throws IOException {
+        out.write("<li id=\"event-");
+        out.write(Long.toString(uid));
+        out.write("\"><h3>");
+        writeEscaped(name);
+        out.write("</h3>");
+        writeParagraph(description);
+        out.write("</li>\n");
+        empty = false;
+    }
+
+    @Override
+    public void endEvents() throws IOException {
+        out.write("</ol>\n");
+        writeIfEmpty("<p class=\"empty\">No events</p>\n");
+        out.write("</section>\n");
+    }
+
+    @Override
+    public void beginCharacters() throws IOException {
+        out.write("<section id=\"characters\">\n<h2>Characters</h2>\n");
+        empty = true;
+    }
+
+    @Override
+    public void character(long uid, String name, String description, double x, double y) throws IOException {
+        out.write("<article id=\"character-");
+        out.write(Long.toString(uid));
+        out.write("\"><h3>");
+        writeEscaped(name);
+        out.write("</h3>");
+        writeParagraph(description);
+        out.write("</article>\n");
+        empty = false;
+    }
+
+    @Override
+    public void endCharacters() throws IOException {
+        writeIfEmpty("<p class=\"empty\">No characters</p>\n");
+        out.write("</section>\n");
+    }
+
+    @Override
+    public void beginAssociations() throws IOException {
+        out.write("<section id=\"associations\">\n<h2>Associations</h2>\n");
+        empty = true;
+    }
+
+    @Override
+    public void association(String from, String to, String label) throws IOException {
+        if(empty)
+            out.write("<table>\n<tr><th>From</th><th>To</th><th>Label</th></tr>\n");
+
+        out.write("<tr><td>");
+        writeEscaped(from);
+        out.write("</td><td>");
+        writeEscaped(to);
+        out.write("</td><td>");
+        writeEscaped(label);
+        out.write("</td></tr>\n");
+        empty = false;
+    }
+
+    @Override
+    public void endAssociations() throws IOException {
+        if(empty)
+            out.write("<p class=\"empty\">No associations</p>\n");
+        else
+            out.write("</table>\n");
+        out.write("</section>\n");
+    }
+
+    @Override
+    public void endOutline() throws IOException {
+        out.write("</body>\n</html>\n");
+    }
+
+    private void writeIfEmpty(String text) throws IOException {
+        if(empty)
+            out.write(text);
+    }
+
+    /**
+     * Writes text as a paragraph, keeping its line breaks.
+     */
+    private void writeParagraph(String text) throws IOException {
+        if(text.isBlank())
+            return;
+
+        out.write("<p>");
+        String stripped = text.strip();
+        for(int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            if(c == '\n')
+                out.write("<br>");
+            else if(c != '\r')
+                writeEscaped(c);
+        }
+        out.write("</p>");
+    }
+
+    private void writeEscaped(String text) throws IOException {
+        for(int i = 0; i < text.length(); i++)
+            writeEscaped(text.charAt(i));
+    }
+
+    private void writeEscaped(char c) throws IOException {
+        switch (c) {
+            case '&': out.write("&amp;"); break;
+            case '<': out.write("&lt;"); break;
+            case '>': out.write("&gt;"); break;
+            case '"': out.write("&quot;"); break;
+            case '\'': out.write("&#39;"); break;
+            default: out.write(c); break;
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a project as JSON, in the format read by {@link OutlineReader}, so that an exported
+ * project can be imported again. The events carry their position in the timeline as their order.
+ * <p>
+ * This class is only to be used internally by the {@link OutlineWriter}.
+ */
+class JsonOutlineWriter extends OutlineWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private boolean first;
+
+    JsonOutlineWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void beginOutline(String title) throws IOException {
+        out.write("{\n\"name\":");
+        writeString(title);
+    }
+
+    @Override
+    public void beginEvents() throws IOException {
+        beginArray("events");
+    }
+
+    @Override
+    public void event(int index, long uid, String name, String description) throws IOException {
+        nextElement();
+        out.write("{\"name\":");
+        writeString(name);
+        out.write(",\"description\":");
+        writeString(description);
+        out.write(",\"order\":");
+        out.write(Integer.toString(index));
+        out.write('}');
+    }
+
+    @Override
+    public void endEvents() throws IOException {
+        endArray();
+    }
+
+    @Override
+    public void beginCharacters() throws IOException {
+        beginArray("characters");
+    }
+
+    @Override
+    public void character(long uid, String name, String description, double x, double y) throws IOException {
+        nextElement();
+        out.write("{\"name\":");
+        writeString(name);
+        out.write(",\"description\":");
+        writeString(description);
+        out.write(",\"x\":");
+        writeNumber(x);
+        out.write(",\"y\":");
+        writeNumber(y);
+        out.write('}');
+    }
+
+    @Override
+    public void endCharacters() throws IOException {
+        endArray();
+    }
+
+    @Override
+    public void beginAssociations() throws IOException {
+        beginArray("associations");
+    }
+
+    @Override
+    public void association(String from, String to, String label) throws IOException {
+        nextElement();
+        out.write("{\"from\":");
+        writeString(from);
+        out.write(",\"to\":");
+        writeString(to);
+        out.write(",\"label\":");
+        writeString(label);
+        out.write('}');
+    }
+
+    @Override
+    public void endAssociations() throws IOException {
+        endArray();
+    }
+
+    @Override
+    public void endOutline() throws IOException {
+        out.write("\n}\n");
+    }
+
+    private void beginArray(String name) throws IOException {
+        out.write(",\n");
+        writeString(name);
+        out.write(":[");
+        first = true;
+    }
+
+    private void nextElement() throws IOException {
+        out.write(first ? "\n" : ",\n");
+        first = false;
+    }
+
+    private void endArray() throws IOException {
+        out.write(first ? "]" : "\n]");
+    }
+
+    private void writeNumber(double value) throws IOException {
+        if(Double.isNaN(value) || Double.isInfinite(value))
+            out.write("null");
+        else
+            out.write(Double.toString(value));
+    }
+
+    private void writeString(String text) throws IOException {
+        out.write('"');
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if(c < 0x20) {
+                        out.write("\\u00");
+                        out.write(HEX[c >> 4]);
+                        out.write(HEX[c & 0xF]);
+                    } else {
+                        out.write(c);
+                    }
+                    break;
+            }
+        }
+        out.write('"');
+    }
+
+}
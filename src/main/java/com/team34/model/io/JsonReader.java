@@ -0,0 +1,247 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a JSON document one token at a time, so that arbitrarily large documents
+ * can be read in constant memory.
+ * <p>
+ * The reader is lenient about separators: commas and colons are skipped wherever they occur,
+ * and it is up to the caller to read names and values in the order they are expected.
+ * <p>
+ * This class is only to be used internally by the {@link OutlineReader}.
+ */
+class JsonReader {
+
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private final StringBuilder text;
+    private int peekedChar;
+    private Token peeked;
+
+    /**
+     * @param reader the reader to read from, which is read in blocks
+     */
+    JsonReader(Reader reader) {
+        this.reader = reader;
+        buffer = new char[BUFFER_SIZE];
+        position = 0;
+        limit = 0;
+        text = new StringBuilder();
+        peekedChar = -2;
+        peeked = null;
+    }
+
+    /**
+     * Returns the type of the next token, without consuming it.
+     * @return the token type
+     * @throws IOException if the input is not valid JSON
+     */
+    Token peek() throws IOException {
+        if(peeked == null)
+            peeked = lex();
+        return peeked;
+    }
+
+    /**
+     * Returns whether the current object or array has more elements.
+     * @return true if the next token is neither the end of an object or array, nor the end of the document
+     * @throws IOException
+     */
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+    }
+
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+    }
+
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+    }
+
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+    }
+
+    /**
+     * Consumes the name of an object member.
+     * @return the name
+     * @throws IOException if the next token is not a string
+     */
+    String nextName() throws IOException {
+        expect(Token.STRING);
+        return text.toString();
+    }
+
+    /**
+     * Consumes a value as text. Numbers and booleans are returned as written.
+     * @return the text, or null if the value is null
+     * @throws IOException if the next token is not a string, number, boolean or null
+     */
+    String nextString() throws IOException {
+        Token token = peek();
+        if(token == Token.NULL) {
+            peeked = null;
+            return null;
+        }
+        if(token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN)
+            throw new IOException("Expected a value, but found " + token);
+
+        peeked = null;
+        return text.toString();
+    }
+
+    /**
+     * Consumes a number, which may also be written as a string.
+     * @return the number, or NaN if the value is null
+     * @throws IOException if the value is not a number
+     */
+    double nextDouble() throws IOException {
+        String value = nextString();
+        if(value == null)
+            return Double.NaN;
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Expected a number, but found \"" + value + "\"", e);
+        }
+    }
+
+    /**
+     * Consumes the next value, including everything nested within it.
+     * @throws IOException
+     */
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+
+            if(token == Token.BEGIN_OBJECT || token == Token.BEGIN_ARRAY)
+                depth++;
+            else if(token == Token.END_OBJECT || token == Token.END_ARRAY)
+                depth--;
+            else if(token == Token.END_DOCUMENT)
+                throw new IOException("Unexpected end of document");
+        } while(depth > 0);
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if(token != expected)
+            throw new IOException("Expected " + expected + ", but found " + token);
+        peeked = null;
+    }
+
+    private Token lex() throws IOException {
+        int c = read();
+        while(c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == ',' || c == ':' || c == 0xFEFF)
+            c = read();
+
+        switch(c) {
+            case -1:
+                return Token.END_DOCUMENT;
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '}':
+                return Token.END_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case ']':
+                return Token.END_ARRAY;
+            case '"':
+                lexString();
+                return Token.STRING;
+        }
+
+        text.setLength(0);
+        while(c != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.')) {
+            text.append((char) c);
+            c = read();
+        }
+        unread(c);
+
+        String word = text.toString();
+        if(word.equals("true") || word.equals("false"))
+            return Token.BOOLEAN;
+        if(word.equals("null"))
+            return Token.NULL;
+        if(!word.isEmpty() && (word.charAt(0) == '-' || Character.isDigit(word.charAt(0))))
+            return Token.NUMBER;
+
+        throw new IOException("Unexpected character in JSON: " + (word.isEmpty() ? String.valueOf((char) c) : word));
+    }
+
+    private void lexString() throws IOException {
+        text.setLength(0);
+        while(true) {
+            int c = read();
+            if(c == -1)
+                throw new IOException("Unterminated string");
+            if(c == '"')
+                return;
+
+            if(c == '\\') {
+                c = read();
+                switch(c) {
+                    case 'b': c = '\b'; break;
+                    case 'f': c = '\f'; break;
+                    case 'n': c = '\n'; break;
+                    case 'r': c = '\r'; break;
+                    case 't': c = '\t'; break;
+                    case 'u':
+                        c = 0;
+                        for(int i = 0; i < 4; i++) {
+                            int digit = Character.digit(read(), 16);
+                            if(digit < 0)
+                                throw new IOException("Invalid unicode escape");
+                            c = (c << 4) | digit;
+                        }
+                        break;
+                    case -1:
+                        throw new IOException("Unterminated string");
+                }
+            }
+            text.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if(peekedChar != -2) {
+            int c = peekedChar;
+            peekedChar = -2;
+            return c;
+        }
+
+        if(position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if(limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread(int c) {
+        peekedChar = c;
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a project as a Markdown outline: the timeline as a numbered list of headings,
+ * followed by the characters and their associations.
+ * <p>
+ * This class is only to be used internally by the {@link OutlineWriter}.
+ */
+class MarkdownOutlineWriter extends OutlineWriter {
+
+    private boolean empty;
+
+    MarkdownOutlineWriter(Writer out) {
+        super(out);
+    }
+
+    @Override
+    public void beginOutline(String title) throws IOException {
+        out.write("# ");
+        writeEscaped(title.isEmpty() ? "Untitled" : title);
+        out.write("\n\n");
+    }
+
+    @Override
+    public void beginEvents() throws IOException {
+        out.write("## Timeline\n\n");
+        empty = true;
+    }
+
+    @Override
+    public void event(int index, long uid, String name, String description) throws IOException {
+        out.write("### ");
+        out.write(Integer.toString(index));
+        out.write(". ");
+        writeEscaped(name);
+        out.write("\n\n");
+        writeParagraphs(description);
+        empty = false;
+    }
+
+    @Override
+    public void endEvents() throws IOException {
+        writeIfEmpty("*No events*\n\n");
+    }
+
+    @Override
+    public void beginCharacters() throws IOException {
+        out.write("## Characters\n\n");
+        empty = true;
+    }
+
+    @Override
+    public void character(long uid, String name, String description, double x, double y) throws IOException {
+        out.write("### ");
+        writeEscaped(name);
+        out.write("\n\n");
+        writeParagraphs(description);
+        empty = false;
+    }
+
+    @Override
+    public void endCharacters() throws IOException {
+        writeIfEmpty("*No characters*\n\n");
+    }
+
+    @Override
+    public void beginAssociations() throws IOException {
+        out.write("## Associations\n\n");
+        empty = true;
+    }
+
+    @Override
+    public void association(String from, String to, String label) throws IOException {
+        out.write("- **");
+        writeEscaped(from);
+        out.write("** \u2192 **");
+        writeEscaped(to);
+        out.write("**");
+        if(!label.isEmpty()) {
+            out.write(": ");
+            writeEscaped(label);
+        }
+        out.write('\n');
+        empty = false;
+    }
+
+    @Override
+    public void endAssociations() throws IOException {
+        if(!empty)
+            out.write('\n');
+        writeIfEmpty("*No associations*\n\n");
+    }
+
+    @Override
+    public void endOutline() throws IOException {
+    }
+
+    private void writeIfEmpty(String text) throws IOException {
+        if(empty)
+            out.write(text);
+    }
+
+    /**
+     * Writes text as paragraphs, keeping single line breaks as hard breaks.
+     */
+    private void writeParagraphs(String text) throws IOException {
+        if(text.isBlank())
+            return;
+
+        for(String line : text.strip().split("\r?\n", -1)) {
+            if(line.isBlank()) {
+                out.write("\n");
+                continue;
+            }
+            writeEscaped(line.strip());
+            out.write("  \n");
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Writes text on a single line, escaping the characters that Markdown would otherwise interpret.
+     */
+    private void writeEscaped(String text) throws IOException {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\': case '`': case '*': case '_': case '[': case ']':
+                case '#': case '<': case '>': case '|':
+                    out.write('\\');
+                    out.write(c);
+                    break;
+                case '\r':
+                case '\n':
+                    out.write(' ');
+                    break;
+                default:
+                    out.write(c);
+                    break;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+package com.team34.model.io;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Reads an outline written by another tool, and hands over its events, characters and associations
+ * one at a time, as they are read. Only a single record is held in memory at a time, so outlines
+ * of any size can be read in constant memory.
+ * <p>
+ * Two formats are supported, both encoded as UTF-8:
+ * <ul>
+ *  <li>CSV, with a header row naming the columns. Recognized columns are "type" (event, character or
+ *      association), "name", "description", "order", "x", "y", "from", "to" and "label". Rows without
+ *      a type are events. Other columns are ignored.
+ *  <li>JSON, as an object with the arrays "events", "characters" and "associations", whose elements
+ *      are objects with the same members as the CSV columns. A top-level array is read as events.
+ * </ul>
+ * The format is chosen by the file extension, ".json" or ".csv", and otherwise by the first character of the file.
+ * Numbers that are missing are handed over as NaN. Associations refer to characters by name.
+ */
+public class OutlineReader {
+
+    /**
+     * Receives the records of an outline, in the order they appear in the file.
+     */
+    public interface Sink {
+        /**
+         * @param name the name of the event
+         * @param description the description of the event
+         * @param order the position of the event in the outline, or NaN to place it after the others
+         */
+        void event(String name, String description, double order);
+
+        /**
+         * @param name the name of the character
+         * @param description the description of the character
+         * @param x the chart position, or NaN
+         * @param y the chart position, or NaN
+         */
+        void character(String name, String description, double x, double y);
+
+        /**
+         * @param from the name of the character the association starts at
+         * @param to the name of the character the association ends at
+         * @param label the label of the association
+         */
+        void association(String from, String to, String label);
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final File file;
+    private final long size;
+    private volatile long bytesRead;
+
+    /**
+     * @param file the outline to read
+     */
+    public OutlineReader(File file) {
+        this.file = file;
+        size = file.length();
+        bytesRead = 0L;
+    }
+
+    /**
+     * Returns how much of the file has been read. May be called from any thread.
+     * @return the fraction read, between 0.0 and 1.0
+     */
+    public double getProgress() {
+        return size > 0L ? Math.min(1.0, bytesRead / (double) size) : 1.0;
+    }
+
+    /**
+     * Reads the whole outline, handing each record to the sink. The sink may stop the read
+     * by throwing an unchecked exception, which is passed on to the caller.
+     * @param sink the receiver of the records
+     * @throws IOException if the file cannot be read, or is malformed
+     */
+    public void read(Sink sink) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            Reader reader = new BufferedReader(new InputStreamReader(
+                    new CountingInputStream(Channels.newInputStream(channel)), StandardCharsets.UTF_8), BUFFER_SIZE))
+        {
+            if(isJson(reader))
+                readJson(new JsonReader(reader), sink);
+            else
+                readCsv(new CsvReader(reader), sink);
+        }
+    }
+
+    private boolean isJson(Reader reader) throws IOException {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        if(name.endsWith(".json"))
+            return true;
+        if(name.endsWith(".csv"))
+            return false;
+
+        reader.mark(BUFFER_SIZE);
+        int c = reader.read();
+        while(c != -1 && (Character.isWhitespace(c) || c == 0xFEFF))
+            c = reader.read();
+        reader.reset();
+
+        return c == '{' || c == '[';
+    }
+
+    ////// CSV /////////////////////////////////////////////////////////////
+
+    private static void readCsv(CsvReader csv, Sink sink) throws IOException {
+        String[] header = csv.readRecord();
+        if(header == null)
+            return;
+
+        HashMap<String, Integer> columns = new HashMap<>();
+        for(int i = 0; i < header.length; i++) {
+            String column = header[i].trim().toLowerCase(Locale.ROOT);
+            if(i == 0 && !column.isEmpty() && column.charAt(0) == 0xFEFF)
+                column = column.substring(1).trim();
+            columns.putIfAbsent(column, i);
+        }
+
+        long recordNumber = 1L;
+        String[] record;
+        while((record = csv.readRecord()) != null) {
+            recordNumber++;
+            String type = field(record, columns, "type").trim().toLowerCase(Locale.ROOT);
+
+            switch (type) {
+                case "":
+                case "event":
+                    sink.event(field(record, columns, "name"), field(record, columns, "description"),
+                            number(record, columns, "order", recordNumber));
+                    break;
+                case "character":
+                    sink.character(field(record, columns, "name"), field(record, columns, "description"),
+                            number(record, columns, "x", recordNumber), number(record, columns, "y", recordNumber));
+                    break;
+                case "association":
+                case "relationship":
+                    sink.association(field(record, columns, "from"), field(record, columns, "to"),
+                            field(record, columns, "label"));
+                    break;
+                default:
+                    throw new IOException("Unknown type \"" + type + "\" in record " + recordNumber);
+            }
+        }
+    }
+
+    private static String field(String[] record, HashMap<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if(index == null || index >= record.length)
+            return "";
+        return record[index];
+    }
+
+    private static double number(String[] record, HashMap<String, Integer> columns, String column, long recordNumber)
+            throws IOException
+    {
+        String text = field(record, columns, column).trim();
+        if(text.isEmpty())
+            return Double.NaN;
+
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid " + column + " \"" + text + "\" in record " + recordNumber, e);
+        }
+    }
+
+    ////// JSON ////////////////////////////////////////////////////////////
+
+    private static void readJson(JsonReader json, Sink sink) throws IOException {
+        if(json.peek() == JsonReader.Token.BEGIN_ARRAY) {
+            readJsonEvents(json, sink);
+            return;
+        }
+
+        json.beginObject();
+        while(json.hasNext()) {
+            switch (json.nextName()) {
+                case "events":
+                    readJsonEvents(json, sink);
+                    break;
+                case "characters":
+                    readJsonCharacters(json, sink);
+                    break;
+                case "associations":
+                case "relationships":
+                    readJsonAssociations(json, sink);
+                    break;
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+    }
+
+    private static void readJsonEvents(JsonReader json, Sink sink) throws IOException {
+        json.beginArray();
+        while(json.hasNext()) {
+            String name = "";
+            String description = "";
+            double order = Double.NaN;
+
+            json.beginObject();
+            while(json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name":
+                        name = orEmpty(json.nextString());
+                        break;
+                    case "description":
+                        description = orEmpty(json.nextString());
+                        break;
+                    case "order":
+                        order = json.nextDouble();
+                        break;
+                    default:
+                        json.skipValue();
+                        break;
+                }
+            }
+            json.endObject();
+
+            sink.event(name, description, order);
+        }
+        json.endArray();
+    }
+
+    private static void readJsonCharacters(JsonReader json, Sink sink) throws IOException {
+        json.beginArray();
+        while(json.hasNext()) {
+            String name = "";
+            String description = "";
+            double x = Double.NaN;
+            double y = Double.NaN;
+
+            json.beginObject();
+            while(json.hasNext()) {
+                switch (json.nextName()) {
+                    case "name":
+                        name = orEmpty(json.nextString());
+                        break;
+                    case "description":
+                        description = orEmpty(json.nextString());
+                        break;
+                    case "x":
+                        x = json.nextDouble();
+                        break;
+                    case "y":
+                        y = json.nextDouble();
+                        break;
+                    default:
+                        json.skipValue();
+                        break;
+                }
+            }
+            json.endObject();
+
+            sink.character(name, description, x, y);
+        }
+        json.endArray();
+    }
+
+    private static void readJsonAssociations(JsonReader json, Sink sink) throws IOException {
+        json.beginArray();
+        while(json.hasNext()) {
+            String from = "";
+            String to = "";
+            String label = "";
+
+            json.beginObject();
+            while(json.hasNext()) {
+                switch (json.nextName()) {
+                    case "from":
+                        from = orEmpty(json.nextString());
+                        break;
+                    case "to":
+                        to = orEmpty(json.nextString());
+                        break;
+                    case "label":
+                        label = orEmpty(json.nextString());
+                        break;
+                    default:
+                        json.skipValue();
+                        break;
+                }
+            }
+            json.endObject();
+
+            sink.association(from, to, label);
+        }
+        json.endArray();
+    }
+
+    private static String orEmpty(String text) {
+        return text != null ? text : "";
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Counts the bytes read from the file, for {@link OutlineReader#getProgress()}.
+     */
+    private class CountingInputStream extends FilterInputStream {
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if(b != -1)
+                bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if(n > 0)
+                bytesRead += n;
+            return n;
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.team34.model.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exports a project to a file that can be read outside of Writer's Studio, see {@link ExportFormat}.
+ * <p>
+ * The project is handed over one record at a time, in the order the records should appear in the file:
+ * first {@link OutlineWriter#beginOutline(String)}, then the events in timeline order, then the characters,
+ * then the associations, and finally {@link OutlineWriter#endOutline()}. Each record is written to the file
+ * as it is handed over, so exporting uses the same amount of memory regardless of the size of the project.
+ */
+public abstract class OutlineWriter implements Closeable {
+
+    protected final Writer out;
+
+    OutlineWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Creates the given file, replacing any existing file, and returns a writer for the given format.
+     * @param file the file to write to
+     * @param format the format to write
+     * @return the writer, which must be closed
+     * @throws IOException if the file cannot be created
+     */
+    public static OutlineWriter open(File file, ExportFormat format) throws IOException {
+        Writer out = new ChannelWriter(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+
+        switch (format) {
+            case MARKDOWN:
+                return new MarkdownOutlineWriter(out);
+            case HTML:
+                return new HtmlOutlineWriter(out);
+            case JSON:
+                return new JsonOutlineWriter(out);
+            default:
+                out.close();
+                throw new IllegalArgumentException("Unknown export format: " + format);
+        }
+    }
+
+    /**
+     * @param title the name of the project
+     * @throws IOException
+     */
+    public abstract void beginOutline(String title) throws IOException;
+
+    public abstract void beginEvents() throws IOException;
+
+    /**
+     * @param index the position of the event in the timeline, starting at 1
+     * @param uid the UID of the event
+     * @param name the name of the event
+     * @param description the description of the event
+     * @throws IOException
+     */
+    public abstract void event(int index, long uid, String name, String description) throws IOException;
+
+    public abstract void endEvents() throws IOException;
+
+    public abstract void beginCharacters() throws IOException;
+
+    /**
+     * @param uid the UID of the character
+     * @param name the name of the character
+     * @param description the description of the character
+     * @param x the chart position
+     * @param y the chart position
+     * @throws IOException
+     */
+    public abstract void character(long uid, String name, String description, double x, double y)
+            throws IOException;
+
+    public abstract void endCharacters() throws IOException;
+
+    public abstract void beginAssociations() throws IOException;
+
+    /**
+     * @param from the name of the character the association starts at
+     * @param to the name of the character the association ends at
+     * @param label the label of the association
+     * @throws IOException
+     */
+    public abstract void association(String from, String to, String label) throws IOException;
+
+    public abstract void endAssociations() throws IOException;
+
+    public abstract void endOutline() throws IOException;
+
+    /**
+     * Writes what remains of the file, and closes it.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
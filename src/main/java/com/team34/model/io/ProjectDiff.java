@@ -0,0 +1,414 @@
+package com.team34.model.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The structural differences between two {@link ProjectSnapshot}s, keyed by UID.
+ * <p>
+ * Events, characters and associations are matched by their UID through a hash join, so comparing
+ * two projects takes time linear in their size, regardless of how much has changed. Each entity
+ * is then either added, removed, changed or unchanged.
+ * <p>
+ * The event order lists are compared by their longest common subsequence. Since a UID appears at
+ * most once in an order list, the LCS equals the longest increasing subsequence of the positions the
+ * UIDs of one list have in the other, which is found in O(n log n) time no matter how different the
+ * lists are. Any UID outside of the LCS is either removed from, or inserted into, the list. A UID that
+ * is both is a moved event.
+ * <p>
+ * See {@link ProjectMerge}, which merges two projects by the differences each has to a common original.
+ */
+public class ProjectDiff {
+
+    public enum Kind { ADDED, REMOVED, CHANGED }
+
+    private final boolean nameChanged;
+    private final LinkedHashMap<Long, Change<ProjectSnapshot.EventEntry>> events;
+    private final LinkedHashMap<Long, Change<ProjectSnapshot.CharacterEntry>> characters;
+    private final LinkedHashMap<Long, Change<ProjectSnapshot.AssociationEntry>> associations;
+    private final ArrayList<OrderListDiff> orderLists;
+
+    private ProjectDiff(boolean nameChanged) {
+        this.nameChanged = nameChanged;
+        events = new LinkedHashMap<>();
+        characters = new LinkedHashMap<>();
+        associations = new LinkedHashMap<>();
+        orderLists = new ArrayList<>();
+    }
+
+    /**
+     * Compares two snapshots.
+     * @param from the original snapshot
+     * @param to the changed snapshot
+     * @return the changes that turn {@code from} into {@code to}
+     */
+    public static ProjectDiff compare(ProjectSnapshot from, ProjectSnapshot to) {
+        ProjectDiff diff = new ProjectDiff(!Objects.equals(from.name, to.name));
+
+        join(from.events, to.events, diff.events, e -> e.uid, ProjectDiff::sameEvent);
+        join(from.characters, to.characters, diff.characters, c -> c.uid, ProjectDiff::sameCharacter);
+        join(from.associations, to.associations, diff.associations, a -> a.uid, ProjectDiff::sameAssociation);
+
+        int lists = Math.max(from.eventOrderLists.size(), to.eventOrderLists.size());
+        for(int i = 0; i < lists; i++)
+            diff.orderLists.add(compareOrder(i, orderList(from, i), orderList(to, i)));
+
+        return diff;
+    }
+
+    /**
+     * Returns the order list of the given index, or an empty list if the snapshot does not have it.
+     */
+    static Long[] orderList(ProjectSnapshot snapshot, int index) {
+        return index < snapshot.eventOrderLists.size() ? snapshot.eventOrderLists.get(index) : new Long[0];
+    }
+
+    /**
+     * Hash joins two lists of entities on their UID, and puts every entity that differs into {@code changes}.
+     */
+    private static <T> void join(List<T> from, List<T> to, LinkedHashMap<Long, Change<T>> changes,
+                                 UIDOf<T> uidOf, Same<T> same)
+    {
+        HashMap<Long, T> byUID = new HashMap<>(from.size() * 2);
+        for(T entry : from)
+            byUID.put(uidOf.get(entry), entry);
+
+        for(T entry : to) {
+            long uid = uidOf.get(entry);
+            T before = byUID.remove(uid);
+            if(before == null)
+                changes.put(uid, new Change<>(Kind.ADDED, uid, null, entry));
+            else if(!same.test(before, entry))
+                changes.put(uid, new Change<>(Kind.CHANGED, uid, before, entry));
+        }
+
+        // Whatever is left was not matched by any entity of the changed snapshot
+        for(T entry : from) {
+            long uid = uidOf.get(entry);
+            if(byUID.containsKey(uid))
+                changes.put(uid, new Change<>(Kind.REMOVED, uid, entry, null));
+        }
+    }
+
+    /**
+     * Compares two order lists by their longest common subsequence.
+     */
+    private static OrderListDiff compareOrder(int index, Long[] from, Long[] to) {
+        int[] match = matchOrder(from, to);
+
+        ArrayList<Long> removed = new ArrayList<>();
+        boolean[] kept = new boolean[to.length];
+        for(int i = 0; i < from.length; i++) {
+            if(match[i] < 0)
+                removed.add(from[i]);
+            else
+                kept[match[i]] = true;
+        }
+
+        ArrayList<Long> inserted = new ArrayList<>();
+        for(int j = 0; j < to.length; j++) {
+            if(!kept[j])
+                inserted.add(to[j]);
+        }
+
+        return new OrderListDiff(index, match, removed, inserted);
+    }
+
+    /**
+     * Finds the longest common subsequence of two order lists.
+     * @return for every index of {@code from}, the index of {@code to} it is matched with, or -1 if it is not
+     */
+    static int[] matchOrder(Long[] from, Long[] to) {
+        int[] match = new int[from.length];
+        Arrays.fill(match, -1);
+
+        // Leave the common prefix and suffix out, which is usually all but a few UIDs
+        int start = 0;
+        while(start < from.length && start < to.length && from[start].equals(to[start])) {
+            match[start] = start;
+            start++;
+        }
+        int endFrom = from.length, endTo = to.length;
+        while(endFrom > start && endTo > start && from[endFrom - 1].equals(to[endTo - 1])) {
+            endFrom--;
+            endTo--;
+            match[endFrom] = endTo;
+        }
+        if(start == endFrom || start == endTo)
+            return match;
+
+        HashMap<Long, Integer> positions = new HashMap<>((endFrom - start) * 2);
+        for(int i = endFrom - 1; i >= start; i--)
+            positions.put(from[i], i); // The first occurrence wins, should a UID be duplicated
+
+        // For every UID of 'to', the position it has in 'from'
+        int n = endTo - start;
+        int[] sequence = new int[n];
+        for(int j = 0; j < n; j++) {
+            Integer i = positions.remove(to[start + j]);
+            sequence[j] = i != null ? i : -1;
+        }
+
+        // Patience sorting: tails[k] is the index into 'sequence' ending the best increasing run of length k+1
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for(int j = 0; j < n; j++) {
+            int value = sequence[j];
+            if(value < 0)
+                continue;
+
+            int lo = 0, hi = length;
+            while(lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if(sequence[tails[mid]] < value)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            previous[j] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = j;
+            if(lo == length)
+                length++;
+        }
+
+        for(int j = length > 0 ? tails[length - 1] : -1; j >= 0; j = previous[j])
+            match[sequence[j]] = start + j;
+
+        return match;
+    }
+
+    ////// Equality of entities //////
+
+    static boolean sameEvent(ProjectSnapshot.EventEntry a, ProjectSnapshot.EventEntry b) {
+        return Objects.equals(a.name, b.name) && Objects.equals(a.description, b.description);
+    }
+
+    static boolean sameCharacter(ProjectSnapshot.CharacterEntry a, ProjectSnapshot.CharacterEntry b) {
+        return Objects.equals(a.name, b.name) && Objects.equals(a.description, b.description)
+                && Double.compare(a.chartX, b.chartX) == 0 && Double.compare(a.chartY, b.chartY) == 0;
+    }
+
+    static boolean sameAssociation(ProjectSnapshot.AssociationEntry a, ProjectSnapshot.AssociationEntry b) {
+        return a.startUID == b.startUID && a.endUID == b.endUID
+                && Double.compare(a.sX, b.sX) == 0 && Double.compare(a.sY, b.sY) == 0
+                && Double.compare(a.eX, b.eX) == 0 && Double.compare(a.eY, b.eY) == 0
+                && Objects.equals(a.label, b.label)
+                && Double.compare(a.lblX, b.lblX) == 0 && Double.compare(a.lblY, b.lblY) == 0;
+    }
+
+    ////// Results //////
+
+    public boolean isNameChanged() {
+        return nameChanged;
+    }
+
+    public Collection<Change<ProjectSnapshot.EventEntry>> getEventChanges() {
+        return Collections.unmodifiableCollection(events.values());
+    }
+
+    public Collection<Change<ProjectSnapshot.CharacterEntry>> getCharacterChanges() {
+        return Collections.unmodifiableCollection(characters.values());
+    }
+
+    public Collection<Change<ProjectSnapshot.AssociationEntry>> getAssociationChanges() {
+        return Collections.unmodifiableCollection(associations.values());
+    }
+
+    /**
+     * Returns the change of the event with the given UID.
+     * @param uid the UID of the event
+     * @return the change, or null if the event is unchanged, or does not exist in either snapshot
+     */
+    public Change<ProjectSnapshot.EventEntry> getEventChange(long uid) {
+        return events.get(uid);
+    }
+
+    public Change<ProjectSnapshot.CharacterEntry> getCharacterChange(long uid) {
+        return characters.get(uid);
+    }
+
+    public Change<ProjectSnapshot.AssociationEntry> getAssociationChange(long uid) {
+        return associations.get(uid);
+    }
+
+    /**
+     * Returns the differences of every event order list, by the index of the list.
+     * @return the order list differences
+     */
+    public List<OrderListDiff> getOrderListDiffs() {
+        return Collections.unmodifiableList(orderLists);
+    }
+
+    /**
+     * Returns whether the two snapshots hold the same data.
+     * @return true if nothing has changed
+     */
+    public boolean isEmpty() {
+        if(nameChanged || !events.isEmpty() || !characters.isEmpty() || !associations.isEmpty())
+            return false;
+
+        for(OrderListDiff list : orderLists) {
+            if(!list.isEmpty())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a short description of the differences, eg. for the status bar.
+     * @return the description
+     */
+    @Override
+    public String toString() {
+        int moved = 0, reordered = 0;
+        for(OrderListDiff list : orderLists) {
+            if(!list.isEmpty()) {
+                reordered++;
+                moved += list.getMoved().size();
+            }
+        }
+
+        return count(events.values()) + " events, " + count(characters.values()) + " characters, "
+                + count(associations.values()) + " associations"
+                + (reordered > 0 ? ", " + moved + " events moved in " + reordered + " order lists" : "");
+    }
+
+    private static String count(Collection<? extends Change<?>> changes) {
+        int added = 0, removed = 0, changed = 0;
+        for(Change<?> change : changes) {
+            if(change.kind == Kind.ADDED)
+                added++;
+            else if(change.kind == Kind.REMOVED)
+                removed++;
+            else
+                changed++;
+        }
+        return "+" + added + " -" + removed + " ~" + changed;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A single entity that differs between the two snapshots.
+     * @param <T> the entry type of the entity, see {@link ProjectSnapshot}
+     */
+    public static class Change<T> {
+        private final Kind kind;
+        private final long uid;
+        private final T before;
+        private final T after;
+
+        private Change(Kind kind, long uid, T before, T after) {
+            this.kind = kind;
+            this.uid = uid;
+            this.before = before;
+            this.after = after;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public long getUID() {
+            return uid;
+        }
+
+        /**
+         * Returns the entity as it was in the original snapshot.
+         * @return the entity, or null if it was added
+         */
+        public T getBefore() {
+            return before;
+        }
+
+        /**
+         * Returns the entity as it is in the changed snapshot.
+         * @return the entity, or null if it was removed
+         */
+        public T getAfter() {
+            return after;
+        }
+    }
+
+    /**
+     * The differences between the two versions of a single event order list.
+     */
+    public static class OrderListDiff {
+        private final int index;
+        private final int[] match;
+        private final List<Long> removed;
+        private final List<Long> inserted;
+
+        private OrderListDiff(int index, int[] match, List<Long> removed, List<Long> inserted) {
+            this.index = index;
+            this.match = match;
+            this.removed = removed;
+            this.inserted = inserted;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the UIDs that are not in the common subsequence of the original list, in their original order.
+         * @return the removed UIDs, including those that were moved
+         */
+        public List<Long> getRemoved() {
+            return Collections.unmodifiableList(removed);
+        }
+
+        /**
+         * Returns the UIDs that are not in the common subsequence of the changed list, in their new order.
+         * @return the inserted UIDs, including those that were moved
+         */
+        public List<Long> getInserted() {
+            return Collections.unmodifiableList(inserted);
+        }
+
+        /**
+         * Returns the UIDs that were both removed and inserted, ie. the events that were moved.
+         * @return the moved UIDs, in their new order
+         */
+        public List<Long> getMoved() {
+            HashSet<Long> removedSet = new HashSet<>(removed);
+            ArrayList<Long> moved = new ArrayList<>();
+            for(Long uid : inserted) {
+                if(removedSet.contains(uid))
+                    moved.add(uid);
+            }
+            return moved;
+        }
+
+        public boolean isEmpty() {
+            return removed.isEmpty() && inserted.isEmpty();
+        }
+
+        /**
+         * Returns, for every index of the original list, the index of the changed list it is matched with,
+         * or -1 if it is not part of the common subsequence.
+         */
+        int[] getMatch() {
+            return match;
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    private interface UIDOf<T> {
+        long get(T entry);
+    }
+
+    private interface Same<T> {
+        boolean test(T a, T b);
+    }
+
+}
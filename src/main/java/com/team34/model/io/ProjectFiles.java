@@ -0,0 +1,214 @@
+package com.team34.model.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Reads and writes project files in any of the supported {@link ProjectFormat}s.
+ * <p>
+ * The format of an existing file is detected from its first bytes, so all formats
+ * can be opened interchangeably.
+ * <p>
+ * Files are never written in place. The data is written to a temporary file in the same directory,
+ * which is forced to disk and then atomically moved over the original. A crash or a full disk while
+ * saving therefore leaves the original untouched. Optionally, the previous versions of the file are
+ * kept as rotated backups, "&lt;file&gt;.bak1" being the most recent.
+ */
+public class ProjectFiles {
+
+    private ProjectFiles() { }
+
+    /**
+     * Detects which format the given project file is stored in.
+     * @param file the project file
+     * @return {@link ProjectFormat#BINARY} or {@link ProjectFormat#COMPRESSED} if the file starts
+     *         with the magic of either, otherwise {@link ProjectFormat#XML}
+     * @throws IOException
+     */
+    public static ProjectFormat detectFormat(File file) throws IOException {
+        byte[] header = new byte[BinaryProjectFormat.MAGIC.length];
+        int read = 0;
+
+        try(FileInputStream fileStream = new FileInputStream(file)) {
+            while(read < header.length) {
+                int n = fileStream.read(header, read, header.length - read);
+                if(n < 0)
+                    break;
+                read += n;
+            }
+        }
+
+        if(read == header.length && BinaryProjectFormat.isBinaryHeader(header))
+            return ProjectFormat.BINARY;
+        else if(read == header.length && CompressedProjectFormat.isCompressedHeader(header))
+            return ProjectFormat.COMPRESSED;
+        else
+            return ProjectFormat.XML;
+    }
+
+    /**
+     * Reads the given project file, regardless of format.
+     * @param file the project file to read
+     * @return the data contained within the file
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static ProjectSnapshot read(File file) throws IOException, XMLStreamException {
+        return read(file, detectFormat(file));
+    }
+
+    /**
+     * Reads the given project file in the given format, as detected by {@link ProjectFiles#detectFormat(File)}.
+     * @param file the project file to read
+     * @param format the format of the file
+     * @return the data contained within the file
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static ProjectSnapshot read(File file, ProjectFormat format) throws IOException, XMLStreamException {
+        switch (format) {
+            case BINARY:
+                return BinaryProjectFormat.read(file);
+            case COMPRESSED:
+                return CompressedProjectFormat.read(file);
+            default:
+                return XmlProjectFormat.read(file);
+        }
+    }
+
+    /**
+     * Checks the given project file for damage, regardless of format, without loading it.
+     * Sections that have checksums are only checked against them, which is much faster than parsing them.
+     * Files without checksums, and compressed files, are parsed instead.
+     * @param file the project file to check
+     * @throws CorruptSectionException if a section is damaged
+     * @throws IOException if the file could not be read
+     * @throws XMLStreamException if a file without checksums cannot be parsed
+     */
+    public static void verify(File file) throws IOException, XMLStreamException {
+        switch (detectFormat(file)) {
+            case BINARY:
+                BinaryProjectFormat.verify(file);
+                break;
+            case COMPRESSED:
+                CompressedProjectFormat.read(file); // The zlib stream carries its own checksum
+                break;
+            default:
+                XmlProjectFormat.verify(file);
+                break;
+        }
+    }
+
+    /**
+     * Writes the snapshot to the given file, in the given format, without keeping any backups.
+     * See {@link ProjectFiles#write(ProjectSnapshot, File, ProjectFormat, int)}.
+     * @param snapshot the data to write
+     * @param file the file to write to
+     * @param format the format to use
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static void write(ProjectSnapshot snapshot, File file, ProjectFormat format)
+            throws IOException, XMLStreamException
+    {
+        write(snapshot, file, format, 0);
+    }
+
+    /**
+     * Writes the snapshot to the given file, in the given format. The file is replaced atomically,
+     * and is either left untouched or completely written.
+     * @param snapshot the data to write
+     * @param file the file to write to
+     * @param format the format to use
+     * @param backups the number of previous versions of the file to keep
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static void write(ProjectSnapshot snapshot, File file, ProjectFormat format, int backups)
+            throws IOException, XMLStreamException
+    {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+
+        boolean moved = false;
+        try {
+            switch (format) {
+                case BINARY:
+                    BinaryProjectFormat.write(snapshot, temp);
+                    break;
+                case COMPRESSED:
+                    CompressedProjectFormat.write(snapshot, temp);
+                    break;
+                default:
+                    XmlProjectFormat.write(snapshot, temp);
+                    break;
+            }
+
+            try(FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+
+            if(backups > 0 && file.exists())
+                rotateBackups(file, backups);
+
+            Files.move(temp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if(!moved)
+                temp.delete();
+        }
+
+        forceDirectory(dir);
+    }
+
+    /**
+     * Returns the backup of the given file, see {@link ProjectFiles#write(ProjectSnapshot, File, ProjectFormat, int)}.
+     * @param file the project file
+     * @param index the index of the backup, 1 being the most recent
+     * @return the backup file, which may or may not exist
+     */
+    public static File backupFile(File file, int index) {
+        return new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".bak" + index);
+    }
+
+    /**
+     * Shifts every backup one step back, dropping the oldest, and makes the current file the most recent backup.
+     * The current file stays in place, so that it exists until it is replaced.
+     */
+    private static void rotateBackups(File file, int backups) throws IOException {
+        Files.deleteIfExists(backupFile(file, backups).toPath());
+        for(int i = backups - 1; i >= 1; i--) {
+            File backup = backupFile(file, i);
+            if(backup.exists())
+                Files.move(backup.toPath(), backupFile(file, i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        try {
+            Files.createLink(backupFile(file, 1).toPath(), file.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            // The file system does not support hard links
+            Files.copy(file.toPath(), backupFile(file, 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Forces the directory entry of a moved file to disk. Not all platforms support opening a directory,
+     * in which case the move is only as durable as the platform makes it.
+     */
+    private static void forceDirectory(File dir) {
+        try(FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform
+        }
+    }
+
+}
@@ -0,0 +1,14 @@
+package com.team34.model.io;
+
+/**
+ * The file formats a project can be stored in. All formats use the wsp file extension;
+ * which format a file uses is detected from its content, see {@link ProjectFiles#detectFormat(java.io.File)}.
+ */
+public enum ProjectFormat {
+    /** The original, human-readable XML format. See {@link XmlProjectFormat}. */
+    XML,
+    /** The compact binary format. See {@link BinaryProjectFormat}. */
+    BINARY,
+    /** The XML format, compressed. See {@link CompressedProjectFormat}. */
+    COMPRESSED
+}
@@ -0,0 +1,918 @@
+package com.team34.model.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps every saved revision of a project, storing each distinct piece of content only once.
+ * <p>
+ * The history is stored next to the project file, in the directory "&lt;project file&gt;.history".
+ * A revision is split into chunks: one per event, character and association, and one per run of
+ * each event order list. Every chunk is identified by the SHA-1 hash of its content, and is only
+ * written if no chunk with that hash exists yet. The entity chunks are grouped into
+ * {@link #BUCKETS} buckets by UID, each stored as a chunk listing its members, and a manifest chunk
+ * lists the buckets and order list runs of the revision. The order lists are cut into runs after
+ * UIDs chosen by their hash, so inserting or moving an event only changes the runs around it.
+ * Saving a revision therefore only writes the entities that changed, the buckets they are in, the
+ * runs around them, and the manifest.
+ * <p>
+ * The directory contains:
+ * <ul>
+ *     <li>chunks.pack, the chunks, appended as: hash (20 bytes), length (u32), content.</li>
+ *     <li>chunks.idx, the position of each chunk in the pack, appended as: hash (20 bytes), offset (u64).</li>
+ *     <li>revisions.log, the revisions, appended as: length (u32), fields, CRC32C of the fields (u32).</li>
+ * </ul>
+ * The pack is forced to disk before the index, and the index before the log, so a revision is never
+ * listed before all of its chunks can be found. A record left incomplete by an interrupted write is
+ * ignored, and overwritten by the next revision.
+ * <p>
+ * The hashes of the entities of the last revision are kept in memory, and an entity is only encoded
+ * and hashed again if it is no longer the same object. As the data of the project is made of immutable
+ * strings and numbers, this takes a comparison of references per entity.
+ */
+public class ProjectHistory {
+
+    public static final int BUCKETS = 256;
+
+    private static final byte[] PACK_MAGIC = { 'W', 'S', 'H', 'P' };
+    private static final byte[] INDEX_MAGIC = { 'W', 'S', 'H', 'I' };
+    private static final byte[] LOG_MAGIC = { 'W', 'S', 'H', 'R' };
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 5; // magic + version
+
+    private static final String SUFFIX = ".history";
+    private static final int ID_SIZE = 20;
+    private static final int INDEX_RECORD_SIZE = ID_SIZE + 8;
+    private static final int REVISION_FIXED_SIZE = 40 + ID_SIZE;
+    private static final int RUN_BOUNDARY_MASK = 63; // Runs average 64 UIDs
+    private static final int MAX_RUN_LENGTH = 512;
+
+    private static final int CHUNK_EVENT = 1;
+    private static final int CHUNK_CHARACTER = 2;
+    private static final int CHUNK_ASSOCIATION = 3;
+    private static final int CHUNK_RUN = 4;
+    private static final int CHUNK_BUCKET = 5;
+    private static final int CHUNK_MANIFEST = 6;
+
+    private static final int KIND_EVENT = 0;
+    private static final int KIND_CHARACTER = 1;
+    private static final int KIND_ASSOCIATION = 2;
+    private static final int KINDS = 3;
+
+    private final File projectFile;
+    private final File directory;
+    private final File packFile;
+    private final File indexFile;
+    private final File logFile;
+    private final File lockFile;
+    private final MessageDigest digest;
+
+    private final HashMap<ChunkId, Long> offsets;
+    private final ArrayList<Revision> revisions;
+    private long indexLength;
+    private long logLength;
+
+    // The entities of the last revision, and their chunks, by kind
+    private ArrayList<HashMap<Long, Cached>> entityCache;
+    private final ChunkId[][][] bucketMembers;
+    private final ChunkId[][] bucketIds;
+
+    /**
+     * Constructs the history of the given project file. Nothing is read or written until the history is used.
+     * @param projectFile the project file
+     */
+    public ProjectHistory(File projectFile) {
+        this.projectFile = projectFile.getAbsoluteFile();
+        directory = historyDirectory(projectFile);
+        packFile = new File(directory, "chunks.pack");
+        indexFile = new File(directory, "chunks.idx");
+        logFile = new File(directory, "revisions.log");
+        lockFile = new File(directory, "lock");
+
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every Java platform is required to support SHA-1
+        }
+
+        offsets = new HashMap<>();
+        revisions = new ArrayList<>();
+        indexLength = 0L;
+        logLength = 0L;
+
+        entityCache = new ArrayList<>();
+        for(int kind = 0; kind < KINDS; kind++)
+            entityCache.add(new HashMap<>());
+        bucketMembers = new ChunkId[KINDS][BUCKETS][];
+        bucketIds = new ChunkId[KINDS][BUCKETS];
+    }
+
+    /**
+     * Returns the directory the history of the given project file is stored in.
+     * @param projectFile the project file
+     * @return the directory, which may or may not exist
+     */
+    public static File historyDirectory(File projectFile) {
+        return new File(projectFile.getAbsoluteFile().getParentFile(), projectFile.getName() + SUFFIX);
+    }
+
+    public File getProjectFile() {
+        return projectFile;
+    }
+
+    /**
+     * Returns the revisions, oldest first.
+     * @return the revisions
+     * @throws IOException if the history cannot be read
+     */
+    public synchronized List<Revision> getRevisions() throws IOException {
+        refresh();
+        return new ArrayList<>(revisions);
+    }
+
+    /**
+     * Stores the given snapshot as a new revision, unless it is identical to the latest revision.
+     * May be called on any thread; commits are serialized, also between processes.
+     * @param snapshot the snapshot to store, which must not be changed while it is stored
+     * @return the new revision, or the latest revision if the snapshot is identical to it
+     * @throws IOException if the revision cannot be stored
+     */
+    public synchronized Revision commit(ProjectSnapshot snapshot) throws IOException {
+        if(!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+
+        try(FileChannel lockChannel = FileChannel.open(lockFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            FileLock lock = lockChannel.lock();
+            try {
+                refresh();
+                return commitLocked(snapshot);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            // The cached chunks may not have been stored
+            resetCache();
+            throw e;
+        }
+    }
+
+    /**
+     * Stores the snapshot as a revision. Called with the lock held.
+     */
+    private Revision commitLocked(ProjectSnapshot snapshot) throws IOException {
+        LinkedHashMap<ChunkId, byte[]> added = new LinkedHashMap<>();
+        ArrayList<HashMap<Long, Cached>> cache = new ArrayList<>();
+        for(int kind = 0; kind < KINDS; kind++)
+            cache.add(new HashMap<>());
+
+        // Entities, grouped into buckets
+        ArrayList<ArrayList<Member>> buckets = newBuckets();
+        for(ProjectSnapshot.EventEntry event : snapshot.events)
+            addMember(buckets, event.uid, entityChunk(KIND_EVENT, event.uid, event, cache, added));
+        ChunkId[] eventBuckets = storeBuckets(KIND_EVENT, buckets, added);
+
+        buckets = newBuckets();
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters)
+            addMember(buckets, character.uid, entityChunk(KIND_CHARACTER, character.uid, character, cache, added));
+        ChunkId[] characterBuckets = storeBuckets(KIND_CHARACTER, buckets, added);
+
+        buckets = newBuckets();
+        for(ProjectSnapshot.AssociationEntry association : snapshot.associations)
+            addMember(buckets, association.uid, entityChunk(KIND_ASSOCIATION, association.uid, association, cache, added));
+        ChunkId[] associationBuckets = storeBuckets(KIND_ASSOCIATION, buckets, added);
+
+        // Event order lists, cut into runs
+        ArrayList<ChunkId[]> orderLists = new ArrayList<>();
+        for(Long[] orderList : snapshot.eventOrderLists)
+            orderLists.add(storeRuns(orderList, added));
+
+        // Manifest
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(CHUNK_MANIFEST);
+        writeString(out, snapshot.name);
+        for(ChunkId[] kindBuckets : new ChunkId[][] { eventBuckets, characterBuckets, associationBuckets }) {
+            int count = 0;
+            for(ChunkId id : kindBuckets)
+                count += id != null ? 1 : 0;
+            out.writeShort(count);
+            for(int b = 0; b < BUCKETS; b++) {
+                if(kindBuckets[b] == null)
+                    continue;
+                out.writeShort(b);
+                out.write(kindBuckets[b].bytes);
+            }
+        }
+        out.writeInt(orderLists.size());
+        for(ChunkId[] runs : orderLists) {
+            out.writeInt(runs.length);
+            for(ChunkId run : runs)
+                out.write(run.bytes);
+        }
+        ChunkId manifest = store(bytes.toByteArray(), added);
+
+        entityCache = cache;
+
+        Revision latest = revisions.isEmpty() ? null : revisions.get(revisions.size() - 1);
+        if(latest != null && latest.manifest.equals(manifest))
+            return latest;
+
+        long addedBytes = appendChunks(added);
+        Revision revision = new Revision(latest != null ? latest.number + 1 : 1L, System.currentTimeMillis(),
+                snapshot.name, snapshot.events.size(), snapshot.characters.size(),
+                snapshot.associations.size(), addedBytes, manifest);
+        appendRevision(revision);
+        return revision;
+    }
+
+    /**
+     * Forgets the chunks of the last revision, so that every entity is hashed again by the next commit.
+     */
+    private void resetCache() {
+        for(int kind = 0; kind < KINDS; kind++) {
+            entityCache.get(kind).clear();
+            Arrays.fill(bucketMembers[kind], null);
+            Arrays.fill(bucketIds[kind], null);
+        }
+    }
+
+    /**
+     * Reads the given revision into a new snapshot. The UIDs of the snapshot are those of its entities.
+     * @param number the number of the revision
+     * @return the snapshot
+     * @throws IOException if the revision does not exist, or cannot be read
+     */
+    public synchronized ProjectSnapshot restore(long number) throws IOException {
+        refresh();
+
+        Revision revision = null;
+        for(Revision r : revisions) {
+            if(r.number == number)
+                revision = r;
+        }
+        if(revision == null)
+            throw new IOException("There is no revision " + number);
+
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        TreeSet<Long> uids = new TreeSet<>();
+
+        try(FileChannel pack = FileChannel.open(packFile.toPath(), StandardOpenOption.READ)) {
+            DataInputStream manifest = readChunk(pack, revision.manifest, CHUNK_MANIFEST);
+            snapshot.name = readString(manifest);
+
+            for(int kind = 0; kind < KINDS; kind++) {
+                int bucketCount = manifest.readUnsignedShort();
+                for(int i = 0; i < bucketCount; i++) {
+                    manifest.readUnsignedShort();
+                    DataInputStream bucket = readChunk(pack, readId(manifest), CHUNK_BUCKET);
+                    int members = bucket.readInt();
+                    for(int j = 0; j < members; j++)
+                        uids.add(readEntity(pack, readId(bucket), snapshot));
+                }
+            }
+
+            int listCount = manifest.readInt();
+            for(int i = 0; i < listCount; i++) {
+                ArrayList<Long> orderList = new ArrayList<>();
+                int runCount = manifest.readInt();
+                for(int j = 0; j < runCount; j++) {
+                    DataInputStream run = readChunk(pack, readId(manifest), CHUNK_RUN);
+                    int length = run.readInt();
+                    for(int k = 0; k < length; k++)
+                        orderList.add(run.readLong());
+                }
+                snapshot.eventOrderLists.add(orderList.toArray(new Long[0]));
+            }
+        }
+
+        snapshot.uids.addAll(uids);
+        return snapshot;
+    }
+
+    ////// Storing //////
+
+    private static ArrayList<ArrayList<Member>> newBuckets() {
+        ArrayList<ArrayList<Member>> buckets = new ArrayList<>(BUCKETS);
+        for(int b = 0; b < BUCKETS; b++)
+            buckets.add(null);
+        return buckets;
+    }
+
+    private static void addMember(ArrayList<ArrayList<Member>> buckets, long uid, ChunkId id) {
+        int b = (int) (mix(uid) & (BUCKETS - 1));
+        ArrayList<Member> bucket = buckets.get(b);
+        if(bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.set(b, bucket);
+        }
+        bucket.add(new Member(uid, id));
+    }
+
+    /**
+     * Returns the chunk of the given entity, reusing the chunk of the last revision if the entity is the same.
+     */
+    private ChunkId entityChunk(int kind, long uid, Object entry, ArrayList<HashMap<Long, Cached>> cache,
+                                Map<ChunkId, byte[]> added) throws IOException
+    {
+        Cached previous = entityCache.get(kind).get(uid);
+        ChunkId id;
+        if(previous != null && isSame(previous.entry, entry)) {
+            id = previous.id;
+        } else {
+            id = store(encodeEntity(entry), added);
+        }
+
+        cache.get(kind).put(uid, new Cached(entry, id));
+        return id;
+    }
+
+    /**
+     * Stores the bucket chunks of one kind of entity, reusing those whose members are unchanged.
+     * @return the bucket chunks, null for empty buckets
+     */
+    private ChunkId[] storeBuckets(int kind, ArrayList<ArrayList<Member>> buckets, Map<ChunkId, byte[]> added)
+            throws IOException
+    {
+        ChunkId[] ids = new ChunkId[BUCKETS];
+        for(int b = 0; b < BUCKETS; b++) {
+            ArrayList<Member> bucket = buckets.get(b);
+            if(bucket == null) {
+                bucketMembers[kind][b] = null;
+                bucketIds[kind][b] = null;
+                continue;
+            }
+
+            bucket.sort((m1, m2) -> Long.compare(m1.uid, m2.uid));
+            ChunkId[] members = new ChunkId[bucket.size()];
+            for(int i = 0; i < members.length; i++)
+                members[i] = bucket.get(i).id;
+
+            if(Arrays.equals(members, bucketMembers[kind][b])) {
+                ids[b] = bucketIds[kind][b];
+                continue;
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(5 + members.length * ID_SIZE);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(CHUNK_BUCKET);
+            out.writeInt(members.length);
+            for(ChunkId member : members)
+                out.write(member.bytes);
+
+            ids[b] = store(bytes.toByteArray(), added);
+            bucketMembers[kind][b] = members;
+            bucketIds[kind][b] = ids[b];
+        }
+        return ids;
+    }
+
+    /**
+     * Cuts an event order list into runs, ending each run after a UID whose hash matches
+     * {@link #RUN_BOUNDARY_MASK}, and stores them.
+     * @return the run chunks, in order
+     */
+    private ChunkId[] storeRuns(Long[] orderList, Map<ChunkId, byte[]> added) throws IOException {
+        ArrayList<ChunkId> runs = new ArrayList<>();
+        int start = 0;
+        for(int i = 0; i < orderList.length; i++) {
+            boolean boundary = (mix(orderList[i]) & RUN_BOUNDARY_MASK) == RUN_BOUNDARY_MASK;
+            if(boundary || i - start + 1 >= MAX_RUN_LENGTH || i == orderList.length - 1) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(5 + (i - start + 1) * 8);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(CHUNK_RUN);
+                out.writeInt(i - start + 1);
+                for(int j = start; j <= i; j++)
+                    out.writeLong(orderList[j]);
+
+                runs.add(store(bytes.toByteArray(), added));
+                start = i + 1;
+            }
+        }
+        return runs.toArray(new ChunkId[0]);
+    }
+
+    /**
+     * Hashes the given chunk content, and queues it to be written unless it is already stored.
+     */
+    private ChunkId store(byte[] content, Map<ChunkId, byte[]> added) {
+        ChunkId id = new ChunkId(digest.digest(content));
+        if(!offsets.containsKey(id))
+            added.putIfAbsent(id, content);
+        return id;
+    }
+
+    /**
+     * Appends the given chunks to the pack, then to the index.
+     * @return the number of bytes of content written
+     */
+    private long appendChunks(LinkedHashMap<ChunkId, byte[]> added) throws IOException {
+        if(added.isEmpty())
+            return 0L;
+
+        long contentBytes = 0L;
+        for(byte[] content : added.values())
+            contentBytes += content.length;
+
+        HashMap<ChunkId, Long> positions = new HashMap<>();
+        try(FileChannel pack = FileChannel.open(packFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            long position = pack.size();
+            if(position < HEADER_SIZE) {
+                pack.truncate(0L);
+                position = writeFully(pack, header(PACK_MAGIC), 0L);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(1L << 20, contentBytes + added.size() * 24L))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            for(Map.Entry<ChunkId, byte[]> chunk : added.entrySet()) {
+                byte[] content = chunk.getValue();
+                if(buffer.remaining() < ID_SIZE + 4 + content.length) {
+                    buffer.flip();
+                    position = writeFully(pack, buffer, position);
+                    buffer.clear();
+                }
+                if(buffer.remaining() < ID_SIZE + 4 + content.length) {
+                    // Larger than the buffer; written on its own
+                    ByteBuffer large = ByteBuffer.allocate(ID_SIZE + 4 + content.length).order(ByteOrder.LITTLE_ENDIAN);
+                    positions.put(chunk.getKey(), position);
+                    large.put(chunk.getKey().bytes).putInt(content.length).put(content).flip();
+                    position = writeFully(pack, large, position);
+                    continue;
+                }
+
+                positions.put(chunk.getKey(), position + buffer.position());
+                buffer.put(chunk.getKey().bytes).putInt(content.length).put(content);
+            }
+            buffer.flip();
+            writeFully(pack, buffer, position);
+            pack.force(false);
+        }
+
+        try(FileChannel index = FileChannel.open(indexFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            if(indexLength < HEADER_SIZE) {
+                index.truncate(0L);
+                indexLength = writeFully(index, header(INDEX_MAGIC), 0L);
+            }
+            index.truncate(indexLength); // Drops the tail of an interrupted write
+
+            ByteBuffer buffer = ByteBuffer.allocate(added.size() * INDEX_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for(ChunkId id : added.keySet())
+                buffer.put(id.bytes).putLong(positions.get(id));
+            buffer.flip();
+            indexLength = writeFully(index, buffer, indexLength);
+            index.force(false);
+        }
+
+        offsets.putAll(positions);
+        return contentBytes;
+    }
+
+    private void appendRevision(Revision revision) throws IOException {
+        byte[] name = revision.name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer fields = ByteBuffer.allocate(REVISION_FIXED_SIZE + name.length).order(ByteOrder.LITTLE_ENDIAN);
+        fields.putLong(revision.number).putLong(revision.time)
+                .putInt(revision.events).putInt(revision.characters).putInt(revision.associations)
+                .putLong(revision.addedBytes).put(revision.manifest.bytes)
+                .putInt(name.length).put(name);
+        fields.flip();
+
+        CRC32C crc = new CRC32C();
+        crc.update(fields.duplicate());
+
+        ByteBuffer record = ByteBuffer.allocate(8 + fields.remaining()).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(fields.remaining()).put(fields).putInt((int) crc.getValue()).flip();
+
+        try(FileChannel log = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if(logLength < HEADER_SIZE) {
+                log.truncate(0L);
+                logLength = writeFully(log, header(LOG_MAGIC), 0L);
+            }
+            log.truncate(logLength);
+            logLength = writeFully(log, record, logLength);
+            log.force(false);
+        }
+
+        revisions.add(revision);
+    }
+
+    ////// Reading //////
+
+    /**
+     * Reads what other instances, or processes, have appended to the index and log since they were last read.
+     */
+    private void refresh() throws IOException {
+        if(indexFile.exists()) {
+            try(FileChannel index = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+                long size = index.size();
+                if(indexLength == 0L && size >= HEADER_SIZE) {
+                    checkHeader(index, INDEX_MAGIC);
+                    indexLength = HEADER_SIZE;
+                }
+
+                long count = indexLength > 0L ? (size - indexLength) / INDEX_RECORD_SIZE : 0L;
+                if(count > 0L) {
+                    ByteBuffer buffer = ByteBuffer.allocate((int) (count * INDEX_RECORD_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(index, buffer, indexLength);
+                    buffer.flip();
+                    for(long i = 0; i < count; i++) {
+                        byte[] id = new byte[ID_SIZE];
+                        buffer.get(id);
+                        offsets.put(new ChunkId(id), buffer.getLong());
+                    }
+                    indexLength += count * INDEX_RECORD_SIZE;
+                }
+            }
+        }
+
+        if(logFile.exists()) {
+            try(FileChannel log = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+                long size = log.size();
+                if(logLength == 0L && size >= HEADER_SIZE) {
+                    checkHeader(log, LOG_MAGIC);
+                    logLength = HEADER_SIZE;
+                }
+                if(logLength == 0L || size <= logLength)
+                    return;
+
+                ByteBuffer buffer = ByteBuffer.allocate((int) (size - logLength)).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(log, buffer, logLength);
+                buffer.flip();
+                while(buffer.remaining() >= 4) {
+                    int length = buffer.getInt(buffer.position());
+                    if(length < REVISION_FIXED_SIZE || buffer.remaining() < 8 + length)
+                        break; // Incomplete tail
+
+                    ByteBuffer fields = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+                    fields.limit(4 + length).position(4);
+                    CRC32C crc = new CRC32C();
+                    crc.update(fields.duplicate());
+                    if((int) crc.getValue() != buffer.getInt(buffer.position() + 4 + length))
+                        break; // Damaged tail
+
+                    long number = fields.getLong();
+                    long time = fields.getLong();
+                    int events = fields.getInt();
+                    int characters = fields.getInt();
+                    int associations = fields.getInt();
+                    long addedBytes = fields.getLong();
+                    byte[] manifest = new byte[ID_SIZE];
+                    fields.get(manifest);
+                    byte[] name = new byte[fields.getInt()];
+                    fields.get(name);
+
+                    revisions.add(new Revision(number, time, new String(name, StandardCharsets.UTF_8),
+                            events, characters, associations, addedBytes, new ChunkId(manifest)));
+                    buffer.position(buffer.position() + 8 + length);
+                    logLength += 8 + length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a chunk from the pack, and checks its hash and type.
+     * @return a stream positioned after the type of the chunk
+     */
+    private DataInputStream readChunk(FileChannel pack, ChunkId id, int type) throws IOException {
+        byte[] content = readContent(pack, id);
+        if(content[0] != type)
+            throw new IOException("Damaged chunk " + id);
+        return new DataInputStream(new ByteArrayInputStream(content, 1, content.length - 1));
+    }
+
+    /**
+     * Reads the content of a chunk from the pack, and checks its hash.
+     */
+    private byte[] readContent(FileChannel pack, ChunkId id) throws IOException {
+        Long offset = offsets.get(id);
+        if(offset == null)
+            throw new IOException("Missing chunk " + id);
+
+        ByteBuffer header = ByteBuffer.allocate(ID_SIZE + 4).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(pack, header, offset);
+        header.flip();
+        byte[] stored = new byte[ID_SIZE];
+        header.get(stored);
+        int length = header.getInt();
+        if(!Arrays.equals(stored, id.bytes) || length < 1)
+            throw new IOException("Damaged chunk " + id);
+
+        ByteBuffer content = ByteBuffer.allocate(length);
+        readFully(pack, content, offset + ID_SIZE + 4);
+        if(!Arrays.equals(digest.digest(content.array()), id.bytes))
+            throw new IOException("Damaged chunk " + id);
+        return content.array();
+    }
+
+    /**
+     * Reads an entity chunk into the snapshot.
+     * @return the UID of the entity
+     */
+    private long readEntity(FileChannel pack, ChunkId id, ProjectSnapshot snapshot) throws IOException {
+        byte[] content = readContent(pack, id);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content, 1, content.length - 1));
+
+        long uid = in.readLong();
+        if(content[0] == CHUNK_EVENT) {
+            snapshot.addEvent(uid, readString(in), readString(in));
+        } else if(content[0] == CHUNK_CHARACTER) {
+            snapshot.addCharacter(uid, readString(in), readString(in), in.readDouble(), in.readDouble());
+        } else if(content[0] == CHUNK_ASSOCIATION) {
+            long startUID = in.readLong();
+            long endUID = in.readLong();
+            double sX = in.readDouble(), sY = in.readDouble(), eX = in.readDouble(), eY = in.readDouble();
+            String label = readString(in);
+            snapshot.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, label, in.readDouble(), in.readDouble());
+        } else {
+            throw new IOException("Damaged chunk " + id);
+        }
+        return uid;
+    }
+
+    ////// Encoding //////
+
+    private static byte[] encodeEntity(Object entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        if(entry instanceof ProjectSnapshot.EventEntry) {
+            ProjectSnapshot.EventEntry event = (ProjectSnapshot.EventEntry) entry;
+            out.writeByte(CHUNK_EVENT);
+            out.writeLong(event.uid);
+            writeString(out, event.name);
+            writeString(out, event.description);
+        } else if(entry instanceof ProjectSnapshot.CharacterEntry) {
+            ProjectSnapshot.CharacterEntry character = (ProjectSnapshot.CharacterEntry) entry;
+            out.writeByte(CHUNK_CHARACTER);
+            out.writeLong(character.uid);
+            writeString(out, character.name);
+            writeString(out, character.description);
+            out.writeDouble(character.chartX);
+            out.writeDouble(character.chartY);
+        } else {
+            ProjectSnapshot.AssociationEntry association = (ProjectSnapshot.AssociationEntry) entry;
+            out.writeByte(CHUNK_ASSOCIATION);
+            out.writeLong(association.uid);
+            out.writeLong(association.startUID);
+            out.writeLong(association.endUID);
+            out.writeDouble(association.sX);
+            out.writeDouble(association.sY);
+            out.writeDouble(association.eX);
+            out.writeDouble(association.eY);
+            writeString(out, association.label);
+            out.writeDouble(association.lblX);
+            out.writeDouble(association.lblY);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Returns whether two entries of the same kind hold the same data, comparing strings by reference.
+     * Strings that are equal but not the same object are treated as different, which only costs encoding
+     * and hashing the entity again.
+     */
+    private static boolean isSame(Object previous, Object current) {
+        if(previous == current)
+            return true;
+
+        if(current instanceof ProjectSnapshot.EventEntry) {
+            ProjectSnapshot.EventEntry a = (ProjectSnapshot.EventEntry) previous;
+            ProjectSnapshot.EventEntry b = (ProjectSnapshot.EventEntry) current;
+            return a.name == b.name && a.description == b.description;
+        } else if(current instanceof ProjectSnapshot.CharacterEntry) {
+            ProjectSnapshot.CharacterEntry a = (ProjectSnapshot.CharacterEntry) previous;
+            ProjectSnapshot.CharacterEntry b = (ProjectSnapshot.CharacterEntry) current;
+            return a.name == b.name && a.description == b.description && a.chartX == b.chartX && a.chartY == b.chartY;
+        } else {
+            ProjectSnapshot.AssociationEntry a = (ProjectSnapshot.AssociationEntry) previous;
+            ProjectSnapshot.AssociationEntry b = (ProjectSnapshot.AssociationEntry) current;
+            return a.startUID == b.startUID && a.endUID == b.endUID && a.label == b.label
+                    && a.sX == b.sX && a.sY == b.sY && a.eX == b.eX && a.eY == b.eY
+                    && a.lblX == b.lblX && a.lblY == b.lblY;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if(value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ChunkId readId(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[ID_SIZE];
+        in.readFully(bytes);
+        return new ChunkId(bytes);
+    }
+
+    /**
+     * Spreads the bits of a UID, so that consecutive UIDs fall into different buckets and runs.
+     */
+    private static long mix(long uid) {
+        uid ^= uid >>> 33;
+        uid *= 0xff51afd7ed558ccdL;
+        uid ^= uid >>> 33;
+        uid *= 0xc4ceb9fe1a85ec53L;
+        uid ^= uid >>> 33;
+        return uid;
+    }
+
+    ////// File helpers //////
+
+    private static ByteBuffer header(byte[] magic) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(magic).put((byte) VERSION).flip();
+        return header;
+    }
+
+    private static void checkHeader(FileChannel channel, byte[] magic) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0L);
+        header.flip();
+        byte[] stored = new byte[magic.length];
+        header.get(stored);
+        if(!Arrays.equals(stored, magic) || header.get() != VERSION)
+            throw new IOException("Not a supported history file");
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if(read < 0)
+                throw new IOException("Unexpected end of history file");
+            position += read;
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A revision of the project.
+     */
+    public static class Revision {
+        private final long number;
+        private final long time;
+        private final String name;
+        private final int events;
+        private final int characters;
+        private final int associations;
+        private final long addedBytes;
+        private final ChunkId manifest;
+
+        private Revision(long number, long time, String name, int events, int characters, int associations,
+                         long addedBytes, ChunkId manifest)
+        {
+            this.number = number;
+            this.time = time;
+            this.name = name;
+            this.events = events;
+            this.characters = characters;
+            this.associations = associations;
+            this.addedBytes = addedBytes;
+            this.manifest = manifest;
+        }
+
+        /**
+         * Returns the number of the revision. The first revision is number 1.
+         * @return the number
+         */
+        public long getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns when the revision was stored, in milliseconds since the epoch.
+         * @return the time
+         */
+        public long getTime() {
+            return time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getEventCount() {
+            return events;
+        }
+
+        public int getCharacterCount() {
+            return characters;
+        }
+
+        public int getAssociationCount() {
+            return associations;
+        }
+
+        /**
+         * Returns the number of bytes of new content stored for this revision; content that
+         * was already stored for an earlier revision is not counted.
+         * @return the number of bytes
+         */
+        public long getAddedBytes() {
+            return addedBytes;
+        }
+    }
+
+    /**
+     * The hash identifying a chunk.
+     */
+    private static final class ChunkId {
+        final byte[] bytes;
+        private final int hash;
+
+        ChunkId(byte[] bytes) {
+            this.bytes = bytes;
+            hash = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ChunkId && Arrays.equals(bytes, ((ChunkId) o).bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(ID_SIZE * 2);
+            for(byte b : bytes)
+                text.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return text.toString();
+        }
+    }
+
+    /**
+     * An entity of the last revision, and its chunk.
+     */
+    private static final class Cached {
+        final Object entry;
+        final ChunkId id;
+
+        Cached(Object entry, ChunkId id) {
+            this.entry = entry;
+            this.id = id;
+        }
+    }
+
+    /**
+     * An entity in a bucket.
+     */
+    private static final class Member {
+        final long uid;
+        final ChunkId id;
+
+        Member(long uid, ChunkId id) {
+            this.uid = uid;
+            this.id = id;
+        }
+    }
+
+}
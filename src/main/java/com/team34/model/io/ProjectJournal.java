@@ -0,0 +1,633 @@
+package com.team34.model.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import com.team34.model.ModelChangeListener;
+
+/**
+ * An append-only log of the changes made to a project since it was last written as a whole.
+ * <p>
+ * A journal is stored next to the project file, as "&lt;project file&gt;.journal.&lt;generation&gt;".
+ * Every change reported through {@link ModelChangeListener} is encoded as a record and queued.
+ * A background thread writes the queued records in batches; it waits up to {@link #COMMIT_WINDOW_MS}
+ * for more records to arrive, writes all of them, and forces them to disk once (group commit).
+ * {@link #flush()} blocks until every record queued so far is on disk.
+ * <p>
+ * Each record is stored as: length (varint), type (u8), fields, and a CRC32C of the type and fields
+ * (u32 LE). A record that is incomplete or fails its checksum can only be the tail of a write that
+ * was interrupted, so replaying stops there.
+ * <p>
+ * Once a journal grows past {@link #COMPACTION_THRESHOLD}, the project writes a new project file,
+ * which includes every record up to and including this journal's generation, and continues in a
+ * journal of the next generation. Journals of a generation less than or equal to that stored in
+ * the project file are obsolete, see {@link ProjectSnapshot#journalGeneration}.
+ */
+public class ProjectJournal implements ModelChangeListener {
+
+    static final byte[] MAGIC = { 'W', 'S', 'P', 'J' };
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 13; // magic + version + generation
+    private static final String SUFFIX = ".journal.";
+
+    /** The size in bytes at which a journal is to be compacted into the project file. */
+    public static final long COMPACTION_THRESHOLD = 4L << 20;
+
+    /** The time in milliseconds the writer waits for more records before committing a batch. */
+    public static final long COMMIT_WINDOW_MS = 50L;
+
+    private static final int REC_UID_ADDED = 1;
+    private static final int REC_EVENT_PUT = 2;
+    private static final int REC_EVENT_APPENDED = 3;
+    private static final int REC_EVENT_REMOVED = 4;
+    private static final int REC_EVENT_MOVED = 5;
+    private static final int REC_EVENT_SWAPPED = 6;
+    private static final int REC_CHARACTER_PUT = 7;
+    private static final int REC_CHARACTER_REMOVED = 8;
+    private static final int REC_ASSOCIATION_PUT = 9;
+    private static final int REC_ASSOCIATION_REMOVED = 10;
+
+    private final File projectFile;
+    private final File file;
+    private final long generation;
+    private final FileChannel channel;
+    private final Runnable onCompactionDue;
+    private final RecordEncoder encoder;
+    private final Thread writerThread;
+
+    private final Object lock;
+    private ArrayList<ByteBuffer> pending;
+    private long queuedRecords;
+    private long durableRecords;
+    private long size;
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException failure;
+
+    private ProjectJournal(File projectFile, long generation, FileChannel channel, Runnable onCompactionDue) {
+        this.projectFile = projectFile;
+        this.file = journalFile(projectFile, generation);
+        this.generation = generation;
+        this.channel = channel;
+        this.onCompactionDue = onCompactionDue;
+        encoder = new RecordEncoder();
+        lock = new Object();
+        pending = new ArrayList<>();
+        size = HEADER_SIZE;
+
+        writerThread = new Thread(this::runWriter, "journal-writer-" + generation);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Creates a new, empty journal of the given generation, replacing any existing journal of that generation.
+     * @param projectFile the project file the journal belongs to
+     * @param generation the generation of the journal, greater than that of any existing journal
+     * @param onCompactionDue called once, on the thread making changes, when the journal grows past
+     *                        {@link #COMPACTION_THRESHOLD}. May be null
+     * @return the journal
+     * @throws IOException
+     */
+    public static ProjectJournal create(File projectFile, long generation, Runnable onCompactionDue)
+            throws IOException
+    {
+        FileChannel channel = FileChannel.open(journalFile(projectFile, generation).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(MAGIC).put((byte) VERSION).putLong(generation).flip();
+            while(header.hasRemaining())
+                channel.write(header);
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        return new ProjectJournal(projectFile, generation, channel, onCompactionDue);
+    }
+
+    /**
+     * Returns the journal file of the given generation, belonging to the given project file.
+     * @param projectFile the project file
+     * @param generation the generation
+     * @return the journal file, which may or may not exist
+     */
+    public static File journalFile(File projectFile, long generation) {
+        return new File(projectFile.getAbsoluteFile().getParentFile(), projectFile.getName() + SUFFIX + generation);
+    }
+
+    /**
+     * Finds the generations of all journals that exist for the given project file.
+     * @param projectFile the project file
+     * @return the generations, in ascending order
+     */
+    public static long[] findGenerations(File projectFile) {
+        File dir = projectFile.getAbsoluteFile().getParentFile();
+        String prefix = projectFile.getName() + SUFFIX;
+        String[] names = dir == null ? null : dir.list((d, name) -> name.startsWith(prefix));
+        if(names == null)
+            return new long[0];
+
+        long[] generations = new long[names.length];
+        int count = 0;
+        for(String name : names) {
+            try {
+                generations[count] = Long.parseLong(name.substring(prefix.length()));
+                count++;
+            } catch (NumberFormatException e) {
+                // Not a journal
+            }
+        }
+
+        generations = Arrays.copyOf(generations, count);
+        Arrays.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Deletes every journal of the given project file, with a generation less than or equal to the given one.
+     * @param projectFile the project file
+     * @param generation the highest generation to delete
+     */
+    public static void deleteObsolete(File projectFile, long generation) {
+        for(long g : findGenerations(projectFile)) {
+            if(g <= generation)
+                journalFile(projectFile, g).delete();
+        }
+    }
+
+    /**
+     * Returns whether the given journal file holds no records, as is the case for a journal that was started,
+     * but never written to.
+     * @param journalFile the journal file
+     * @return true if the file holds nothing but the header of a journal, or does not exist
+     */
+    public static boolean isEmpty(File journalFile) {
+        return journalFile.length() <= HEADER_SIZE;
+    }
+
+    /**
+     * Applies every intact record of the given journal file to the target, in the order they were written.
+     * @param journalFile the journal file to replay
+     * @param target the listener to apply the records to
+     * @return the number of records applied
+     * @throws IOException if the file cannot be read, or is not a journal
+     */
+    public static int replay(File journalFile, ModelChangeListener target) throws IOException {
+        ByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if(fileSize < HEADER_SIZE)
+                throw new IOException("Not a journal file: " + journalFile);
+            if(fileSize > Integer.MAX_VALUE)
+                throw new IOException("Journal is too large to be read: " + journalFile);
+
+            // Read into the heap rather than mapped, so that the journal can be deleted once it is obsolete,
+            // which fails on Windows while a mapping of the file is still alive
+            buffer = ByteBuffer.allocate((int) fileSize);
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, buffer.position()) < 0)
+                    break; // Truncated while reading, the rest is treated as a torn write
+            }
+            buffer.flip();
+        }
+        if(buffer.remaining() < HEADER_SIZE)
+            throw new IOException("Not a journal file: " + journalFile);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if(!Arrays.equals(magic, MAGIC))
+            throw new IOException("Not a journal file: " + journalFile);
+        int version = buffer.get() & 0xFF;
+        if(version != VERSION)
+            throw new IOException("Unsupported journal version: " + version);
+        buffer.getLong(); // generation
+
+        SectionReader lengthReader = new SectionReader(buffer);
+        CRC32C crc = new CRC32C();
+        int applied = 0;
+
+        while(buffer.hasRemaining()) {
+            try {
+                int length;
+                try {
+                    length = lengthReader.readCount();
+                } catch (IOException e) {
+                    break; // Torn write
+                }
+                if(length < 1 || length > buffer.remaining() - 4)
+                    break; // Torn write
+
+                ByteBuffer body = buffer.slice();
+                body.limit(length);
+                crc.reset();
+                crc.update(body.duplicate());
+
+                buffer.position(buffer.position() + length);
+                if((int) crc.getValue() != buffer.getInt())
+                    break; // Torn or corrupt record
+
+                applyRecord(new SectionReader(body), target);
+                applied++;
+            } catch (BufferUnderflowException e) {
+                break; // Torn write
+            }
+        }
+
+        return applied;
+    }
+
+    private static void applyRecord(SectionReader reader, ModelChangeListener target) throws IOException {
+        int type = reader.readByte();
+        switch (type) {
+            case REC_UID_ADDED:
+                target.uidAdded(reader.readZigZag());
+                break;
+            case REC_EVENT_PUT:
+                target.eventPut(reader.readZigZag(), reader.readInlineString(), reader.readInlineString());
+                break;
+            case REC_EVENT_APPENDED:
+                target.eventAppended(reader.readZigZag());
+                break;
+            case REC_EVENT_REMOVED:
+                target.eventRemoved(reader.readZigZag());
+                break;
+            case REC_EVENT_MOVED:
+                target.eventMoved(reader.readCount(), reader.readCount(), reader.readCount());
+                break;
+            case REC_EVENT_SWAPPED:
+                target.eventSwapped(reader.readCount(), reader.readCount(), reader.readCount());
+                break;
+            case REC_CHARACTER_PUT:
+                target.characterPut(reader.readZigZag(), reader.readInlineString(), reader.readInlineString(),
+                        reader.readDouble(), reader.readDouble());
+                break;
+            case REC_CHARACTER_REMOVED:
+                target.characterRemoved(reader.readZigZag());
+                break;
+            case REC_ASSOCIATION_PUT:
+                target.associationPut(reader.readZigZag(), reader.readZigZag(), reader.readZigZag(),
+                        reader.readDouble(), reader.readDouble(), reader.readDouble(), reader.readDouble(),
+                        reader.readInlineString(), reader.readDouble(), reader.readDouble());
+                break;
+            case REC_ASSOCIATION_REMOVED:
+                target.associationRemoved(reader.readZigZag());
+                break;
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    public File getProjectFile() {
+        return projectFile;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the size of the journal in bytes, including records that are yet to be written.
+     * @return the size in bytes
+     */
+    public long size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    /**
+     * Blocks until every record queued so far has been written and forced to disk.
+     * @throws IOException if writing the journal has failed
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = queuedRecords;
+            flushRequested = true;
+            lock.notifyAll();
+
+            while(durableRecords < target && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while flushing the journal");
+                }
+            }
+
+            if(failure != null)
+                throw new IOException("Writing the journal failed", failure);
+        }
+    }
+
+    /**
+     * Flushes the journal and closes it. No records can be added afterwards.
+     * @throws IOException if writing the journal has failed
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes the journal and deletes its file.
+     */
+    public void delete() {
+        try {
+            close();
+        } catch (IOException e) {
+            // The file is deleted regardless
+        }
+        file.delete();
+    }
+
+    ////// RECORDS /////////////////////////////////////////////////////////
+
+    @Override
+    public void uidAdded(long uid) {
+        encoder.begin(REC_UID_ADDED);
+        encoder.writeZigZag(uid);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void eventPut(long uid, String name, String description) {
+        encoder.begin(REC_EVENT_PUT);
+        encoder.writeZigZag(uid);
+        encoder.writeString(name);
+        encoder.writeString(description);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void eventAppended(long uid) {
+        encoder.begin(REC_EVENT_APPENDED);
+        encoder.writeZigZag(uid);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void eventRemoved(long uid) {
+        encoder.begin(REC_EVENT_REMOVED);
+        encoder.writeZigZag(uid);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void eventMoved(int orderList, int fromIndex, int toIndex) {
+        encoder.begin(REC_EVENT_MOVED);
+        encoder.writeVarLong(orderList);
+        encoder.writeVarLong(fromIndex);
+        encoder.writeVarLong(toIndex);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void eventSwapped(int orderList, int index1, int index2) {
+        encoder.begin(REC_EVENT_SWAPPED);
+        encoder.writeVarLong(orderList);
+        encoder.writeVarLong(index1);
+        encoder.writeVarLong(index2);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void characterPut(long uid, String name, String description, double chartX, double chartY) {
+        encoder.begin(REC_CHARACTER_PUT);
+        encoder.writeZigZag(uid);
+        encoder.writeString(name);
+        encoder.writeString(description);
+        encoder.writeDouble(chartX);
+        encoder.writeDouble(chartY);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void characterRemoved(long uid) {
+        encoder.begin(REC_CHARACTER_REMOVED);
+        encoder.writeZigZag(uid);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void associationPut(long uid, long startUID, long endUID, double sX, double sY, double eX, double eY,
+                               String label, double lblX, double lblY)
+    {
+        encoder.begin(REC_ASSOCIATION_PUT);
+        encoder.writeZigZag(uid);
+        encoder.writeZigZag(startUID);
+        encoder.writeZigZag(endUID);
+        encoder.writeDouble(sX);
+        encoder.writeDouble(sY);
+        encoder.writeDouble(eX);
+        encoder.writeDouble(eY);
+        encoder.writeString(label);
+        encoder.writeDouble(lblX);
+        encoder.writeDouble(lblY);
+        append(encoder.finish());
+    }
+
+    @Override
+    public void associationRemoved(long uid) {
+        encoder.begin(REC_ASSOCIATION_REMOVED);
+        encoder.writeZigZag(uid);
+        append(encoder.finish());
+    }
+
+    ////// WRITING /////////////////////////////////////////////////////////
+
+    /**
+     * Queues an encoded record for the writer thread.
+     * Failures are not thrown here, as the listener methods cannot throw; they are reported by {@link #flush()}.
+     */
+    private void append(ByteBuffer record) {
+        boolean compactionDue;
+        synchronized (lock) {
+            if(closed)
+                throw new IllegalStateException("The journal has been closed");
+
+            compactionDue = size < COMPACTION_THRESHOLD && size + record.remaining() >= COMPACTION_THRESHOLD;
+            size += record.remaining();
+            pending.add(record);
+            queuedRecords++;
+            lock.notifyAll();
+        }
+
+        if(compactionDue && onCompactionDue != null)
+            onCompactionDue.run();
+    }
+
+    private void runWriter() {
+        ArrayList<ByteBuffer> batch = new ArrayList<>();
+
+        while(true) {
+            long batchEnd;
+            synchronized (lock) {
+                try {
+                    while(pending.isEmpty() && !closed)
+                        lock.wait();
+                    if(pending.isEmpty())
+                        return; // Closed, and everything has been written
+
+                    // Let more records join this batch, unless someone is waiting for them
+                    long deadline = System.currentTimeMillis() + COMMIT_WINDOW_MS;
+                    long remaining = COMMIT_WINDOW_MS;
+                    while(!flushRequested && !closed && remaining > 0L) {
+                        lock.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                flushRequested = false;
+                ArrayList<ByteBuffer> swap = pending;
+                pending = batch;
+                batch = swap;
+                batchEnd = queuedRecords;
+            }
+
+            try {
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[batch.size()]);
+                int last = buffers.length - 1;
+                while(buffers[last].hasRemaining())
+                    channel.write(buffers);
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            batch.clear();
+
+            synchronized (lock) {
+                durableRecords = batchEnd;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Encodes a single record into a growing buffer, using the primitive encodings of the
+     * binary project format. Only used by the thread making changes.
+     */
+    private static class RecordEncoder {
+
+        private static final int MAX_LENGTH_SIZE = 5;
+
+        private ByteBuffer buffer;
+        private final CRC32C crc;
+
+        RecordEncoder() {
+            buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+            crc = new CRC32C();
+        }
+
+        void begin(int type) {
+            buffer.clear();
+            buffer.position(MAX_LENGTH_SIZE); // The length is filled in by finish()
+            buffer.put((byte) type);
+        }
+
+        /**
+         * Completes the record, and returns a copy of it, ready to be written.
+         * @return the record, including its length and checksum
+         */
+        ByteBuffer finish() {
+            int bodyLength = buffer.position() - MAX_LENGTH_SIZE;
+            ByteBuffer body = buffer.duplicate();
+            body.flip().position(MAX_LENGTH_SIZE);
+            crc.reset();
+            crc.update(body);
+
+            byte[] length = new byte[MAX_LENGTH_SIZE];
+            int lengthSize = 0;
+            long value = bodyLength;
+            while((value & ~0x7FL) != 0L) {
+                length[lengthSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            length[lengthSize++] = (byte) value;
+
+            ByteBuffer record = ByteBuffer.allocate(lengthSize + bodyLength + 4).order(ByteOrder.LITTLE_ENDIAN);
+            record.put(length, 0, lengthSize);
+            record.put(buffer.array(), MAX_LENGTH_SIZE, bodyLength);
+            record.putInt((int) crc.getValue());
+            record.flip();
+            return record;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while((value & ~0x7FL) != 0L) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeDouble(double value) {
+            ensureCapacity(8);
+            buffer.putDouble(value);
+        }
+
+        void writeString(String string) {
+            byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensureCapacity(int bytes) {
+            if(buffer.remaining() >= bytes)
+                return;
+
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+}
@@ -0,0 +1,530 @@
+package com.team34.model.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A three-way merge of two copies of a project, by the {@link ProjectDiff} each of them has to the
+ * common original they were copied from.
+ * <p>
+ * A change made in only one of the copies is always taken. When both copies change the same entity,
+ * their changes are merged field by field, so that eg. a name changed in one copy and a description
+ * changed in the other are both kept. Event order lists are merged like text files are by diff3, with
+ * the events in place of lines. Whenever both copies change the same thing in different ways, this is
+ * reported as a {@link Conflict}, and the change of "our" copy is taken. An entity that is deleted in
+ * one copy but changed in the other is kept, with its changes, so that no work is lost.
+ * <p>
+ * The result is a complete {@link ProjectSnapshot}, which is valid on its own: every association joins
+ * two existing characters, and every event appears exactly once in every order list.
+ */
+public class ProjectMerge {
+
+    private final ProjectSnapshot result;
+    private final ArrayList<Conflict> conflicts;
+    private final ProjectDiff oursDiff;
+    private final ProjectDiff theirsDiff;
+    private final HashSet<Long> eventUIDs; // Of the merged events
+
+    private ProjectMerge(ProjectDiff oursDiff, ProjectDiff theirsDiff) {
+        result = new ProjectSnapshot();
+        conflicts = new ArrayList<>();
+        this.oursDiff = oursDiff;
+        this.theirsDiff = theirsDiff;
+        eventUIDs = new HashSet<>();
+    }
+
+    /**
+     * Merges two copies of a project.
+     * @param base the original both copies were made from, or an empty snapshot if there is none,
+     *             in which case every difference between the copies is a conflict
+     * @param ours our copy, whose changes are taken when there is a conflict
+     * @param theirs their copy
+     * @return the merge, holding the merged snapshot and any conflicts
+     */
+    public static ProjectMerge merge(ProjectSnapshot base, ProjectSnapshot ours, ProjectSnapshot theirs) {
+        ProjectMerge merge = new ProjectMerge(ProjectDiff.compare(base, ours), ProjectDiff.compare(base, theirs));
+
+        Object[] name = merge.merge3(base.name, ours.name, theirs.name);
+        merge.result.name = (String) name[0];
+        if(name[1] != null)
+            merge.conflicts.add(new Conflict("Project", 0L, "The project was renamed differently in both copies"));
+
+        merge.mergeEvents(ours, theirs);
+        merge.mergeCharacters(ours, theirs);
+        merge.mergeAssociations(ours, theirs);
+        merge.mergeOrderLists(base, ours, theirs);
+        merge.mergeUIDs(ours, theirs);
+
+        return merge;
+    }
+
+    ////// Entities //////
+
+    private void mergeEvents(ProjectSnapshot ours, ProjectSnapshot theirs) {
+        for(ProjectSnapshot.EventEntry event : ours.events) {
+            ProjectDiff.Change<ProjectSnapshot.EventEntry> oc = oursDiff.getEventChange(event.uid);
+            ProjectDiff.Change<ProjectSnapshot.EventEntry> tc = theirsDiff.getEventChange(event.uid);
+            if(tc == null) {
+                result.events.add(event);
+            } else if(tc.getKind() == ProjectDiff.Kind.REMOVED) {
+                if(oc != null) {
+                    conflicts.add(new Conflict("Event", event.uid, "\"" + event.name
+                            + "\" was deleted in their copy, but changed in ours, and has been kept"));
+                    result.events.add(event);
+                }
+            } else if(oc == null) {
+                result.events.add(tc.getAfter());
+            } else {
+                result.events.add(mergeEvent(oc.getBefore(), event, tc.getAfter()));
+            }
+        }
+
+        for(ProjectSnapshot.EventEntry event : theirs.events) {
+            ProjectDiff.Change<ProjectSnapshot.EventEntry> oc = oursDiff.getEventChange(event.uid);
+            ProjectDiff.Change<ProjectSnapshot.EventEntry> tc = theirsDiff.getEventChange(event.uid);
+            if(tc == null)
+                continue;
+
+            if(tc.getKind() == ProjectDiff.Kind.ADDED && oc == null) {
+                result.events.add(event);
+            } else if(tc.getKind() == ProjectDiff.Kind.CHANGED && oc != null
+                    && oc.getKind() == ProjectDiff.Kind.REMOVED)
+            {
+                conflicts.add(new Conflict("Event", event.uid, "\"" + event.name
+                        + "\" was deleted in our copy, but changed in theirs, and has been kept"));
+                result.events.add(event);
+            }
+        }
+    }
+
+    private ProjectSnapshot.EventEntry mergeEvent(ProjectSnapshot.EventEntry base, ProjectSnapshot.EventEntry ours,
+                                                  ProjectSnapshot.EventEntry theirs)
+    {
+        if(ProjectDiff.sameEvent(ours, theirs))
+            return ours;
+
+        Object[] name = merge3(base != null ? base.name : null, ours.name, theirs.name);
+        Object[] description = merge3(base != null ? base.description : null, ours.description, theirs.description);
+        if(name[1] != null || description[1] != null)
+            conflicts.add(new Conflict("Event", ours.uid, "\"" + ours.name
+                    + "\" was changed differently in both copies"));
+
+        return new ProjectSnapshot.EventEntry(ours.uid, (String) name[0], (String) description[0]);
+    }
+
+    private void mergeCharacters(ProjectSnapshot ours, ProjectSnapshot theirs) {
+        for(ProjectSnapshot.CharacterEntry character : ours.characters) {
+            ProjectDiff.Change<ProjectSnapshot.CharacterEntry> oc = oursDiff.getCharacterChange(character.uid);
+            ProjectDiff.Change<ProjectSnapshot.CharacterEntry> tc = theirsDiff.getCharacterChange(character.uid);
+            if(tc == null) {
+                result.characters.add(character);
+            } else if(tc.getKind() == ProjectDiff.Kind.REMOVED) {
+                if(oc != null) {
+                    conflicts.add(new Conflict("Character", character.uid, "\"" + character.name
+                            + "\" was deleted in their copy, but changed in ours, and has been kept"));
+                    result.characters.add(character);
+                }
+            } else if(oc == null) {
+                result.characters.add(tc.getAfter());
+            } else {
+                result.characters.add(mergeCharacter(oc.getBefore(), character, tc.getAfter()));
+            }
+        }
+
+        for(ProjectSnapshot.CharacterEntry character : theirs.characters) {
+            ProjectDiff.Change<ProjectSnapshot.CharacterEntry> oc = oursDiff.getCharacterChange(character.uid);
+            ProjectDiff.Change<ProjectSnapshot.CharacterEntry> tc = theirsDiff.getCharacterChange(character.uid);
+            if(tc == null)
+                continue;
+
+            if(tc.getKind() == ProjectDiff.Kind.ADDED && oc == null) {
+                result.characters.add(character);
+            } else if(tc.getKind() == ProjectDiff.Kind.CHANGED && oc != null
+                    && oc.getKind() == ProjectDiff.Kind.REMOVED)
+            {
+                conflicts.add(new Conflict("Character", character.uid, "\"" + character.name
+                        + "\" was deleted in our copy, but changed in theirs, and has been kept"));
+                result.characters.add(character);
+            }
+        }
+    }
+
+    private ProjectSnapshot.CharacterEntry mergeCharacter(ProjectSnapshot.CharacterEntry base,
+                                                          ProjectSnapshot.CharacterEntry ours,
+                                                          ProjectSnapshot.CharacterEntry theirs)
+    {
+        if(ProjectDiff.sameCharacter(ours, theirs))
+            return ours;
+
+        Object[] name = merge3(base != null ? base.name : null, ours.name, theirs.name);
+        Object[] description = merge3(base != null ? base.description : null, ours.description, theirs.description);
+        Object[] position = merge3(base != null ? new double[]{base.chartX, base.chartY} : null,
+                new double[]{ours.chartX, ours.chartY}, new double[]{theirs.chartX, theirs.chartY});
+        if(name[1] != null || description[1] != null || position[1] != null)
+            conflicts.add(new Conflict("Character", ours.uid, "\"" + ours.name
+                    + "\" was changed differently in both copies"));
+
+        double[] xy = (double[]) position[0];
+        return new ProjectSnapshot.CharacterEntry(ours.uid, (String) name[0], (String) description[0], xy[0], xy[1]);
+    }
+
+    private void mergeAssociations(ProjectSnapshot ours, ProjectSnapshot theirs) {
+        ArrayList<ProjectSnapshot.AssociationEntry> merged = new ArrayList<>();
+        for(ProjectSnapshot.AssociationEntry assoc : ours.associations) {
+            ProjectDiff.Change<ProjectSnapshot.AssociationEntry> oc = oursDiff.getAssociationChange(assoc.uid);
+            ProjectDiff.Change<ProjectSnapshot.AssociationEntry> tc = theirsDiff.getAssociationChange(assoc.uid);
+            if(tc == null) {
+                merged.add(assoc);
+            } else if(tc.getKind() == ProjectDiff.Kind.REMOVED) {
+                if(oc != null) {
+                    conflicts.add(new Conflict("Association", assoc.uid, describe(assoc)
+                            + " was deleted in their copy, but changed in ours, and has been kept"));
+                    merged.add(assoc);
+                }
+            } else if(oc == null) {
+                merged.add(tc.getAfter());
+            } else {
+                merged.add(mergeAssociation(oc.getBefore(), assoc, tc.getAfter()));
+            }
+        }
+
+        for(ProjectSnapshot.AssociationEntry assoc : theirs.associations) {
+            ProjectDiff.Change<ProjectSnapshot.AssociationEntry> oc = oursDiff.getAssociationChange(assoc.uid);
+            ProjectDiff.Change<ProjectSnapshot.AssociationEntry> tc = theirsDiff.getAssociationChange(assoc.uid);
+            if(tc == null)
+                continue;
+
+            if(tc.getKind() == ProjectDiff.Kind.ADDED && oc == null) {
+                merged.add(assoc);
+            } else if(tc.getKind() == ProjectDiff.Kind.CHANGED && oc != null
+                    && oc.getKind() == ProjectDiff.Kind.REMOVED)
+            {
+                conflicts.add(new Conflict("Association", assoc.uid, describe(assoc)
+                        + " was deleted in our copy, but changed in theirs, and has been kept"));
+                merged.add(assoc);
+            }
+        }
+
+        // An association cannot outlive either of its characters
+        HashSet<Long> characters = new HashSet<>(result.characters.size() * 2);
+        for(ProjectSnapshot.CharacterEntry character : result.characters)
+            characters.add(character.uid);
+
+        for(ProjectSnapshot.AssociationEntry assoc : merged) {
+            if(characters.contains(assoc.startUID) && characters.contains(assoc.endUID))
+                result.associations.add(assoc);
+            else
+                conflicts.add(new Conflict("Association", assoc.uid, describe(assoc)
+                        + " has been removed, as one of its characters was deleted"));
+        }
+    }
+
+    private ProjectSnapshot.AssociationEntry mergeAssociation(ProjectSnapshot.AssociationEntry base,
+                                                              ProjectSnapshot.AssociationEntry ours,
+                                                              ProjectSnapshot.AssociationEntry theirs)
+    {
+        if(ProjectDiff.sameAssociation(ours, theirs))
+            return ours;
+
+        // The end points and their characters change together, as do the label and its position
+        Object[] ends = merge3(base != null ? endsOf(base) : null, endsOf(ours), endsOf(theirs));
+        Object[] label = merge3(base != null ? base.label : null, ours.label, theirs.label);
+        Object[] labelPosition = merge3(base != null ? new double[]{base.lblX, base.lblY} : null,
+                new double[]{ours.lblX, ours.lblY}, new double[]{theirs.lblX, theirs.lblY});
+        if(ends[1] != null || label[1] != null || labelPosition[1] != null)
+            conflicts.add(new Conflict("Association", ours.uid, describe(ours)
+                    + " was changed differently in both copies"));
+
+        Object[] e = (Object[]) ends[0];
+        double[] l = (double[]) labelPosition[0];
+        return new ProjectSnapshot.AssociationEntry(ours.uid, (Long) e[0], (Long) e[1],
+                (Double) e[2], (Double) e[3], (Double) e[4], (Double) e[5], (String) label[0], l[0], l[1]);
+    }
+
+    private static Object[] endsOf(ProjectSnapshot.AssociationEntry assoc) {
+        return new Object[] {assoc.startUID, assoc.endUID, assoc.sX, assoc.sY, assoc.eX, assoc.eY};
+    }
+
+    private static String describe(ProjectSnapshot.AssociationEntry assoc) {
+        return assoc.label == null || assoc.label.isEmpty() ? "An association" : "\"" + assoc.label + "\"";
+    }
+
+    /**
+     * Merges a single value three ways. Arrays are compared by their content.
+     * @return {merged value, non-null if both sides changed the value differently}
+     */
+    private Object[] merge3(Object base, Object ours, Object theirs) {
+        if(Objects.deepEquals(ours, theirs) || Objects.deepEquals(theirs, base))
+            return new Object[] {ours, null};
+        if(Objects.deepEquals(ours, base))
+            return new Object[] {theirs, null};
+        return new Object[] {ours, Boolean.TRUE};
+    }
+
+    ////// Event order lists //////
+
+    private void mergeOrderLists(ProjectSnapshot base, ProjectSnapshot ours, ProjectSnapshot theirs) {
+        for(ProjectSnapshot.EventEntry event : result.events)
+            eventUIDs.add(event.uid);
+
+        int lists = Math.max(base.eventOrderLists.size(),
+                Math.max(ours.eventOrderLists.size(), theirs.eventOrderLists.size()));
+        for(int i = 0; i < lists; i++) {
+            Long[] baseList = ProjectDiff.orderList(base, i);
+            Long[] oursList = ProjectDiff.orderList(ours, i);
+            Long[] theirsList = ProjectDiff.orderList(theirs, i);
+
+            ArrayList<Long> merged = mergeOrder(i, baseList, oursList, theirsList,
+                    matchOf(oursDiff, i, baseList, oursList), matchOf(theirsDiff, i, baseList, theirsList));
+            result.eventOrderLists.add(complete(merged, oursList, theirsList));
+        }
+    }
+
+    /**
+     * Returns how a base order list is matched with a changed one, which the diff has already found,
+     * unless the list is only in the other copy.
+     */
+    private static int[] matchOf(ProjectDiff diff, int index, Long[] base, Long[] changed) {
+        List<ProjectDiff.OrderListDiff> lists = diff.getOrderListDiffs();
+        return index < lists.size() ? lists.get(index).getMatch() : ProjectDiff.matchOrder(base, changed);
+    }
+
+    /**
+     * Merges an order list like diff3 does. The lists are split into chunks between the events that
+     * all three lists have in common, and each chunk is taken from the copy that changed it.
+     */
+    private ArrayList<Long> mergeOrder(int list, Long[] base, Long[] ours, Long[] theirs,
+                                       int[] oursMatch, int[] theirsMatch)
+    {
+        ArrayList<Long> merged = new ArrayList<>(Math.max(ours.length, theirs.length));
+        int b = 0, o = 0, t = 0;
+        while(true) {
+            // Find the next event that is in all three lists
+            int k = b;
+            while(k < base.length && (oursMatch[k] < 0 || theirsMatch[k] < 0))
+                k++;
+            int ok = k < base.length ? oursMatch[k] : ours.length;
+            int tk = k < base.length ? theirsMatch[k] : theirs.length;
+
+            boolean oursChanged = !sameRange(ours, o, ok, base, b, k);
+            boolean theirsChanged = !sameRange(theirs, t, tk, base, b, k);
+            if(!theirsChanged) {
+                merged.addAll(Arrays.asList(ours).subList(o, ok));
+            } else if(!oursChanged || sameRange(ours, o, ok, theirs, t, tk)) {
+                merged.addAll(Arrays.asList(theirs).subList(t, tk));
+            } else {
+                // Take our order, followed by the events they inserted here
+                HashSet<Long> seen = new HashSet<>(Arrays.asList(ours).subList(o, ok));
+                seen.addAll(Arrays.asList(base).subList(b, k));
+                merged.addAll(Arrays.asList(ours).subList(o, ok));
+                for(int j = t; j < tk; j++) {
+                    if(!seen.contains(theirs[j]))
+                        merged.add(theirs[j]);
+                }
+
+                Long near = ok > o ? ours[o] : tk > t ? theirs[t] : null;
+                String name = near != null ? nameOf(near) : null;
+                String where = name != null ? " near \"" + name + "\"" : "";
+                conflicts.add(new Conflict("Order list " + (list + 1), near != null ? near : 0L,
+                        "The events" + where + " were reordered differently in both copies"));
+            }
+
+            if(k == base.length)
+                break;
+
+            merged.add(base[k]);
+            b = k + 1;
+            o = ok + 1;
+            t = tk + 1;
+        }
+        return merged;
+    }
+
+    private String nameOf(long eventUID) {
+        for(ProjectSnapshot.EventEntry event : result.events) {
+            if(event.uid == eventUID)
+                return event.name;
+        }
+        return null;
+    }
+
+    private static boolean sameRange(Long[] a, int aFrom, int aTo, Long[] b, int bFrom, int bTo) {
+        if(aTo - aFrom != bTo - bFrom)
+            return false;
+        for(int i = 0; i < aTo - aFrom; i++) {
+            if(!a[aFrom + i].equals(b[bFrom + i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes deleted and duplicated events from a merged order list, and places every merged event
+     * missing from it after the event it follows in our list, or otherwise their list.
+     */
+    private Long[] complete(ArrayList<Long> merged, Long[] ours, Long[] theirs) {
+        HashSet<Long> events = eventUIDs;
+        LinkedHashSet<Long> present = new LinkedHashSet<>(merged.size() * 2);
+        for(Long uid : merged) {
+            if(events.contains(uid))
+                present.add(uid);
+        }
+        if(present.size() == events.size())
+            return present.toArray(new Long[0]);
+
+        // Missing events, by the present event they are to follow, in their order. Those to be first are under null.
+        HashMap<Long, List<Long>> following = new HashMap<>();
+        HashSet<Long> placed = new HashSet<>();
+        for(Long[] source : new Long[][] {ours, theirs}) {
+            Long previous = null;
+            for(Long uid : source) {
+                if(present.contains(uid)) {
+                    previous = uid;
+                } else if(events.contains(uid) && placed.add(uid)) {
+                    following.computeIfAbsent(previous, key -> new ArrayList<>()).add(uid);
+                    previous = uid;
+                }
+            }
+        }
+
+        ArrayList<Long> completed = new ArrayList<>(events.size());
+        completed.addAll(following.getOrDefault(null, Collections.emptyList()));
+        for(Long uid : present) {
+            completed.add(uid);
+            appendFollowing(completed, following, uid);
+        }
+
+        // Events in neither of the lists go last
+        for(ProjectSnapshot.EventEntry event : result.events) {
+            if(!present.contains(event.uid) && !placed.contains(event.uid))
+                completed.add(event.uid);
+        }
+        return completed.toArray(new Long[0]);
+    }
+
+    private static void appendFollowing(ArrayList<Long> completed, HashMap<Long, List<Long>> following, Long uid) {
+        List<Long> next = following.get(uid);
+        if(next == null)
+            return;
+        for(Long missing : next) {
+            completed.add(missing);
+            appendFollowing(completed, following, missing);
+        }
+    }
+
+    /**
+     * Keeps every UID of either copy that is not of an entity the merge has left out.
+     */
+    private void mergeUIDs(ProjectSnapshot ours, ProjectSnapshot theirs) {
+        HashSet<Long> kept = new HashSet<>(eventUIDs);
+        for(ProjectSnapshot.CharacterEntry character : result.characters)
+            kept.add(character.uid);
+        for(ProjectSnapshot.AssociationEntry assoc : result.associations)
+            kept.add(assoc.uid);
+
+        // Only an entity that was changed in either copy, or an association of a deleted character, can be left out
+        HashSet<Long> dropped = new HashSet<>();
+        for(ProjectDiff diff : new ProjectDiff[] {oursDiff, theirsDiff}) {
+            for(ProjectDiff.Change<?> change : diff.getEventChanges())
+                dropped.add(change.getUID());
+            for(ProjectDiff.Change<?> change : diff.getCharacterChanges())
+                dropped.add(change.getUID());
+            for(ProjectDiff.Change<?> change : diff.getAssociationChanges())
+                dropped.add(change.getUID());
+        }
+        for(ProjectSnapshot snapshot : new ProjectSnapshot[] {ours, theirs}) {
+            for(ProjectSnapshot.AssociationEntry assoc : snapshot.associations)
+                dropped.add(assoc.uid);
+        }
+        dropped.removeAll(kept);
+
+        LinkedHashSet<Long> uids = new LinkedHashSet<>(ours.uids);
+        uids.addAll(theirs.uids);
+        uids.addAll(kept);
+        uids.removeAll(dropped);
+        result.uids.addAll(uids);
+    }
+
+    ////// Results //////
+
+    /**
+     * Returns the merged project.
+     * @return the merged snapshot
+     */
+    public ProjectSnapshot getResult() {
+        return result;
+    }
+
+    /**
+     * Returns the conflicts found, which have been resolved in favour of our copy.
+     * @return the conflicts, in the order they were found
+     */
+    public List<Conflict> getConflicts() {
+        return Collections.unmodifiableList(conflicts);
+    }
+
+    /**
+     * Returns the changes made in our copy since the original.
+     * @return our changes
+     */
+    public ProjectDiff getOurChanges() {
+        return oursDiff;
+    }
+
+    /**
+     * Returns the changes made in their copy since the original.
+     * @return their changes
+     */
+    public ProjectDiff getTheirChanges() {
+        return theirsDiff;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Two changes to the same thing that could not both be kept.
+     */
+    public static class Conflict {
+        private final String type;
+        private final long uid;
+        private final String description;
+
+        private Conflict(String type, long uid, String description) {
+            this.type = type;
+            this.uid = uid;
+            this.description = description;
+        }
+
+        /**
+         * Returns what kind of thing the conflict is about, eg. "Event".
+         * @return the type
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Returns the UID of the entity the conflict is about.
+         * @return the UID, or 0 if the conflict is not about a single entity
+         */
+        public long getUID() {
+            return uid;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        @Override
+        public String toString() {
+            return type + ": " + description;
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.team34.model.io;
+
+/**
+ * The sections that make up a project file. Each section has the same name as
+ * the corresponding element in the XML format, and a numeric ID which is used
+ * to tag the section in the binary format.
+ */
+public enum ProjectSection {
+    PROJECT(1, "project"),
+    UID_MANAGER(2, "uid_manager"),
+    EVENTS(3, "events"),
+    EVENT_ORDER(4, "event_order"),
+    CHARACTERS(5, "characters"),
+    ASSOCIATIONS(6, "associations");
+
+    private final int id;
+    private final String sectionName;
+
+    ProjectSection(int id, String sectionName) {
+        this.id = id;
+        this.sectionName = sectionName;
+    }
+
+    /**
+     * Returns the numeric ID used to tag the section in the binary format.
+     * @return the section ID
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name of the section, as used in the XML format.
+     * @return the section name
+     */
+    public String getSectionName() {
+        return sectionName;
+    }
+
+    /**
+     * Returns the section with the given ID.
+     * @param id the numeric section ID
+     * @return the section, or null if the ID is unknown
+     */
+    public static ProjectSection fromId(int id) {
+        for(ProjectSection section : values()) {
+            if(section.id == id)
+                return section;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the section with the given name.
+     * @param sectionName the name of the section, as used in the XML format
+     * @return the section, or null if the name is unknown
+     */
+    public static ProjectSection fromName(String sectionName) {
+        for(ProjectSection section : values()) {
+            if(section.sectionName.equals(sectionName))
+                return section;
+        }
+        return null;
+    }
+}
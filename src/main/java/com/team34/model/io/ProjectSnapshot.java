@@ -0,0 +1,144 @@
+package com.team34.model.io;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+
+/**
+ * A detached copy of all data contained within a project.
+ * <p>
+ * The project file formats read into, and write from, instances of this class rather than
+ * the live {@link com.team34.model.event.EventManager} and
+ * {@link com.team34.model.character.CharacterManager}. This allows a file to be fully parsed
+ * before any loaded data is discarded, and allows converting between formats without
+ * touching the project that is currently loaded.
+ * <p>
+ * See {@link com.team34.model.Project#createSnapshot()} and
+ * {@link com.team34.model.Project#installSnapshot(ProjectSnapshot)}.
+ */
+public class ProjectSnapshot {
+
+    public String name;
+    /** The generation of the last journal whose records are included, see {@link ProjectJournal}. */
+    public long journalGeneration;
+    public final ArrayList<Long> uids;
+    public final ArrayList<EventEntry> events;
+    public final ArrayList<Long[]> eventOrderLists;
+    public final ArrayList<CharacterEntry> characters;
+    public final ArrayList<AssociationEntry> associations;
+    /** The sections that did not match their checksum when read, but could still be parsed, see {@link XmlProjectFormat}. */
+    public final EnumSet<ProjectSection> edited;
+
+    /**
+     * Constructs an empty snapshot.
+     */
+    public ProjectSnapshot() {
+        name = "";
+        journalGeneration = 0L;
+        uids = new ArrayList<>();
+        events = new ArrayList<>();
+        eventOrderLists = new ArrayList<>();
+        characters = new ArrayList<>();
+        associations = new ArrayList<>();
+        edited = EnumSet.noneOf(ProjectSection.class);
+    }
+
+    public void addEvent(long uid, String name, String description) {
+        events.add(new EventEntry(uid, name, description));
+    }
+
+    public void addCharacter(long uid, String name, String description, double chartX, double chartY) {
+        characters.add(new CharacterEntry(uid, name, description, chartX, chartY));
+    }
+
+    public void addAssociation(long uid, long startUID, long endUID, double sX, double sY, double eX, double eY,
+                               String label, double lblX, double lblY)
+    {
+        associations.add(new AssociationEntry(uid, startUID, endUID, sX, sY, eX, eY, label, lblX, lblY));
+    }
+
+    /**
+     * Appends all data of another snapshot to this one. The name and journal generation are
+     * taken from the other snapshot, if they are set there.
+     * @param part the snapshot to append
+     */
+    public void addAll(ProjectSnapshot part) {
+        if(!part.name.isEmpty())
+            name = part.name;
+        journalGeneration = Math.max(journalGeneration, part.journalGeneration);
+
+        uids.addAll(part.uids);
+        events.addAll(part.events);
+        eventOrderLists.addAll(part.eventOrderLists);
+        characters.addAll(part.characters);
+        associations.addAll(part.associations);
+        edited.addAll(part.edited);
+    }
+
+    /////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The data of a single event.
+     */
+    public static class EventEntry {
+        public final long uid;
+        public final String name;
+        public final String description;
+
+        public EventEntry(long uid, String name, String description) {
+            this.uid = uid;
+            this.name = name;
+            this.description = description;
+        }
+    }
+
+    /**
+     * The data of a single character.
+     */
+    public static class CharacterEntry {
+        public final long uid;
+        public final String name;
+        public final String description;
+        public final double chartX;
+        public final double chartY;
+
+        public CharacterEntry(long uid, String name, String description, double chartX, double chartY) {
+            this.uid = uid;
+            this.name = name;
+            this.description = description;
+            this.chartX = chartX;
+            this.chartY = chartY;
+        }
+    }
+
+    /**
+     * The data of a single association between two characters.
+     */
+    public static class AssociationEntry {
+        public final long uid;
+        public final long startUID;
+        public final long endUID;
+        public final double sX;
+        public final double sY;
+        public final double eX;
+        public final double eY;
+        public final String label;
+        public final double lblX;
+        public final double lblY;
+
+        public AssociationEntry(long uid, long startUID, long endUID, double sX, double sY, double eX, double eY,
+                                String label, double lblX, double lblY)
+        {
+            this.uid = uid;
+            this.startUID = startUID;
+            this.endUID = endUID;
+            this.sX = sX;
+            this.sY = sY;
+            this.eX = eX;
+            this.eY = eY;
+            this.label = label;
+            this.lblX = lblX;
+            this.lblY = lblY;
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.team34.model.io;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks every project file in a directory for damage, without loading them, see
+ * {@link ProjectFiles#verify(File)}. The files are checked concurrently.
+ * <p>
+ * Usage: ProjectVerifier directory
+ * <p>
+ * Prints one line per project file, and exits with status 1 if any file is damaged.
+ */
+public class ProjectVerifier {
+
+    private static final String EXTENSION = ".wsp";
+
+    /**
+     * The outcome of checking a single file.
+     */
+    public static class Result {
+        private final File file;
+        private final Exception error;
+
+        private Result(File file, Exception error) {
+            this.file = file;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the reason the file is damaged, eg. a {@link CorruptSectionException}.
+         * @return the error, or null if the file is intact
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isIntact() {
+            return error == null;
+        }
+    }
+
+    private ProjectVerifier() { }
+
+    /**
+     * Checks every wsp-file directly within the given directory.
+     * @param directory the directory to scan
+     * @return one result per file, in the order of the file names
+     * @throws InterruptedException if interrupted while waiting for the checks
+     */
+    public static List<Result> verifyDirectory(File directory) throws InterruptedException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if(files == null)
+            return new ArrayList<>();
+        Arrays.sort(files);
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(files.length, Runtime.getRuntime().availableProcessors())));
+        try {
+            ArrayList<Future<Result>> futures = new ArrayList<>(files.length);
+            for(File file : files)
+                futures.add(executor.submit(() -> verify(file)));
+
+            ArrayList<Result> results = new ArrayList<>(files.length);
+            for(Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause()); // verify() does not throw
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Checks a single file.
+     * @param file the project file to check
+     * @return the result
+     */
+    public static Result verify(File file) {
+        try {
+            ProjectFiles.verify(file);
+            return new Result(file, null);
+        } catch (Exception e) {
+            return new Result(file, e);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if(args.length < 1) {
+            System.err.println("Usage: ProjectVerifier directory");
+            System.exit(2);
+        }
+
+        boolean damaged = false;
+        for(Result result : verifyDirectory(new File(args[0]))) {
+            if(result.isIntact()) {
+                System.out.println("OK       " + result.getFile().getName());
+            } else {
+                System.out.println("DAMAGED  " + result.getFile().getName() + ": " + result.getError().getMessage());
+                damaged = true;
+            }
+        }
+
+        if(damaged)
+            System.exit(1);
+    }
+
+}
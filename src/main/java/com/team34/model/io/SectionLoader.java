@@ -0,0 +1,108 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Parses the sections of a project file concurrently.
+ * <p>
+ * The project formats first find the byte range of each section, and then hand one task per section
+ * to this class. Each task parses its section into a staging snapshot of its own, on a shared pool of
+ * worker threads. Once every section has been parsed, the staging snapshots are merged into the
+ * resulting snapshot, in the order the tasks were given. The project data is thus not touched until
+ * the whole file has been parsed, and is installed in one step by
+ * {@link com.team34.model.Project#installSnapshot(ProjectSnapshot)}.
+ * <p>
+ * If a task fails, the load fails as soon as it does, without waiting for the other tasks.
+ * <p>
+ * This class is only to be used internally by the project formats.
+ */
+class SectionLoader {
+
+    /** Files smaller than this are parsed on the calling thread, as it is faster than handing them off. */
+    static final long PARALLEL_THRESHOLD = 256L * 1024L;
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors()),
+            r -> {
+                Thread thread = new Thread(r, "section-loader");
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
+    /**
+     * Parses a single section into a staging snapshot.
+     */
+    interface SectionTask {
+        void parse(ProjectSnapshot staging) throws IOException, XMLStreamException;
+    }
+
+    private SectionLoader() { }
+
+    /**
+     * Runs the tasks, and merges their results into the target snapshot.
+     * @param tasks the tasks, one per section, in file order
+     * @param target the snapshot to merge the sections into
+     * @param parallel true to run the tasks on the worker pool, false to run them on the calling thread
+     * @throws IOException if a task failed to read its section
+     * @throws XMLStreamException if a task failed to parse its section
+     */
+    static void parseAll(List<SectionTask> tasks, ProjectSnapshot target, boolean parallel)
+            throws IOException, XMLStreamException
+    {
+        if(!parallel || tasks.size() < 2) {
+            for(SectionTask task : tasks) {
+                ProjectSnapshot staging = new ProjectSnapshot();
+                task.parse(staging);
+                target.addAll(staging);
+            }
+            return;
+        }
+
+        // Results are taken as they complete, so that a damaged section fails the load right away
+        ExecutorCompletionService<ProjectSnapshot> completion = new ExecutorCompletionService<>(POOL);
+        ArrayList<Future<ProjectSnapshot>> futures = new ArrayList<>(tasks.size());
+        for(SectionTask task : tasks) {
+            futures.add(completion.submit(() -> {
+                ProjectSnapshot staging = new ProjectSnapshot();
+                task.parse(staging);
+                return staging;
+            }));
+        }
+
+        try {
+            for(int i = 0; i < futures.size(); i++)
+                completion.take().get();
+
+            for(Future<ProjectSnapshot> future : futures)
+                target.addAll(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading the project", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof IOException)
+                throw (IOException) cause;
+            if(cause instanceof XMLStreamException)
+                throw (XMLStreamException) cause;
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        } finally {
+            for(Future<ProjectSnapshot> future : futures)
+                future.cancel(true);
+        }
+    }
+
+}
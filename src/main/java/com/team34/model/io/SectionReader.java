@@ -0,0 +1,118 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitive types of the binary project format from the payload of a single section.
+ * <p>
+ * This class is only to be used internally by the binary project format.
+ */
+class SectionReader {
+
+    private final ByteBuffer buffer;
+    private byte[] scratch;
+
+    /**
+     * Creates a new SectionReader, reading from the current position to the limit of the given buffer.
+     * @param buffer the section payload
+     */
+    SectionReader(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        scratch = new byte[64];
+    }
+
+    boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    int readByte() {
+        return buffer.get() & 0xFF;
+    }
+
+    /**
+     * Reads an unsigned variable-length integer. See {@link SectionWriter#writeVarLong(long)}.
+     * @return the value
+     * @throws IOException if the encoding is longer than 10 bytes
+     */
+    long readVarLong() throws IOException {
+        long value = 0L;
+        for(int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    /**
+     * Reads a variable-length integer, and checks that it can be used as a count or an index.
+     * @return the value
+     * @throws IOException if the value is negative or does not fit in an int
+     */
+    int readCount() throws IOException {
+        long value = readVarLong();
+        if(value < 0L || value > Integer.MAX_VALUE)
+            throw new IOException("Invalid count: " + value);
+        return (int) value;
+    }
+
+    /**
+     * Reads a ZigZag-encoded signed integer. See {@link SectionWriter#writeZigZag(long)}.
+     * @return the value
+     * @throws IOException
+     */
+    long readZigZag() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1L);
+    }
+
+    double readDouble() {
+        return buffer.getDouble();
+    }
+
+    /**
+     * Reads a string table. See {@link SectionWriter#writeStringTable(StringTable)}.
+     * @return the strings, in the order they were written
+     * @throws IOException
+     */
+    String[] readStringTable() throws IOException {
+        String[] strings = new String[readCount()];
+        for(int i = 0; i < strings.length; i++)
+            strings[i] = readInlineString();
+        return strings;
+    }
+
+    /**
+     * Reads a string stored in place, as its length in bytes followed by its UTF-8 bytes.
+     * @return the string
+     * @throws IOException if the string exceeds the bounds of the section
+     */
+    String readInlineString() throws IOException {
+        int length = readCount();
+        if(length > buffer.remaining())
+            throw new IOException("String exceeds section bounds");
+        if(length > scratch.length)
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an index into the given string table, and returns the string it refers to.
+     * @param table the string table of the section
+     * @return the string
+     * @throws IOException if the index is out of bounds
+     */
+    String readString(String[] table) throws IOException {
+        int index = readCount();
+        if(index >= table.length)
+            throw new IOException("String index out of bounds: " + index);
+        return table[index];
+    }
+
+}
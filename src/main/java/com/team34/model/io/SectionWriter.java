@@ -0,0 +1,187 @@
+package com.team34.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes the primitive types of the binary project format to a {@link FileChannel}, through an
+ * internal buffer. The location of each section and the CRC32C of its payload are recorded in a
+ * {@link TableOfContents} as the section is written, so no section has to be buffered in memory
+ * as a whole.
+ * <p>
+ * This class is only to be used internally by the binary project format.
+ */
+class SectionWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final TableOfContents contents;
+    private final CRC32C checksum;
+    private int sectionId;
+    private long sectionStart;
+
+    /**
+     * Creates a new SectionWriter, writing at the current position of the given channel.
+     * @param channel the channel to write to
+     */
+    SectionWriter(FileChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        contents = new TableOfContents();
+        checksum = new CRC32C();
+        sectionId = -1;
+        sectionStart = -1L;
+    }
+
+    /**
+     * Returns the logical position in the channel, including data that has yet to be flushed.
+     * @return the position in bytes
+     * @throws IOException
+     */
+    long position() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    /**
+     * Starts a section. Everything written until {@link SectionWriter#endSection()} is the section payload.
+     * @param id the section ID
+     * @throws IOException
+     */
+    void beginSection(int id) throws IOException {
+        if(sectionId != -1)
+            throw new IllegalStateException("The previous section has not been ended");
+
+        flush();
+        checksum.reset();
+        sectionId = id;
+        sectionStart = channel.position();
+    }
+
+    /**
+     * Ends the current section, and adds it to the table of contents.
+     * @throws IOException
+     */
+    void endSection() throws IOException {
+        if(sectionId == -1)
+            throw new IllegalStateException("No section has been started");
+
+        flush();
+        long length = channel.position() - sectionStart;
+        contents.add(new TableOfContents.Entry(sectionId, sectionStart, length, (int) checksum.getValue()));
+
+        sectionId = -1;
+        sectionStart = -1L;
+    }
+
+    /**
+     * Returns the table of contents of the sections written so far.
+     * @return the table of contents
+     */
+    TableOfContents getTableOfContents() {
+        return contents;
+    }
+
+    /**
+     * Writes the given bytes at an absolute position, which has already been written, eg. with placeholders.
+     * The logical position is not changed.
+     * @param bytes the bytes to write
+     * @param pos the position to write at
+     * @throws IOException
+     */
+    void writeAt(ByteBuffer bytes, long pos) throws IOException {
+        flush();
+        while(bytes.hasRemaining())
+            pos += channel.write(bytes, pos);
+    }
+
+    void writeByte(int b) throws IOException {
+        ensureCapacity(1);
+        buffer.put((byte) b);
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+        if(bytes.length > buffer.capacity()) {
+            flush();
+            if(sectionId != -1)
+                checksum.update(bytes, 0, bytes.length);
+
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while(wrapped.hasRemaining())
+                channel.write(wrapped);
+            return;
+        }
+
+        ensureCapacity(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes an unsigned variable-length integer, 7 bits per byte, least significant group first.
+     * @param value the value, interpreted as unsigned
+     * @throws IOException
+     */
+    void writeVarLong(long value) throws IOException {
+        ensureCapacity(10);
+        while((value & ~0x7FL) != 0L) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes a signed variable-length integer using ZigZag encoding, so that small
+     * negative values (such as the -1L used for "no UID") only take a single byte.
+     * @param value the signed value
+     * @throws IOException
+     */
+    void writeZigZag(long value) throws IOException {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    void writeDouble(double value) throws IOException {
+        ensureCapacity(8);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Writes a string table, in the order the strings were added to it.
+     * @param table the string table to write
+     * @throws IOException
+     */
+    void writeStringTable(StringTable table) throws IOException {
+        writeVarLong(table.size());
+        for(int i = 0; i < table.size(); i++) {
+            byte[] bytes = table.get(i).getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+        }
+    }
+
+    /**
+     * Writes all buffered data to the channel.
+     * @throws IOException
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        if(sectionId != -1) {
+            checksum.update(buffer);
+            buffer.rewind();
+        }
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    private void ensureCapacity(int bytes) throws IOException {
+        if(buffer.remaining() < bytes)
+            flush();
+    }
+
+}
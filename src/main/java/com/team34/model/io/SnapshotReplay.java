@@ -0,0 +1,136 @@
+package com.team34.model.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+import com.team34.model.ModelChangeListener;
+
+/**
+ * Applies changes to a {@link ProjectSnapshot}, the same way the managers would apply them to a loaded
+ * project. This is used to replay a {@link ProjectJournal} on top of a project file without loading it,
+ * so that the replay can be done on another thread than the one that owns the model.
+ * <p>
+ * The snapshot is only updated once {@link SnapshotReplay#finish()} is called.
+ */
+public class SnapshotReplay implements ModelChangeListener {
+
+    private final ProjectSnapshot snapshot;
+    private final LinkedHashSet<Long> uids;
+    private final LinkedHashMap<Long, ProjectSnapshot.EventEntry> events;
+    private final ArrayList<ArrayList<Long>> eventOrderLists;
+    private final LinkedHashMap<Long, ProjectSnapshot.CharacterEntry> characters;
+    private final LinkedHashMap<Long, ProjectSnapshot.AssociationEntry> associations;
+
+    /**
+     * @param snapshot the snapshot to apply the changes to
+     */
+    public SnapshotReplay(ProjectSnapshot snapshot) {
+        this.snapshot = snapshot;
+        uids = new LinkedHashSet<>(snapshot.uids);
+
+        events = new LinkedHashMap<>();
+        for(ProjectSnapshot.EventEntry event : snapshot.events)
+            events.put(event.uid, event);
+
+        eventOrderLists = new ArrayList<>();
+        for(Long[] orderList : snapshot.eventOrderLists)
+            eventOrderLists.add(new ArrayList<>(Arrays.asList(orderList)));
+
+        characters = new LinkedHashMap<>();
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters)
+            characters.put(character.uid, character);
+
+        associations = new LinkedHashMap<>();
+        for(ProjectSnapshot.AssociationEntry association : snapshot.associations)
+            associations.put(association.uid, association);
+    }
+
+    /**
+     * Writes the changes applied so far into the snapshot.
+     */
+    public void finish() {
+        snapshot.uids.clear();
+        snapshot.uids.addAll(uids);
+
+        snapshot.events.clear();
+        snapshot.events.addAll(events.values());
+
+        snapshot.eventOrderLists.clear();
+        for(ArrayList<Long> orderList : eventOrderLists)
+            snapshot.eventOrderLists.add(orderList.toArray(new Long[0]));
+
+        snapshot.characters.clear();
+        snapshot.characters.addAll(characters.values());
+
+        snapshot.associations.clear();
+        snapshot.associations.addAll(associations.values());
+    }
+
+    @Override
+    public void uidAdded(long uid) {
+        uids.add(uid);
+    }
+
+    @Override
+    public void eventPut(long uid, String name, String description) {
+        events.put(uid, new ProjectSnapshot.EventEntry(uid, name, description));
+    }
+
+    @Override
+    public void eventAppended(long uid) {
+        if(eventOrderLists.isEmpty())
+            eventOrderLists.add(new ArrayList<>());
+
+        for(ArrayList<Long> orderList : eventOrderLists)
+            orderList.add(uid);
+    }
+
+    @Override
+    public void eventRemoved(long uid) {
+        events.remove(uid);
+        uids.remove(uid);
+
+        for(ArrayList<Long> orderList : eventOrderLists)
+            orderList.remove(Long.valueOf(uid));
+    }
+
+    @Override
+    public void eventMoved(int orderList, int fromIndex, int toIndex) {
+        ArrayList<Long> order = eventOrderLists.get(orderList);
+        order.add(toIndex, order.remove(fromIndex));
+    }
+
+    @Override
+    public void eventSwapped(int orderList, int index1, int index2) {
+        Collections.swap(eventOrderLists.get(orderList), index1, index2);
+    }
+
+    @Override
+    public void characterPut(long uid, String name, String description, double chartX, double chartY) {
+        characters.put(uid, new ProjectSnapshot.CharacterEntry(uid, name, description, chartX, chartY));
+    }
+
+    @Override
+    public void characterRemoved(long uid) {
+        characters.remove(uid);
+        uids.remove(uid);
+    }
+
+    @Override
+    public void associationPut(long uid, long startUID, long endUID, double sX, double sY, double eX, double eY,
+                               String label, double lblX, double lblY)
+    {
+        associations.put(uid, new ProjectSnapshot.AssociationEntry(uid, startUID, endUID, sX, sY, eX, eY,
+                label, lblX, lblY));
+    }
+
+    @Override
+    public void associationRemoved(long uid) {
+        associations.remove(uid);
+        uids.remove(uid);
+    }
+
+}
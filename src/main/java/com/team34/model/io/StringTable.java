@@ -0,0 +1,57 @@
+package com.team34.model.io;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Collects the unique strings of a section in the binary project format. Each string is
+ * stored once, and records refer to it by its index in the table.
+ * <p>
+ * This class is only to be used internally by the binary project format.
+ */
+class StringTable {
+
+    private final HashMap<String, Integer> indices;
+    private final ArrayList<String> strings;
+
+    StringTable() {
+        indices = new HashMap<>();
+        strings = new ArrayList<>();
+    }
+
+    /**
+     * Adds the string to the table, unless it already exists.
+     * @param string the string to add. Null is stored as an empty string
+     * @return the index of the string
+     */
+    int add(String string) {
+        if(string == null)
+            string = "";
+
+        Integer index = indices.get(string);
+        if(index == null) {
+            index = strings.size();
+            indices.put(string, index);
+            strings.add(string);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of a string that has been added to the table.
+     * @param string the string
+     * @return the index of the string
+     */
+    int indexOf(String string) {
+        return indices.get(string == null ? "" : string);
+    }
+
+    String get(int index) {
+        return strings.get(index);
+    }
+
+    int size() {
+        return strings.size();
+    }
+
+}
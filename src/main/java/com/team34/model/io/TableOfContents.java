@@ -0,0 +1,155 @@
+package com.team34.model.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The table of contents at the start of a binary project file, listing where each section is stored.
+ * This allows single sections to be read without reading the sections before them.
+ * <p>
+ * The table consists of a 1-byte entry count, followed by one entry per section: the 1-byte section ID
+ * (see {@link ProjectSection}), the 8-byte little-endian offset and length of the section payload,
+ * and the 4-byte little-endian CRC32C of the payload.
+ */
+public class TableOfContents {
+
+    static final int ENTRY_SIZE = 21; // id + offset + length + checksum
+
+    /**
+     * The location and checksum of a single section.
+     */
+    public static class Entry {
+        private final int id;
+        private final long offset;
+        private final long length;
+        private final int checksum;
+
+        Entry(int id, long offset, long length, int checksum) {
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+            this.checksum = checksum;
+        }
+
+        /**
+         * Returns the section this entry refers to.
+         * @return the section, or null if the section ID is unknown
+         */
+        public ProjectSection getSection() {
+            return ProjectSection.fromId(id);
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Returns the CRC32C of the section payload.
+         * @return the checksum
+         */
+        public int getChecksum() {
+            return checksum;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Entry))
+                return false;
+
+            Entry other = (Entry) o;
+            return id == other.id && offset == other.offset && length == other.length && checksum == other.checksum;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(offset) * 31 + checksum;
+        }
+    }
+
+    private final ArrayList<Entry> entries;
+
+    TableOfContents() {
+        entries = new ArrayList<>();
+    }
+
+    void add(Entry entry) {
+        entries.add(entry);
+    }
+
+    /**
+     * Returns the entries, in the order the sections are stored in.
+     * @return an unmodifiable list of the entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the entry of the given section.
+     * @param section the section
+     * @return the entry, or null if the file does not contain the section
+     */
+    public Entry get(ProjectSection section) {
+        for(Entry entry : entries) {
+            if(entry.id == section.getId())
+                return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the encoded size of a table with the given number of entries.
+     * @param count the number of entries
+     * @return the size in bytes
+     */
+    static int encodedSize(int count) {
+        return 1 + count * ENTRY_SIZE;
+    }
+
+    /**
+     * Encodes the table, as it is stored in the file.
+     * @return a buffer, ready to be written
+     */
+    ByteBuffer encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(entries.size())).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) entries.size());
+        for(Entry entry : entries) {
+            buffer.put((byte) entry.id);
+            buffer.putLong(entry.offset);
+            buffer.putLong(entry.length);
+            buffer.putInt(entry.checksum);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes the entries of a table, following the entry count.
+     * @param buffer the encoded entries, in little-endian order
+     * @param count the number of entries
+     * @param fileSize the size of the file, which every section must fit within
+     * @return the table
+     * @throws EOFException if a section exceeds the end of the file
+     */
+    static TableOfContents decode(ByteBuffer buffer, int count, long fileSize) throws IOException {
+        TableOfContents contents = new TableOfContents();
+        for(int i = 0; i < count; i++) {
+            Entry entry = new Entry(buffer.get() & 0xFF, buffer.getLong(), buffer.getLong(), buffer.getInt());
+            if(entry.offset < 0L || entry.length < 0L || entry.length > fileSize - entry.offset)
+                throw new EOFException("Section " + entry.id + " exceeds the end of the file");
+
+            contents.add(entry);
+        }
+        return contents;
+    }
+
+}
@@ -0,0 +1,854 @@
+package com.team34.model.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32C;
+
+import javax.xml.stream.*;
+
+/**
+ * Reads and writes the XML project format.
+ * <p>
+ * This is the original wsp-format. The document consists of a root "project" element,
+ * containing the sections "uid_manager", "events", "event_order", "characters" and "associations".
+ * The last element of the project, "checksums", holds the CRC32C of each section, computed over
+ * the UTF-8 bytes from the start tag to the end tag of the section.
+ * <p>
+ * As the format is meant to be readable, a file may also have been edited by hand, in which case the
+ * edited sections no longer match their checksums. When reading, such a section is only considered
+ * damaged if it cannot be parsed either. Otherwise it is read as is, and listed in
+ * {@link ProjectSnapshot#edited}, so that the user can be told that it could not be checked for damage.
+ * The checksums match again once the project has been saved.
+ */
+public class XmlProjectFormat {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String NEWLINE = System.lineSeparator();
+    private static final String[] SECTIONS = { "uid_manager", "events", "event_order", "characters", "associations" };
+
+    private XmlProjectFormat() { }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#read(File)}
+     * @param reader positioned at the start of the "uid_manager" element
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadUIDManager(XMLStreamReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        while(reader.hasNext()) {
+            int type = reader.next();
+
+            if(type == XMLStreamConstants.START_ELEMENT) {
+                if(reader.getLocalName().equals("uid")) {
+                    String text = reader.getElementText();
+                    if(!text.isEmpty())
+                        snapshot.uids.add(Long.parseLong(text));
+                }
+            }
+            else if(type == XMLStreamConstants.END_ELEMENT) {
+                if(reader.getLocalName().equals("uid_manager"))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#read(File)}
+     * @param reader positioned at the start of the "events" element
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadEvents(XMLStreamReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        while(reader.hasNext()) {
+            int type = reader.next();
+
+            if(type == XMLStreamConstants.START_ELEMENT) {
+                if(reader.getLocalName().equals("event")) {
+                    long uid = -1L;
+                    String name = null;
+
+                    for(int i = 0; i < reader.getAttributeCount(); i++) {
+                        switch(reader.getAttributeLocalName(i)) {
+                            case "uid":
+                                uid = Long.parseLong(reader.getAttributeValue(i));
+                                break;
+                            case "name":
+                                name = reader.getAttributeValue(i);
+                                break;
+                        }
+                    }
+
+                    String description = reader.getElementText();
+                    if(uid != -1L && name != null)
+                        snapshot.addEvent(uid, name, description);
+                }
+            }
+            else if(type == XMLStreamConstants.END_ELEMENT) {
+                if(reader.getLocalName().equals("events"))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#read(File)}
+     * @param reader positioned at the start of the "event_order" element
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadEventOrderLists(XMLStreamReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        ArrayList<Long> orderList = null;
+
+        while(reader.hasNext()) {
+            int type = reader.next();
+
+            if(type == XMLStreamConstants.START_ELEMENT) {
+                switch(reader.getLocalName()) {
+                    case "order_list":
+                        orderList = new ArrayList<>();
+                        break;
+                    case "li":
+                        String text = reader.getElementText();
+                        if(orderList != null && !text.isEmpty())
+                            orderList.add(Long.parseLong(text));
+                        break;
+                }
+            }
+            else if(type == XMLStreamConstants.END_ELEMENT) {
+                switch(reader.getLocalName()) {
+                    case "order_list":
+                        if(orderList != null)
+                            snapshot.eventOrderLists.add(orderList.toArray(new Long[orderList.size()]));
+                        orderList = null;
+                        break;
+                    case "event_order":
+                        return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#read(File)}
+     * @param reader positioned at the start of the "characters" element
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadCharacters(XMLStreamReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        while(reader.hasNext()) {
+            int type = reader.next();
+
+            if(type == XMLStreamConstants.START_ELEMENT) {
+                if(reader.getLocalName().equals("character")) {
+                    long uid = -1L;
+                    String name = null;
+                    double chartX = 0.0;
+                    double chartY = 0.0;
+
+                    for(int i = 0; i < reader.getAttributeCount(); i++) {
+                        switch(reader.getAttributeLocalName(i)) {
+                            case "uid":
+                                uid = Long.parseLong(reader.getAttributeValue(i));
+                                break;
+                            case "name":
+                                name = reader.getAttributeValue(i);
+                                break;
+                            case "chartX":
+                                chartX = Double.parseDouble(reader.getAttributeValue(i));
+                                break;
+                            case "chartY":
+                                chartY = Double.parseDouble(reader.getAttributeValue(i));
+                                break;
+                        }
+                    }
+
+                    String description = reader.getElementText();
+                    if(uid != -1L && name != null)
+                        snapshot.addCharacter(uid, name, description, chartX, chartY);
+                }
+            }
+            else if(type == XMLStreamConstants.END_ELEMENT) {
+                if(reader.getLocalName().equals("characters"))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#read(File)}
+     * @param reader positioned at the start of the "associations" element
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadAssociations(XMLStreamReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        while(reader.hasNext()) {
+            int type = reader.next();
+
+            if(type == XMLStreamConstants.START_ELEMENT) {
+                if(reader.getLocalName().equals("association")) {
+                    long uid = -1L;
+                    long startUID = -1L;
+                    long endUID = -1L;
+                    double sX = 0.0;
+                    double sY = 0.0;
+                    double eX = 0.0;
+                    double eY = 0.0;
+                    double lblX = 0.0;
+                    double lblY = 0.0;
+
+                    for(int i = 0; i < reader.getAttributeCount(); i++) {
+                        String value = reader.getAttributeValue(i);
+                        switch(reader.getAttributeLocalName(i)) {
+                            case "uid":
+                                uid = Long.parseLong(value);
+                                break;
+                            case "startUID":
+                                startUID = Long.parseLong(value);
+                                break;
+                            case "endUID":
+                                endUID = Long.parseLong(value);
+                                break;
+                            case "sX":
+                                sX = Double.parseDouble(value);
+                                break;
+                            case "sY":
+                                sY = Double.parseDouble(value);
+                                break;
+                            case "eX":
+                                eX = Double.parseDouble(value);
+                                break;
+                            case "eY":
+                                eY = Double.parseDouble(value);
+                                break;
+                            case "lblX":
+                                lblX = Double.parseDouble(value);
+                                break;
+                            case "lblY":
+                                lblY = Double.parseDouble(value);
+                                break;
+                        }
+                    }
+
+                    String label = reader.getElementText();
+                    if(uid != -1L)
+                        snapshot.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, label, lblX, lblY);
+                }
+            }
+            else if(type == XMLStreamConstants.END_ELEMENT) {
+                if(reader.getLocalName().equals("associations"))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeUIDManager(ProjectSnapshot snapshot, XMLStreamWriter writer)
+            throws XMLStreamException
+    {
+        for(int i = 0; i < snapshot.uids.size(); i++) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("uid");
+            writer.writeCharacters(Long.toString(snapshot.uids.get(i)));
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeEvents(ProjectSnapshot snapshot, XMLStreamWriter writer)
+            throws XMLStreamException
+    {
+        for(ProjectSnapshot.EventEntry event : snapshot.events) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("event");
+            writer.writeAttribute("name", event.name);
+            writer.writeAttribute("uid", Long.toString(event.uid));
+
+            writer.writeCharacters(event.description);
+
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeEventOrderLists(ProjectSnapshot snapshot, XMLStreamWriter writer)
+            throws XMLStreamException
+    {
+        for(Long[] orderList : snapshot.eventOrderLists) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("order_list");
+            writer.writeCharacters(NEWLINE);
+
+            for (int j = 0; j < orderList.length; j++) {
+                writer.writeCharacters("\t\t\t");
+                writer.writeStartElement("li");
+                writer.writeCharacters(Long.toString(orderList[j]));
+                writer.writeEndElement();
+                writer.writeCharacters(NEWLINE);
+            }
+
+            writer.writeCharacters("\t\t");
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeCharacters(ProjectSnapshot snapshot, XMLStreamWriter writer)
+            throws XMLStreamException
+    {
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("character");
+            writer.writeAttribute("name", character.name);
+            writer.writeAttribute("uid", Long.toString(character.uid));
+            writer.writeAttribute("chartX", Double.toString(character.chartX));
+            writer.writeAttribute("chartY", Double.toString(character.chartY));
+
+            writer.writeCharacters(character.description);
+
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeAssociations(ProjectSnapshot snapshot, XMLStreamWriter writer)
+            throws XMLStreamException
+    {
+        for(ProjectSnapshot.AssociationEntry assoc : snapshot.associations) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("association");
+            writer.writeAttribute("uid", Long.toString(assoc.uid));
+            writer.writeAttribute("startUID", Long.toString(assoc.startUID));
+            writer.writeAttribute("endUID", Long.toString(assoc.endUID));
+            writer.writeAttribute("sX", Double.toString(assoc.sX));
+            writer.writeAttribute("sY", Double.toString(assoc.sY));
+            writer.writeAttribute("eX", Double.toString(assoc.eX));
+            writer.writeAttribute("eY", Double.toString(assoc.eY));
+            writer.writeAttribute("lblX", Double.toString(assoc.lblX));
+            writer.writeAttribute("lblY", Double.toString(assoc.lblY));
+
+            writer.writeCharacters(assoc.label);
+
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+    }
+
+    /**
+     * Writes a section element, at the first level of indentation, containing the output of the given section writer.
+     */
+    private static void writeSection(String localName, ProjectSnapshot snapshot, XMLStreamWriter writer,
+                                     ChecksumOutputStream checked, int[] checksums, SectionContents contents)
+            throws XMLStreamException
+    {
+        writer.writeCharacters("\t");
+        writer.flush();
+        checked.beginChecksum();
+
+        writer.writeStartElement(localName);
+        writer.writeCharacters(NEWLINE);
+        contents.write(snapshot, writer);
+        writer.writeCharacters("\t");
+        writer.writeEndElement();
+
+        writer.flush();
+        checksums[sectionIndex(localName)] = checked.endChecksum();
+        writer.writeCharacters(NEWLINE);
+    }
+
+    /**
+     * Writes the checksums of the sections, as the last element of the project.
+     */
+    private static void writeChecksums(int[] checksums, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeCharacters("\t");
+        writer.writeStartElement("checksums");
+        writer.writeCharacters(NEWLINE);
+
+        for(int i = 0; i < SECTIONS.length; i++) {
+            writer.writeCharacters("\t\t");
+            writer.writeStartElement("checksum");
+            writer.writeAttribute("section", SECTIONS[i]);
+            writer.writeCharacters(Integer.toHexString(checksums[i]));
+            writer.writeEndElement();
+            writer.writeCharacters(NEWLINE);
+        }
+
+        writer.writeCharacters("\t");
+        writer.writeEndElement();
+        writer.writeCharacters(NEWLINE);
+    }
+
+    private static int sectionIndex(String localName) {
+        for(int i = 0; i < SECTIONS.length; i++) {
+            if(SECTIONS[i].equals(localName))
+                return i;
+        }
+        throw new IllegalArgumentException("Unknown section: " + localName);
+    }
+
+    /**
+     * Computes the CRC32C of the bytes written between {@link ChecksumOutputStream#beginChecksum()}
+     * and {@link ChecksumOutputStream#endChecksum()}.
+     */
+    private static class ChecksumOutputStream extends FilterOutputStream {
+        private final CRC32C checksum;
+        private boolean active;
+
+        ChecksumOutputStream(OutputStream out) {
+            super(out);
+            checksum = new CRC32C();
+            active = false;
+        }
+
+        void beginChecksum() {
+            checksum.reset();
+            active = true;
+        }
+
+        int endChecksum() {
+            active = false;
+            return (int) checksum.getValue();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if(active)
+                checksum.update(b);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if(active)
+                checksum.update(b, off, len);
+            out.write(b, off, len);
+        }
+    }
+
+    private interface SectionContents {
+        void write(ProjectSnapshot snapshot, XMLStreamWriter writer) throws XMLStreamException;
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#read(File)}
+     * @param reader positioned at the start of the "project" element
+     * @param snapshot
+     */
+    private static void loadProjectAttributes(XMLStreamReader reader, ProjectSnapshot snapshot) {
+        for(int i = 0; i < reader.getAttributeCount(); i++) {
+            switch (reader.getAttributeLocalName(i)) {
+                case "name":
+                    snapshot.name = reader.getAttributeValue(i);
+                    break;
+                case "journal_generation":
+                    snapshot.journalGeneration = Long.parseLong(reader.getAttributeValue(i));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link XmlProjectFormat#read(File)}
+     * @param localName the name of the section element
+     * @param reader positioned at the start of the section element
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadSection(String localName, XMLStreamReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        switch (localName) {
+            case "uid_manager":
+                loadUIDManager(reader, snapshot);
+                break;
+            case "events":
+                loadEvents(reader, snapshot);
+                break;
+            case "event_order":
+                loadEventOrderLists(reader, snapshot);
+                break;
+            case "characters":
+                loadCharacters(reader, snapshot);
+                break;
+            case "associations":
+                loadAssociations(reader, snapshot);
+                break;
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        // Text containing entities (eg. &amp;) must arrive as a single event
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return inputFactory;
+    }
+
+    /**
+     * Reads the given XML project file into a new snapshot.
+     * <p>
+     * The file is parsed one section at a time, see {@link SectionLoader}; large files concurrently.
+     * The byte range of each section is found by searching for its start and end tags, which cannot occur
+     * anywhere else, as '&lt;' is always escaped in text and attributes. Files whose sections cannot be
+     * found this way, eg. because they have been edited by hand, are parsed from start to end instead.
+     * <p>
+     * Each section is checked against the checksum stored in the "checksums" element, if there is one,
+     * while the sections are parsed. Files written before checksums were added have no such element.
+     * A section that does not match its checksum, but can be parsed, is taken to have been edited by hand,
+     * and is listed in {@link ProjectSnapshot#edited}.
+     * @param file the project file to read
+     * @return the data contained within the file
+     * @throws CorruptSectionException if a section cannot be parsed
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static ProjectSnapshot read(File file) throws IOException, XMLStreamException {
+        SectionIndex index = indexSections(file);
+        if(index == null)
+            return readSequential(file);
+
+        ArrayList<SectionLoader.SectionTask> tasks = new ArrayList<>(SECTIONS.length);
+        for(int i = 0; i < SECTIONS.length; i++) {
+            ProjectSection section = ProjectSection.fromName(SECTIONS[i]);
+            ByteBuffer range = index.ranges[i];
+            Integer checksum = index.checksums.get(SECTIONS[i]);
+
+            tasks.add(staging -> {
+                boolean matches = checksum == null || matchesChecksum(range, checksum);
+
+                try {
+                    XMLStreamReader sectionReader = createInputFactory()
+                            .createXMLStreamReader(new ByteBufferInputStream(range.duplicate()), "UTF-8");
+                    try {
+                        sectionReader.nextTag();
+                        loadSection(section.getSectionName(), sectionReader, staging);
+                    } finally {
+                        sectionReader.close();
+                    }
+                } catch (XMLStreamException | IllegalArgumentException e) {
+                    throw new CorruptSectionException(section, matches ? e.getMessage() : "checksum mismatch", e);
+                }
+
+                if(!matches)
+                    staging.edited.add(section);
+            });
+        }
+
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        snapshot.name = index.name;
+        snapshot.journalGeneration = index.journalGeneration;
+        SectionLoader.parseAll(tasks, snapshot, file.length() >= SectionLoader.PARALLEL_THRESHOLD);
+        return snapshot;
+    }
+
+    /**
+     * Checks every section of the given XML project file against its checksum, without parsing it.
+     * Files without checksums are parsed instead. Unlike {@link XmlProjectFormat#read(File)}, this does not
+     * allow for sections edited by hand, as it is meant to check a file that has just been written.
+     * @param file the project file to check
+     * @throws CorruptSectionException if a section is damaged
+     * @throws IOException
+     * @throws XMLStreamException if a file without checksums cannot be parsed
+     */
+    public static void verify(File file) throws IOException, XMLStreamException {
+        SectionIndex index = indexSections(file);
+        if(index == null || index.checksums.size() < SECTIONS.length) {
+            read(file);
+            return;
+        }
+
+        for(int i = 0; i < SECTIONS.length; i++)
+            verifySection(ProjectSection.fromName(SECTIONS[i]), index.ranges[i], index.checksums.get(SECTIONS[i]));
+    }
+
+    /**
+     * Reads the file from start to end, on the calling thread.
+     */
+    private static ProjectSnapshot readSequential(File file) throws IOException, XMLStreamException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            InputStream stream = new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE))
+        {
+            return read(stream);
+        }
+    }
+
+    /**
+     * Reads an XML project document from the given stream, on the calling thread. The stream is not closed.
+     * Checksums are not verified.
+     * @param stream the stream to read from
+     * @return the data contained within the document
+     * @throws XMLStreamException
+     */
+    static ProjectSnapshot read(InputStream stream) throws XMLStreamException {
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(stream);
+
+        try {
+            while(reader.hasNext()) {
+                if(reader.next() != XMLStreamConstants.START_ELEMENT)
+                    continue;
+
+                if(reader.getLocalName().equals("project"))
+                    loadProjectAttributes(reader, snapshot);
+                else
+                    loadSection(reader.getLocalName(), reader, snapshot);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * The byte ranges of the sections of a file, along with the attributes of the project element
+     * and the checksums of the sections.
+     */
+    private static class SectionIndex {
+        private String name = "";
+        private long journalGeneration = 0L;
+        private final ByteBuffer[] ranges = new ByteBuffer[SECTIONS.length];
+        private final HashMap<String, Integer> checksums = new HashMap<>();
+    }
+
+    /**
+     * Reads the file, and finds the byte range of each section.
+     * @return the index, or null if the sections could not be found
+     */
+    private static SectionIndex indexSections(File file) throws IOException, XMLStreamException {
+        ByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE)
+                return null;
+
+            // Read into the heap rather than mapped, as a mapping outlives the channel, and on Windows,
+            // keeps the next save from replacing the file
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, buffer.position()) < 0)
+                    return null;
+            }
+            buffer.flip();
+        }
+
+        SectionIndex index = new SectionIndex();
+
+        // Only the start of the document is parsed here, up to the project element
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(new ByteBufferInputStream(buffer.duplicate()));
+        try {
+            String encoding = reader.getCharacterEncodingScheme();
+            if(encoding != null && !encoding.equalsIgnoreCase("UTF-8"))
+                return null; // The sections are parsed as UTF-8
+            if(reader.nextTag() != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("project"))
+                return null;
+
+            ProjectSnapshot attributes = new ProjectSnapshot();
+            loadProjectAttributes(reader, attributes);
+            index.name = attributes.name;
+            index.journalGeneration = attributes.journalGeneration;
+        } finally {
+            reader.close();
+        }
+
+        int pos = 0;
+        for(int i = 0; i < SECTIONS.length; i++) {
+            ByteBuffer range = findElement(buffer, SECTIONS[i], pos);
+            if(range == null)
+                return null;
+
+            index.ranges[i] = range.slice();
+            pos = range.limit();
+        }
+
+        ByteBuffer checksums = findElement(buffer, "checksums", pos);
+        if(checksums != null)
+            loadChecksums(checksums.slice(), index.checksums);
+
+        return index;
+    }
+
+    /**
+     * Finds the first element with the given name, at or after the given position.
+     * @return a view of the buffer, positioned at the start tag and limited to the end of the end tag,
+     *         or null if not found
+     */
+    private static ByteBuffer findElement(ByteBuffer buffer, String localName, int from) {
+        byte[] startTag = ("<" + localName + ">").getBytes(StandardCharsets.US_ASCII);
+        byte[] endTag = ("</" + localName + ">").getBytes(StandardCharsets.US_ASCII);
+
+        int start = indexOf(buffer, startTag, from);
+        if(start < 0)
+            return null;
+        int end = indexOf(buffer, endTag, start + startTag.length);
+        if(end < 0)
+            return null;
+
+        ByteBuffer range = buffer.duplicate();
+        range.limit(end + endTag.length).position(start);
+        return range;
+    }
+
+    private static void loadChecksums(ByteBuffer range, HashMap<String, Integer> checksums) throws XMLStreamException {
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(new ByteBufferInputStream(range), "UTF-8");
+        try {
+            while(reader.hasNext()) {
+                if(reader.next() != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("checksum"))
+                    continue;
+
+                String section = reader.getAttributeValue(null, "section");
+                String value = reader.getElementText();
+                if(section != null)
+                    checksums.put(section, Integer.parseUnsignedInt(value, 16));
+            }
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid checksum", e);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Checks the bytes of a section, from its start tag to its end tag, against its checksum.
+     * @throws CorruptSectionException if the checksum does not match
+     */
+    private static void verifySection(ProjectSection section, ByteBuffer range, int expected)
+            throws CorruptSectionException
+    {
+        if(!matchesChecksum(range, expected))
+            throw new CorruptSectionException(section, "checksum mismatch");
+    }
+
+    private static boolean matchesChecksum(ByteBuffer range, int expected) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(range.duplicate());
+        return (int) checksum.getValue() == expected;
+    }
+
+    /**
+     * Returns the position of the first occurrence of the pattern in the buffer, at or after the given position.
+     * @return the position, or -1 if not found
+     */
+    private static int indexOf(ByteBuffer buffer, byte[] pattern, int from) {
+        int last = buffer.limit() - pattern.length;
+        byte first = pattern[0];
+
+        outer:
+        for(int i = from; i <= last; i++) {
+            if(buffer.get(i) != first)
+                continue;
+            for(int j = 1; j < pattern.length; j++) {
+                if(buffer.get(i + j) != pattern[j])
+                    continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the given snapshot to the file as an XML project, overwriting any existing content.
+     * @param snapshot the data to write
+     * @param file the file to write to
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static void write(ProjectSnapshot snapshot, File file) throws IOException, XMLStreamException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            write(snapshot, Channels.newOutputStream(channel));
+        }
+    }
+
+    /**
+     * Writes the snapshot as an XML project document to the given stream, encoded as UTF-8.
+     * The stream is flushed, but not closed.
+     * @param snapshot the data to write
+     * @param stream the stream to write to
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    static void write(ProjectSnapshot snapshot, OutputStream stream) throws IOException, XMLStreamException {
+        ChecksumOutputStream checked = new ChecksumOutputStream(stream);
+        Writer out = new BufferedWriter(new OutputStreamWriter(checked, StandardCharsets.UTF_8), BUFFER_SIZE);
+        XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+        XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out);
+
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeCharacters(NEWLINE);
+
+        writer.writeStartElement("project");
+        writer.writeAttribute("name", snapshot.name);
+        if(snapshot.journalGeneration > 0L)
+            writer.writeAttribute("journal_generation", Long.toString(snapshot.journalGeneration));
+        writer.writeCharacters(NEWLINE);
+
+        int[] checksums = new int[SECTIONS.length];
+        writeSection("uid_manager", snapshot, writer, checked, checksums, XmlProjectFormat::writeUIDManager);
+        writeSection("events", snapshot, writer, checked, checksums, XmlProjectFormat::writeEvents);
+        writeSection("event_order", snapshot, writer, checked, checksums, XmlProjectFormat::writeEventOrderLists);
+        writeSection("characters", snapshot, writer, checked, checksums, XmlProjectFormat::writeCharacters);
+        writeSection("associations", snapshot, writer, checked, checksums, XmlProjectFormat::writeAssociations);
+        writeChecksums(checksums, writer);
+
+        writer.writeEndElement();
+        writer.writeCharacters(NEWLINE);
+
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close(); // Does not close the underlying writer
+        out.flush();
+    }
+
+}
@@ -0,0 +1,465 @@
+package com.team34.model.library;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.team34.model.io.ProjectSnapshot;
+
+/**
+ * An inverted index of the event and character names and descriptions of many project files,
+ * for finding the projects that mention some words without opening each of them.
+ * <p>
+ * Text is split into lower-case words of letters and digits. For every word, the index holds the
+ * projects it occurs in, along with which fields it occurs in, see {@link LibraryIndex#EVENT_NAME} etc.
+ * The last word of a query also matches the words it is a prefix of, so that projects can be searched
+ * while the query is being typed.
+ * <p>
+ * Each project is stored with the modification time and size of its file when it was indexed, so that
+ * the index can be brought up to date by only indexing the files that have changed since, see
+ * {@link LibraryIndex#isCurrent(File)}. The index is stored in a file of its own, as the word dictionary
+ * followed by the postings of each word.
+ * <p>
+ * All methods are thread-safe; projects may be indexed on one thread while another thread searches.
+ */
+public class LibraryIndex {
+
+    public static final int EVENT_NAME = 1;
+    public static final int EVENT_DESCRIPTION = 1 << 1;
+    public static final int CHARACTER_NAME = 1 << 2;
+    public static final int CHARACTER_DESCRIPTION = 1 << 3;
+    public static final int PROJECT_NAME = 1 << 4;
+
+    private static final int MAGIC = 0x57534C49; // "WSLI"
+    private static final int VERSION = 1;
+    private static final int MIN_WORD_LENGTH = 2;
+
+    private final File directory;
+    private final TreeMap<String, Postings> words;
+    private final HashMap<Integer, Document> documents;
+    private final HashMap<File, Document> documentsByFile;
+    private int nextId;
+
+    /**
+     * Creates an empty index of the project files in the given directory.
+     * @param directory the directory that is indexed
+     */
+    public LibraryIndex(File directory) {
+        this.directory = directory.getAbsoluteFile();
+        words = new TreeMap<>();
+        documents = new HashMap<>();
+        documentsByFile = new HashMap<>();
+        nextId = 0;
+    }
+
+    /**
+     * Returns the directory that is indexed.
+     * @return the directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns whether the given file is indexed, and has not changed since.
+     * @param file the project file
+     * @return true if the index is up to date for the file
+     */
+    public synchronized boolean isCurrent(File file) {
+        Document document = documentsByFile.get(file.getAbsoluteFile());
+        return document != null
+                && document.lastModified == file.lastModified()
+                && document.length == file.length();
+    }
+
+    /**
+     * Returns every indexed project file.
+     * @return the files
+     */
+    public synchronized List<File> getFiles() {
+        return new ArrayList<>(documentsByFile.keySet());
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    /**
+     * Indexes the given project, replacing what was indexed for the file before.
+     * @param file the project file
+     * @param lastModified the modification time of the file, when it was read
+     * @param length the size of the file, when it was read
+     * @param snapshot the content of the file
+     */
+    public void put(File file, long lastModified, long length, ProjectSnapshot snapshot) {
+        HashMap<String, Integer> fields = new HashMap<>();
+        addWords(fields, snapshot.name, PROJECT_NAME);
+        for(ProjectSnapshot.EventEntry event : snapshot.events) {
+            addWords(fields, event.name, EVENT_NAME);
+            addWords(fields, event.description, EVENT_DESCRIPTION);
+        }
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters) {
+            addWords(fields, character.name, CHARACTER_NAME);
+            addWords(fields, character.description, CHARACTER_DESCRIPTION);
+        }
+
+        String name = snapshot.name != null && !snapshot.name.isEmpty() ? snapshot.name : file.getName();
+
+        synchronized(this) {
+            remove(file);
+
+            Document document = new Document(nextId++, file.getAbsoluteFile(), name, lastModified, length);
+            document.words = fields.keySet().toArray(new String[0]);
+            for(Map.Entry<String, Integer> entry : fields.entrySet())
+                words.computeIfAbsent(entry.getKey(), w -> new Postings()).add(document.id, entry.getValue());
+
+            documents.put(document.id, document);
+            documentsByFile.put(document.file, document);
+        }
+    }
+
+    /**
+     * Removes the given project file from the index, if it is indexed.
+     * @param file the project file
+     */
+    public synchronized void remove(File file) {
+        Document document = documentsByFile.remove(file.getAbsoluteFile());
+        if(document == null)
+            return;
+
+        documents.remove(document.id);
+        for(String word : document.words) {
+            Postings postings = words.get(word);
+            if(postings != null && postings.remove(document.id) && postings.size == 0)
+                words.remove(word);
+        }
+    }
+
+    /**
+     * Finds the projects that contain every word of the query. The last word also matches
+     * the words it is a prefix of, unless the query ends with a space.
+     * <p>
+     * The projects are ranked by where the words occur; names weigh more than descriptions.
+     * @param query the words to search for
+     * @param limit the maximum number of results
+     * @return the matching projects, best match first
+     */
+    public synchronized List<Result> search(String query, int limit) {
+        ArrayList<String> queryWords = new ArrayList<>();
+        tokenize(query, queryWords::add);
+        if(queryWords.isEmpty())
+            return new ArrayList<>();
+
+        boolean prefixLast = !query.isEmpty() && !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        HashMap<Integer, int[]> matches = null; // Document ID -> {fields, score}
+        for(int i = 0; i < queryWords.size(); i++) {
+            String word = queryWords.get(i);
+            HashMap<Integer, Integer> found = new HashMap<>();
+
+            if(prefixLast && i == queryWords.size() - 1) {
+                NavigableMap<String, Postings> range = words.subMap(word, true, word + Character.MAX_VALUE, true);
+                for(Postings postings : range.values())
+                    postings.collect(found);
+            } else {
+                Postings postings = words.get(word);
+                if(postings != null)
+                    postings.collect(found);
+            }
+
+            if(matches == null) {
+                matches = new HashMap<>();
+                for(Map.Entry<Integer, Integer> entry : found.entrySet())
+                    matches.put(entry.getKey(), new int[] {entry.getValue(), score(entry.getValue())});
+            } else {
+                HashMap<Integer, int[]> retained = new HashMap<>();
+                for(Map.Entry<Integer, int[]> entry : matches.entrySet()) {
+                    Integer fields = found.get(entry.getKey());
+                    if(fields != null) {
+                        int[] match = entry.getValue();
+                        match[0] |= fields;
+                        match[1] += score(fields);
+                        retained.put(entry.getKey(), match);
+                    }
+                }
+                matches = retained;
+            }
+
+            if(matches.isEmpty())
+                break;
+        }
+
+        ArrayList<Result> results = new ArrayList<>();
+        for(Map.Entry<Integer, int[]> entry : matches.entrySet()) {
+            Document document = documents.get(entry.getKey());
+            results.add(new Result(document.file, document.name, entry.getValue()[0], entry.getValue()[1]));
+        }
+
+        results.sort((a, b) -> a.score != b.score ? Integer.compare(b.score, a.score)
+                : a.projectName.compareToIgnoreCase(b.projectName));
+        if(results.size() > limit)
+            return new ArrayList<>(results.subList(0, limit));
+        return results;
+    }
+
+    private static int score(int fields) {
+        int score = 0;
+        if((fields & (PROJECT_NAME | CHARACTER_NAME)) != 0)
+            score += 4;
+        if((fields & EVENT_NAME) != 0)
+            score += 3;
+        if((fields & CHARACTER_DESCRIPTION) != 0)
+            score += 2;
+        if((fields & EVENT_DESCRIPTION) != 0)
+            score += 1;
+        return score;
+    }
+
+    ////// Storage /////////////////////////////////////////////////////////
+
+    /**
+     * Writes the index to the given file. The file is written to a temporary file first,
+     * which then replaces the given file.
+     * @param file the index file
+     * @throws IOException
+     */
+    public synchronized void write(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+
+        boolean moved = false;
+        try {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeUTF(directory.getPath());
+
+                out.writeInt(documents.size());
+                for(Document document : documents.values()) {
+                    out.writeInt(document.id);
+                    out.writeUTF(document.file.getPath());
+                    out.writeUTF(document.name);
+                    out.writeLong(document.lastModified);
+                    out.writeLong(document.length);
+                }
+
+                out.writeInt(words.size());
+                for(Map.Entry<String, Postings> entry : words.entrySet()) {
+                    Postings postings = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(postings.size);
+                    for(int i = 0; i < postings.size; i++) {
+                        out.writeInt(postings.documents[i]);
+                        out.writeByte(postings.fields[i]);
+                    }
+                }
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if(!moved)
+                temp.delete();
+        }
+    }
+
+    /**
+     * Reads an index of the given directory from the given file. An empty index is returned if the file
+     * does not exist, cannot be read, or is the index of another directory.
+     * @param file the index file
+     * @param directory the directory that is indexed
+     * @return the index
+     */
+    public static LibraryIndex read(File file, File directory) {
+        LibraryIndex index = new LibraryIndex(directory);
+        if(!file.exists())
+            return index;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if(in.readInt() != MAGIC || in.readUnsignedByte() != VERSION)
+                return index;
+            if(!in.readUTF().equals(index.directory.getPath()))
+                return index;
+
+            int documentCount = in.readInt();
+            HashMap<Integer, ArrayList<String>> documentWords = new HashMap<>();
+            for(int i = 0; i < documentCount; i++) {
+                Document document = new Document(in.readInt(), new File(in.readUTF()), in.readUTF(),
+                        in.readLong(), in.readLong());
+                index.documents.put(document.id, document);
+                index.documentsByFile.put(document.file, document);
+                documentWords.put(document.id, new ArrayList<>());
+                index.nextId = Math.max(index.nextId, document.id + 1);
+            }
+
+            int wordCount = in.readInt();
+            for(int i = 0; i < wordCount; i++) {
+                String word = in.readUTF();
+                int size = in.readInt();
+                Postings postings = new Postings();
+                for(int j = 0; j < size; j++) {
+                    int id = in.readInt();
+                    int fields = in.readUnsignedByte();
+                    ArrayList<String> forward = documentWords.get(id);
+                    if(forward == null)
+                        throw new IOException("Unknown document " + id);
+                    forward.add(word);
+                    postings.add(id, fields);
+                }
+                index.words.put(word, postings);
+            }
+
+            for(Document document : index.documents.values())
+                document.words = documentWords.get(document.id).toArray(new String[0]);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new LibraryIndex(directory);
+        }
+
+        return index;
+    }
+
+    ////// Words ///////////////////////////////////////////////////////////
+
+    private static void addWords(HashMap<String, Integer> fields, String text, int field) {
+        tokenize(text, word -> fields.merge(word, field, (a, b) -> a | b));
+    }
+
+    private interface WordConsumer {
+        void accept(String word);
+    }
+
+    /**
+     * Splits the text into lower-case words of letters and digits.
+     */
+    private static void tokenize(String text, WordConsumer consumer) {
+        if(text == null)
+            return;
+
+        int start = -1;
+        for(int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if(wordChar && start < 0) {
+                start = i;
+            } else if(!wordChar && start >= 0) {
+                if(i - start >= MIN_WORD_LENGTH || Character.isDigit(text.charAt(start)))
+                    consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * A project that matches a search.
+     */
+    public static class Result {
+        private final File file;
+        private final String projectName;
+        private final int fields;
+        private final int score;
+
+        Result(File file, String projectName, int fields, int score) {
+            this.file = file;
+            this.projectName = projectName;
+            this.fields = fields;
+            this.score = score;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getProjectName() {
+            return projectName;
+        }
+
+        /**
+         * Returns the fields the query words occur in.
+         * @return a combination of {@link LibraryIndex#EVENT_NAME} etc.
+         */
+        public int getFields() {
+            return fields;
+        }
+    }
+
+    /**
+     * An indexed project file.
+     */
+    private static class Document {
+        final int id;
+        final File file;
+        final String name;
+        final long lastModified;
+        final long length;
+        String[] words;
+
+        Document(int id, File file, String name, long lastModified, long length) {
+            this.id = id;
+            this.file = file;
+            this.name = name;
+            this.lastModified = lastModified;
+            this.length = length;
+            words = new String[0];
+        }
+    }
+
+    /**
+     * The documents a word occurs in, sorted by document ID, along with the fields it occurs in.
+     * Document IDs are handed out in increasing order, so adding a document keeps the order.
+     */
+    private static class Postings {
+        int[] documents = new int[4];
+        byte[] fields = new byte[4];
+        int size = 0;
+
+        void add(int document, int field) {
+            if(size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                fields = Arrays.copyOf(fields, size * 2);
+            }
+            documents[size] = document;
+            fields[size] = (byte) field;
+            size++;
+        }
+
+        boolean remove(int document) {
+            int index = Arrays.binarySearch(documents, 0, size, document);
+            if(index < 0)
+                return false;
+
+            System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+            System.arraycopy(fields, index + 1, fields, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        void collect(HashMap<Integer, Integer> found) {
+            for(int i = 0; i < size; i++)
+                found.merge(documents[i], fields[i] & 0xFF, (a, b) -> a | b);
+        }
+    }
+
+}
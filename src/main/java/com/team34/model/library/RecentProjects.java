@@ -0,0 +1,372 @@
+package com.team34.model.library;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small cache of metadata about the most recently saved and opened projects, so that they can be
+ * listed without reading their project files.
+ * <p>
+ * Each entry holds the name of the project, how many events, characters and associations it has, when
+ * it was last saved or opened, and a thumbnail of its character chart. The entries are recorded by the
+ * {@link com.team34.model.Project} as projects are saved and opened, and the cache file is written on a
+ * background thread after every change. If the cache file cannot be read, the cache simply starts out empty.
+ * <p>
+ * All methods may be called on any thread.
+ */
+public class RecentProjects {
+
+    public static final int MAX_ENTRIES = 10;
+
+    /** The size of the character rectangles in the character chart, in chart units. */
+    public static final double BOX_WIDTH = 90.0;
+    public static final double BOX_HEIGHT = 60.0;
+
+    /** The maximum number of characters and associations drawn in a thumbnail. */
+    private static final int MAX_THUMBNAIL_SHAPES = 200;
+
+    private static final int MAGIC = 0x57535250; // "WSRP"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final LinkedList<Entry> entries; // Most recent first
+    private final ExecutorService writer;
+    private boolean writeQueued;
+
+    /**
+     * Reads the cache file, if it exists.
+     * @param file the cache file
+     */
+    public RecentProjects(File file) {
+        this.file = file;
+        entries = new LinkedList<>();
+        writeQueued = false;
+
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "recent-projects");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        if(file.exists()) {
+            try {
+                read();
+            } catch (IOException e) {
+                e.printStackTrace();
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the cached entries, most recent first.
+     * @return a copy of the entries
+     */
+    public synchronized List<Entry> getEntries() {
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * Records the metadata of a project that has just been saved or opened, making it the most recent entry.
+     * @param projectFile the project file
+     * @param name the name of the project
+     * @param events the number of events
+     * @param characterPositions the chart positions of the characters, as x, y pairs
+     * @param associationLines the end points of the associations, as start x, start y, end x, end y
+     */
+    public void record(File projectFile, String name, int events, double[] characterPositions,
+                       double[] associationLines)
+    {
+        Entry entry = new Entry(projectFile.getAbsoluteFile(), name, events,
+                characterPositions.length / 2, associationLines.length / 4, System.currentTimeMillis(),
+                createThumbnail(characterPositions, associationLines));
+
+        synchronized(this) {
+            removeEntry(entry.file);
+            entries.addFirst(entry);
+            while(entries.size() > MAX_ENTRIES)
+                entries.removeLast();
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Removes the entry of the given project file, if any.
+     * @param projectFile the project file
+     */
+    public void remove(File projectFile) {
+        synchronized(this) {
+            if(!removeEntry(projectFile.getAbsoluteFile()))
+                return;
+        }
+        scheduleWrite();
+    }
+
+    /**
+     * Writes any pending changes, and stops the background thread.
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean removeEntry(File projectFile) {
+        Iterator<Entry> it = entries.iterator();
+        while(it.hasNext()) {
+            if(it.next().file.equals(projectFile)) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void scheduleWrite() {
+        if(writeQueued)
+            return;
+        writeQueued = true;
+        writer.execute(this::writePending);
+    }
+
+    private void writePending() {
+        List<Entry> copy;
+        synchronized(this) {
+            writeQueued = false;
+            copy = new ArrayList<>(entries);
+        }
+
+        try {
+            write(copy);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Scales the chart into the unit square, keeping its aspect ratio, and returns the shapes to draw.
+     */
+    private static Thumbnail createThumbnail(double[] characterPositions, double[] associationLines) {
+        int boxCount = Math.min(characterPositions.length / 2, MAX_THUMBNAIL_SHAPES);
+        int lineCount = Math.min(associationLines.length / 4, MAX_THUMBNAIL_SHAPES);
+        if(boxCount == 0 && lineCount == 0)
+            return new Thumbnail(new float[0], new float[0]);
+
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for(int i = 0; i < boxCount; i++) {
+            minX = Math.min(minX, characterPositions[i*2]);
+            minY = Math.min(minY, characterPositions[i*2 + 1]);
+            maxX = Math.max(maxX, characterPositions[i*2] + BOX_WIDTH);
+            maxY = Math.max(maxY, characterPositions[i*2 + 1] + BOX_HEIGHT);
+        }
+        for(int i = 0; i < lineCount * 4; i += 2) {
+            minX = Math.min(minX, associationLines[i]);
+            minY = Math.min(minY, associationLines[i + 1]);
+            maxX = Math.max(maxX, associationLines[i]);
+            maxY = Math.max(maxY, associationLines[i + 1]);
+        }
+
+        double scale = 1.0 / Math.max(1.0, Math.max(maxX - minX, maxY - minY));
+
+        float[] boxes = new float[boxCount * 4];
+        for(int i = 0; i < boxCount; i++) {
+            boxes[i*4] = (float) ((characterPositions[i*2] - minX) * scale);
+            boxes[i*4 + 1] = (float) ((characterPositions[i*2 + 1] - minY) * scale);
+            boxes[i*4 + 2] = (float) (BOX_WIDTH * scale);
+            boxes[i*4 + 3] = (float) (BOX_HEIGHT * scale);
+        }
+
+        float[] lines = new float[lineCount * 4];
+        for(int i = 0; i < lineCount * 4; i += 2) {
+            lines[i] = (float) ((associationLines[i] - minX) * scale);
+            lines[i + 1] = (float) ((associationLines[i + 1] - minY) * scale);
+        }
+
+        return new Thumbnail(boxes, lines);
+    }
+
+    private void read() throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION)
+                return;
+
+            int count = in.readInt();
+            for(int i = 0; i < count && i < MAX_ENTRIES; i++) {
+                File projectFile = new File(in.readUTF());
+                String name = in.readUTF();
+                int events = in.readInt();
+                int characters = in.readInt();
+                int associations = in.readInt();
+                long lastUsed = in.readLong();
+                float[] boxes = readFloats(in);
+                float[] lines = readFloats(in);
+                entries.add(new Entry(projectFile, name, events, characters, associations, lastUsed,
+                        new Thumbnail(boxes, lines)));
+            }
+        }
+    }
+
+    private static float[] readFloats(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if(length < 0 || length > MAX_THUMBNAIL_SHAPES * 4)
+            throw new IOException("Invalid thumbnail");
+
+        float[] values = new float[length];
+        for(int i = 0; i < length; i++)
+            values[i] = in.readFloat();
+        return values;
+    }
+
+    /**
+     * Writes the entries to a temporary file next to the cache file, and moves it into place.
+     */
+    private void write(List<Entry> copy) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+
+        boolean moved = false;
+        try {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(copy.size());
+                for(Entry entry : copy) {
+                    out.writeUTF(entry.file.getPath());
+                    out.writeUTF(entry.name);
+                    out.writeInt(entry.events);
+                    out.writeInt(entry.characters);
+                    out.writeInt(entry.associations);
+                    out.writeLong(entry.lastUsed);
+                    writeFloats(out, entry.thumbnail.boxes);
+                    writeFloats(out, entry.thumbnail.lines);
+                }
+            }
+
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if(!moved)
+                temp.delete();
+        }
+    }
+
+    private static void writeFloats(DataOutputStream out, float[] values) throws IOException {
+        out.writeInt(values.length);
+        for(float value : values)
+            out.writeFloat(value);
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * The cached metadata of a project.
+     */
+    public static class Entry {
+        private final File file;
+        private final String name;
+        private final int events;
+        private final int characters;
+        private final int associations;
+        private final long lastUsed;
+        private final Thumbnail thumbnail;
+
+        private Entry(File file, String name, int events, int characters, int associations, long lastUsed,
+                      Thumbnail thumbnail)
+        {
+            this.file = file;
+            this.name = name;
+            this.events = events;
+            this.characters = characters;
+            this.associations = associations;
+            this.lastUsed = lastUsed;
+            this.thumbnail = thumbnail;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getEventCount() {
+            return events;
+        }
+
+        public int getCharacterCount() {
+            return characters;
+        }
+
+        public int getAssociationCount() {
+            return associations;
+        }
+
+        /**
+         * Returns when the project was last saved or opened, in milliseconds since the epoch.
+         * @return the time
+         */
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        public Thumbnail getThumbnail() {
+            return thumbnail;
+        }
+    }
+
+    /**
+     * A thumbnail of a character chart, scaled to fit into the unit square.
+     */
+    public static class Thumbnail {
+        private final float[] boxes;
+        private final float[] lines;
+
+        private Thumbnail(float[] boxes, float[] lines) {
+            this.boxes = boxes;
+            this.lines = lines;
+        }
+
+        /**
+         * Returns the character rectangles, as x, y, width, height.
+         * @return the rectangles, which must not be changed
+         */
+        public float[] getBoxes() {
+            return boxes;
+        }
+
+        /**
+         * Returns the association lines, as start x, start y, end x, end y.
+         * @return the lines, which must not be changed
+         */
+        public float[] getLines() {
+            return lines;
+        }
+    }
+
+}
@@ -64,6 +64,24 @@ public class LabeledRectangle {
         tooltip.setHideDelay(Duration.millis(300.0));
     }
 
+    /**
+     * Changes the text displayed within the rectangle, and by its tooltip.
+     * @param label the new text
+     */
+    public void setLabel(String label) {
+        text.setText(label);
+        tooltip.setText(label);
+    }
+
+    /**
+     * Shows or hides the rectangle and its text.
+     * @param visible true to show them
+     */
+    public void setVisible(boolean visible) {
+        rect.setVisible(visible);
+        text.setVisible(visible);
+    }
+
     /**
      * Returns a reference to the internal {@link javafx.scene.text.Text} object.
      * @return the Text object
@@ -0,0 +1,107 @@
+package com.team34.view;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.function.Supplier;
+
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+/**
+ * Keeps {@link LabeledRectangle}s for reuse, instead of creating new ones each time the rectangles are rebuilt.
+ * <p>
+ * A rectangle is created, styled, and added to the pane once, along with its handlers and tooltip, which are
+ * therefore shared between the uses of the rectangle, and must look up what the rectangle shows when they fire.
+ * Releasing a rectangle only hides it, and acquiring it again relabels and shows it, so the rectangle stays in
+ * the scene graph, and CSS is not applied to it again. Rectangles beyond what the last update needed are
+ * removed from the pane by {@link LabeledRectanglePool#trim()}, so that the pool shrinks again after a
+ * large update.
+ *
+ * @param <T> the type of rectangles
+ */
+public class LabeledRectanglePool<T extends LabeledRectangle> {
+
+    /** The number of released rectangles that are always kept, however few are in use. */
+    private static final int MIN_SPARE = 16;
+
+    private final Pane pane;
+    private final Supplier<T> factory;
+    private final ArrayDeque<T> free;
+    private int size;
+    private int inUse;
+
+    /**
+     * @param pane    the pane that the rectangles are added to
+     * @param factory creates a rectangle, with its style classes, handlers and tooltip installed
+     */
+    public LabeledRectanglePool(Pane pane, Supplier<T> factory) {
+        this.pane = pane;
+        this.factory = factory;
+        free = new ArrayDeque<>();
+        size = 0;
+        inUse = 0;
+    }
+
+    /**
+     * Returns a rectangle with the given label, shown, reusing a released one if there is any.
+     * @param label the text to be displayed within the rectangle
+     * @return the rectangle
+     */
+    public T acquire(String label) {
+        T rect = free.poll();
+        if (rect == null) {
+            rect = factory.get();
+            pane.getChildren().addAll(rect.getRect(), rect.getText());
+            size++;
+        }
+
+        inUse++;
+        rect.setLabel(label);
+        rect.setVisible(true);
+        return rect;
+    }
+
+    /**
+     * Hides a rectangle, to be reused by {@link LabeledRectanglePool#acquire(String)}. The user data of its
+     * {@link javafx.scene.shape.Rectangle} is cleared, so that the rectangle no longer resolves to what it showed.
+     * @param rect the rectangle, which must not be used after this
+     */
+    public void release(T rect) {
+        rect.setVisible(false);
+        rect.getRect().setUserData(null);
+        rect.getRect().setViewOrder(0.0);
+        rect.getText().setViewOrder(0.0);
+        free.push(rect);
+        inUse--;
+    }
+
+    /**
+     * Removes released rectangles from the pane, keeping as many as are in use, or {@link #MIN_SPARE} if that
+     * is more. Meant to be called at the end of an update, once the rectangles it needs have been acquired, as
+     * the rectangles released during the update would otherwise be removed before they could be reused.
+     */
+    public void trim() {
+        int keep = Math.max(MIN_SPARE, inUse);
+        if (free.size() <= keep)
+            return;
+
+        // The least recently released rectangles are removed, in one pass over the children of the pane
+        HashSet<Node> removed = new HashSet<>();
+        while (free.size() > keep) {
+            T rect = free.pollLast();
+            removed.add(rect.getRect());
+            removed.add(rect.getText());
+            size--;
+        }
+        pane.getChildren().removeIf(removed::contains);
+    }
+
+    /**
+     * Returns the number of rectangles that have been created, whether in use or not.
+     * @return the number of rectangles
+     */
+    public int size() {
+        return size;
+    }
+
+}
@@ -16,6 +16,8 @@ import javafx.stage.WindowEvent;
 
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.List;
+import java.io.File;
 
 import com.team34.model.event.EventManager;
 import com.team34.view.character.CharacterList;
@@ -23,6 +25,10 @@ import com.team34.view.event.EventList;
 import com.team34.view.dialogs.EditEventDialog;
 import com.team34.view.dialogs.EditCharacterDialog;
 import com.team34.view.dialogs.EditAssociationDialog;
+import com.team34.view.dialogs.SearchProjectsDialog;
+import com.team34.view.dialogs.VersionHistoryDialog;
+import com.team34.view.dialogs.DiagnosticsDialog;
+import com.team34.model.diagnostics.ViewUpdateEvent;
 import com.team34.view.timeline.Timeline;
 import com.team34.view.characterchart.CharacterChart;
 import com.team34.view.character.ShowCharacterDialog;
@@ -48,6 +54,8 @@ public class MainView {
     public static final String ID_BTN_EVENT_ADD = "BTN_EVENT_ADD";
     public static final String ID_BTN_EVENT_EDIT = "BTN_EVENT_EDIT";
     public static final String ID_BTN_EVENT_DELETE = "BTN_EVENT_DELETE";
+    public static final String ID_BTN_RECENT_OPEN_OTHER = "BTN_RECENT_OPEN_OTHER";
+    public static final String ID_BTN_RECENT_CLOSE = "BTN_RECENT_CLOSE";
 
     public static final String ID_TIMELINE_NEW_EVENT = "TIMELINE_NEW_EVENT";
     public static final String ID_TIMELINE_REMOVE_EVENT = "TIMELINE_REMOVE_EVENT";
@@ -55,11 +63,23 @@ public class MainView {
 
     public static final String ID_MENU_NEW = "MENU_NEW_PROJECT";
     public static final String ID_MENU_OPEN = "MENU_OPEN_PROJECT";
+    public static final String ID_MENU_SWITCH_PROJECT = "MENU_SWITCH_PROJECT";
+    public static final String ID_MENU_SEARCH_PROJECTS = "MENU_SEARCH_PROJECTS";
+    public static final String ID_MENU_RECENT_PROJECTS = "MENU_RECENT_PROJECTS";
     public static final String ID_MENU_SAVE = "MENU_SAVE";
     public static final String ID_MENU_SAVE_AS = "MENU_SAVE_AS";
+    public static final String ID_MENU_JOURNALED_SAVING = "MENU_JOURNALED_SAVING";
+    public static final String ID_MENU_AUTOSAVE = "MENU_AUTOSAVE";
+    public static final String ID_MENU_KEEP_HISTORY = "MENU_KEEP_HISTORY";
+    public static final String ID_MENU_VERSION_HISTORY = "MENU_VERSION_HISTORY";
+    public static final String ID_MENU_MERGE = "MENU_MERGE";
+    public static final String ID_MENU_IMPORT = "MENU_IMPORT";
+    public static final String ID_MENU_CANCEL_IMPORT = "MENU_CANCEL_IMPORT";
+    public static final String ID_MENU_EXPORT = "MENU_EXPORT";
     public static final String ID_MENU_EXIT = "MENU_EXIT";
     public static final String ID_MENU_ADD_CHARACTER = "MENU_ADD_CHARACTER";
     public static final String ID_MENU_ADD_EVENT = "MENU_ADD_EVENT";
+    public static final String ID_MENU_DIAGNOSTICS = "MENU_DIAGNOSTICS";
 
     public static final String ID_CHART_NEW_ASSOCIATION = "CHART_NEW_ASSOCIATION";
     public static final String ID_CHART_EDIT_CHARACTER = "CHART_EDIT_CHARACTER";
@@ -84,6 +104,8 @@ public class MainView {
     //// CONTROLS //////////////////////////////////////
 
     private MenuBar menuBar;
+    private StatusBar statusBar;
+    private RecentProjectsPanel recentProjectsPanel;
 
     ////////////////////////////////////////////////////
 
@@ -95,6 +117,9 @@ public class MainView {
     private EditCharacterDialog editCharacterPanel;
     private EditAssociationDialog editAssociationDialog;
     private ShowCharacterDialog showCharacterDialog;
+    private SearchProjectsDialog searchProjectsDialog;
+    private VersionHistoryDialog versionHistoryDialog;
+    private DiagnosticsDialog diagnosticsDialog;
     private int eventOrderList; // index to specify which order list to use
     private double lastChartMouseClickX;
     private double lastChartMouseClickY;
@@ -161,12 +186,22 @@ public class MainView {
         secondLayerSplit.setDividerPosition(1, 0.99);
         topPane.getChildren().add(secondLayerSplit);
 
+        // Create the recent projects panel, which covers the split panes while it is shown
+        recentProjectsPanel = new RecentProjectsPanel();
+        recentProjectsPanel.setVisible(false);
+        StackPane contentStack = new StackPane();
+        contentStack.getChildren().addAll(firstLayerSplit, recentProjectsPanel);
+
         // Add split the first layer split pane to the contentBorderPane
-        contentBorderPane.setCenter(firstLayerSplit);
+        contentBorderPane.setCenter(contentStack);
 
         // Add the contentBorderPane to the root pane
         rootPane.setCenter(contentBorderPane);
 
+        // Create and add the status bar
+        statusBar = new StatusBar();
+        rootPane.setBottom(statusBar);
+
         // Set up character chart
         characterChart = new CharacterChart(centerPane.getWidth(), centerPane.getHeight());
         characterChart.addToPane(centerPane);
@@ -203,6 +238,15 @@ public class MainView {
 
         // Create association dialog
         editAssociationDialog = new EditAssociationDialog(mainStage);
+
+        // Create search projects dialog
+        searchProjectsDialog = new SearchProjectsDialog(mainStage);
+
+        // Create version history dialog
+        versionHistoryDialog = new VersionHistoryDialog(mainStage);
+
+        // Create diagnostics dialog
+        diagnosticsDialog = new DiagnosticsDialog(mainStage);
     }
 
     /**
@@ -258,6 +302,33 @@ public class MainView {
         return editAssociationDialog;
     }
 
+    /**
+     * Returns a reference to the {@link SearchProjectsDialog}, to be accessed directly
+     * from {@link com.team34.controller.MainController}.
+     * @return the search projects dialog.
+     */
+    public SearchProjectsDialog getSearchProjectsDialog() {
+        return searchProjectsDialog;
+    }
+
+    /**
+     * Returns a reference to the {@link VersionHistoryDialog}, to be accessed directly
+     * from {@link com.team34.controller.MainController}.
+     * @return the version history dialog.
+     */
+    public VersionHistoryDialog getVersionHistoryDialog() {
+        return versionHistoryDialog;
+    }
+
+    /**
+     * Returns a reference to the {@link DiagnosticsDialog}, to be accessed directly
+     * from {@link com.team34.controller.MainController}.
+     * @return the diagnostics dialog.
+     */
+    public DiagnosticsDialog getDiagnosticsDialog() {
+        return diagnosticsDialog;
+    }
+
     public double getLastChartMouseClickX() {
         return lastChartMouseClickX;
     }
@@ -305,12 +376,47 @@ public class MainView {
     public void registerButtonEvents(EventHandler<ActionEvent> buttonEventHandler) {
         rightPane.registerButtonEvents(buttonEventHandler);
         leftPane.registerButtonEvents(buttonEventHandler);
+        recentProjectsPanel.registerButtonEvents(buttonEventHandler);
     }
 
     public void registerMouseEvents(EventHandler<MouseEvent> listEventHandler) {
         rightPane.registerMouseEvents(listEventHandler);
     }
 
+    /**
+     * Hooks up the given event to the list of the {@link RecentProjectsPanel}.
+     * @param listEventHandler the mouse event handler
+     */
+    public void registerRecentProjectsEvent(EventHandler<MouseEvent> listEventHandler) {
+        recentProjectsPanel.registerMouseEvents(listEventHandler);
+    }
+
+    /**
+     * Shows the {@link RecentProjectsPanel} over the main content, listing the given projects.
+     * @param projects the projects, most recent first, each as {File file, String name, Integer events,
+     *                 Integer characters, Integer associations, Long lastUsed, float[] thumbnailBoxes,
+     *                 float[] thumbnailLines}
+     */
+    public void showRecentProjects(List<Object[]> projects) {
+        recentProjectsPanel.setProjects(projects);
+        recentProjectsPanel.setVisible(true);
+    }
+
+    /**
+     * Hides the {@link RecentProjectsPanel}, revealing the main content.
+     */
+    public void hideRecentProjects() {
+        recentProjectsPanel.setVisible(false);
+    }
+
+    /**
+     * Returns the project file selected in the {@link RecentProjectsPanel}, or null if none is selected.
+     * @return the selected project file
+     */
+    public File getSelectedRecentProject() {
+        return recentProjectsPanel.getSelectedFile();
+    }
+
     /**
      * Installs the timeline context menu, and hooks it up to the given event.
      * @param contextEventHandler the event handler for handling context menu items
@@ -336,6 +442,54 @@ public class MainView {
         menuBar.registerMenuBarAction(menuEventHandler);
     }
 
+    /**
+     * Sets whether the "Journaled Saving" menu item is checked.
+     * @param enabled true if journaled saving is enabled
+     */
+    public void setJournaledSaving(boolean enabled) {
+        menuBar.setJournaledSaving(enabled);
+    }
+
+    /**
+     * Sets whether the "Autosave" menu item is checked.
+     * @param enabled true if autosave is enabled
+     */
+    public void setAutosave(boolean enabled) {
+        menuBar.setAutosave(enabled);
+    }
+
+    /**
+     * Sets whether the "Keep Version History" menu item is checked.
+     * @param enabled true if version history is kept
+     */
+    public void setKeepHistory(boolean enabled) {
+        menuBar.setKeepHistory(enabled);
+    }
+
+    /**
+     * Lists the given project files in the "Switch Project" menu.
+     * @param files the project files, in the order to list them
+     */
+    public void setWorkspaceProjects(List<File> files) {
+        menuBar.setSwitchProjects(files);
+    }
+
+    /**
+     * Sets whether an import is in progress, which enables the "Cancel Import" menu item.
+     * @param importing true if an import is in progress
+     */
+    public void setImporting(boolean importing) {
+        menuBar.setImporting(importing);
+    }
+
+    /**
+     * Returns the status bar along the bottom of the window.
+     * @return {@link MainView#statusBar}
+     */
+    public StatusBar getStatusBar() {
+        return statusBar;
+    }
+
     /**
      * @author Jim Andersson
      * @param dragEventHandler
@@ -351,6 +505,9 @@ public class MainView {
      * @param eventOrder the order in which the events should be displayed
      */
     public void updateEvents(Object[][] events, Long[] eventOrder) {
+        ViewUpdateEvent jfrEvent = new ViewUpdateEvent();
+        jfrEvent.begin();
+
         timeline.clear();
         if(events != null) {
             for (int i = 0; i < events.length; i++) {
@@ -363,6 +520,64 @@ public class MainView {
         timeline.recalculateLayout();
 
         leftPane.updateListView(events, eventOrder);
+
+        if(jfrEvent.shouldCommit()) {
+            jfrEvent.view = "MainView.updateEvents";
+            jfrEvent.entities = events != null ? events.length : 0;
+            jfrEvent.updated = jfrEvent.entities;
+            jfrEvent.commit();
+        }
+    }
+
+    /**
+     * Sets the name of an event in the timeline and the event list, or adds the event if it has not been
+     * shown yet. An added event is not placed until it is appended, see {@link MainView#appendEvent(long)}.
+     * Unlike {@link MainView#updateEvents(Object[][], Long[])}, this and the methods below only update what
+     * has changed.
+     * @param uid the UID of the event
+     * @param name the name of the event
+     */
+    public void putEvent(long uid, String name) {
+        timeline.putEvent(uid, name);
+        leftPane.putEvent(uid, name);
+    }
+
+    /**
+     * Places an event, which must have been put, last in the timeline and the event list.
+     * @param uid the UID of the event
+     */
+    public void appendEvent(long uid) {
+        timeline.appendEvent(uid);
+        leftPane.appendEvent(uid);
+    }
+
+    /**
+     * Removes an event from the timeline and the event list.
+     * @param uid the UID of the event
+     */
+    public void removeEvent(long uid) {
+        timeline.removeEvent(uid);
+        leftPane.removeEvent(uid);
+    }
+
+    /**
+     * Moves an event from one place to another in the timeline and the event list, shifting the events in between.
+     * @param fromIndex the index of the event to move
+     * @param toIndex the index to move it to
+     */
+    public void moveEvent(int fromIndex, int toIndex) {
+        timeline.moveEvent(fromIndex, toIndex);
+        leftPane.moveEvent(fromIndex, toIndex);
+    }
+
+    /**
+     * Swaps the places of two events in the timeline and the event list.
+     * @param index1 the index of one event
+     * @param index2 the index of the other event
+     */
+    public void swapEvents(int index1, int index2) {
+        timeline.swapEvents(index1, index2);
+        leftPane.swapEvents(index1, index2);
     }
 
     /**
@@ -393,13 +608,52 @@ public class MainView {
             return result.get();
     }
 
+    /**
+     * Shows a dialog describing a merge of two copies of the project, and its conflicts, if any.
+     * The choices are OK, to apply the merge, and Cancel.
+     * @param summary what each copy has changed
+     * @param conflicts the descriptions of the conflicts
+     * @return true if the merge is to be applied
+     */
+    public boolean showMergeDialog(String summary, List<String> conflicts) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Merge Project");
+        dialog.initOwner(mainStage);
+        if(conflicts.isEmpty()) {
+            dialog.setContentText(summary + "\n\nThe copies were merged without conflicts. Apply the merge?");
+        } else {
+            dialog.setHeaderText(conflicts.size() + " conflicts were resolved by keeping the changes of this copy."
+                    + " Apply the merge?");
+            TextArea details = new TextArea(summary + "\n\n" + String.join("\n", conflicts));
+            details.setEditable(false);
+            details.setWrapText(true);
+            details.setPrefSize(560, 280);
+            dialog.getDialogPane().setContent(details);
+        }
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        return result.isPresent() && result.get() == ButtonType.OK;
+    }
+
     /**
      * Sends an array list of object arrays containing character data to the CharacterList class.
      * @param characters ArrayList of Object[]
      */
     public void updateCharacterList(ArrayList<Object[]> characters, Object[][] associations) {
+        ViewUpdateEvent jfrEvent = new ViewUpdateEvent();
+        jfrEvent.begin();
+
         rightPane.updateListView(characters);
         characterChart.updateCharacters(characters, associations);
+
+        if(jfrEvent.shouldCommit()) {
+            jfrEvent.view = "MainView.updateCharacterList";
+            jfrEvent.entities = characters != null ? characters.size() : 0;
+            jfrEvent.associations = associations != null ? associations.length : 0;
+            jfrEvent.updated = jfrEvent.entities;
+            jfrEvent.commit();
+        }
     }
 
     /**
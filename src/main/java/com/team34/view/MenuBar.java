@@ -1,7 +1,11 @@
 package com.team34.view;
 
+import java.io.File;
+import java.util.List;
+
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuItem;
 import javafx.scene.input.KeyCode;
@@ -16,11 +20,24 @@ public class MenuBar extends javafx.scene.control.MenuBar {
 
     private MenuItem editAddCharacter;
     private MenuItem editAddEvent;
+    private MenuItem helpDiagnostics;
     private MenuItem fileNew;
     private MenuItem fileOpen;
+    private Menu fileSwitchProject;
+    private MenuItem fileSearchProjects;
+    private MenuItem fileRecentProjects;
     private MenuItem fileSave;
     private MenuItem fileSaveAs;
+    private CheckMenuItem fileJournaledSaving;
+    private CheckMenuItem fileAutosave;
+    private CheckMenuItem fileKeepHistory;
+    private MenuItem fileVersionHistory;
+    private MenuItem fileMerge;
+    private MenuItem fileImport;
+    private MenuItem fileCancelImport;
+    private MenuItem fileExport;
     private MenuItem fileExit;
+    private EventHandler<ActionEvent> menuActionHandler;
 
     public MenuBar(Stage mainStage) {
         super();
@@ -37,6 +54,17 @@ public class MenuBar extends javafx.scene.control.MenuBar {
         fileOpen.setAccelerator(new KeyCodeCombination(
                 KeyCode.O, KeyCombination.CONTROL_DOWN));
 
+        fileSwitchProject = new Menu("Switch Project");
+        fileSwitchProject.setDisable(true);
+
+        fileRecentProjects = new MenuItem("Recent Projects");
+        fileRecentProjects.setId(MainView.ID_MENU_RECENT_PROJECTS);
+
+        fileSearchProjects = new MenuItem("Find in Projects...");
+        fileSearchProjects.setId(MainView.ID_MENU_SEARCH_PROJECTS);
+        fileSearchProjects.setAccelerator(new KeyCodeCombination(
+                KeyCode.F, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN));
+
         fileSave = new MenuItem("Save");
         fileSave.setId(MainView.ID_MENU_SAVE);
         fileSave.setAccelerator(new KeyCodeCombination(
@@ -47,6 +75,31 @@ public class MenuBar extends javafx.scene.control.MenuBar {
         fileSaveAs.setAccelerator(new KeyCodeCombination(
                 KeyCode.S, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN));
 
+        fileJournaledSaving = new CheckMenuItem("Journaled Saving");
+        fileJournaledSaving.setId(MainView.ID_MENU_JOURNALED_SAVING);
+
+        fileAutosave = new CheckMenuItem("Autosave");
+        fileAutosave.setId(MainView.ID_MENU_AUTOSAVE);
+
+        fileKeepHistory = new CheckMenuItem("Keep Version History");
+        fileKeepHistory.setId(MainView.ID_MENU_KEEP_HISTORY);
+
+        fileVersionHistory = new MenuItem("Version History...");
+        fileVersionHistory.setId(MainView.ID_MENU_VERSION_HISTORY);
+
+        fileMerge = new MenuItem("Merge Project...");
+        fileMerge.setId(MainView.ID_MENU_MERGE);
+
+        fileImport = new MenuItem("Import...");
+        fileImport.setId(MainView.ID_MENU_IMPORT);
+
+        fileCancelImport = new MenuItem("Cancel Import");
+        fileCancelImport.setId(MainView.ID_MENU_CANCEL_IMPORT);
+        fileCancelImport.setDisable(true);
+
+        fileExport = new MenuItem("Export...");
+        fileExport.setId(MainView.ID_MENU_EXPORT);
+
         fileExit = new MenuItem("Exit");
         fileExit.setId(MainView.ID_MENU_EXIT);
 
@@ -63,14 +116,23 @@ public class MenuBar extends javafx.scene.control.MenuBar {
         editAddEvent.setAccelerator(new KeyCodeCombination(
                 KeyCode.E, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN));
 
+        Menu menuHelp = new Menu("Help");
+
+        helpDiagnostics = new MenuItem("Diagnostics...");
+        helpDiagnostics.setId(MainView.ID_MENU_DIAGNOSTICS);
+
         getMenus().add(menuFile);
-        menuFile.getItems().addAll(fileNew, fileOpen, fileSave, fileSaveAs, fileExit);
+        menuFile.getItems().addAll(fileNew, fileOpen, fileSwitchProject, fileRecentProjects, fileSearchProjects, fileSave, fileSaveAs, fileJournaledSaving,
+                fileAutosave, fileKeepHistory, fileVersionHistory, fileMerge, fileImport, fileCancelImport, fileExport, fileExit);
 
         getMenus().add(menuEdit);
         menuEdit.getItems().add(editSubMenu);
         editSubMenu.getItems().add(editAddCharacter);
         editSubMenu.getItems().add(editAddEvent);
 
+        getMenus().add(menuHelp);
+        menuHelp.getItems().add(helpDiagnostics);
+
     }
 
     /**
@@ -78,13 +140,75 @@ public class MenuBar extends javafx.scene.control.MenuBar {
      * @param menuActionHandler
      */
     public void registerMenuBarAction(EventHandler<ActionEvent> menuActionHandler) {
+        this.menuActionHandler = menuActionHandler;
         fileNew.setOnAction(menuActionHandler);
         fileOpen.setOnAction(menuActionHandler);
+        fileSearchProjects.setOnAction(menuActionHandler);
+        fileRecentProjects.setOnAction(menuActionHandler);
         fileSave.setOnAction(menuActionHandler);
         fileSaveAs.setOnAction(menuActionHandler);
+        fileJournaledSaving.setOnAction(menuActionHandler);
+        fileAutosave.setOnAction(menuActionHandler);
+        fileKeepHistory.setOnAction(menuActionHandler);
+        fileVersionHistory.setOnAction(menuActionHandler);
+        fileMerge.setOnAction(menuActionHandler);
+        fileImport.setOnAction(menuActionHandler);
+        fileCancelImport.setOnAction(menuActionHandler);
+        fileExport.setOnAction(menuActionHandler);
         fileExit.setOnAction(menuActionHandler);
         editAddCharacter.setOnAction(menuActionHandler);
         editAddEvent.setOnAction(menuActionHandler);
+        helpDiagnostics.setOnAction(menuActionHandler);
+    }
+
+    /**
+     * Sets whether the journaled saving item is checked, without firing its action.
+     * @param selected true to check the item
+     */
+    public void setJournaledSaving(boolean selected) {
+        fileJournaledSaving.setSelected(selected);
+    }
+
+    /**
+     * Sets whether the autosave item is checked, without firing its action.
+     * @param selected true to check the item
+     */
+    public void setAutosave(boolean selected) {
+        fileAutosave.setSelected(selected);
+    }
+
+    /**
+     * Sets whether the "Keep Version History" menu item is checked.
+     * @param selected true if it should be checked
+     */
+    public void setKeepHistory(boolean selected) {
+        fileKeepHistory.setSelected(selected);
+    }
+
+    /**
+     * Enables the cancel import item, and disables the import item, while an import is in progress.
+     * @param importing true if an import is in progress
+     */
+    public void setImporting(boolean importing) {
+        fileImport.setDisable(importing);
+        fileCancelImport.setDisable(!importing);
+    }
+
+    /**
+     * Replaces the items of the "Switch Project" menu with one item per given project file.
+     * The file of each item is stored as its user data.
+     * @param files the project files
+     */
+    public void setSwitchProjects(List<File> files) {
+        fileSwitchProject.getItems().clear();
+        for(File file : files) {
+            MenuItem item = new MenuItem(file.getName());
+            item.setId(MainView.ID_MENU_SWITCH_PROJECT);
+            item.setUserData(file);
+            item.setOnAction(menuActionHandler);
+            fileSwitchProject.getItems().add(item);
+        }
+        fileSwitchProject.setDisable(files.isEmpty());
     }
 
 }
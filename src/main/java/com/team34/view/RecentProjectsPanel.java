@@ -0,0 +1,210 @@
+package com.team34.view;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+
+/**
+ * A start screen, covering the main content, that lists the recently used projects along with
+ * their metadata and a thumbnail of their character chart.
+ * <p>
+ * The panel only displays what it is given by {@link RecentProjectsPanel#setProjects(List)}, which comes
+ * from a cache kept by the model, so no project file is read to populate it.
+ */
+public class RecentProjectsPanel extends StackPane {
+
+    private static final double THUMBNAIL_WIDTH = 120.0;
+    private static final double THUMBNAIL_HEIGHT = 80.0;
+    private static final double THUMBNAIL_MARGIN = 4.0;
+
+    private final ListView<Object[]> list;
+    private final Button btnOpenOther;
+    private final Button btnClose;
+
+    public RecentProjectsPanel() {
+        super();
+        getStyleClass().add("recent-projects");
+
+        Label title = new Label("Recent Projects");
+        title.setPadding(new Insets(20, 0, 10, 0));
+        title.getStyleClass().add("list-headline");
+
+        // Each item is {File file, String name, Integer events, Integer characters, Integer associations,
+        //               Long lastUsed, float[] thumbnailBoxes, float[] thumbnailLines}
+        list = new ListView<>();
+        list.setCellFactory(view -> new RecentProjectCell());
+        list.setMaxWidth(640);
+
+        btnOpenOther = new Button("Open Other Project...");
+        btnOpenOther.setId(MainView.ID_BTN_RECENT_OPEN_OTHER);
+
+        btnClose = new Button("Start New Project");
+        btnClose.setId(MainView.ID_BTN_RECENT_CLOSE);
+
+        HBox buttonBox = new HBox();
+        buttonBox.setSpacing(20);
+        buttonBox.setPadding(new Insets(10, 0, 20, 0));
+        buttonBox.setAlignment(Pos.CENTER);
+        buttonBox.getChildren().addAll(btnOpenOther, btnClose);
+
+        BorderPane layout = new BorderPane();
+        layout.setTop(title);
+        layout.setCenter(list);
+        layout.setBottom(buttonBox);
+        BorderPane.setAlignment(title, Pos.CENTER);
+        BorderPane.setMargin(list, new Insets(0, 20, 0, 20));
+
+        getChildren().add(layout);
+    }
+
+    /**
+     * Replaces the listed projects.
+     * @param projects the projects, most recent first, see the comment in the constructor for their layout
+     */
+    public void setProjects(List<Object[]> projects) {
+        list.getItems().setAll(projects);
+        list.getSelectionModel().clearSelection();
+    }
+
+    /**
+     * Returns the project file of the selected item, or null if none is selected.
+     * @return the selected project file
+     */
+    public File getSelectedFile() {
+        Object[] item = list.getSelectionModel().getSelectedItem();
+        return item != null ? (File) item[0] : null;
+    }
+
+    /**
+     * Registers the buttons to the given event handler.
+     * @param buttonEventHandler the button event handler
+     */
+    public void registerButtonEvents(EventHandler<ActionEvent> buttonEventHandler) {
+        btnOpenOther.setOnAction(buttonEventHandler);
+        btnClose.setOnAction(buttonEventHandler);
+    }
+
+    /**
+     * Registers the list to the given mouse event handler.
+     * @param listEventHandler the mouse event handler
+     */
+    public void registerMouseEvents(EventHandler<MouseEvent> listEventHandler) {
+        list.setOnMouseClicked(listEventHandler);
+    }
+
+    /**
+     * Draws a thumbnail of a character chart, scaled to fit the canvas.
+     * @param gc the graphics context of the canvas
+     * @param boxes the character rectangles, as x, y, width, height
+     * @param lines the association lines, as start x, start y, end x, end y
+     */
+    private static void drawThumbnail(GraphicsContext gc, float[] boxes, float[] lines) {
+        gc.setFill(Color.web("#fefefe"));
+        gc.fillRect(0, 0, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        gc.setStroke(Color.web("#d0d0d0"));
+        gc.strokeRect(0.5, 0.5, THUMBNAIL_WIDTH - 1.0, THUMBNAIL_HEIGHT - 1.0);
+
+        double extentX = 0.0, extentY = 0.0;
+        for(int i = 0; i < boxes.length; i += 4) {
+            extentX = Math.max(extentX, boxes[i] + boxes[i + 2]);
+            extentY = Math.max(extentY, boxes[i + 1] + boxes[i + 3]);
+        }
+        for(int i = 0; i < lines.length; i += 2) {
+            extentX = Math.max(extentX, lines[i]);
+            extentY = Math.max(extentY, lines[i + 1]);
+        }
+        if(extentX <= 0.0 || extentY <= 0.0)
+            return;
+
+        double areaW = THUMBNAIL_WIDTH - THUMBNAIL_MARGIN*2;
+        double areaH = THUMBNAIL_HEIGHT - THUMBNAIL_MARGIN*2;
+        double scale = Math.min(areaW / extentX, areaH / extentY);
+        double offsetX = THUMBNAIL_MARGIN + (areaW - extentX*scale) / 2.0;
+        double offsetY = THUMBNAIL_MARGIN + (areaH - extentY*scale) / 2.0;
+
+        gc.setStroke(Color.web("#252525"));
+        gc.setLineWidth(1.0);
+        for(int i = 0; i < lines.length; i += 4) {
+            gc.strokeLine(offsetX + lines[i]*scale, offsetY + lines[i + 1]*scale,
+                    offsetX + lines[i + 2]*scale, offsetY + lines[i + 3]*scale);
+        }
+
+        gc.setFill(Color.web("#aeccfc"));
+        for(int i = 0; i < boxes.length; i += 4) {
+            double x = offsetX + boxes[i]*scale;
+            double y = offsetY + boxes[i + 1]*scale;
+            double w = Math.max(1.0, boxes[i + 2]*scale);
+            double h = Math.max(1.0, boxes[i + 3]*scale);
+            gc.fillRect(x, y, w, h);
+            gc.strokeRect(x, y, w, h);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Displays a project with its thumbnail. The nodes are created once, and reused for every item
+     * the cell displays.
+     */
+    private static class RecentProjectCell extends ListCell<Object[]> {
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        private final HBox layout;
+        private final Canvas thumbnail;
+        private final Label name;
+        private final Label counts;
+        private final Label details;
+
+        RecentProjectCell() {
+            thumbnail = new Canvas(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+            name = new Label();
+            name.setStyle("-fx-font-weight: bold;");
+            counts = new Label();
+            details = new Label();
+
+            VBox text = new VBox();
+            text.setSpacing(4);
+            text.setAlignment(Pos.CENTER_LEFT);
+            text.getChildren().addAll(name, counts, details);
+
+            layout = new HBox();
+            layout.setSpacing(12);
+            layout.setPadding(new Insets(4, 4, 4, 4));
+            layout.getChildren().addAll(thumbnail, text);
+        }
+
+        @Override
+        protected void updateItem(Object[] item, boolean empty) {
+            super.updateItem(item, empty);
+            if(empty || item == null) {
+                setGraphic(null);
+                return;
+            }
+
+            File file = (File) item[0];
+            name.setText((String) item[1]);
+            counts.setText(item[2] + " events, " + item[3] + " characters, " + item[4] + " associations");
+            details.setText("Last used " + dateFormat.format(new Date((Long) item[5])) + "   " + file.getPath());
+            drawThumbnail(thumbnail.getGraphicsContext2D(), (float[]) item[6], (float[]) item[7]);
+            setGraphic(layout);
+        }
+    }
+
+}
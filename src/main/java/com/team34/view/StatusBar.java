@@ -0,0 +1,68 @@
+package com.team34.view;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+
+/**
+ * A bar along the bottom of the window, displaying a status message and the progress
+ * of long-running work, such as saving in the background.
+ */
+public class StatusBar extends HBox {
+
+    private final Label message;
+    private final ProgressBar progress;
+
+    public StatusBar() {
+        super();
+        setPadding(new Insets(2, 10, 2, 10));
+        setSpacing(10);
+        setAlignment(Pos.CENTER_LEFT);
+        getStyleClass().add("status-bar");
+
+        message = new Label();
+        message.getStyleClass().add("status-bar-message");
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+
+        progress = new ProgressBar();
+        progress.setPrefWidth(150);
+        progress.setVisible(false);
+
+        getChildren().addAll(message, spacer, progress);
+    }
+
+    /**
+     * Displays the given message, replacing any previous message.
+     * @param text the message
+     * @param error true if the message describes an error
+     */
+    public void setMessage(String text, boolean error) {
+        message.setText(text);
+        if(error) {
+            if(!message.getStyleClass().contains("status-bar-error"))
+                message.getStyleClass().add("status-bar-error");
+        } else {
+            message.getStyleClass().remove("status-bar-error");
+        }
+    }
+
+    /**
+     * Shows the progress bar.
+     * @param value the progress between 0.0 and 1.0, or {@link ProgressBar#INDETERMINATE_PROGRESS}
+     */
+    public void showProgress(double value) {
+        progress.setProgress(value);
+        progress.setVisible(true);
+    }
+
+    public void hideProgress() {
+        progress.setVisible(false);
+    }
+
+}
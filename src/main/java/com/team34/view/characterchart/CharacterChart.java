@@ -1,6 +1,8 @@
 package com.team34.view.characterchart;
 
+import com.team34.model.diagnostics.ViewUpdateEvent;
 import com.team34.model.event.Event;
+import com.team34.view.LabeledRectanglePool;
 import com.team34.view.MainView;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -17,9 +19,11 @@ import javafx.scene.shape.Line;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.Map;
 
 public class CharacterChart {
@@ -32,12 +36,16 @@ public class CharacterChart {
     private static final int CONTEXT_MENU_ITEM_CENTER_LABEL = 5;
     private static final int CONTEXT_MENU_ITEM_REMOVE_ASSOC = 6;
 
+    private static final int MIN_SPARE_ASSOCIATIONS = 16; // Association nodes that are always kept for reuse
+
     private final Pane pane;
     private ScrollPane scrollPane;
 
     private HashMap<Long, CharacterRectangle> rectMap; // Stores references to CharacterRectangles by their UID.
     private HashMap<Long, AssociationPoint> assocPoints;
     private HashMap<Long, AssociationLine> associations;
+    private final LabeledRectanglePool<CharacterRectangle> rectPool; // Rectangles that are reused between updates
+    private final ArrayDeque<AssociationLine> freeAssociations; // Association nodes that are reused between updates
     private ContextMenu contextMenu;
     private MenuItem[] contextMenuItem;
     private ChartAction currAction;
@@ -47,6 +55,8 @@ public class CharacterChart {
     private final EventHandler<MouseEvent> evtRectDragged;
     private EventHandler<MouseEvent> evtRectReleased;
     private EventHandler<MouseEvent> evtLabelReleased;
+    private final EventHandler<MouseEvent> evtRectReleasedDelegate;
+    private final EventHandler<MouseEvent> evtLabelReleasedDelegate;
 
     public CharacterChart(double width, double height) {
         rectMap = new HashMap<>();
@@ -57,10 +67,22 @@ public class CharacterChart {
 
         evtRectPressed = new EventRectanglePressed();
         evtRectDragged = new EventRectangleDragged();
+        evtRectReleasedDelegate = e -> {
+            // The release handler is registered after the chart is created
+            if(evtRectReleased != null)
+                evtRectReleased.handle(e);
+        };
+        evtLabelReleasedDelegate = e -> {
+            if(evtLabelReleased != null)
+                evtLabelReleased.handle(e);
+        };
 
         pane = new Pane();
         pane.setOnMouseMoved(evtMouseMoved);
 
+        rectPool = new LabeledRectanglePool<>(pane, this::createRect);
+        freeAssociations = new ArrayDeque<>();
+
         scrollPane = new ScrollPane();
         scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);
         scrollPane.setVbarPolicy(ScrollPane.ScrollBarPolicy.ALWAYS);
@@ -78,103 +100,105 @@ public class CharacterChart {
         parentPane.getChildren().add(scrollPane);
     }
 
+    /**
+     * Removes all characters and associations from the chart. Their nodes are hidden, and reused by the
+     * characters and associations that are added next, rather than removed from the pane.
+     */
     public void clear() {
-        rectMap.forEach((uid, rect) -> {
-            pane.getChildren().removeAll(rect.getRect(), rect.getText());
-            rect.getRect().setOnMousePressed(null);
-            rect.getRect().setOnMouseDragged(null);
-            rect.getRect().setOnMouseReleased(null);
-            rect.getRect().setOnMouseDragEntered(null);
-            rect.getRect().setOnMouseDragExited(null);
-            rect.getRect().setOnMouseDragReleased(null);
-            rect.getRect().setOnContextMenuRequested(null);
-            Tooltip.uninstall(rect.getRect(), rect.getTooltip());
+        rectMap.forEach((uid, rect) -> rectPool.release(rect));
+
+        associations.forEach((uid, assoc) -> {
+            assoc.line.setVisible(false);
+            assoc.text.setVisible(false);
+            assocPoints.get(assoc.startPtUID).control.setVisible(false);
+            assocPoints.get(assoc.endPtUID).control.setVisible(false);
+            assoc.startControl = assocPoints.get(assoc.startPtUID).control;
+            assoc.endControl = assocPoints.get(assoc.endPtUID).control;
+            assoc.text.setUserData(null);
+            assoc.startControl.setUserData(null);
+            assoc.endControl.setUserData(null);
+            freeAssociations.push(assoc);
         });
 
         rectMap.clear();
         assocPoints.clear();
         associations.clear();
         nextLocalUID = 0L;
-        pane.getChildren().clear();
     }
 
     public void addCharacter(long uid, String name) {
         CharacterRectangle existingRect = rectMap.get(uid);
 
-        if(existingRect != null) { // If the event is getting overwritten, remove the old shapes first.
-            pane.getChildren().removeAll(existingRect.getRect(), existingRect.getText());
-            existingRect.getRect().setOnMousePressed(null);
-            existingRect.getRect().setOnMouseDragged(null);
-            existingRect.getRect().setOnMouseReleased(null);
-            existingRect.getRect().setOnMouseDragEntered(null);
-            existingRect.getRect().setOnMouseDragExited(null);
-            existingRect.getRect().setOnMouseDragReleased(null);
-            existingRect.getRect().setOnContextMenuRequested(null);
-            Tooltip.uninstall(existingRect.getRect(), existingRect.getTooltip());
-        }
+        if(existingRect != null) // If the character is getting overwritten, reuse its rectangle later
+            rectPool.release(existingRect);
 
-        CharacterRectangle rect = new CharacterRectangle(name, 0.0, 0.0);
-        rect.setStylesheetClasses("characterchart-rect", "characterchart-text", "characterchart-tooltip");
+        CharacterRectangle rect = rectPool.acquire(name);
+        rect.clearAssociationPoints();
+        rect.getRect().setUserData(uid);
         rectMap.put(uid, rect);
+    }
 
-        pane.getChildren().add(rect.getRect());
-        pane.getChildren().add(rect.getText());
+    /**
+     * Creates a rectangle for the {@link LabeledRectanglePool}, with the handlers that are shared by all
+     * rectangles, and its tooltip.
+     */
+    private CharacterRectangle createRect() {
+        CharacterRectangle rect = new CharacterRectangle("", 0.0, 0.0);
+        rect.setStylesheetClasses("characterchart-rect", "characterchart-text", "characterchart-tooltip");
 
         Tooltip.install(rect.getRect(), rect.getTooltip());
 
         rect.getRect().setOnMousePressed(evtRectPressed);
         rect.getRect().setOnMouseDragged(evtRectDragged);
-        rect.getRect().setOnMouseReleased(evtRectReleased);
+        rect.getRect().setOnMouseReleased(evtRectReleasedDelegate);
         rect.getRect().setOnMouseDragEntered(evtRectMouseDragEntered);
         rect.getRect().setOnMouseDragExited(evtRectMouseDragExited);
-        rect.getRect().setOnMouseDragReleased(evtRectReleased);
+        rect.getRect().setOnMouseDragReleased(evtRectReleasedDelegate);
         rect.getRect().setOnContextMenuRequested(evtContextRequest);
 
+        return rect;
     }
 
+    /*
+     * The nodes are resolved through their user data, which holds the UID of the character, association
+     * point or association that they currently show, and is checked against the map, since pooled nodes
+     * are reused for other UIDs.
+     */
+
     private Map.Entry<Long, CharacterRectangle> getCharacterByRectangle(Rectangle rect) {
-        Iterator<Map.Entry<Long, CharacterRectangle>> it = rectMap.entrySet().iterator();
-        Map.Entry<Long, CharacterRectangle> pair;
-
-        // Find CharacterRectangle that contains the input rectangle and return its associated UID
-        while (it.hasNext()) {
-            pair = it.next();
-            if(pair.getValue().getRect().equals(rect)) {
-                return pair;
-            }
-        }
+        Object uid = rect.getUserData();
+        if(!(uid instanceof Long))
+            return null;
+
+        CharacterRectangle character = rectMap.get(uid);
+        if(character == null || character.getRect() != rect)
+            return null;
 
-        return null;
+        return new AbstractMap.SimpleImmutableEntry<>((Long) uid, character);
     }
 
     private Map.Entry<Long, AssociationPoint> getAssocPointByControl(Circle circle) {
-        Iterator<Map.Entry<Long, AssociationPoint>> it = assocPoints.entrySet().iterator();
-        Map.Entry<Long, AssociationPoint> pair;
-
-        // Find AssociationPoint that contains the input circle and return its associated UID
-        while (it.hasNext()) {
-            pair = it.next();
-            if(pair.getValue().control.equals(circle)) {
-                return pair;
-            }
-        }
+        Object uid = circle.getUserData();
+        if(!(uid instanceof Long))
+            return null;
 
-        return null;
+        AssociationPoint assocPt = assocPoints.get(uid);
+        if(assocPt == null || assocPt.control != circle)
+            return null;
+
+        return new AbstractMap.SimpleImmutableEntry<>((Long) uid, assocPt);
     }
 
     private Map.Entry<Long, AssociationLine> getAssociationByLabel(Text text) {
-        Iterator<Map.Entry<Long, AssociationLine>> it = associations.entrySet().iterator();
-        Map.Entry<Long, AssociationLine> pair;
-
-        // Find AssociationPoint that contains the input circle and return its associated UID
-        while (it.hasNext()) {
-            pair = it.next();
-            if(pair.getValue().text.equals(text)) {
-                return pair;
-            }
-        }
+        Object uid = text.getUserData();
+        if(!(uid instanceof Long))
+            return null;
+
+        AssociationLine assoc = associations.get(uid);
+        if(assoc == null || assoc.text != text)
+            return null;
 
-        return null;
+        return new AbstractMap.SimpleImmutableEntry<>((Long) uid, assoc);
     }
 
     public void addAssociation(long assocUID, long startCharUID, long endCharUID, String label)
@@ -188,20 +212,14 @@ public class CharacterChart {
         long startPtUID = nextLocalUID++;
         long endPtUID = nextLocalUID++;
 
-        AssociationLine assoc = new AssociationLine();
-        assoc.text = new Text(label);
-        assoc.text.getStyleClass().add("characterchart-assoclabel");
-        assoc.text.setMouseTransparent(false);
-        assoc.text.setViewOrder(-1.6);
-        assoc.text.setOnMousePressed(evtLabelPressed);
-        assoc.text.setOnMouseDragged(evtLabelDragged);
-        assoc.text.setOnMouseReleased(evtLabelReleased);
-        assoc.text.setOnContextMenuRequested(evtContextRequest);
+        AssociationLine assoc = freeAssociations.poll();
+        if(assoc == null)
+            assoc = createAssociation();
 
-        assoc.line = new Line(0, 0, 0, 0);
-        assoc.line.getStyleClass().add("characterchart-assocline");
-        assoc.line.setViewOrder(-1.5);
-        assoc.line.setMouseTransparent(true);
+        assoc.text.setText(label);
+        assoc.text.setUserData(assocUID);
+        assoc.text.setVisible(true);
+        assoc.line.setVisible(true);
         assoc.startPtUID = startPtUID;
         assoc.endPtUID = endPtUID;
 
@@ -210,35 +228,28 @@ public class CharacterChart {
         startPt.oppositePtUID = endPtUID;
         startPt.x = 0;
         startPt.y = 0;
-        startPt.control = new Circle(8.0);
-        startPt.control.setViewOrder(-2.0);
-        startPt.control.getStyleClass().add("characterchart-line-control");
-        startPt.control.setOnMousePressed(evtAPMousePressed);
-        startPt.control.setOnMouseReleased(evtAPMouseReleased);
-        startPt.control.setOnDragDetected(evtAPDragDetected);
-        startPt.control.setOnMouseDragged(evtAPMouseDragged);
-        startPt.control.setOnContextMenuRequested(evtContextRequest);
+        startPt.control = assoc.startControl;
 
         endPt.assocUID = assocUID;
         endPt.rectUID = endCharUID;
         endPt.oppositePtUID = startPtUID;
         endPt.x = 0;
         endPt.y = 0;
-        endPt.control = new Circle(8.0);
-        endPt.control.setViewOrder(-2.0);
-        endPt.control.getStyleClass().add("characterchart-line-control");
-        endPt.control.setOnMousePressed(evtAPMousePressed);
-        endPt.control.setOnMouseReleased(evtAPMouseReleased);
-        endPt.control.setOnDragDetected(evtAPDragDetected);
-        endPt.control.setOnMouseDragged(evtAPMouseDragged);
-        endPt.control.setOnContextMenuRequested(evtContextRequest);
+        endPt.control = assoc.endControl;
+        assoc.startControl = null;
+        assoc.endControl = null;
+
+        startPt.control.setUserData(startPtUID);
+        endPt.control.setUserData(endPtUID);
+        startPt.control.setMouseTransparent(false);
+        startPt.control.setVisible(true);
+        endPt.control.setMouseTransparent(false);
+        endPt.control.setVisible(true);
 
         associations.put(assocUID, assoc);
         assocPoints.put(startPtUID, startPt);
         assocPoints.put(endPtUID, endPt);
 
-        pane.getChildren().addAll(assoc.line, assoc.text, startPt.control, endPt.control);
-
         if(startCharUID != -1L)
             rectMap.get(startCharUID).addAssociationPoint(startPtUID, assocUID);
 
@@ -247,6 +258,65 @@ public class CharacterChart {
 
     }
 
+    /**
+     * Creates the nodes of an association, adds them to the pane, and installs the handlers that are shared by
+     * all associations. The nodes are kept for reuse when the association is cleared.
+     */
+    private AssociationLine createAssociation() {
+        AssociationLine assoc = new AssociationLine();
+        assoc.text = new Text();
+        assoc.text.getStyleClass().add("characterchart-assoclabel");
+        assoc.text.setMouseTransparent(false);
+        assoc.text.setViewOrder(-1.6);
+        assoc.text.setOnMousePressed(evtLabelPressed);
+        assoc.text.setOnMouseDragged(evtLabelDragged);
+        assoc.text.setOnMouseReleased(evtLabelReleasedDelegate);
+        assoc.text.setOnContextMenuRequested(evtContextRequest);
+
+        assoc.line = new Line(0, 0, 0, 0);
+        assoc.line.getStyleClass().add("characterchart-assocline");
+        assoc.line.setViewOrder(-1.5);
+        assoc.line.setMouseTransparent(true);
+
+        assoc.startControl = createAssociationControl();
+        assoc.endControl = createAssociationControl();
+
+        pane.getChildren().addAll(assoc.line, assoc.text, assoc.startControl, assoc.endControl);
+        return assoc;
+    }
+
+    /**
+     * Removes the association nodes that are kept for reuse from the pane, beyond as many as there are
+     * associations, or {@link CharacterChart#MIN_SPARE_ASSOCIATIONS} if that is more.
+     */
+    private void trimFreeAssociations() {
+        int keep = Math.max(MIN_SPARE_ASSOCIATIONS, associations.size());
+        if(freeAssociations.size() <= keep)
+            return;
+
+        HashSet<Node> removed = new HashSet<>();
+        while(freeAssociations.size() > keep) {
+            AssociationLine assoc = freeAssociations.pollLast();
+            removed.add(assoc.line);
+            removed.add(assoc.text);
+            removed.add(assoc.startControl);
+            removed.add(assoc.endControl);
+        }
+        pane.getChildren().removeIf(removed::contains);
+    }
+
+    private Circle createAssociationControl() {
+        Circle control = new Circle(8.0);
+        control.setViewOrder(-2.0);
+        control.getStyleClass().add("characterchart-line-control");
+        control.setOnMousePressed(evtAPMousePressed);
+        control.setOnMouseReleased(evtAPMouseReleased);
+        control.setOnDragDetected(evtAPDragDetected);
+        control.setOnMouseDragged(evtAPMouseDragged);
+        control.setOnContextMenuRequested(evtContextRequest);
+        return control;
+    }
+
     public void setAssociationPositions(long assocUID, double sX, double sY, double eX, double eY) {
         AssociationLine assoc = associations.get(assocUID);
         AssociationPoint startPt = assocPoints.get(assoc.startPtUID);
@@ -394,6 +464,9 @@ public class CharacterChart {
     }
 
     public void updateCharacters(ArrayList<Object[]> characters, Object[][] _associations) {
+        ViewUpdateEvent jfrEvent = new ViewUpdateEvent();
+        jfrEvent.begin();
+
         clear();
 
         if(characters != null) {
@@ -431,6 +504,17 @@ public class CharacterChart {
                 );
             }
         }
+
+        rectPool.trim();
+        trimFreeAssociations();
+
+        if(jfrEvent.shouldCommit()) {
+            jfrEvent.view = "CharacterChart.updateCharacters";
+            jfrEvent.entities = characters != null ? characters.size() : 0;
+            jfrEvent.associations = _associations != null ? _associations.length : 0;
+            jfrEvent.updated = jfrEvent.entities + jfrEvent.associations;
+            jfrEvent.commit();
+        }
     }
 
     private void setAssociationLabelPosition(long assocUID, double newX, double newY) {
@@ -927,6 +1011,8 @@ public class CharacterChart {
         public Text text;
         public long startPtUID;
         public long endPtUID;
+        public Circle startControl; // The controls of the points, while the association is kept for reuse
+        public Circle endControl;
     }
 
     private static class AssociationPoint {
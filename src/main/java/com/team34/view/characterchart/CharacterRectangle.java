@@ -38,6 +38,14 @@ class CharacterRectangle extends LabeledRectangle {
         assocUIDs.remove(assocUID);
     }
 
+    /**
+     * Detaches all association points, for when the rectangle is reused for another character.
+     */
+    void clearAssociationPoints() {
+        assocPointUIDs.clear();
+        assocUIDs.clear();
+    }
+
     Long[] getAssociationPoints() {
         if(assocPointUIDs.isEmpty())
             return null;
@@ -0,0 +1,125 @@
+package com.team34.view.dialogs;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Font;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * Shows how long each kind of user action, and loading and saving the project, has taken so far.
+ */
+public class DiagnosticsDialog extends Stage {
+
+    private static final String ROW_FORMAT = "%-44s %8s %10s %10s %10s %10s %10s";
+
+    private final ListView<Object[]> lvLatencies;
+    private final Label lblStatus;
+    private Supplier<List<Object[]>> latencies;
+    private Runnable reset;
+    private boolean saveRequested;
+
+    public DiagnosticsDialog(Stage ownerStage) {
+        setTitle("Diagnostics");
+        setOnCloseRequest(e -> saveRequested = false);
+
+        // --- GUI elements --- //
+
+        Label lblHeader = new Label(String.format(ROW_FORMAT, "Action", "Count", "Mean", "p50", "p90", "p99", "Max"));
+        lblHeader.setFont(Font.font("Monospaced", 12));
+
+        // Each row is {String action, Long count, Double mean, Long p50, Long p90, Long p99, Long max},
+        // with the latencies in microseconds
+        lvLatencies = new ListView<>();
+        lvLatencies.setCellFactory(list -> new ListCell<Object[]>() {
+            @Override
+            protected void updateItem(Object[] item, boolean empty) {
+                super.updateItem(item, empty);
+                setFont(Font.font("Monospaced", 12));
+                if(empty || item == null)
+                    setText(null);
+                else
+                    setText(String.format(ROW_FORMAT, item[0], item[1],
+                            formatMicros(Math.round((Double) item[2])), formatMicros((Long) item[3]),
+                            formatMicros((Long) item[4]), formatMicros((Long) item[5]), formatMicros((Long) item[6])));
+            }
+        });
+        VBox.setVgrow(lvLatencies, Priority.ALWAYS);
+
+        lblStatus = new Label();
+
+        Button btnRefresh = new Button("Refresh");
+        btnRefresh.setOnAction(e -> updateLatencies());
+
+        Button btnReset = new Button("Reset");
+        btnReset.setOnAction(e -> { reset.run(); updateLatencies(); });
+
+        Button btnSave = new Button("Save as JSON...");
+        btnSave.setOnAction(e -> { saveRequested = true; close(); });
+
+        Button btnClose = new Button("Close");
+        btnClose.setOnAction(e -> { saveRequested = false; close(); });
+
+        // --- Layouts --- //
+
+        HBox buttonLayout = new HBox();
+        buttonLayout.setSpacing(10);
+        buttonLayout.getChildren().addAll(btnRefresh, btnReset, btnSave, btnClose);
+
+        VBox layout = new VBox();
+        layout.setSpacing(10);
+        layout.setPadding(new Insets(10, 10, 10, 10));
+        layout.setPrefSize(860, 480);
+        layout.getChildren().addAll(lblHeader, lvLatencies, lblStatus, buttonLayout);
+
+        // --- Set Scene --- //
+        Scene scene = new Scene(layout);
+        setScene(scene);
+
+        // --- Set ownership and modality --- //
+        initModality(Modality.WINDOW_MODAL);
+        initOwner(ownerStage);
+    }
+
+    /**
+     * Shows the dialog, and blocks until it is closed.
+     * @param latencies returns the latencies of each action, see the comment in the constructor for their layout
+     * @param reset forgets the latencies recorded so far
+     * @return true if the user asked to save the latencies to a file
+     */
+    public boolean showLatencies(Supplier<List<Object[]>> latencies, Runnable reset) {
+        this.latencies = latencies;
+        this.reset = reset;
+        saveRequested = false;
+        updateLatencies();
+
+        showAndWait();
+        return saveRequested;
+    }
+
+    private void updateLatencies() {
+        List<Object[]> rows = latencies.get();
+        lvLatencies.getItems().setAll(rows);
+
+        long total = 0L;
+        for(Object[] row : rows)
+            total += (Long) row[1];
+        lblStatus.setText(total + " actions timed, latencies within 1%");
+    }
+
+    private static String formatMicros(long micros) {
+        if(micros < 1000L)
+            return micros + " us";
+        if(micros < 1000_000L)
+            return String.format("%.1f ms", micros / 1000.0);
+        return String.format("%.2f s", micros / 1000_000.0);
+    }
+
+}
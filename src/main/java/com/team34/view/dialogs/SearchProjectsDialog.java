@@ -0,0 +1,155 @@
+package com.team34.view.dialogs;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.Function;
+
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * Searches the projects in the project directory, and lets the user pick one of them to open.
+ * The results are updated as the query is typed.
+ */
+public class SearchProjectsDialog extends Stage {
+
+    private static final int RESULT_LIMIT = 100;
+
+    private final TextField tfQuery;
+    private final ListView<Object[]> lvResults;
+    private final Label lblStatus;
+    private Function<String, List<Object[]>> search;
+    private File selected;
+
+    public SearchProjectsDialog(Stage ownerStage) {
+        setTitle("Find in Projects");
+        setOnCloseRequest(e -> selected = null);
+
+        // --- GUI elements --- //
+
+        tfQuery = new TextField();
+        tfQuery.setPromptText("Search event and character names and descriptions");
+        tfQuery.textProperty().addListener((observable, oldValue, newValue) -> updateResults());
+
+        // Each result is {File file, String projectName, String matchedIn}
+        lvResults = new ListView<>();
+        lvResults.setCellFactory(list -> new ListCell<Object[]>() {
+            @Override
+            protected void updateItem(Object[] item, boolean empty) {
+                super.updateItem(item, empty);
+                if(empty || item == null)
+                    setText(null);
+                else
+                    setText(item[1] + "  (" + ((File) item[0]).getName() + ")  " + item[2]);
+            }
+        });
+        lvResults.setOnMouseClicked(e -> {
+            if(e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2)
+                confirm();
+        });
+        lvResults.setOnKeyPressed(e -> {
+            if(e.getCode() == KeyCode.ENTER)
+                confirm();
+        });
+        VBox.setVgrow(lvResults, Priority.ALWAYS);
+
+        tfQuery.setOnKeyPressed(e -> {
+            if(e.getCode() == KeyCode.DOWN) {
+                lvResults.requestFocus();
+                lvResults.getSelectionModel().selectFirst();
+            } else if(e.getCode() == KeyCode.ENTER) {
+                lvResults.getSelectionModel().selectFirst();
+                confirm();
+            }
+        });
+
+        lblStatus = new Label();
+
+        Button btnOpen = new Button("Open");
+        btnOpen.setOnAction(e -> confirm());
+
+        Button btnCancel = new Button("Cancel");
+        btnCancel.setOnAction(e -> { selected = null; close(); });
+
+        // --- Layouts --- //
+
+        HBox buttonLayout = new HBox();
+        buttonLayout.setSpacing(10);
+        buttonLayout.getChildren().addAll(btnOpen, btnCancel);
+
+        VBox layout = new VBox();
+        layout.setSpacing(10);
+        layout.setPadding(new Insets(10, 10, 10, 10));
+        layout.setPrefSize(560, 400);
+        layout.getChildren().addAll(tfQuery, lvResults, lblStatus, buttonLayout);
+
+        // --- Set Scene --- //
+        Scene scene = new Scene(layout);
+        setScene(scene);
+
+        // --- Set ownership and modality --- //
+        initModality(Modality.WINDOW_MODAL);
+        initOwner(ownerStage);
+    }
+
+    /**
+     * Shows the dialog, and blocks until it is closed.
+     * @param search returns the results of a query, each as {File file, String projectName, String matchedIn}
+     * @return the project file the user picked, or null if cancelled
+     */
+    public File showSearch(Function<String, List<Object[]>> search) {
+        this.search = search;
+        selected = null;
+
+        tfQuery.setText("");
+        lvResults.getItems().clear();
+        lblStatus.setText("");
+
+        tfQuery.requestFocus();
+        showAndWait();
+
+        return selected;
+    }
+
+    private void updateResults() {
+        if(search == null)
+            return;
+
+        long start = System.nanoTime();
+        List<Object[]> results = search.apply(tfQuery.getText());
+        long micros = (System.nanoTime() - start) / 1000L;
+
+        lvResults.getItems().setAll(results);
+        if(tfQuery.getText().isBlank())
+            lblStatus.setText("");
+        else
+            lblStatus.setText(results.size() + (results.size() >= RESULT_LIMIT ? "+" : "") + " projects ("
+                    + (micros / 1000L) + "." + ((micros / 100L) % 10L) + " ms)");
+    }
+
+    private void confirm() {
+        Object[] item = lvResults.getSelectionModel().getSelectedItem();
+        if(item == null)
+            return;
+
+        selected = (File) item[0];
+        close();
+    }
+
+    /**
+     * Returns the maximum number of results to show.
+     * @return the limit
+     */
+    public static int getResultLimit() {
+        return RESULT_LIMIT;
+    }
+
+}
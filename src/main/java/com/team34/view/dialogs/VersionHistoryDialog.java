@@ -0,0 +1,113 @@
+package com.team34.view.dialogs;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * Lists the saved revisions of the current project, and lets the user pick one of them to restore.
+ */
+public class VersionHistoryDialog extends Stage {
+
+    private final ListView<Object[]> lvRevisions;
+    private final Label lblStatus;
+    private long selected;
+
+    public VersionHistoryDialog(Stage ownerStage) {
+        setTitle("Version History");
+        setOnCloseRequest(e -> selected = -1L);
+
+        // --- GUI elements --- //
+
+        // Each revision is {Long number, Long time, String name, Integer events, Integer characters,
+        //                   Integer associations, Long addedBytes}
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        lvRevisions = new ListView<>();
+        lvRevisions.setCellFactory(list -> new ListCell<Object[]>() {
+            @Override
+            protected void updateItem(Object[] item, boolean empty) {
+                super.updateItem(item, empty);
+                if(empty || item == null)
+                    setText(null);
+                else
+                    setText("#" + item[0] + "   " + dateFormat.format(new Date((Long) item[1])) + "   " + item[2]
+                            + "   " + item[3] + " events, " + item[4] + " characters, " + item[5] + " associations"
+                            + "   (+" + formatBytes((Long) item[6]) + ")");
+            }
+        });
+        VBox.setVgrow(lvRevisions, Priority.ALWAYS);
+
+        lblStatus = new Label();
+
+        Button btnRestore = new Button("Restore");
+        btnRestore.setOnAction(e -> confirm());
+
+        Button btnCancel = new Button("Cancel");
+        btnCancel.setOnAction(e -> { selected = -1L; close(); });
+
+        // --- Layouts --- //
+
+        HBox buttonLayout = new HBox();
+        buttonLayout.setSpacing(10);
+        buttonLayout.getChildren().addAll(btnRestore, btnCancel);
+
+        VBox layout = new VBox();
+        layout.setSpacing(10);
+        layout.setPadding(new Insets(10, 10, 10, 10));
+        layout.setPrefSize(720, 400);
+        layout.getChildren().addAll(lvRevisions, lblStatus, buttonLayout);
+
+        // --- Set Scene --- //
+        Scene scene = new Scene(layout);
+        setScene(scene);
+
+        // --- Set ownership and modality --- //
+        initModality(Modality.WINDOW_MODAL);
+        initOwner(ownerStage);
+    }
+
+    /**
+     * Shows the dialog, and blocks until it is closed.
+     * @param revisions the revisions, newest first, see the comment in the constructor for their layout
+     * @return the number of the revision to restore, or -1 if cancelled
+     */
+    public long showRevisions(List<Object[]> revisions) {
+        selected = -1L;
+        lvRevisions.getItems().setAll(revisions);
+
+        long total = 0L;
+        for(Object[] revision : revisions)
+            total += (Long) revision[6];
+        lblStatus.setText(revisions.size() + " revisions, " + formatBytes(total) + " stored");
+
+        showAndWait();
+        return selected;
+    }
+
+    private void confirm() {
+        Object[] item = lvRevisions.getSelectionModel().getSelectedItem();
+        if(item == null)
+            return;
+
+        selected = (Long) item[0];
+        close();
+    }
+
+    private static String formatBytes(long bytes) {
+        if(bytes < 1024L)
+            return bytes + " B";
+        if(bytes < 1024L * 1024L)
+            return (bytes / 1024L) + " KB";
+        return (bytes / (1024L * 1024L)) + " MB";
+    }
+
+}
@@ -13,12 +13,15 @@ import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
 
+import java.util.HashMap;
+
 import com.team34.model.event.EventListObject;
 import com.team34.view.MainView;
 
 public class EventList extends StackPane {
 
     private ListView<EventListObject> list;
+    private HashMap<Long, EventListObject> listObjects; // By event UID, including events not yet in the list
     private Button add, edit, delete;
     private Label title;
 
@@ -41,6 +44,8 @@ public class EventList extends StackPane {
     public EventList() {
 //        window = new Stage();
 
+        listObjects = new HashMap<>();
+
         //Panes
         outerPane = new BorderPane();
         innerPane = new BorderPane();
@@ -134,26 +139,87 @@ public class EventList extends StackPane {
     }
 
     public void updateListView(Object[][] events, Long[] order) {
+        listObjects.clear();
         if (events == null || events.length < 1){
             list.getItems().clear();
             return;
         }
 
+        for (Object[] event : events)
+            listObjects.put((Long) event[0], new EventListObject((String) event[1], (Long) event[0]));
+
         ObservableList<EventListObject> ol = FXCollections.observableArrayList();
-        Object[] event = null;
-        for(int i = 0; i < order.length; i++) {
-            for(int j = 0; j < events.length; j++) {
-                if(((Long) events[j][0]).equals(order[i]))
-                    event = events[j];
-            }
-
-            ol.add(new EventListObject((String) event[1], (Long) event[0]));
-            event = null;
+        for (Long uid : order) {
+            EventListObject object = listObjects.get(uid);
+            if (object != null)
+                ol.add(object);
         }
 
         list.setItems(ol);
     }
 
+    /**
+     * Sets the title of an event, or adds the event if it is not known yet. An added event is not
+     * listed until it is appended, see {@link EventList#appendEvent(long)}.
+     * @param uid the UID of the event
+     * @param title the title of the event
+     */
+    public void putEvent(long uid, String title) {
+        EventListObject object = listObjects.get(uid);
+        if (object == null) {
+            listObjects.put(uid, new EventListObject(title, uid));
+        } else {
+            object.setTitle(title);
+            list.refresh();
+        }
+    }
+
+    /**
+     * Lists an event, which must have been put, last.
+     * @param uid the UID of the event
+     */
+    public void appendEvent(long uid) {
+        EventListObject object = listObjects.get(uid);
+        if (object != null)
+            list.getItems().add(object);
+    }
+
+    /**
+     * Removes an event from the list.
+     * @param uid the UID of the event
+     */
+    public void removeEvent(long uid) {
+        EventListObject object = listObjects.remove(uid);
+        if (object != null)
+            list.getItems().remove(object);
+    }
+
+    /**
+     * Moves an event from one place in the list to another, shifting the events in between.
+     * @param fromIndex the index of the event to move
+     * @param toIndex the index to move it to
+     */
+    public void moveEvent(int fromIndex, int toIndex) {
+        ObservableList<EventListObject> items = list.getItems();
+        if (fromIndex < 0 || toIndex < 0 || fromIndex >= items.size() || toIndex >= items.size())
+            return;
+
+        items.add(toIndex, items.remove(fromIndex));
+    }
+
+    /**
+     * Swaps the places of two events in the list.
+     * @param index1 the index of one event
+     * @param index2 the index of the other event
+     */
+    public void swapEvents(int index1, int index2) {
+        ObservableList<EventListObject> items = list.getItems();
+        if (index1 < 0 || index2 < 0 || index1 >= items.size() || index2 >= items.size())
+            return;
+
+        items.set(index2, items.set(index1, items.get(index2)));
+    }
+
     /**
      * Registers the Add-, Edit- and Delete buttons to the event handler in the
      * {@link com.team34.controller.MainController} class.
@@ -8,11 +8,14 @@ import javafx.scene.input.*;
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.Rectangle;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
+import com.team34.model.diagnostics.ViewUpdateEvent;
 import com.team34.view.LabeledRectangle;
+import com.team34.view.LabeledRectanglePool;
 import com.team34.view.MainView;
 
 /**
@@ -32,6 +35,16 @@ import com.team34.view.MainView;
  *     or simply call the method {@link Timeline#recalculateLayout(Long[])}
  * </ol>
  * <p>
+ * Once laid out, single changes can be made without rebuilding the timeline, by
+ * {@link Timeline#putEvent(long, String)}, {@link Timeline#appendEvent(long)}, {@link Timeline#removeEvent(long)},
+ * {@link Timeline#moveEvent(int, int)} and {@link Timeline#swapEvents(int, int)}. Relabeling takes constant
+ * time, and the others only recalculate the positions of the events from the first one that is shifted.
+ * <p>
+ * The timeline is virtualized. The position of every event is calculated, but rectangles only exist for
+ * the events that are within the visible part of the timeline, plus a margin on either side. As the user
+ * scrolls, the rectangles of the events that leave the margin are hidden, and reused for the events that
+ * enter it, so the number of nodes, and the cost of scrolling, does not depend on the number of events.
+ * <p>
  * Example usage:
  * <code style=display:block;white-space:pre-wrap>
  * VBox vBox = new vBox();
@@ -54,6 +67,7 @@ public class Timeline {
 
     private static final int INITIAL_EVENT_CAPACITY = 20;
     private static final double LAYOUT_SPACING = 20.0;
+    private static final double MIN_VISIBLE_MARGIN = 400.0; // Extra width to show on either side of the viewport
 
     private static final int CONTEXT_MENU_ITEM_EDIT = 0;
     private static final int CONTEXT_MENU_ITEM_REMOVE = 1;
@@ -72,9 +86,19 @@ public class Timeline {
     private EventHandler<ContextMenuEvent> evtShowContextEvent; // Fires when an event is right-clicked
     private EventHandler<ContextMenuEvent> evtShowContextPane; // Fires when the pane is right-clicked
     private EventHandler<DragEvent> evtDragDropped;
+    private final EventHandler<MouseEvent> evtRectDragDetected;
+    private final EventHandler<DragEvent> evtRectDragOver;
+    private final EventHandler<DragEvent> evtRectDragDropped;
+
+    private HashMap<Long, TimelineEvent> events; // Stores the label and width of every event by its eventUID.
+    private ArrayList<Long> eventUIDOrder; // The order of the events, or null if not set.
+    private double[] eventX; // The x-position of each event in the order, see layoutEvents().
 
-    private HashMap<Long, LabeledRectangle> eventRectMap; // Stores references to LabeledRectangles by their eventUID.
-    private Long[] eventUIDOrder; // This is a reference to the order of the events.
+    private HashMap<Long, LabeledRectangle> eventRectMap; // Stores the rectangles of the shown events by their eventUID.
+    private HashMap<Long, LabeledRectangle> spareRectMap; // Swapped with eventRectMap when the shown events change.
+    private final LabeledRectanglePool<LabeledRectangle> rectPool; // Rectangles that are reused as events are shown.
+    private int shownFrom; // The range of the order of events that have rectangles
+    private int shownTo;
 
     /**
      * Creates a new instance of Timeline with the given minimum width in pixels.
@@ -85,6 +109,13 @@ public class Timeline {
 
         evtShowContextPane = new EventContextRequestPane();
         evtShowContextEvent = new EventContextRequestEvent();
+        evtRectDragDetected = new EventRectDragDetected();
+        evtRectDragOver = new EventRectDragOver();
+        evtRectDragDropped = dragEvent -> {
+            // The drop handler may be registered after the rectangles are created
+            if (evtDragDropped != null)
+                evtDragDropped.handle(dragEvent);
+        };
 
         pane = new Pane();
         pane.setMinSize(minWidth, LabeledRectangle.DEFAULT_HEIGHT + LAYOUT_SPACING + LAYOUT_SPACING);
@@ -99,6 +130,10 @@ public class Timeline {
         scrollPane.setContent(pane);
         scrollPane.setOnContextMenuRequested(evtShowContextPane);
 
+        // Show the events that scroll into view
+        scrollPane.hvalueProperty().addListener((observable, oldValue, newValue) -> updateShownEvents(false));
+        scrollPane.viewportBoundsProperty().addListener((observable, oldValue, newValue) -> updateShownEvents(false));
+
         this.posX = 0.0;
         this.posY = 0.0;
         this.width = minWidth;
@@ -107,7 +142,13 @@ public class Timeline {
         line = new TimelineLine();
         line.addToPane(pane);
 
+        events = new HashMap<>(INITIAL_EVENT_CAPACITY);
+        eventX = new double[INITIAL_EVENT_CAPACITY];
         eventRectMap = new HashMap<>(INITIAL_EVENT_CAPACITY);
+        spareRectMap = new HashMap<>(INITIAL_EVENT_CAPACITY);
+        rectPool = new LabeledRectanglePool<>(pane, this::createRect);
+        shownFrom = 0;
+        shownTo = 0;
 
     }
 
@@ -122,94 +163,140 @@ public class Timeline {
      * @param width    the width of the rectangle. Set to 0.0 to use default
      */
     public void addEvent(long eventUID, String label, double width) {
-        LabeledRectangle existingRect = eventRectMap.get(eventUID);
+        TimelineEvent event = new TimelineEvent(label, width < 1.0 ? LabeledRectangle.DEFAULT_WIDTH : width);
+        TimelineEvent existing = events.put(eventUID, event);
+
+        // If the event is getting overwritten, its rectangle is shown again once the layout is recalculated
+        if (existing != null)
+            hideRect(eventUID);
+    }
 
-        if (existingRect != null) { // If the event is getting overwritten, remove the old shapes first.
-            pane.getChildren().removeAll(existingRect.getRect(), existingRect.getText());
-            existingRect.getRect().setOnContextMenuRequested(null);
-            Tooltip.uninstall(existingRect.getRect(), existingRect.getTooltip());
+    /**
+     * Adds an event to be shown in the timeline, with the default width.
+     * See {@link Timeline#addEvent(long, String, double)} for details.
+     *
+     * @param eventUID the unique ID, associated with the event throughout the project
+     * @param label    the text that is to be displayed within the rectangle
+     */
+    public void addEvent(long eventUID, String label) {
+        addEvent(eventUID, label, 0.0);
+    }
+
+    /**
+     * Sets the label of an event, or adds the event if it has not been added yet. An added event is
+     * not placed in the order of events, see {@link Timeline#appendEvent(long)}.
+     * This does not change the layout, as the width of a rectangle does not depend on its label.
+     *
+     * @param eventUID the unique ID, associated with the event throughout the project
+     * @param label    the text that is to be displayed within the rectangle
+     */
+    public void putEvent(long eventUID, String label) {
+        TimelineEvent event = events.get(eventUID);
+        if (event == null) {
+            addEvent(eventUID, label);
+            return;
         }
 
-        LabeledRectangle rect = new LabeledRectangle(label, width, 0.0f);
-        rect.setStylesheetClasses("timeline-event-rect", "timeline-event-text", "timeline-tooltip");
-        eventRectMap.put(eventUID, rect);
+        event.label = label;
+        LabeledRectangle rect = eventRectMap.get(eventUID);
+        if (rect != null)
+            rect.setLabel(label);
+    }
 
-        pane.getChildren().add(rect.getRect());
-        pane.getChildren().add(rect.getText());
+    /**
+     * Places an event, which must have been added, at the back of the order of events, and lays it out.
+     *
+     * @param eventUID the unique ID, associated with the event throughout the project
+     */
+    public void appendEvent(long eventUID) {
+        if (eventUIDOrder == null)
+            eventUIDOrder = new ArrayList<>();
 
-        rect.getRect().setOnContextMenuRequested(evtShowContextEvent);
-        rect.getRect().setOnDragDetected(new EventHandler<MouseEvent>() {
-            @Override
+        eventUIDOrder.add(eventUID);
+        layoutEvents(eventUIDOrder.size() - 1, eventUIDOrder.size());
+    }
 
-            //Gets UID of selected event and puts it onto the ClipBoard 
-            public void handle(MouseEvent mouseEvent) {
-                getEventUIDByRectangle(rect.getRect());
+    /**
+     * Removes an event, and takes it out of the order of events.
+     * The events that followed it are moved into its place.
+     *
+     * @param eventUID the unique ID, associated with the event throughout the project
+     */
+    public void removeEvent(long eventUID) {
+        events.remove(eventUID);
+        hideRect(eventUID);
 
-                Dragboard db = rect.getRect().startDragAndDrop(TransferMode.ANY);
-                ClipboardContent content = new ClipboardContent();
-                content.putString(Long.toString(getEventUIDByRectangle(rect.getRect())));
-                db.setContent(content);
+        if (eventUIDOrder == null)
+            return;
 
-                mouseEvent.consume();
-            }
-        });
-        rect.getRect().setOnDragOver(new EventHandler<DragEvent>() {
-            @Override
-
-            // Prepares target event to accept the dropped event
-            public void handle(DragEvent dragEvent) {
-                if (dragEvent.getDragboard().hasString()) {
-                    dragEvent.acceptTransferModes(TransferMode.ANY);
-                }
-                dragEvent.consume();
-            }
-        });
+        int index = eventUIDOrder.indexOf(eventUID);
+        if (index < 0)
+            return;
 
-        rect.getRect().setOnDragDropped(evtDragDropped);
+        eventUIDOrder.remove(index);
+        layoutEvents(index, eventUIDOrder.size());
+    }
 
-        Tooltip.install(rect.getRect(), rect.getTooltip());
+    /**
+     * Moves an event from one place in the order of events to another, shifting the events in between,
+     * like {@link com.team34.model.event.EventManager#moveEvent(int, int, int)} does.
+     *
+     * @param fromIndex the index of the event to move
+     * @param toIndex   the index to move it to
+     */
+    public void moveEvent(int fromIndex, int toIndex) {
+        if (eventUIDOrder == null || !isInOrder(fromIndex) || !isInOrder(toIndex) || fromIndex == toIndex)
+            return;
+
+        eventUIDOrder.add(toIndex, eventUIDOrder.remove(fromIndex));
+        layoutEvents(Math.min(fromIndex, toIndex), Math.max(fromIndex, toIndex) + 1);
     }
 
     /**
-     * Adds an event to be shown in the timeline, with the default width.
-     * See {@link Timeline#addEvent(long, String, double)} for details.
+     * Swaps the places of two events in the order of events.
      *
-     * @param eventUID the unique ID, associated with the event throughout the project
-     * @param label    the text that is to be displayed within the rectangle
+     * @param index1 the index of one event
+     * @param index2 the index of the other event
      */
-    public void addEvent(long eventUID, String label) {
-        addEvent(eventUID, label, 0.0);
+    public void swapEvents(int index1, int index2) {
+        if (eventUIDOrder == null || !isInOrder(index1) || !isInOrder(index2) || index1 == index2)
+            return;
+
+        eventUIDOrder.set(index2, eventUIDOrder.set(index1, eventUIDOrder.get(index2)));
+        layoutEvents(Math.min(index1, index2), Math.max(index1, index2) + 1);
+    }
+
+    private boolean isInOrder(int index) {
+        return index >= 0 && index < eventUIDOrder.size();
     }
 
     /**
-     * Clears the events that have been added, uninstalls their tooltip, and clears the order of events.
+     * Clears the events that have been added, hides their rectangles, and clears the order of events.
      */
     public void clear() {
-        eventRectMap.forEach((uid, rect) -> {
-            pane.getChildren().removeAll(rect.getRect(), rect.getText());
-            rect.getRect().setOnContextMenuRequested(null);
-            Tooltip.uninstall(rect.getRect(), rect.getTooltip());
-        });
+        for (LabeledRectangle rect : eventRectMap.values())
+            rectPool.release(rect);
 
         eventRectMap.clear();
+        events.clear();
         eventUIDOrder = null;
+        shownFrom = 0;
+        shownTo = 0;
     }
 
     /**
      * Finds the UID associated with the given {@link Rectangle} contained within an {@link LabeledRectangle}.
+     * Only the shown events have rectangles. The UID is kept as the user data of the rectangle while the event
+     * is shown, so this takes constant time.
      * @param rectangle the rectangle to use when searching
      * @return the UID or, if not found, -1L
      */
     public Long getEventUIDByRectangle(Rectangle rectangle) {
-        Iterator<Map.Entry<Long, LabeledRectangle>> it = eventRectMap.entrySet().iterator();
-        Map.Entry<Long, LabeledRectangle> pair;
-
-        // Find LabeledRectangle that contains the input rectangle and return its associated UID
-        while (it.hasNext()) {
-            pair = it.next();
-            if (pair.getValue().getRect().equals(rectangle)) {
-                return pair.getKey();
-            }
+        Object uid = rectangle.getUserData();
+        if (uid instanceof Long) {
+            LabeledRectangle rect = eventRectMap.get(uid);
+            if (rect != null && rect.getRect() == rectangle)
+                return (Long) uid;
         }
 
         return -1L;
@@ -219,6 +306,15 @@ public class Timeline {
         return getEventUIDByRectangle(rect.getRect());
     }
 
+    /**
+     * Returns the number of rectangles that exist, shown or not. This is bounded by the number of events
+     * that fit within the visible part of the timeline, rather than by the number of events.
+     * @return the number of rectangles
+     */
+    public int getRectangleCount() {
+        return rectPool.size();
+    }
+
     /**
      * Adds the internal {@link javafx.scene.layout.Pane} as a child to the given Pane.
      *
@@ -236,7 +332,7 @@ public class Timeline {
      * @param eventUIDs the array of eventUIDs, in the order that they are to be displayed
      */
     public void setEventOrder(Long[] eventUIDs) {
-        eventUIDOrder = eventUIDs;
+        eventUIDOrder = eventUIDs != null ? new ArrayList<>(Arrays.asList(eventUIDs)) : null;
     }
 
     /**
@@ -252,25 +348,49 @@ public class Timeline {
         if (eventUIDs != null)
             setEventOrder(eventUIDs);
 
+        recalculateLayout();
+    }
+
+    /**
+     * Recalculates and sets the correct positions and layout of all graphical elements,
+     * using the event order that has been set beforehand.
+     * See {@link Timeline#recalculateLayout(Long[])} for details.
+     */
+    public void recalculateLayout() {
         // Recalculate position
         posX = LAYOUT_SPACING;
         posY = pane.getMinHeight() / 2.0;
 
-        // Reset positions of event rectangles according to the given order.
-        double y = posY - LabeledRectangle.DEFAULT_HEIGHT / 2.0;
-        double nextX = posX + LAYOUT_SPACING;
+        layoutEvents(0, eventUIDOrder != null ? eventUIDOrder.size() : 0);
+    }
 
-        if (eventUIDOrder != null) {
-            for (int i = 0; i < eventUIDOrder.length; i++) {
-                LabeledRectangle rect = eventRectMap.get(eventUIDOrder[i]);
-                if (rect == null)
-                    continue;
+    /**
+     * Calculates the positions of the events from the given index of the order of events onwards, each after the
+     * one before it, then resizes the timeline to fit all events and updates the shown rectangles. The positions
+     * before the range are left as is. Events in the order that have not been added take up no space.
+     * <p>
+     * Only the positions are calculated for every event, which is cheap. Rectangles are only positioned for
+     * the events that are shown, see {@link Timeline#updateShownEvents(boolean)}.
+     *
+     * @param from the index of the first event to position
+     * @param to   the index after the last event whose place has changed
+     */
+    private void layoutEvents(int from, int to) {
+        ViewUpdateEvent jfrEvent = new ViewUpdateEvent();
+        jfrEvent.begin();
 
-                rect.setX(nextX);
-                rect.setY(y);
+        int count = eventUIDOrder != null ? eventUIDOrder.size() : 0;
+        if (eventX.length < count)
+            eventX = Arrays.copyOf(eventX, Math.max(count, eventX.length * 2));
 
-                nextX += rect.getBoundsInLocal().getWidth() + LAYOUT_SPACING; // take individual width into account
-            }
+        double nextX = posX + LAYOUT_SPACING;
+        if (from > 0)
+            nextX = eventX[from - 1] + widthAt(from - 1);
+
+        // Every event after the first one that moved may have shifted
+        for (int i = from; i < count; i++) {
+            eventX[i] = nextX;
+            nextX += widthAt(i);
         }
 
         // Adjust timeline length (width) if necessary
@@ -290,15 +410,138 @@ public class Timeline {
         // Recalculate the timeline line shapes.
         line.recalculate(posX, posY, width);
 
+        // The shown events may have moved, and other events may have come into view
+        updateShownEvents(true);
+
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.view = from == 0 && to == count ? "Timeline.recalculateLayout" : "Timeline.layoutEvents";
+            jfrEvent.entities = count;
+            jfrEvent.updated = eventRectMap.size();
+            jfrEvent.commit();
+        }
     }
 
     /**
-     * Recalculates and sets the correct positions and layout of all graphical elements,
-     * using the event order that has been set beforehand.
-     * See {@link Timeline#recalculateLayout(Long[])} for details.
+     * Returns the width that the event at the given index of the order takes up, including the spacing after it.
      */
-    public void recalculateLayout() {
-        recalculateLayout(eventUIDOrder);
+    private double widthAt(int index) {
+        TimelineEvent event = events.get(eventUIDOrder.get(index));
+        return event != null ? event.width + LAYOUT_SPACING : 0.0;
+    }
+
+    /**
+     * Shows rectangles for the events that are within the visible part of the timeline, plus a margin, and hides
+     * the rest. Events that stay shown keep their rectangles, and the rectangles that are no longer needed are
+     * reused for the events that come into view.
+     *
+     * @param force true to place the shown rectangles again, after the layout has changed. Otherwise, nothing is
+     *              done unless other events have come into view.
+     */
+    private void updateShownEvents(boolean force) {
+        int count = eventUIDOrder != null ? eventUIDOrder.size() : 0;
+
+        double viewportWidth = scrollPane.getViewportBounds().getWidth();
+        if (viewportWidth <= 0.0)
+            viewportWidth = minWidth; // Not shown yet
+
+        double contentWidth = pane.getMinWidth();
+        double left = scrollPane.getHvalue() * Math.max(0.0, contentWidth - viewportWidth);
+        double margin = Math.max(MIN_VISIBLE_MARGIN, viewportWidth * 0.5);
+
+        int from = firstEventEndingAfter(left - margin, count);
+        int to = Math.min(firstEventEndingAfter(left + viewportWidth + margin, count) + 1, count);
+        if (!force && from == shownFrom && to == shownTo)
+            return;
+
+        // Keep the rectangles of the events that are still in range
+        HashMap<Long, LabeledRectangle> shown = spareRectMap;
+        for (int i = from; i < to; i++) {
+            long uid = eventUIDOrder.get(i);
+            LabeledRectangle rect = eventRectMap.remove(uid);
+            if (rect != null)
+                shown.put(uid, rect);
+        }
+
+        // Hide the rest, then reuse them for the events that have come into range
+        for (LabeledRectangle rect : eventRectMap.values())
+            rectPool.release(rect);
+        eventRectMap.clear();
+
+        double y = posY - LabeledRectangle.DEFAULT_HEIGHT / 2.0;
+        for (int i = from; i < to; i++) {
+            long uid = eventUIDOrder.get(i);
+            LabeledRectangle rect = shown.get(uid);
+            if (rect == null) {
+                TimelineEvent event = events.get(uid);
+                if (event == null)
+                    continue;
+
+                rect = showRect(uid, event);
+                shown.put(uid, rect);
+            }
+
+            rect.setX(eventX[i]);
+            rect.setY(y);
+        }
+
+        spareRectMap = eventRectMap;
+        eventRectMap = shown;
+        shownFrom = from;
+        shownTo = to;
+        rectPool.trim();
+    }
+
+    /**
+     * Returns the index of the first event in the order that ends after the given x-position,
+     * or the number of events if there is none.
+     */
+    private int firstEventEndingAfter(double x, int count) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (eventX[mid] + widthAt(mid) - LAYOUT_SPACING < x)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Returns a rectangle showing the given event, reusing a hidden one if there is any.
+     */
+    private LabeledRectangle showRect(long eventUID, TimelineEvent event) {
+        LabeledRectangle rect = rectPool.acquire(event.label);
+        rect.getRect().setWidth(event.width);
+        rect.getRect().setUserData(eventUID);
+        return rect;
+    }
+
+    /**
+     * Hides the rectangle of the given event, if it is shown, so that it can be reused.
+     */
+    private void hideRect(long eventUID) {
+        LabeledRectangle rect = eventRectMap.remove(eventUID);
+        if (rect != null)
+            rectPool.release(rect);
+    }
+
+    /**
+     * Creates a rectangle for the {@link LabeledRectanglePool}, with the handlers that are shared by all
+     * rectangles, and its tooltip.
+     */
+    private LabeledRectangle createRect() {
+        LabeledRectangle rect = new LabeledRectangle("", 0.0, 0.0f);
+        rect.setStylesheetClasses("timeline-event-rect", "timeline-event-text", "timeline-tooltip");
+
+        rect.getRect().setOnContextMenuRequested(evtShowContextEvent);
+        rect.getRect().setOnDragDetected(evtRectDragDetected);
+        rect.getRect().setOnDragOver(evtRectDragOver);
+        rect.getRect().setOnDragDropped(evtRectDragDropped);
+
+        Tooltip.install(rect.getRect(), rect.getTooltip());
+        return rect;
     }
 
     /**
@@ -349,8 +592,50 @@ public class Timeline {
         this.evtDragDropped = dragEventEventHandler;
     }
 
+    /**
+     * The label and width of an event, which are kept for every event, whether it is shown or not.
+     */
+    private static class TimelineEvent {
+        private String label;
+        private final double width;
+
+        private TimelineEvent(String label, double width) {
+            this.label = label;
+            this.width = width;
+        }
+    }
+
     ////// EVENTS ////////////////////////////////////////////////////////////
 
+    /**
+     * Gets UID of the dragged event and puts it onto the ClipBoard.
+     */
+    private class EventRectDragDetected implements EventHandler<MouseEvent> {
+        @Override
+        public void handle(MouseEvent mouseEvent) {
+            Rectangle rect = (Rectangle) mouseEvent.getSource();
+            Dragboard db = rect.startDragAndDrop(TransferMode.ANY);
+            ClipboardContent content = new ClipboardContent();
+            content.putString(Long.toString(getEventUIDByRectangle(rect)));
+            db.setContent(content);
+
+            mouseEvent.consume();
+        }
+    }
+
+    /**
+     * Prepares target event to accept the dropped event.
+     */
+    private class EventRectDragOver implements EventHandler<DragEvent> {
+        @Override
+        public void handle(DragEvent dragEvent) {
+            if (dragEvent.getDragboard().hasString()) {
+                dragEvent.acceptTransferModes(TransferMode.ANY);
+            }
+            dragEvent.consume();
+        }
+    }
+
     /**
      * This fires when right-clicking in empty space inside the timeline pane.
      * This event is fired when the context menu should be shown.
@@ -383,4 +668,4 @@ public class Timeline {
     }
 
 
-}
\ No newline at end of file
+}
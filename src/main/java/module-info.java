@@ -2,6 +2,7 @@ module com.team34 {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.xml;
+    requires jdk.jfr;
 
     opens com.team34 to javafx.fxml;
     exports com.team34;
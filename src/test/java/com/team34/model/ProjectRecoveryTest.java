@@ -0,0 +1,141 @@
+package com.team34.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.team34.model.io.BinaryProjectFormat;
+import com.team34.model.io.CorruptSectionException;
+import com.team34.model.io.ProjectFiles;
+import com.team34.model.io.ProjectFormat;
+import com.team34.model.io.ProjectSection;
+import com.team34.model.io.ProjectSnapshot;
+import com.team34.model.io.TableOfContents;
+
+/**
+ * Tests how {@link Project} falls back to a backup when the project file is damaged.
+ */
+class ProjectRecoveryTest {
+
+    @TempDir
+    File dir;
+
+    private File file;
+    private Project project;
+    private String workingDir;
+
+    @BeforeEach
+    void setUp() throws IOException, XMLStreamException {
+        file = new File(dir, "project.wsp");
+        for(int version = 1; version <= 3; version++)
+            ProjectFiles.write(version(version), file, ProjectFormat.BINARY, 2);
+
+        // The preferences and recent projects are kept in the working directory
+        workingDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", dir.getPath());
+        project = new Project();
+    }
+
+    @AfterEach
+    void tearDown() {
+        project.close();
+        System.setProperty("user.dir", workingDir);
+    }
+
+    @Test
+    void intactFileIsLoadedAsIs() throws IOException, XMLStreamException {
+        project.loadProject(file);
+
+        assertEquals("Version 3", project.getProjectName());
+        assertNull(project.getRecoveredFrom());
+        assertNull(project.getDamage());
+    }
+
+    @Test
+    void damagedFileIsRecoveredFromMostRecentReadableBackup() throws IOException, XMLStreamException {
+        damage(file, ProjectSection.EVENTS);
+        damage(ProjectFiles.backupFile(file, 1), ProjectSection.CHARACTERS);
+
+        project.loadProject(file);
+
+        assertEquals("Version 1", project.getProjectName());
+        assertEquals(ProjectFiles.backupFile(file, 2), project.getRecoveredFrom());
+        CorruptSectionException damage = assertInstanceOf(CorruptSectionException.class, project.getDamage());
+        assertEquals(ProjectSection.EVENTS, damage.getSection());
+        assertEquals(file, project.getProjectFile());
+        assertTrue(project.hasUnsavedChanges());
+    }
+
+    @Test
+    void recoveredProjectRepairsFileOnceSaved() throws IOException, XMLStreamException {
+        damage(file, ProjectSection.EVENTS);
+        project.loadProject(file);
+        project.saveProject();
+
+        assertNull(project.getRecoveredFrom());
+        assertNull(project.getDamage());
+        assertFalse(project.hasUnsavedChanges());
+        assertEquals("Version 2", ProjectFiles.read(file).name);
+    }
+
+    @Test
+    void damagedFileWithoutReadableBackupIsNotLoaded() throws IOException {
+        damage(file, ProjectSection.EVENTS);
+        damage(ProjectFiles.backupFile(file, 1), ProjectSection.EVENTS);
+        damage(ProjectFiles.backupFile(file, 2), ProjectSection.EVENTS);
+
+        assertThrows(CorruptSectionException.class, () -> project.loadProject(file));
+        assertNull(project.getProjectFile());
+    }
+
+    @Test
+    void fileThatCannotBeOpenedIsNotRecovered() throws IOException, XMLStreamException {
+        File folder = new File(dir, "folder.wsp");
+        assertTrue(folder.mkdir());
+        ProjectFiles.write(version(1), ProjectFiles.backupFile(folder, 1), ProjectFormat.BINARY);
+
+        // Eg. a locked or inaccessible file may be readable later, so no backup is loaded
+        IOException e = assertThrows(IOException.class, () -> project.loadProject(folder));
+        assertFalse(e instanceof CorruptSectionException);
+        assertNull(project.getRecoveredFrom());
+        assertNull(project.getProjectFile());
+    }
+
+    ////// Helpers //////
+
+    private static ProjectSnapshot version(int version) {
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        snapshot.name = "Version " + version;
+        snapshot.uids.add(1L);
+        snapshot.uids.add(2L);
+        snapshot.addEvent(1L, "Event", "Written by version " + version);
+        snapshot.eventOrderLists.add(new Long[] {1L});
+        snapshot.addCharacter(2L, "Character", "", 0.0, 0.0);
+        return snapshot;
+    }
+
+    /**
+     * Inverts a byte in the payload of the given section of a binary project file.
+     */
+    private static void damage(File file, ProjectSection section) throws IOException {
+        TableOfContents.Entry entry = BinaryProjectFormat.readTableOfContents(file).get(section);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[(int) (entry.getOffset() + entry.getLength() / 2)] ^= 0x5A;
+        Files.write(file.toPath(), bytes);
+    }
+
+}
@@ -0,0 +1,180 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests writing and reading the {@link BinaryProjectFormat}, and how damaged files are detected.
+ */
+class BinaryProjectFormatTest {
+
+    @TempDir
+    File dir;
+
+    private File file;
+    private ProjectSnapshot project;
+
+    @BeforeEach
+    void setUp() {
+        file = new File(dir, "project.wsp");
+
+        project = new ProjectSnapshot();
+        project.name = "Novel \u00e5\u00e4\u00f6";
+        project.journalGeneration = 7L;
+        project.uids.addAll(Arrays.asList(1L, -2L, Long.MAX_VALUE, Long.MIN_VALUE, 10L, 11L, 12L));
+        project.addEvent(1L, "Opening", "It was a dark & stormy <night>");
+        project.addEvent(-2L, "Opening", "");
+        project.addEvent(Long.MAX_VALUE, "\u4e2d\u6587", "Line one\nLine two");
+        project.addEvent(Long.MIN_VALUE, "", "Opening");
+        project.eventOrderLists.add(new Long[] {1L, Long.MIN_VALUE, -2L, Long.MAX_VALUE});
+        project.eventOrderLists.add(new Long[0]);
+        project.addCharacter(10L, "Alice", "The lead", -0.5, 1e300);
+        project.addCharacter(11L, "Bob", "", Double.MIN_VALUE, 0.0);
+        project.addAssociation(12L, 10L, 11L, 1.25, -2.5, 3.0, 4.0, "Siblings", Double.MAX_VALUE, -0.0);
+    }
+
+    @Test
+    void roundTripKeepsEverything() throws IOException {
+        BinaryProjectFormat.write(project, file);
+
+        assertSameData(project, BinaryProjectFormat.read(file));
+    }
+
+    @Test
+    void emptyProjectRoundTrips() throws IOException {
+        ProjectSnapshot empty = new ProjectSnapshot();
+        BinaryProjectFormat.write(empty, file);
+
+        assertSameData(empty, BinaryProjectFormat.read(file));
+    }
+
+    @Test
+    void formatIsDetectedFromContent() throws IOException, XMLStreamException {
+        BinaryProjectFormat.write(project, file);
+
+        assertEquals(ProjectFormat.BINARY, ProjectFiles.detectFormat(file));
+        assertSameData(project, ProjectFiles.read(file));
+    }
+
+    @Test
+    void sectionsCanBeParsedInSteps() throws IOException {
+        BinaryProjectFormat.write(project, file);
+
+        BinaryProjectFormat.Sections sections = BinaryProjectFormat.readSections(file);
+        ProjectSnapshot first = sections.parse(EnumSet.of(ProjectSection.PROJECT, ProjectSection.CHARACTERS));
+        assertEquals(project.name, first.name);
+        assertEquals(2, first.characters.size());
+        assertTrue(first.events.isEmpty());
+        assertTrue(sections.hasRemaining());
+
+        ProjectSnapshot rest = sections.parseRemaining();
+        assertTrue(rest.characters.isEmpty());
+        assertEquals(4, rest.events.size());
+        assertFalse(sections.hasRemaining());
+
+        first.addAll(rest);
+        assertSameData(project, first);
+    }
+
+    @Test
+    void damagedSectionIsReported() throws IOException {
+        BinaryProjectFormat.write(project, file);
+        flipByteIn(ProjectSection.EVENTS);
+
+        CorruptSectionException e = assertThrows(CorruptSectionException.class, () -> BinaryProjectFormat.read(file));
+        assertEquals(ProjectSection.EVENTS, e.getSection());
+
+        e = assertThrows(CorruptSectionException.class, () -> BinaryProjectFormat.verify(file));
+        assertEquals(ProjectSection.EVENTS, e.getSection());
+    }
+
+    @Test
+    void damagedSectionIsFoundBeforeAnyStepIsUsed() throws IOException {
+        BinaryProjectFormat.write(project, file);
+        flipByteIn(ProjectSection.EVENTS);
+
+        BinaryProjectFormat.Sections sections = BinaryProjectFormat.readSections(file);
+        CorruptSectionException e = assertThrows(CorruptSectionException.class,
+                () -> sections.parse(EnumSet.of(ProjectSection.CHARACTERS)));
+        assertEquals(ProjectSection.EVENTS, e.getSection());
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        BinaryProjectFormat.write(project, file);
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        assertThrows(EOFException.class, () -> BinaryProjectFormat.read(file));
+    }
+
+    @Test
+    void fileCutWithinHeaderIsRejected() throws IOException {
+        Files.write(file.toPath(), new byte[] { 'W', 'S', 'P', 'B' });
+
+        assertThrows(EOFException.class, () -> BinaryProjectFormat.read(file));
+    }
+
+    @Test
+    void fileThatIsNotBinaryIsRejected() throws IOException {
+        Files.write(file.toPath(), "<project></project>".getBytes());
+
+        IOException e = assertThrows(IOException.class, () -> BinaryProjectFormat.read(file));
+        assertFalse(e instanceof CorruptSectionException);
+    }
+
+    @Test
+    void unsupportedVersionIsRejected() throws IOException {
+        BinaryProjectFormat.write(project, file);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[BinaryProjectFormat.MAGIC.length] = (byte) (BinaryProjectFormat.VERSION + 1);
+        Files.write(file.toPath(), bytes);
+
+        assertThrows(IOException.class, () -> BinaryProjectFormat.read(file));
+    }
+
+    ////// Helpers //////
+
+    /**
+     * Asserts that the snapshot read from a file holds the same data as the one that was written.
+     */
+    private static void assertSameData(ProjectSnapshot expected, ProjectSnapshot actual) {
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.journalGeneration, actual.journalGeneration);
+        assertEquals(expected.uids, actual.uids);
+        assertEquals(expected.eventOrderLists.size(), actual.eventOrderLists.size());
+        for(int i = 0; i < expected.eventOrderLists.size(); i++)
+            assertArrayEquals(expected.eventOrderLists.get(i), actual.eventOrderLists.get(i));
+        assertTrue(ProjectDiff.compare(expected, actual).isEmpty());
+        assertTrue(actual.edited.isEmpty());
+    }
+
+    /**
+     * Inverts a byte in the middle of the payload of the given section.
+     */
+    private void flipByteIn(ProjectSection section) throws IOException {
+        TableOfContents.Entry entry = BinaryProjectFormat.readTableOfContents(file).get(section);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[(int) (entry.getOffset() + entry.getLength() / 2)] ^= 0x5A;
+        Files.write(file.toPath(), bytes);
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests how the {@link CsvReader} splits input into records and fields.
+ */
+class CsvReaderTest {
+
+    @Test
+    void plainRecordsAreSplitAtCommas() throws IOException {
+        CsvReader csv = reader("name,description\nOpening,It begins\n");
+
+        assertArrayEquals(new String[] {"name", "description"}, csv.readRecord());
+        assertArrayEquals(new String[] {"Opening", "It begins"}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void emptyFieldsAreKept() throws IOException {
+        CsvReader csv = reader(",b,\n,,");
+
+        assertArrayEquals(new String[] {"", "b", ""}, csv.readRecord());
+        assertArrayEquals(new String[] {"", "", ""}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void quotedFieldsMayContainSeparatorsAndQuotes() throws IOException {
+        CsvReader csv = reader("\"a, b\",\"line one\r\nline two\",\"say \"\"hi\"\"\",\"\"\n");
+
+        assertArrayEquals(new String[] {"a, b", "line one\r\nline two", "say \"hi\"", ""}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void lineBreaksOfEitherKindEndRecords() throws IOException {
+        CsvReader csv = reader("a\r\nb\nc\rd");
+
+        assertArrayEquals(new String[] {"a"}, csv.readRecord());
+        assertArrayEquals(new String[] {"b"}, csv.readRecord());
+        assertArrayEquals(new String[] {"c"}, csv.readRecord());
+        assertArrayEquals(new String[] {"d"}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void emptyLinesAreSkipped() throws IOException {
+        CsvReader csv = reader("\r\n\na\r\n\r\n\nb\n\n");
+
+        assertArrayEquals(new String[] {"a"}, csv.readRecord());
+        assertArrayEquals(new String[] {"b"}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void emptyInputHasNoRecords() throws IOException {
+        assertNull(reader("").readRecord());
+        assertNull(reader("\n\r\n").readRecord());
+    }
+
+    @Test
+    void unterminatedQuotedFieldIsRejected() throws IOException {
+        CsvReader csv = reader("a,\"never closed\nb,c\n");
+
+        assertThrows(IOException.class, csv::readRecord);
+    }
+
+    @Test
+    void fieldsSpanningBlocksAreRead() throws IOException {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'x');
+        String longField = new String(chars);
+
+        // Delivered a few characters at a time, so that quotes and line breaks fall on block boundaries
+        CsvReader csv = new CsvReader(trickle("\"" + longField + "\"\"\"," + longField + "\r\nend\r\n"));
+
+        assertArrayEquals(new String[] {longField + "\"", longField}, csv.readRecord());
+        assertArrayEquals(new String[] {"end"}, csv.readRecord());
+        assertNull(csv.readRecord());
+    }
+
+    @Test
+    void nonAsciiTextIsKept() throws IOException {
+        String[] record = reader("\u00e5\u00e4\u00f6,\ud83d\ude00\n").readRecord();
+
+        assertEquals(2, record.length);
+        assertEquals("\u00e5\u00e4\u00f6", record[0]);
+        assertEquals("\ud83d\ude00", record[1]);
+    }
+
+    ////// Helpers //////
+
+    private static CsvReader reader(String input) {
+        return new CsvReader(new StringReader(input));
+    }
+
+    /**
+     * Returns a reader of the given text that returns at most 3 characters per read.
+     */
+    private static Reader trickle(String input) {
+        return new StringReader(input) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+    }
+
+}
@@ -0,0 +1,555 @@
+package com.team34.model.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Reads and writes the XML project format with the StAX event API, as {@link XmlProjectFormat} did
+ * before it moved to the cursor API. Only kept so that {@link FormatBenchmark} can compare the two.
+ * <p>
+ * The code is unchanged apart from its name: it writes to an unbuffered stream in the platform charset,
+ * and neither writes nor checks section checksums.
+ */
+class EventApiXmlFormat {
+
+    private EventApiXmlFormat() { }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#read(File)}
+     * @param event
+     * @param reader
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadUIDManager(XMLEvent event, XMLEventReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        while(reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if(event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if(startElement.getName().getLocalPart() == "uid"){
+                    event = reader.nextEvent();
+                    if(event.isCharacters()) {
+                        snapshot.uids.add(Long.parseLong(event.asCharacters().getData()));
+                    }
+                    event = reader.nextEvent();
+                }
+
+            }
+            else if(event.isEndElement()) {
+                if(event.asEndElement().getName().getLocalPart() == "uid_manager")
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#read(File)}
+     * @param event
+     * @param reader
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadEvents(XMLEvent event, XMLEventReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        long uid = -1L;
+        String name = null;
+
+        while(reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if(event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if(startElement.getName().getLocalPart() == "event"){
+                    Iterator<Attribute> attrIt = startElement.getAttributes();
+                    while(attrIt.hasNext()) {
+                        Attribute attr = attrIt.next();
+                        switch(attr.getName().getLocalPart()) {
+                            case "uid":
+                                uid = Long.parseLong(attr.getValue());
+                                break;
+                            case "name":
+                                name = attr.getValue();
+                                break;
+                        }
+                    }
+
+                    event = reader.nextEvent();
+                    if(uid != -1L && name != null) {
+                        if(event.isCharacters())
+                            snapshot.addEvent(uid, name, event.asCharacters().getData());
+                        else
+                            snapshot.addEvent(uid, name, "");
+
+                    }
+                }
+
+            }
+            else if(event.isEndElement()) {
+                if(event.asEndElement().getName().getLocalPart() == "events")
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#read(File)}
+     * @param event
+     * @param reader
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadEventOrderLists(XMLEvent event, XMLEventReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        ArrayList<Long> orderList;
+
+        while(reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if (startElement.getName().getLocalPart() == "order_list") {
+                    orderList = new ArrayList<>();
+
+                    while (reader.hasNext()) {
+                        event = reader.nextEvent();
+
+                        if (event.isStartElement()) {
+                            startElement = event.asStartElement();
+                            if (startElement.getName().getLocalPart() == "li") {
+                                event = reader.nextEvent();
+                                if (event.isCharacters())
+                                    orderList.add(Long.parseLong(event.asCharacters().getData()));
+                            }
+                        }
+                        else if(event.isEndElement()) {
+                            if (event.asEndElement().getName().getLocalPart() == "order_list")
+                                snapshot.eventOrderLists.add(orderList.toArray(new Long[orderList.size()]));
+                            if (event.asEndElement().getName().getLocalPart() == "event_order")
+                                return;
+                        }
+                    }
+                }
+
+            }
+
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#read(File)}
+     * @param event
+     * @param reader
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadCharacters(XMLEvent event, XMLEventReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        long uid = -1L;
+        String name = null;
+        double chartX = 0.0;
+        double chartY = 0.0;
+
+        while(reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if(event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if(startElement.getName().getLocalPart() == "character"){
+                    Iterator<Attribute> attrIt = startElement.getAttributes();
+                    while(attrIt.hasNext()) {
+                        Attribute attr = attrIt.next();
+                        switch(attr.getName().getLocalPart()) {
+                            case "uid":
+                                uid = Long.parseLong(attr.getValue());
+                                break;
+                            case "name":
+                                name = attr.getValue();
+                                break;
+                            case "chartX":
+                                chartX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "chartY":
+                                chartY = Double.parseDouble(attr.getValue());
+                                break;
+                        }
+                    }
+
+                    event = reader.nextEvent();
+                    if(uid != -1L && name != null) {
+                        if(event.isCharacters())
+                            snapshot.addCharacter(uid, name, event.asCharacters().getData(), chartX, chartY);
+                        else
+                            snapshot.addCharacter(uid, name, "", chartX, chartY);
+
+                    }
+                }
+
+            }
+            else if(event.isEndElement()) {
+                if(event.asEndElement().getName().getLocalPart() == "characters")
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#read(File)}
+     * @param event
+     * @param reader
+     * @param snapshot
+     * @throws XMLStreamException
+     */
+    private static void loadAssociations(XMLEvent event, XMLEventReader reader, ProjectSnapshot snapshot)
+            throws XMLStreamException
+    {
+        long uid = -1L;
+        long startUID = -1L;
+        long endUID = -1L;
+        double sX = 0.0;
+        double sY = 0.0;
+        double eX = 0.0;
+        double eY = 0.0;
+        String label = "";
+        double lblX = 0.0;
+        double lblY = 0.0;
+
+        while(reader.hasNext()) {
+            event = reader.nextEvent();
+
+            if(event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+
+                if(startElement.getName().getLocalPart() == "association"){
+                    Iterator<Attribute> attrIt = startElement.getAttributes();
+                    while(attrIt.hasNext()) {
+                        Attribute attr = attrIt.next();
+                        switch(attr.getName().getLocalPart()) {
+                            case "uid":
+                                uid = Long.parseLong(attr.getValue());
+                                break;
+                            case "startUID":
+                                startUID = Long.parseLong(attr.getValue());
+                                break;
+                            case "endUID":
+                                endUID = Long.parseLong(attr.getValue());
+                                break;
+                            case "sX":
+                                sX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "sY":
+                                sY = Double.parseDouble(attr.getValue());
+                                break;
+                            case "eX":
+                                eX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "eY":
+                                eY = Double.parseDouble(attr.getValue());
+                                break;
+                            case "lblX":
+                                lblX = Double.parseDouble(attr.getValue());
+                                break;
+                            case "lblY":
+                                lblY = Double.parseDouble(attr.getValue());
+                                break;
+                        }
+                    }
+
+                    event = reader.nextEvent();
+                    if(uid != -1L && label != null) {
+                        if(event.isCharacters())
+                            snapshot.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, event.asCharacters().getData(), lblX, lblY);
+                        else
+                            snapshot.addAssociation(uid, startUID, endUID, sX, sY, eX, eY, "", lblX, lblY);
+
+                    }
+                }
+
+            }
+            else if(event.isEndElement()) {
+                if(event.asEndElement().getName().getLocalPart() == "associations")
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeUIDManager(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException
+    {
+        for(int i = 0; i < snapshot.uids.size(); i++) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "uid"));
+            writer.add(factory.createCharacters(Long.toString(snapshot.uids.get(i))));
+            writer.add(factory.createEndElement("", "", "uid"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeEvents(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException
+    {
+        for(ProjectSnapshot.EventEntry event : snapshot.events) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "event"));
+            writer.add(factory.createAttribute("name", event.name));
+            writer.add(factory.createAttribute("uid", Long.toString(event.uid)));
+
+            writer.add(factory.createCharacters(event.description));
+
+            writer.add(factory.createEndElement("", "", "event"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeEventOrderLists(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException
+    {
+        for(Long[] orderList : snapshot.eventOrderLists) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "order_list"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+
+            for (int j = 0; j < orderList.length; j++) {
+                writer.add(factory.createCharacters("\t\t\t"));
+                writer.add(factory.createStartElement("", "", "li"));
+                writer.add(factory.createCharacters(Long.toString(orderList[j])));
+                writer.add(factory.createEndElement("", "", "li"));
+                writer.add(factory.createCharacters(System.lineSeparator()));
+            }
+
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createEndElement("", "", "order_list"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeCharacters(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException
+    {
+        for(ProjectSnapshot.CharacterEntry character : snapshot.characters) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "character"));
+            writer.add(factory.createAttribute("name", character.name));
+            writer.add(factory.createAttribute("uid", Long.toString(character.uid)));
+            writer.add(factory.createAttribute("chartX", Double.toString(character.chartX)));
+            writer.add(factory.createAttribute("chartY", Double.toString(character.chartY)));
+
+            writer.add(factory.createCharacters(character.description));
+
+            writer.add(factory.createEndElement("", "", "character"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Internal helper method to {@link EventApiXmlFormat#write(ProjectSnapshot, File)}
+     * @param snapshot
+     * @param factory
+     * @param writer
+     * @throws XMLStreamException
+     */
+    private static void writeAssociations(ProjectSnapshot snapshot, XMLEventFactory factory, XMLEventWriter writer)
+            throws XMLStreamException
+    {
+        for(ProjectSnapshot.AssociationEntry assoc : snapshot.associations) {
+            writer.add(factory.createCharacters("\t\t"));
+            writer.add(factory.createStartElement("", "", "association"));
+            writer.add(factory.createAttribute("uid", Long.toString(assoc.uid)));
+            writer.add(factory.createAttribute("startUID", Long.toString(assoc.startUID)));
+            writer.add(factory.createAttribute("endUID", Long.toString(assoc.endUID)));
+            writer.add(factory.createAttribute("sX", Double.toString(assoc.sX)));
+            writer.add(factory.createAttribute("sY", Double.toString(assoc.sY)));
+            writer.add(factory.createAttribute("eX", Double.toString(assoc.eX)));
+            writer.add(factory.createAttribute("eY", Double.toString(assoc.eY)));
+            writer.add(factory.createAttribute("lblX", Double.toString(assoc.lblX)));
+            writer.add(factory.createAttribute("lblY", Double.toString(assoc.lblY)));
+
+            writer.add(factory.createCharacters(assoc.label));
+
+            writer.add(factory.createEndElement("", "", "association"));
+            writer.add(factory.createCharacters(System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Reads the given XML project file into a new snapshot.
+     * @param file the project file to read
+     * @return the data contained within the file
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static ProjectSnapshot read(File file) throws IOException, XMLStreamException {
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+
+        try(FileInputStream fileStream = new FileInputStream(file)) {
+
+            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+            // Text containing entities (eg. &amp;) must arrive as a single event, as only
+            // the first characters event of an element is read.
+            inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            XMLEventReader eventReader = inputFactory.createXMLEventReader(fileStream);
+
+            XMLEvent event;
+            while(eventReader.hasNext()) {
+                event = eventReader.nextEvent();
+
+                if(event.isStartElement()) {
+                    StartElement startElement = event.asStartElement();
+                    switch (startElement.getName().getLocalPart()) {
+                        case "project":
+                            Iterator<Attribute> attributes = startElement.getAttributes();
+                            while(attributes.hasNext()) {
+                                Attribute attribute = attributes.next();
+                                switch (attribute.getName().getLocalPart()) {
+                                    case "name":
+                                        snapshot.name = attribute.getValue();
+                                        break;
+                                    case "journal_generation":
+                                        snapshot.journalGeneration = Long.parseLong(attribute.getValue());
+                                        break;
+                                }
+                            }
+                            break;
+                        case "uid_manager":
+                            loadUIDManager(event, eventReader, snapshot);
+                            break;
+                        case "events":
+                            loadEvents(event, eventReader, snapshot);
+                            break;
+                        case "event_order":
+                            loadEventOrderLists(event, eventReader, snapshot);
+                            break;
+                        case "characters":
+                            loadCharacters(event, eventReader, snapshot);
+                            break;
+                        case "associations":
+                            loadAssociations(event, eventReader, snapshot);
+                            break;
+                    }
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Writes the given snapshot to the file as an XML project, overwriting any existing content.
+     * @param snapshot the data to write
+     * @param file the file to write to
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    public static void write(ProjectSnapshot snapshot, File file) throws IOException, XMLStreamException {
+        try(FileOutputStream fileStream = new FileOutputStream(file, false)) {
+
+            XMLEventFactory eventFactory = XMLEventFactory.newFactory();
+            XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+            XMLEventWriter eventWriter = outputFactory.createXMLEventWriter(fileStream);
+
+            eventWriter.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createStartElement("", "", "project"));
+            eventWriter.add(eventFactory.createAttribute("name", snapshot.name));
+            if(snapshot.journalGeneration > 0L)
+                eventWriter.add(eventFactory.createAttribute("journal_generation",
+                        Long.toString(snapshot.journalGeneration)));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createStartElement("", "", "uid_manager"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+            writeUIDManager(snapshot, eventFactory, eventWriter);
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createEndElement("", "", "uid_manager"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createStartElement("", "", "events"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+            writeEvents(snapshot, eventFactory, eventWriter);
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createEndElement("", "", "events"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createStartElement("", "", "event_order"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+            writeEventOrderLists(snapshot, eventFactory, eventWriter);
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createEndElement("", "", "event_order"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createStartElement("", "", "characters"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+            writeCharacters(snapshot, eventFactory, eventWriter);
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createEndElement("", "", "characters"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createStartElement("", "", "associations"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+            writeAssociations(snapshot, eventFactory, eventWriter);
+            eventWriter.add(eventFactory.createCharacters("\t"));
+            eventWriter.add(eventFactory.createEndElement("", "", "associations"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createEndElement("", "", "project"));
+            eventWriter.add(eventFactory.createCharacters(System.lineSeparator()));
+
+            eventWriter.add(eventFactory.createEndDocument());
+
+            eventWriter.flush();
+        }
+    }
+
+}
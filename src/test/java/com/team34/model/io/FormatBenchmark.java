@@ -0,0 +1,158 @@
+package com.team34.model.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Measures the load and save throughput of the project formats, on a generated project.
+ * The XML format is measured both with the old StAX event API ({@link EventApiXmlFormat})
+ * and the cursor API it uses now ({@link XmlProjectFormat}).
+ * <p>
+ * Usage, after {@code mvn test-compile}:
+ * <pre>
+ * java -cp target/classes:target/test-classes com.team34.model.io.FormatBenchmark [events] [iterations]
+ * </pre>
+ * The throughput is reported in MB/s of file size. Each format is written and read a couple of
+ * times before measuring, so that the JIT compiler has warmed up.
+ */
+public class FormatBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 2;
+
+    private FormatBenchmark() { }
+
+    /**
+     * Generates a project with the given number of events, and a tenth as many characters and associations.
+     * @param eventCount the number of events
+     * @param seed the seed of the random contents
+     * @return the generated project
+     */
+    public static ProjectSnapshot generate(int eventCount, long seed) {
+        Random rand = new Random(seed);
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        snapshot.name = "Benchmark";
+
+        Long[] order = new Long[eventCount];
+        for(int i = 0; i < eventCount; i++) {
+            long uid = rand.nextLong();
+            snapshot.uids.add(uid);
+            snapshot.addEvent(uid, "Event " + i, randomText(rand, 40 + rand.nextInt(400)));
+            order[i] = uid;
+        }
+        snapshot.eventOrderLists.add(order);
+
+        int characterCount = Math.max(2, eventCount / 10);
+        long[] characters = new long[characterCount];
+        for(int i = 0; i < characterCount; i++) {
+            characters[i] = rand.nextLong();
+            snapshot.uids.add(characters[i]);
+            snapshot.addCharacter(characters[i], "Character " + i, randomText(rand, 200),
+                    rand.nextInt(4000), rand.nextInt(4000));
+        }
+
+        for(int i = 0; i < characterCount; i++) {
+            long uid = rand.nextLong();
+            snapshot.uids.add(uid);
+            snapshot.addAssociation(uid, characters[i], characters[rand.nextInt(characterCount)],
+                    rand.nextDouble() * 4000.0, rand.nextDouble() * 4000.0,
+                    rand.nextDouble() * 4000.0, rand.nextDouble() * 4000.0,
+                    randomText(rand, 12), rand.nextDouble() * 4000.0, rand.nextDouble() * 4000.0);
+        }
+
+        return snapshot;
+    }
+
+    private static String randomText(Random rand, int length) {
+        final String chars = "abcdefghijklmnopqrstuvwxyz      .,&<>\"'\u00e5\u00e4\u00f6";
+        StringBuilder sb = new StringBuilder(length);
+        for(int i = 0; i < length; i++)
+            sb.append(chars.charAt(rand.nextInt(chars.length())));
+        return sb.toString();
+    }
+
+    /**
+     * Writes and reads a project file in one particular way.
+     */
+    private interface Codec {
+        void write(ProjectSnapshot snapshot, File file) throws IOException, XMLStreamException;
+        ProjectSnapshot read(File file) throws IOException, XMLStreamException;
+    }
+
+    /**
+     * Writes and reads the snapshot with the given codec, and prints the throughput.
+     */
+    private static void run(String name, Codec codec, ProjectSnapshot snapshot, File file, int iterations)
+            throws IOException, XMLStreamException
+    {
+        for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+            codec.write(snapshot, file);
+            codec.read(file);
+        }
+
+        long writeNanos = 0L;
+        long readNanos = 0L;
+        for(int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            codec.write(snapshot, file);
+            writeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            codec.read(file);
+            readNanos += System.nanoTime() - start;
+        }
+
+        double megabytes = file.length() * (double) iterations / (1024.0 * 1024.0);
+        System.out.printf("%-12s %10d bytes   save %8.1f MB/s   load %8.1f MB/s%n",
+                name, file.length(), megabytes / (writeNanos / 1e9), megabytes / (readNanos / 1e9));
+    }
+
+    /**
+     * Returns a codec that writes the given format through {@link ProjectFiles}.
+     */
+    private static Codec codecOf(ProjectFormat format) {
+        return new Codec() {
+            @Override
+            public void write(ProjectSnapshot snapshot, File file) throws IOException, XMLStreamException {
+                ProjectFiles.write(snapshot, file, format);
+            }
+
+            @Override
+            public ProjectSnapshot read(File file) throws IOException, XMLStreamException {
+                return ProjectFiles.read(file);
+            }
+        };
+    }
+
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        ProjectSnapshot snapshot = generate(events, 34L);
+        File file = File.createTempFile("benchmark", ".wsp");
+        file.deleteOnExit();
+
+        try {
+            run("XML event", new Codec() {
+                @Override
+                public void write(ProjectSnapshot snapshot, File file) throws IOException, XMLStreamException {
+                    EventApiXmlFormat.write(snapshot, file);
+                }
+
+                @Override
+                public ProjectSnapshot read(File file) throws IOException, XMLStreamException {
+                    return EventApiXmlFormat.read(file);
+                }
+            }, snapshot, file, iterations);
+
+            for(ProjectFormat format : ProjectFormat.values())
+                run(format == ProjectFormat.XML ? "XML cursor" : format.toString(), codecOf(format),
+                        snapshot, file, iterations);
+        } finally {
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests how the {@link JsonReader} tokenizes documents.
+ */
+class JsonReaderTest {
+
+    @Test
+    void objectsAndArraysAreRead() throws IOException {
+        JsonReader json = reader("{\"name\": \"Novel\", \"events\": [{\"x\": 1.5}, {\"x\": -2}], \"done\": true}");
+
+        json.beginObject();
+        assertEquals("name", json.nextName());
+        assertEquals("Novel", json.nextString());
+        assertEquals("events", json.nextName());
+        json.beginArray();
+        json.beginObject();
+        assertEquals("x", json.nextName());
+        assertEquals(1.5, json.nextDouble());
+        json.endObject();
+        json.beginObject();
+        assertEquals("x", json.nextName());
+        assertEquals(-2.0, json.nextDouble());
+        json.endObject();
+        assertFalse(json.hasNext());
+        json.endArray();
+        assertEquals("done", json.nextName());
+        assertEquals("true", json.nextString());
+        assertFalse(json.hasNext());
+        json.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, json.peek());
+    }
+
+    @Test
+    void escapesAreDecoded() throws IOException {
+        JsonReader json = reader("[\"quote \\\" backslash \\\\ slash \\/ \\b\\f\\n\\r\\t\", "
+                + "\"\\u00e5\\u00E4\", \"\\ud83d\\ude00\"]");
+
+        json.beginArray();
+        assertEquals("quote \" backslash \\ slash / \b\f\n\r\t", json.nextString());
+        assertEquals("\u00e5\u00e4", json.nextString());
+        assertEquals("\ud83d\ude00", json.nextString());
+        json.endArray();
+    }
+
+    @Test
+    void numbersAreReadAsWritten() throws IOException {
+        JsonReader json = reader("[0, -0.5, 1e3, 2.5E-2, \"12\", null]");
+
+        json.beginArray();
+        assertEquals(JsonReader.Token.NUMBER, json.peek());
+        assertEquals("0", json.nextString());
+        assertEquals(-0.5, json.nextDouble());
+        assertEquals(1000.0, json.nextDouble());
+        assertEquals(0.025, json.nextDouble());
+        assertEquals(12.0, json.nextDouble()); // Numbers may also be written as strings
+        assertTrue(Double.isNaN(json.nextDouble()));
+        json.endArray();
+    }
+
+    @Test
+    void nullIsReadAsNull() throws IOException {
+        JsonReader json = reader("{\"description\": null}");
+
+        json.beginObject();
+        json.nextName();
+        assertEquals(JsonReader.Token.NULL, json.peek());
+        assertNull(json.nextString());
+        json.endObject();
+    }
+
+    @Test
+    void nestedValuesAreSkipped() throws IOException {
+        JsonReader json = reader("{\"unknown\": {\"a\": [1, [2, {\"b\": \"]}\"}]], \"c\": null}, \"name\": \"kept\"}");
+
+        json.beginObject();
+        assertEquals("unknown", json.nextName());
+        json.skipValue();
+        assertEquals("name", json.nextName());
+        json.skipValue();
+        assertFalse(json.hasNext());
+        json.endObject();
+    }
+
+    @Test
+    void byteOrderMarkAndWhitespaceAreSkipped() throws IOException {
+        JsonReader json = reader("\uFEFF \r\n\t[ ]\n");
+
+        json.beginArray();
+        assertFalse(json.hasNext());
+        json.endArray();
+        assertEquals(JsonReader.Token.END_DOCUMENT, json.peek());
+    }
+
+    @Test
+    void emptyDocumentHasNoTokens() throws IOException {
+        JsonReader json = reader("");
+
+        assertEquals(JsonReader.Token.END_DOCUMENT, json.peek());
+        assertFalse(json.hasNext());
+    }
+
+    @Test
+    void longStringsSpanningBlocksAreRead() throws IOException {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, 'y');
+        String text = new String(chars);
+
+        JsonReader json = new JsonReader(trickle("[\"" + text + "\\u0041\", " + text.length() + "]"));
+
+        json.beginArray();
+        assertEquals(text + "A", json.nextString());
+        assertEquals(20000.0, json.nextDouble());
+        json.endArray();
+    }
+
+    @Test
+    void malformedDocumentsAreRejected() {
+        assertThrows(IOException.class, () -> reader("[\"unterminated").skipValue());
+        assertThrows(IOException.class, () -> reader("\"\\u00g0\"").nextString());
+        assertThrows(IOException.class, () -> reader("\"\\u00").nextString());
+        assertThrows(IOException.class, () -> reader("[undefined]").skipValue());
+        assertThrows(IOException.class, () -> reader("#").peek());
+        assertThrows(IOException.class, () -> reader("[1, 2").skipValue());
+    }
+
+    @Test
+    void unexpectedTokensAreRejected() throws IOException {
+        JsonReader json = reader("{\"x\": \"text\", \"y\": {}}");
+
+        assertThrows(IOException.class, json::beginArray);
+        json.beginObject();
+        json.nextName();
+        assertThrows(IOException.class, json::nextDouble);
+        json.nextName();
+        assertThrows(IOException.class, json::nextString);
+    }
+
+    ////// Helpers //////
+
+    private static JsonReader reader(String input) {
+        return new JsonReader(new StringReader(input));
+    }
+
+    /**
+     * Returns a reader of the given text that returns at most 3 characters per read.
+     */
+    private static Reader trickle(String input) {
+        return new StringReader(input) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+    }
+
+}
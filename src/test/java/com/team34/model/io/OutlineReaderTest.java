@@ -0,0 +1,171 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.team34.model.Project;
+
+/**
+ * Tests reading CSV and JSON outlines with the {@link OutlineReader}.
+ */
+class OutlineReaderTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void csvColumnsAreFoundByName() throws IOException {
+        File file = write("outline.csv", "\uFEFFDescription, Name ,Order,Extra\n"
+                + "\"It begins, slowly\",Opening,2,ignored\n"
+                + "The end,Ending,,\n");
+
+        assertEquals(Arrays.asList(
+                "event Opening | It begins, slowly | 2.0",
+                "event Ending | The end | NaN"), read(file));
+    }
+
+    @Test
+    void csvRowsHaveTypes() throws IOException {
+        File file = write("outline.csv", "type,name,description,x,y,from,to,label\n"
+                + "Character,Alice,The lead,10,-20.5,,,\n"
+                + "character,Bob,,,,,,\n"
+                + "relationship,,,,,Alice,Bob,Siblings\n"
+                + ",Opening,,,,,,\n");
+
+        assertEquals(Arrays.asList(
+                "character Alice | The lead | 10.0 | -20.5",
+                "character Bob |  | NaN | NaN",
+                "association Alice | Bob | Siblings",
+                "event Opening |  | NaN"), read(file));
+    }
+
+    @Test
+    void csvRowsShorterThanHeaderAreRead() throws IOException {
+        File file = write("outline.csv", "name,description,order\nOpening\n");
+
+        assertEquals(Arrays.asList("event Opening |  | NaN"), read(file));
+    }
+
+    @Test
+    void csvErrorsNameTheRecord() throws IOException {
+        File unknown = write("unknown.csv", "type,name\nevent,One\nplace,Two\n");
+        IOException e = assertThrows(IOException.class, () -> read(unknown));
+        assertTrue(e.getMessage().contains("record 3"), e.getMessage());
+
+        File invalid = write("invalid.csv", "name,order\nOne,first\n");
+        e = assertThrows(IOException.class, () -> read(invalid));
+        assertTrue(e.getMessage().contains("record 2"), e.getMessage());
+    }
+
+    @Test
+    void jsonSectionsAreRead() throws IOException {
+        File file = write("outline.json", "{\"title\": {\"ignored\": [1, 2]},"
+                + " \"characters\": [{\"name\": \"Alice\", \"x\": 1, \"y\": \"2\", \"age\": 30}],"
+                + " \"relationships\": [{\"from\": \"Alice\", \"to\": \"Alice\", \"label\": null}],"
+                + " \"events\": [{\"name\": \"Opening\", \"description\": null}]}");
+
+        assertEquals(Arrays.asList(
+                "character Alice |  | 1.0 | 2.0",
+                "association Alice | Alice | ",
+                "event Opening |  | NaN"), read(file));
+    }
+
+    @Test
+    void jsonArrayIsReadAsEvents() throws IOException {
+        File file = write("outline.json", "[{\"name\": \"One\", \"order\": 1}, {\"name\": \"Two\"}]");
+
+        assertEquals(Arrays.asList("event One |  | 1.0", "event Two |  | NaN"), read(file));
+    }
+
+    @Test
+    void formatIsDetectedFromContentWithoutExtension() throws IOException {
+        assertEquals(Arrays.asList("event One |  | NaN"), read(write("outline.txt", " \n[{\"name\": \"One\"}]")));
+        assertEquals(Arrays.asList("event [One] |  | NaN"), read(write("outline", "name\n[One]\n")));
+    }
+
+    @Test
+    void emptyFileHasNoRecords() throws IOException {
+        OutlineReader reader = new OutlineReader(write("outline.csv", ""));
+        ArrayList<String> records = new ArrayList<>();
+        reader.read(recorder(records));
+
+        assertTrue(records.isEmpty());
+        assertEquals(1.0, reader.getProgress());
+    }
+
+    @Test
+    void jsonExportIsReadBack() throws IOException {
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        snapshot.name = "Novel";
+        snapshot.addEvent(1L, "Opening", "Line one\nLine \"two\"");
+        snapshot.addEvent(2L, "Ending", "");
+        snapshot.eventOrderLists.add(new Long[] {2L, 1L});
+        snapshot.addCharacter(10L, "Bob", "", 3.0, 4.0);
+        snapshot.addCharacter(11L, "Alice", "\u00e5\u00e4\u00f6", 1.0, 2.0);
+        snapshot.addAssociation(12L, 11L, 10L, 0.0, 0.0, 0.0, 0.0, "Siblings", 0.0, 0.0);
+
+        File file = new File(dir, "export.json");
+        Project.exportOutline(snapshot, file, ExportFormat.JSON);
+
+        OutlineReader reader = new OutlineReader(file);
+        ArrayList<String> records = new ArrayList<>();
+        reader.read(recorder(records));
+
+        assertEquals(Arrays.asList(
+                "event Ending |  | 1.0",
+                "event Opening | Line one\nLine \"two\" | 2.0",
+                "character Alice | \u00e5\u00e4\u00f6 | 1.0 | 2.0",
+                "character Bob |  | 3.0 | 4.0",
+                "association Alice | Bob | Siblings"), records);
+        assertEquals(1.0, reader.getProgress());
+    }
+
+    ////// Helpers //////
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static List<String> read(File file) throws IOException {
+        ArrayList<String> records = new ArrayList<>();
+        new OutlineReader(file).read(recorder(records));
+        return records;
+    }
+
+    /**
+     * Returns a sink that describes each record it receives as a line of text.
+     */
+    private static OutlineReader.Sink recorder(List<String> records) {
+        return new OutlineReader.Sink() {
+            @Override
+            public void event(String name, String description, double order) {
+                records.add("event " + name + " | " + description + " | " + order);
+            }
+
+            @Override
+            public void character(String name, String description, double x, double y) {
+                records.add("character " + name + " | " + description + " | " + x + " | " + y);
+            }
+
+            @Override
+            public void association(String from, String to, String label) {
+                records.add("association " + from + " | " + to + " | " + label);
+            }
+        };
+    }
+
+}
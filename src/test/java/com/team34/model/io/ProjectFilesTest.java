@@ -0,0 +1,101 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests how {@link ProjectFiles} replaces a project file, and keeps backups of its previous versions.
+ */
+class ProjectFilesTest {
+
+    @TempDir
+    File dir;
+
+    private File file;
+
+    @BeforeEach
+    void setUp() {
+        file = new File(dir, "project.wsp");
+    }
+
+    @Test
+    void previousVersionsAreKeptAsBackups() throws IOException, XMLStreamException {
+        for(int version = 1; version <= 4; version++)
+            ProjectFiles.write(version(version), file, ProjectFormat.BINARY, 2);
+
+        assertEquals("Version 4", ProjectFiles.read(file).name);
+        assertEquals("Version 3", ProjectFiles.read(ProjectFiles.backupFile(file, 1)).name);
+        assertEquals("Version 2", ProjectFiles.read(ProjectFiles.backupFile(file, 2)).name);
+        assertFalse(ProjectFiles.backupFile(file, 3).exists());
+    }
+
+    @Test
+    void backupKeepsFormatOfPreviousVersion() throws IOException, XMLStreamException {
+        ProjectFiles.write(version(1), file, ProjectFormat.XML, 1);
+        ProjectFiles.write(version(2), file, ProjectFormat.COMPRESSED, 1);
+
+        assertEquals(ProjectFormat.COMPRESSED, ProjectFiles.detectFormat(file));
+        assertEquals(ProjectFormat.XML, ProjectFiles.detectFormat(ProjectFiles.backupFile(file, 1)));
+        assertEquals("Version 1", ProjectFiles.read(ProjectFiles.backupFile(file, 1)).name);
+    }
+
+    @Test
+    void backupIsNotLinkedToReplacedFile() throws IOException, XMLStreamException {
+        ProjectFiles.write(version(1), file, ProjectFormat.XML, 1);
+        byte[] first = Files.readAllBytes(file.toPath());
+        ProjectFiles.write(version(2), file, ProjectFormat.XML, 1);
+
+        // The backup may be a hard link to the old file, which must not change as the file is replaced
+        assertArrayEquals(first, Files.readAllBytes(ProjectFiles.backupFile(file, 1).toPath()));
+    }
+
+    @Test
+    void noBackupsAreKeptUnlessAsked() throws IOException, XMLStreamException {
+        ProjectFiles.write(version(1), file, ProjectFormat.XML);
+        ProjectFiles.write(version(2), file, ProjectFormat.XML);
+
+        assertFalse(ProjectFiles.backupFile(file, 1).exists());
+        assertArrayEquals(new String[] {file.getName()}, dir.list());
+    }
+
+    @Test
+    void failedWriteLeavesFileAndBackupsUntouched() throws IOException, XMLStreamException {
+        ProjectFiles.write(version(1), file, ProjectFormat.BINARY, 2);
+        ProjectFiles.write(version(2), file, ProjectFormat.BINARY, 2);
+        byte[] current = Files.readAllBytes(file.toPath());
+        byte[] backup = Files.readAllBytes(ProjectFiles.backupFile(file, 1).toPath());
+
+        ProjectSnapshot broken = version(3);
+        broken.eventOrderLists.add(new Long[] {null}); // An order list with a missing UID cannot be written
+        assertThrows(RuntimeException.class, () -> ProjectFiles.write(broken, file, ProjectFormat.BINARY, 2));
+
+        assertArrayEquals(current, Files.readAllBytes(file.toPath()));
+        assertArrayEquals(backup, Files.readAllBytes(ProjectFiles.backupFile(file, 1).toPath()));
+        assertFalse(ProjectFiles.backupFile(file, 2).exists());
+        assertEquals(2, dir.list().length); // No temporary file is left behind
+    }
+
+    ////// Helpers //////
+
+    private static ProjectSnapshot version(int version) {
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        snapshot.name = "Version " + version;
+        snapshot.uids.add(1L);
+        snapshot.addEvent(1L, "Event", "Written by version " + version);
+        snapshot.eventOrderLists.add(new Long[] {1L});
+        return snapshot;
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests storing revisions in a {@link ProjectHistory}, and restoring them.
+ */
+class ProjectHistoryTest {
+
+    @TempDir
+    File dir;
+
+    private File projectFile;
+    private ProjectSnapshot base;
+
+    @BeforeEach
+    void setUp() {
+        projectFile = new File(dir, "project.wsp");
+
+        base = new ProjectSnapshot();
+        base.name = "Novel";
+        Long[] order = new Long[20];
+        for(int i = 0; i < order.length; i++) {
+            long uid = i + 1;
+            base.uids.add(uid);
+            base.addEvent(uid, "Event " + uid, "Description " + uid);
+            order[i] = uid;
+        }
+        base.eventOrderLists.add(order);
+        base.eventOrderLists.add(new Long[] {3L, 1L});
+
+        base.uids.addAll(Arrays.asList(100L, 101L, 102L));
+        base.addCharacter(100L, "Alice", "The lead", 10.0, -20.0);
+        base.addCharacter(101L, "Bob", "", 300.5, 0.0);
+        base.addAssociation(102L, 100L, 101L, 1.0, 2.0, 3.0, 4.0, "Siblings", 5.0, 6.0);
+    }
+
+    @Test
+    void committedRevisionIsRestored() throws IOException {
+        ProjectHistory history = new ProjectHistory(projectFile);
+        ProjectHistory.Revision revision = history.commit(base);
+
+        assertEquals(1L, revision.getNumber());
+        assertEquals("Novel", revision.getName());
+        assertEquals(20, revision.getEventCount());
+        assertEquals(2, revision.getCharacterCount());
+        assertEquals(1, revision.getAssociationCount());
+        assertSameData(base, history.restore(1L));
+    }
+
+    @Test
+    void identicalSnapshotIsNotStoredAgain() throws IOException {
+        ProjectHistory history = new ProjectHistory(projectFile);
+        history.commit(base);
+
+        ProjectHistory.Revision again = history.commit(copy(base));
+
+        assertEquals(1L, again.getNumber());
+        assertEquals(1, history.getRevisions().size());
+    }
+
+    @Test
+    void everyRevisionCanBeRestored() throws IOException {
+        ProjectHistory history = new ProjectHistory(projectFile);
+        history.commit(base);
+
+        ProjectSnapshot changed = copy(base);
+        changed.name = "Renamed";
+        changed.events.set(4, new ProjectSnapshot.EventEntry(5L, "Changed", "Description 5"));
+        changed.characters.remove(1);
+        changed.associations.clear();
+        changed.uids.removeAll(Arrays.asList(101L, 102L));
+        Long[] order = changed.eventOrderLists.get(0);
+        changed.eventOrderLists.set(0, new Long[] {order[1], order[0]});
+        history.commit(changed);
+
+        assertSameData(base, history.restore(1L));
+        assertSameData(changed, history.restore(2L));
+    }
+
+    @Test
+    void smallChangeOnlyStoresWhatChanged() throws IOException {
+        ProjectSnapshot large = new ProjectSnapshot();
+        Long[] order = new Long[2000];
+        for(int i = 0; i < order.length; i++) {
+            large.uids.add((long) i);
+            large.addEvent(i, "Event " + i, "A description long enough to outweigh the buckets, " + i);
+            order[i] = (long) i;
+        }
+        large.eventOrderLists.add(order);
+
+        ProjectHistory history = new ProjectHistory(projectFile);
+        ProjectHistory.Revision first = history.commit(large);
+
+        ProjectSnapshot changed = copy(large);
+        changed.events.set(1000, new ProjectSnapshot.EventEntry(1000L, "Changed", ""));
+        ProjectHistory.Revision second = history.commit(changed);
+
+        assertEquals(2L, second.getNumber());
+        assertTrue(second.getAddedBytes() * 20 < first.getAddedBytes(),
+                second.getAddedBytes() + " of " + first.getAddedBytes() + " bytes");
+        assertSameData(changed, history.restore(2L));
+    }
+
+    @Test
+    void historyIsReadBackFromDisk() throws IOException {
+        ProjectHistory history = new ProjectHistory(projectFile);
+        history.commit(base);
+        ProjectSnapshot changed = copy(base);
+        changed.name = "Renamed";
+        history.commit(changed);
+
+        ProjectHistory reopened = new ProjectHistory(projectFile);
+        List<ProjectHistory.Revision> revisions = reopened.getRevisions();
+        assertEquals(2, revisions.size());
+        assertEquals("Renamed", revisions.get(1).getName());
+        assertSameData(base, reopened.restore(1L));
+
+        // Revisions stored by another instance are seen by the first one too
+        ProjectSnapshot third = copy(base);
+        third.name = "Third";
+        reopened.commit(third);
+        assertEquals(3, history.getRevisions().size());
+        assertSameData(third, history.restore(3L));
+    }
+
+    @Test
+    void revisionLeftIncompleteIsIgnored() throws IOException {
+        ProjectHistory history = new ProjectHistory(projectFile);
+        history.commit(base);
+        ProjectSnapshot changed = copy(base);
+        changed.name = "Renamed";
+        history.commit(changed);
+
+        File log = new File(ProjectHistory.historyDirectory(projectFile), "revisions.log");
+        try(RandomAccessFile raf = new RandomAccessFile(log, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        ProjectHistory reopened = new ProjectHistory(projectFile);
+        assertEquals(1, reopened.getRevisions().size());
+
+        // The next revision takes the place of the incomplete one
+        assertEquals(2L, reopened.commit(changed).getNumber());
+        assertSameData(changed, new ProjectHistory(projectFile).restore(2L));
+    }
+
+    @Test
+    void missingRevisionCannotBeRestored() throws IOException {
+        ProjectHistory history = new ProjectHistory(projectFile);
+        history.commit(base);
+
+        assertThrows(IOException.class, () -> history.restore(2L));
+    }
+
+    ////// Helpers //////
+
+    private static ProjectSnapshot copy(ProjectSnapshot snapshot) {
+        ProjectSnapshot copy = new ProjectSnapshot();
+        copy.name = snapshot.name;
+        copy.uids.addAll(snapshot.uids);
+        copy.events.addAll(snapshot.events);
+        for(Long[] orderList : snapshot.eventOrderLists)
+            copy.eventOrderLists.add(orderList.clone());
+        copy.characters.addAll(snapshot.characters);
+        copy.associations.addAll(snapshot.associations);
+        return copy;
+    }
+
+    /**
+     * Asserts that a restored revision holds the data of the snapshot it was stored from. The entities of a
+     * revision are restored in the order of their buckets, rather than the order they were stored in.
+     */
+    private static void assertSameData(ProjectSnapshot expected, ProjectSnapshot actual) {
+        assertEquals(expected.name, actual.name);
+        assertEquals(new HashSet<>(entityUIDs(expected)), new HashSet<>(actual.uids));
+        assertEquals(expected.eventOrderLists.size(), actual.eventOrderLists.size());
+        for(int i = 0; i < expected.eventOrderLists.size(); i++)
+            assertArrayEquals(expected.eventOrderLists.get(i), actual.eventOrderLists.get(i));
+        assertTrue(ProjectDiff.compare(expected, actual).isEmpty());
+    }
+
+    private static List<Long> entityUIDs(ProjectSnapshot snapshot) {
+        ArrayList<Long> uids = new ArrayList<>();
+        snapshot.events.forEach(event -> uids.add(event.uid));
+        snapshot.characters.forEach(character -> uids.add(character.uid));
+        snapshot.associations.forEach(association -> uids.add(association.uid));
+        return uids;
+    }
+
+}
@@ -0,0 +1,160 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests writing a {@link ProjectJournal} and replaying it into a {@link SnapshotReplay}.
+ */
+class ProjectJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private File projectFile;
+
+    @BeforeEach
+    void setUp() {
+        projectFile = dir.resolve("project.wsp").toFile();
+    }
+
+    @Test
+    void replayReproducesEveryChange() throws IOException {
+        ProjectJournal journal = ProjectJournal.create(projectFile, 1L, null);
+        for(long uid = 1; uid <= 4; uid++) {
+            journal.uidAdded(uid);
+            journal.eventPut(uid, "Event " + uid, "Description " + uid);
+            journal.eventAppended(uid);
+        }
+        journal.eventPut(2L, "Renamed", "");
+        journal.eventMoved(0, 0, 3);
+        journal.eventSwapped(0, 0, 1);
+        journal.eventRemoved(3L);
+
+        journal.uidAdded(10L);
+        journal.characterPut(10L, "Alice", "The lead", 1.5, -2.5);
+        journal.uidAdded(11L);
+        journal.characterPut(11L, "Bob", "", 3.0, 4.0);
+        journal.uidAdded(12L);
+        journal.associationPut(12L, 10L, 11L, 1.0, 2.0, 3.0, 4.0, "Siblings", 5.0, 6.0);
+        journal.uidAdded(13L);
+        journal.characterPut(13L, "Eve", "", 0.0, 0.0);
+        journal.characterRemoved(13L);
+        journal.close();
+
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        SnapshotReplay replay = new SnapshotReplay(snapshot);
+        int applied = ProjectJournal.replay(ProjectJournal.journalFile(projectFile, 1L), replay);
+        replay.finish();
+
+        assertEquals(25, applied);
+        assertEquals(3, snapshot.events.size());
+        assertEquals("Renamed", nameOf(snapshot, 2L));
+        assertArrayEquals(new Long[] {2L, 4L, 1L}, snapshot.eventOrderLists.get(0));
+
+        assertEquals(2, snapshot.characters.size());
+        assertEquals("Alice", snapshot.characters.get(0).name);
+        assertEquals(-2.5, snapshot.characters.get(0).chartY);
+        assertEquals(1, snapshot.associations.size());
+        assertEquals("Siblings", snapshot.associations.get(0).label);
+        assertEquals(11L, snapshot.associations.get(0).endUID);
+
+        assertFalse(snapshot.uids.contains(3L));
+        assertFalse(snapshot.uids.contains(13L));
+        assertEquals(6, snapshot.uids.size());
+    }
+
+    @Test
+    void replayStopsAtTornRecord() throws IOException {
+        File file = writeEvents(3);
+        try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        ProjectSnapshot snapshot = new ProjectSnapshot();
+        SnapshotReplay replay = new SnapshotReplay(snapshot);
+        assertEquals(2, ProjectJournal.replay(file, replay));
+        replay.finish();
+
+        assertEquals(2, snapshot.events.size());
+        assertEquals("Event 2", nameOf(snapshot, 2L));
+    }
+
+    @Test
+    void replayStopsAtRecordFailingItsChecksum() throws IOException {
+        File file = writeEvents(3);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length - 6] ^= 0x5A; // Within the fields of the last record
+        Files.write(file.toPath(), bytes);
+
+        assertEquals(2, ProjectJournal.replay(file, new SnapshotReplay(new ProjectSnapshot())));
+    }
+
+    @Test
+    void replayAppliesNothingAfterCorruptRecord() throws IOException {
+        File file = writeEvents(3);
+        byte[] intact = Files.readAllBytes(file.toPath());
+        File first = writeEvents(1);
+        int firstEnd = (int) first.length();
+
+        byte[] bytes = intact.clone();
+        bytes[firstEnd + 2] ^= 0x5A; // Within the second record
+        Files.write(file.toPath(), bytes);
+
+        assertEquals(1, ProjectJournal.replay(file, new SnapshotReplay(new ProjectSnapshot())));
+    }
+
+    @Test
+    void replayRejectsFileThatIsNotJournal() throws IOException {
+        File file = ProjectJournal.journalFile(projectFile, 1L);
+        Files.write(file.toPath(), "<project></project>".getBytes());
+
+        assertThrows(IOException.class, () -> ProjectJournal.replay(file, new SnapshotReplay(new ProjectSnapshot())));
+    }
+
+    @Test
+    void obsoleteJournalsAreDeleted() throws IOException {
+        for(long generation = 1; generation <= 3; generation++)
+            ProjectJournal.create(projectFile, generation, null).close();
+        Files.write(dir.resolve("project.wsp.journal.old"), new byte[0]);
+
+        assertArrayEquals(new long[] {1L, 2L, 3L}, ProjectJournal.findGenerations(projectFile));
+
+        ProjectJournal.deleteObsolete(projectFile, 2L);
+        assertArrayEquals(new long[] {3L}, ProjectJournal.findGenerations(projectFile));
+        assertTrue(ProjectJournal.journalFile(projectFile, 3L).exists());
+    }
+
+    /**
+     * Writes a journal of generation 1, with a record putting each of the given number of events.
+     */
+    private File writeEvents(int count) throws IOException {
+        ProjectJournal journal = ProjectJournal.create(projectFile, 1L, null);
+        for(long uid = 1; uid <= count; uid++)
+            journal.eventPut(uid, "Event " + uid, "");
+        journal.close();
+        return journal.getFile();
+    }
+
+    private static String nameOf(ProjectSnapshot snapshot, long uid) {
+        for(ProjectSnapshot.EventEntry event : snapshot.events) {
+            if(event.uid == uid)
+                return event.name;
+        }
+        return null;
+    }
+
+}
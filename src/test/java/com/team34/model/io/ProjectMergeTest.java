@@ -0,0 +1,230 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests how {@link ProjectMerge} merges two copies of a project, and resolves their conflicts.
+ */
+class ProjectMergeTest {
+
+    private ProjectSnapshot base;
+
+    @BeforeEach
+    void setUp() {
+        // Events 1-4 in order, characters 10 and 11, and an association 12 between them
+        base = new ProjectSnapshot();
+        base.name = "Novel";
+        for(long uid = 1; uid <= 4; uid++) {
+            base.uids.add(uid);
+            base.addEvent(uid, "Event " + uid, "Description " + uid);
+        }
+        base.eventOrderLists.add(new Long[] {1L, 2L, 3L, 4L});
+
+        base.uids.addAll(Arrays.asList(10L, 11L, 12L));
+        base.addCharacter(10L, "Alice", "", 0.0, 0.0);
+        base.addCharacter(11L, "Bob", "", 100.0, 0.0);
+        base.addAssociation(12L, 10L, 11L, 0.0, 0.0, 100.0, 0.0, "Siblings", 50.0, 0.0);
+    }
+
+    @Test
+    void unchangedCopiesMergeToOriginal() {
+        ProjectMerge merge = ProjectMerge.merge(base, copy(base), copy(base));
+
+        assertTrue(merge.getConflicts().isEmpty());
+        assertTrue(ProjectDiff.compare(base, merge.getResult()).isEmpty());
+    }
+
+    @Test
+    void changesOfOneCopyAreTaken() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        replaceEvent(theirs, 2L, "Their name", "Description 2");
+        theirs.name = "Renamed";
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        assertTrue(merge.getConflicts().isEmpty());
+        assertEquals("Renamed", merge.getResult().name);
+        assertEquals("Their name", event(merge.getResult(), 2L).name);
+    }
+
+    @Test
+    void changesToDifferentFieldsAreBothKept() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        replaceEvent(ours, 1L, "Our name", "Description 1");
+        replaceEvent(theirs, 1L, "Event 1", "Their description");
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        assertTrue(merge.getConflicts().isEmpty());
+        ProjectSnapshot.EventEntry event = event(merge.getResult(), 1L);
+        assertEquals("Our name", event.name);
+        assertEquals("Their description", event.description);
+    }
+
+    @Test
+    void conflictingChangesAreResolvedInFavourOfOurs() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        replaceEvent(ours, 3L, "Our name", "Description 3");
+        replaceEvent(theirs, 3L, "Their name", "Their description");
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        assertEquals(1, merge.getConflicts().size());
+        ProjectMerge.Conflict conflict = merge.getConflicts().get(0);
+        assertEquals("Event", conflict.getType());
+        assertEquals(3L, conflict.getUID());
+
+        ProjectSnapshot.EventEntry event = event(merge.getResult(), 3L);
+        assertEquals("Our name", event.name);
+        assertEquals("Their description", event.description);
+    }
+
+    @Test
+    void eventDeletedInOneCopyButChangedInOtherIsKept() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        replaceEvent(ours, 4L, "Still needed", "Description 4");
+        removeEvent(theirs, 4L);
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        assertEquals(1, merge.getConflicts().size());
+        assertEquals(4L, merge.getConflicts().get(0).getUID());
+        assertEquals("Still needed", event(merge.getResult(), 4L).name);
+        assertArrayEquals(new Long[] {1L, 2L, 3L, 4L}, merge.getResult().eventOrderLists.get(0));
+    }
+
+    @Test
+    void eventDeletedInOneCopyOnlyIsDeleted() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        removeEvent(theirs, 2L);
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        assertTrue(merge.getConflicts().isEmpty());
+        assertNull(event(merge.getResult(), 2L));
+        assertFalse(merge.getResult().uids.contains(2L));
+        assertArrayEquals(new Long[] {1L, 3L, 4L}, merge.getResult().eventOrderLists.get(0));
+    }
+
+    @Test
+    void associationOfDeletedCharacterIsRemoved() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        ours.characters.removeIf(character -> character.uid == 11L);
+        ours.associations.clear();
+        ours.uids.removeAll(Arrays.asList(11L, 12L));
+
+        ProjectSnapshot.AssociationEntry assoc = theirs.associations.get(0);
+        theirs.associations.set(0, new ProjectSnapshot.AssociationEntry(assoc.uid, assoc.startUID, assoc.endUID,
+                assoc.sX, assoc.sY, assoc.eX, assoc.eY, "Rivals", assoc.lblX, assoc.lblY));
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        // Their change to the association keeps it, until the character it joins turns out to be deleted
+        assertEquals(2, merge.getConflicts().size());
+        assertTrue(merge.getResult().associations.isEmpty());
+        assertEquals(1, merge.getResult().characters.size());
+        assertFalse(merge.getResult().uids.contains(12L));
+    }
+
+    @Test
+    void insertionsOfBothCopiesAreKept() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        addEvent(ours, 5L, 1, "Ours");
+        addEvent(theirs, 6L, 3, "Theirs");
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        assertTrue(merge.getConflicts().isEmpty());
+        assertArrayEquals(new Long[] {1L, 5L, 2L, 3L, 6L, 4L}, merge.getResult().eventOrderLists.get(0));
+        assertTrue(merge.getResult().uids.containsAll(Arrays.asList(5L, 6L)));
+    }
+
+    @Test
+    void conflictingReordersKeepEveryEventOnce() {
+        ProjectSnapshot ours = copy(base);
+        ProjectSnapshot theirs = copy(base);
+        ours.eventOrderLists.set(0, new Long[] {2L, 1L, 3L, 4L});
+        theirs.eventOrderLists.set(0, new Long[] {1L, 3L, 2L, 4L});
+        addEvent(theirs, 6L, 4, "Theirs");
+
+        ProjectMerge merge = ProjectMerge.merge(base, ours, theirs);
+
+        assertNotNull(findConflict(merge, "Order list 1"));
+        Long[] order = merge.getResult().eventOrderLists.get(0);
+        assertEquals(5, order.length);
+        assertEquals(5, new HashSet<>(Arrays.asList(order)).size());
+        assertEquals(2L, order[0]);
+        assertEquals(6L, order[4]);
+    }
+
+    ////// Helpers //////
+
+    private static ProjectSnapshot copy(ProjectSnapshot snapshot) {
+        ProjectSnapshot copy = new ProjectSnapshot();
+        copy.name = snapshot.name;
+        copy.uids.addAll(snapshot.uids);
+        copy.events.addAll(snapshot.events);
+        for(Long[] orderList : snapshot.eventOrderLists)
+            copy.eventOrderLists.add(orderList.clone());
+        copy.characters.addAll(snapshot.characters);
+        copy.associations.addAll(snapshot.associations);
+        return copy;
+    }
+
+    private static ProjectSnapshot.EventEntry event(ProjectSnapshot snapshot, long uid) {
+        for(ProjectSnapshot.EventEntry event : snapshot.events) {
+            if(event.uid == uid)
+                return event;
+        }
+        return null;
+    }
+
+    private static void replaceEvent(ProjectSnapshot snapshot, long uid, String name, String description) {
+        snapshot.events.replaceAll(event -> event.uid == uid
+                ? new ProjectSnapshot.EventEntry(uid, name, description) : event);
+    }
+
+    private static void removeEvent(ProjectSnapshot snapshot, long uid) {
+        snapshot.events.removeIf(event -> event.uid == uid);
+        snapshot.uids.remove(uid);
+        ArrayList<Long> order = new ArrayList<>(Arrays.asList(snapshot.eventOrderLists.get(0)));
+        order.remove(uid);
+        snapshot.eventOrderLists.set(0, order.toArray(new Long[0]));
+    }
+
+    private static void addEvent(ProjectSnapshot snapshot, long uid, int index, String name) {
+        snapshot.uids.add(uid);
+        snapshot.addEvent(uid, name, "");
+        ArrayList<Long> order = new ArrayList<>(Arrays.asList(snapshot.eventOrderLists.get(0)));
+        order.add(index, uid);
+        snapshot.eventOrderLists.set(0, order.toArray(new Long[0]));
+    }
+
+    private static ProjectMerge.Conflict findConflict(ProjectMerge merge, String type) {
+        for(ProjectMerge.Conflict conflict : merge.getConflicts()) {
+            if(conflict.getType().equals(type))
+                return conflict;
+        }
+        return null;
+    }
+
+}
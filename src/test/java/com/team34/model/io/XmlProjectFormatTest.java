@@ -0,0 +1,163 @@
+package com.team34.model.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests writing and reading the {@link XmlProjectFormat}, and how its section checksums tell damaged
+ * sections from sections that have been edited by hand.
+ */
+class XmlProjectFormatTest {
+
+    @TempDir
+    File dir;
+
+    private File file;
+    private ProjectSnapshot project;
+
+    @BeforeEach
+    void setUp() {
+        file = new File(dir, "project.wsp");
+
+        project = new ProjectSnapshot();
+        project.name = "Novel & \"Notes\" \u00e5\u00e4\u00f6";
+        project.journalGeneration = 3L;
+        project.uids.addAll(Arrays.asList(1L, 2L, -3L, 10L, 11L, 12L));
+        project.addEvent(1L, "Opening", "It was a dark & stormy <night>");
+        project.addEvent(2L, "\u4e2d\u6587", "");
+        project.addEvent(-3L, "Ending", "Line one\nLine two");
+        project.eventOrderLists.add(new Long[] {2L, 1L, -3L});
+        project.addCharacter(10L, "Alice", "The lead", -0.5, 1e300);
+        project.addCharacter(11L, "Bob", "", 0.1, 0.0);
+        project.addAssociation(12L, 10L, 11L, 1.25, -2.5, 3.0, 4.0, "Siblings", 50.0, -0.0);
+    }
+
+    @Test
+    void roundTripKeepsEverything() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+
+        ProjectSnapshot read = XmlProjectFormat.read(file);
+        assertSameData(project, read);
+        assertTrue(read.edited.isEmpty());
+        XmlProjectFormat.verify(file);
+    }
+
+    @Test
+    void sectionEditedByHandIsReadAndListed() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+        replace("name=\"Alice\"", "name=\"Alicia\"");
+
+        ProjectSnapshot read = XmlProjectFormat.read(file);
+        assertEquals(EnumSet.of(ProjectSection.CHARACTERS), read.edited);
+        assertEquals("Alicia", read.characters.get(0).name);
+
+        // A file that has just been written is not expected to have been edited
+        CorruptSectionException e = assertThrows(CorruptSectionException.class, () -> XmlProjectFormat.verify(file));
+        assertEquals(ProjectSection.CHARACTERS, e.getSection());
+    }
+
+    @Test
+    void editedSectionsMatchAgainOnceWritten() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+        replace("name=\"Alice\"", "name=\"Alicia\"");
+
+        XmlProjectFormat.write(XmlProjectFormat.read(file), file);
+
+        assertTrue(XmlProjectFormat.read(file).edited.isEmpty());
+        XmlProjectFormat.verify(file);
+    }
+
+    @Test
+    void sectionThatCannotBeParsedIsDamaged() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+        replace("<li>1</li>", "<li>1</lu>");
+
+        CorruptSectionException e = assertThrows(CorruptSectionException.class, () -> XmlProjectFormat.read(file));
+        assertEquals(ProjectSection.EVENT_ORDER, e.getSection());
+        assertTrue(e.getMessage().contains("checksum mismatch"), e.getMessage());
+    }
+
+    @Test
+    void sectionWithInvalidNumberIsDamaged() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+        replace("chartX=\"-0.5\"", "chartX=\"-0,5\"");
+
+        CorruptSectionException e = assertThrows(CorruptSectionException.class, () -> XmlProjectFormat.read(file));
+        assertEquals(ProjectSection.CHARACTERS, e.getSection());
+    }
+
+    @Test
+    void fileWithoutChecksumsIsRead() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+        String content = content();
+        int start = content.indexOf("<checksums>");
+        int end = content.indexOf("</checksums>") + "</checksums>".length();
+        Files.write(file.toPath(), (content.substring(0, start) + content.substring(end))
+                .getBytes(StandardCharsets.UTF_8));
+
+        ProjectSnapshot read = XmlProjectFormat.read(file);
+        assertSameData(project, read);
+        assertTrue(read.edited.isEmpty());
+    }
+
+    @Test
+    void fileReformattedByHandIsReadFromStartToEnd() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+        replace("<events>", "<events >");
+
+        assertSameData(project, XmlProjectFormat.read(file));
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException, XMLStreamException {
+        XmlProjectFormat.write(project, file);
+        String content = content();
+        Files.write(file.toPath(), content.substring(0, content.indexOf("<characters>") + 20)
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(XMLStreamException.class, () -> XmlProjectFormat.read(file));
+    }
+
+    ////// Helpers //////
+
+    private String content() throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replaces the first occurrence of the given text in the file, as if edited by hand.
+     */
+    private void replace(String target, String replacement) throws IOException {
+        String content = content();
+        int index = content.indexOf(target);
+        assertTrue(index >= 0, "Not found: " + target);
+        content = content.substring(0, index) + replacement + content.substring(index + target.length());
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertSameData(ProjectSnapshot expected, ProjectSnapshot actual) {
+        assertEquals(expected.name, actual.name);
+        assertEquals(expected.journalGeneration, actual.journalGeneration);
+        assertEquals(expected.uids, actual.uids);
+        assertEquals(expected.eventOrderLists.size(), actual.eventOrderLists.size());
+        for(int i = 0; i < expected.eventOrderLists.size(); i++)
+            assertArrayEquals(expected.eventOrderLists.get(i), actual.eventOrderLists.get(i));
+        assertTrue(ProjectDiff.compare(expected, actual).isEmpty());
+    }
+
+}